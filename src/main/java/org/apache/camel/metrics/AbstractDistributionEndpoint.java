@@ -0,0 +1,141 @@
+package org.apache.camel.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.camel.Component;
+import org.apache.camel.metrics.MetricRegistryHelper.MetricFactory;
+import org.apache.camel.metrics.bucket.BucketHistogram;
+import org.apache.camel.metrics.sketch.QuantileSketch;
+import org.apache.camel.metrics.sketch.RollingHistogram;
+import org.apache.camel.metrics.sketch.SketchHistogram;
+import org.apache.camel.spi.UriParam;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Base for endpoints recording distribution of values into reservoir.
+ */
+public abstract class AbstractDistributionEndpoint extends AbstractMetricsEndpoint {
+
+    public static final int DEFAULT_ROLLING_BUCKETS = 6;
+    public static final long DEFAULT_ROLLING_BUCKET_WIDTH = 10000L;
+
+    @UriParam
+    private ReservoirType reservoir;
+
+    @UriParam
+    private double relativeAccuracy = QuantileSketch.DEFAULT_RELATIVE_ACCURACY;
+
+    @UriParam
+    private int rollingBuckets = DEFAULT_ROLLING_BUCKETS;
+
+    @UriParam
+    private long rollingBucketWidth = DEFAULT_ROLLING_BUCKET_WIDTH;
+
+    public AbstractDistributionEndpoint(MetricRegistry registry, String metricsName) {
+        super(registry, metricsName);
+    }
+
+    public AbstractDistributionEndpoint(String endpointUri, Component component, MetricRegistry registry, String metricsName) {
+        super(endpointUri, component, registry, metricsName);
+    }
+
+    /**
+     * Looks up histogram with given name from registry or registers new one
+     * counting values in given bucket bounds or, if bounds are null, in
+     * reservoir of this endpoint.
+     */
+    protected Histogram registerHistogram(String name, final long[] buckets) {
+        if (buckets != null) {
+            return MetricRegistryHelper.getOrRegister(registry, name, Histogram.class, new MetricFactory<Histogram>() {
+                @Override
+                public Histogram newMetric() {
+                    return new BucketHistogram(buckets);
+                }
+            });
+        }
+        else if (reservoir == ReservoirType.sketch) {
+            final double accuracy = relativeAccuracy;
+            return MetricRegistryHelper.getOrRegister(registry, name, Histogram.class, new MetricFactory<Histogram>() {
+                @Override
+                public Histogram newMetric() {
+                    return new SketchHistogram(accuracy);
+                }
+            });
+        }
+        else if (reservoir == ReservoirType.rolling) {
+            final double accuracy = relativeAccuracy;
+            final int bucketCount = rollingBuckets;
+            final long bucketWidth = rollingBucketWidth;
+            return MetricRegistryHelper.getOrRegister(registry, name, Histogram.class, new MetricFactory<Histogram>() {
+                @Override
+                public Histogram newMetric() {
+                    return new RollingHistogram(accuracy, bucketCount, bucketWidth, TimeUnit.MILLISECONDS);
+                }
+            });
+        }
+        else {
+            return registry.histogram(name);
+        }
+    }
+
+    /**
+     * Parses comma separated bucket bounds, or returns null for null.
+     */
+    protected static long[] parseBuckets(String buckets) {
+        if (buckets == null) {
+            return null;
+        }
+        String[] parts = buckets.split(",");
+        long[] bounds = new long[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            bounds[i] = Long.parseLong(parts[i].trim());
+        }
+        return bounds;
+    }
+
+    /**
+     * Returns reservoir type or null if registry default is used.
+     */
+    public ReservoirType getReservoir() {
+        return reservoir;
+    }
+
+    /**
+     * Sets reservoir of metrics registered by this endpoint. Note that
+     * {@link ReservoirType#sketch} answers quantiles since registration and
+     * never decays; {@link ReservoirType#rolling} answers those of recent
+     * window.
+     */
+    public void setReservoir(ReservoirType reservoir) {
+        this.reservoir = reservoir;
+    }
+
+    public double getRelativeAccuracy() {
+        return relativeAccuracy;
+    }
+
+    public void setRelativeAccuracy(double relativeAccuracy) {
+        this.relativeAccuracy = relativeAccuracy;
+    }
+
+    public int getRollingBuckets() {
+        return rollingBuckets;
+    }
+
+    public void setRollingBuckets(int rollingBuckets) {
+        this.rollingBuckets = rollingBuckets;
+    }
+
+    /**
+     * Returns width of single rolling bucket in milliseconds.
+     */
+    public long getRollingBucketWidth() {
+        return rollingBucketWidth;
+    }
+
+    public void setRollingBucketWidth(long rollingBucketWidth) {
+        this.rollingBucketWidth = rollingBucketWidth;
+    }
+}
@@ -1,30 +1,180 @@
 package org.apache.camel.metrics;
 
+import java.util.concurrent.TimeUnit;
+
+import org.apache.camel.CamelContext;
+import org.apache.camel.Component;
 import org.apache.camel.Consumer;
+import org.apache.camel.Exchange;
+import org.apache.camel.Expression;
 import org.apache.camel.Processor;
 import org.apache.camel.RuntimeCamelException;
 import org.apache.camel.impl.DefaultEndpoint;
+import org.apache.camel.spi.UriParam;
+import org.slf4j.Logger;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Metric;
 import com.codahale.metrics.MetricRegistry;
 
 public abstract class AbstractMetricsEndpoint extends DefaultEndpoint {
 
+    public static final String DEFAULT_VALUE_LANGUAGE = "simple";
+    public static final long DEFAULT_ERROR_LOG_INTERVAL = 60000L;
+    public static final String ERRORS_SUFFIX = "errors";
+
     protected final MetricRegistry registry;
     protected final String metricsName;
 
+    @UriParam
+    private Double sampleRate;
+
+    private Sampler sampler;
+
+    @UriParam
+    private String valueExpression;
+
+    @UriParam
+    private String valueLanguage = DEFAULT_VALUE_LANGUAGE;
+
+    @UriParam
+    private boolean headerOverrides = true;
+
+    @UriParam
+    private long errorLogInterval = DEFAULT_ERROR_LOG_INTERVAL;
+
+    private volatile ThrottledLog errorLog;
+
+    private volatile Counter errorCounter;
+
+    private volatile Expression expression;
+
+    private volatile Metric metric;
+
     public AbstractMetricsEndpoint(MetricRegistry registry, String metricsName) {
+        this(null, null, registry, metricsName);
+    }
+
+    /**
+     * Creates endpoint for its full URI, so that Camel caches producers of
+     * endpoints of different metrics separately.
+     */
+    public AbstractMetricsEndpoint(String endpointUri, Component component, MetricRegistry registry, String metricsName) {
+        super(endpointUri, component);
         this.registry = registry;
         this.metricsName = metricsName;
     }
 
+    /**
+     * Registers metric of this endpoint on start, so that the first exchange
+     * does not pay for registration and reporters show idle metrics too.
+     */
+    @Override
+    protected void doStart() throws Exception {
+        super.doStart();
+        if (valueExpression != null && expression == null) {
+            expression = createExpression(getCamelContext());
+        }
+        metric = registerMetric(metricsName);
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        metric = null;
+        super.doStop();
+    }
+
+    /**
+     * Looks up metric with given name from registry or registers new one
+     * using type and options of this endpoint.
+     */
+    protected abstract Metric registerMetric(String name);
+
+    /**
+     * Returns metric for given name. Metric registered on start is returned
+     * for metric name of this endpoint; other names are looked up from
+     * registry.
+     */
+    public Metric getMetric(String name) {
+        Metric started = metric;
+        if (started != null && metricsName.equals(name)) {
+            return started;
+        }
+        return registerMetric(name);
+    }
+
+    /**
+     * Evaluates {@code valueExpression} against exchange. Returns null if no
+     * expression is set. Expression is compiled once, on start or on first
+     * use, and reused for every exchange.
+     */
+    public Object evaluateValue(Exchange exchange) {
+        if (valueExpression == null) {
+            return null;
+        }
+        Expression compiled = expression;
+        if (compiled == null) {
+            compiled = createExpression(exchange.getContext());
+            expression = compiled;
+        }
+        return compiled.evaluate(exchange, Object.class);
+    }
+
+    /**
+     * Counts failure of producing metrics in error counter of this endpoint
+     * and writes warning, throttled per reason to one per
+     * {@code errorLogInterval}.
+     */
+    public void onError(Logger log, String reason, String format, Object... args) {
+        getErrorCounter().inc();
+        getErrorLog().warn(log, reason, format, args);
+    }
+
+    /**
+     * Returns counter of failures of this endpoint, registered on first use
+     * with name {@link #getErrorCounterName()}.
+     */
+    public Counter getErrorCounter() {
+        Counter counter = errorCounter;
+        if (counter == null) {
+            counter = registry.counter(getErrorCounterName());
+            errorCounter = counter;
+        }
+        return counter;
+    }
+
+    /**
+     * Returns name of error counter, {@code <metricsName>.errors}.
+     */
+    public String getErrorCounterName() {
+        return MetricRegistry.name(metricsName, ERRORS_SUFFIX);
+    }
+
+    public ThrottledLog getErrorLog() {
+        ThrottledLog log = errorLog;
+        if (log == null) {
+            log = new ThrottledLog(errorLogInterval, TimeUnit.MILLISECONDS);
+            errorLog = log;
+        }
+        return log;
+    }
+
+    Expression createExpression(CamelContext camelContext) {
+        return camelContext.resolveLanguage(valueLanguage).createExpression(valueExpression);
+    }
+
     @Override
     public Consumer createConsumer(Processor processor) throws Exception {
         throw new RuntimeCamelException("Cannot consume from " + getClass().getSimpleName() + ": " + getEndpointUri());
     }
 
+    /**
+     * Endpoints hold configuration only and are shared by Camel for equal
+     * normalized URIs, also with dynamic routing.
+     */
     @Override
     public boolean isSingleton() {
-        return false;
+        return true;
     }
 
     public MetricRegistry getRegistry() {
@@ -34,4 +184,76 @@ public abstract class AbstractMetricsEndpoint extends DefaultEndpoint {
     public String getMetricsName() {
         return metricsName;
     }
+
+    public Double getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Records one in {@code N} exchanges for rate {@code 1 / N}; rates that
+     * are not {@code 1 / N} are rejected.
+     */
+    public void setSampleRate(Double sampleRate) {
+        this.sampleRate = sampleRate;
+        this.sampler = sampleRate == null || sampleRate == 1.0 ? null : new Sampler(sampleRate);
+    }
+
+    public String getValueExpression() {
+        return valueExpression;
+    }
+
+    public void setValueExpression(String valueExpression) {
+        this.valueExpression = valueExpression;
+        this.expression = null;
+    }
+
+    public String getValueLanguage() {
+        return valueLanguage;
+    }
+
+    public void setValueLanguage(String valueLanguage) {
+        this.valueLanguage = valueLanguage;
+        this.expression = null;
+    }
+
+    public long getErrorLogInterval() {
+        return errorLogInterval;
+    }
+
+    /**
+     * Minimum time in milliseconds between warnings of the same reason;
+     * zero logs every failure.
+     */
+    public void setErrorLogInterval(long errorLogInterval) {
+        this.errorLogInterval = errorLogInterval;
+        this.errorLog = null;
+    }
+
+    public boolean isHeaderOverrides() {
+        return headerOverrides;
+    }
+
+    /**
+     * When false, Metrics headers are neither read nor removed by producers
+     * of this endpoint and endpoint with fixed configuration gets specialized
+     * producer.
+     */
+    public void setHeaderOverrides(boolean headerOverrides) {
+        this.headerOverrides = headerOverrides;
+    }
+
+    /**
+     * Returns true if every exchange updates metric of this endpoint by
+     * amount known from configuration alone.
+     */
+    protected boolean isStaticConfiguration() {
+        return !headerOverrides && valueExpression == null;
+    }
+
+    /**
+     * Returns sampler for this endpoint or null if every exchange is recorded.
+     */
+    public Sampler getSampler() {
+        return sampler;
+    }
 }
@@ -5,6 +5,8 @@ import static org.apache.camel.metrics.MetricsComponent.HEADER_PERFIX;
 
 import org.apache.camel.Exchange;
 import org.apache.camel.Message;
+import org.apache.camel.NoTypeConversionAvailableException;
+import org.apache.camel.RuntimeCamelException;
 import org.apache.camel.impl.DefaultProducer;
 import org.apache.camel.util.ObjectHelper;
 import org.slf4j.Logger;
@@ -17,8 +19,11 @@ public abstract class AbstractMetricsProducer<T extends AbstractMetricsEndpoint>
     public static final String HEADER_PATTERN = HEADER_PERFIX + "*";
     private static final Logger LOG = LoggerFactory.getLogger(AbstractMetricsProducer.class);
 
+    private final boolean headerOverrides;
+
     public AbstractMetricsProducer(T endpoint) {
         super(endpoint);
+        this.headerOverrides = endpoint.isHeaderOverrides();
     }
 
     @Override
@@ -26,20 +31,72 @@ public abstract class AbstractMetricsProducer<T extends AbstractMetricsEndpoint>
         @SuppressWarnings("unchecked")
         T endpoint = (T) getEndpoint();
         Message in = exchange.getIn();
+        if (isSampled(exchange, endpoint)) {
+            processSampled(exchange, endpoint, in);
+        }
+        if (headerOverrides) {
+            clearMetricsHeaders(in);
+        }
+    }
+
+    void processSampled(Exchange exchange, T endpoint, Message in) {
         String defaultMetricsName = endpoint.getMetricsName();
-        String finalMetricsName = getMetricsName(in, defaultMetricsName);
+        String finalMetricsName = headerOverrides ? getMetricsName(in, defaultMetricsName) : defaultMetricsName;
         MetricRegistry registry = endpoint.getRegistry();
         try {
             doProcess(exchange, endpoint, registry, finalMetricsName);
         }
         catch (Exception e) {
-            LOG.warn("Failed to produce metrics for {} in {} - {}", finalMetricsName, getClass().getSimpleName(), e.getMessage());
+            endpoint.onError(LOG, "exception", "Failed to produce metrics for {} in {} - {}", finalMetricsName, getClass().getSimpleName(), e.getMessage());
         }
-        clearMetricsHeaders(in);
+    }
+
+    /**
+     * Returns true if exchange is selected by sampler of endpoint, or
+     * endpoint is not sampled.
+     */
+    protected boolean isSampled(Exchange exchange, T endpoint) {
+        Sampler sampler = endpoint.getSampler();
+        return sampler == null || sampler.isSampled(exchange);
     }
 
     protected abstract void doProcess(Exchange exchange, T endpoint, MetricRegistry registry, String metricsName) throws Exception;
 
+    /**
+     * Returns number of exchanges represented by one recorded exchange.
+     * Counters and meters multiply their updates with it to stay unbiased
+     * when endpoint is sampled.
+     */
+    protected long getSampleScale(T endpoint) {
+        Sampler sampler = endpoint.getSampler();
+        return sampler == null ? 1L : sampler.getInterval();
+    }
+
+    /**
+     * Returns true if Metrics headers may override configuration of the
+     * endpoint. When false, headers are neither read nor removed.
+     */
+    protected boolean isHeaderOverrides() {
+        return headerOverrides;
+    }
+
+    /**
+     * Returns raw value of Metrics header overriding endpoint configuration,
+     * or null if header is not set or endpoint does not accept overrides.
+     */
+    protected Object getOverrideHeader(Message in, String header) {
+        return headerOverrides ? in.getHeader(header) : null;
+    }
+
+    /**
+     * Returns value of Metrics header as primitive long like
+     * {@link #getLongHeader(Message, String, long)}, or default value if
+     * endpoint does not accept overrides.
+     */
+    protected long getOverrideLong(Message in, String header, long defaultValue) {
+        return headerOverrides ? getLongHeader(in, header, defaultValue) : defaultValue;
+    }
+
     public String getMetricsName(Message in, String defaultValue) {
         return getStringHeader(in, HEADER_METRIC_NAME, defaultValue);
     }
@@ -49,8 +106,61 @@ public abstract class AbstractMetricsProducer<T extends AbstractMetricsEndpoint>
         return ObjectHelper.isNotEmpty(headerValue) ? headerValue : defaultValue;
     }
 
-    public Long getLongHeader(Message in, String header, Long defaultValue) {
-        return in.getHeader(header, defaultValue, Long.class);
+    /**
+     * Returns true if header is set, so that {@link #getLongHeader(Message, String, long)}
+     * returns its value instead of the default.
+     */
+    public boolean hasLongHeader(Message in, String header) {
+        return in.getHeader(header) != null;
+    }
+
+    /**
+     * Returns value of header as primitive long or default value if header
+     * is not set. Numbers are converted without boxing as by
+     * {@link #getLongValue(Message, String, Object)}.
+     */
+    public long getLongHeader(Message in, String header, long defaultValue) {
+        Object value = in.getHeader(header);
+        return value == null ? defaultValue : getLongValue(in, header, value);
+    }
+
+    /**
+     * Converts raw header value to primitive long. Numbers are handled
+     * directly; only strings, other types and NaN go through Camel type
+     * converter.
+     */
+    public long getLongValue(Message in, String header, Object value) {
+        if (isNumber(value)) {
+            return ((Number) value).longValue();
+        }
+        Long converted = in.getHeader(header, Long.class);
+        if (converted == null) {
+            throw new RuntimeCamelException("Cannot convert value of header \"" + header + "\" to Long");
+        }
+        return converted;
+    }
+
+    /**
+     * Converts arbitrary value (e.g. message body or collection element) to
+     * primitive long using the same fast path as {@link #getLongValue(Message, String, Object)}.
+     */
+    public long convertToLong(Exchange exchange, Object value) throws NoTypeConversionAvailableException {
+        if (isNumber(value)) {
+            return ((Number) value).longValue();
+        }
+        return exchange.getContext().getTypeConverter().mandatoryConvertTo(Long.class, exchange, value);
+    }
+
+    /**
+     * Returns true if value is a number Camel type converter would turn into
+     * {@link Number#longValue()}. NaN is left to the converter, which
+     * rejects it.
+     */
+    static boolean isNumber(Object value) {
+        if (value instanceof Double || value instanceof Float) {
+            return !Double.isNaN(((Number) value).doubleValue());
+        }
+        return value instanceof Number;
     }
 
     protected boolean clearMetricsHeaders(Message in) {
@@ -0,0 +1,39 @@
+package org.apache.camel.metrics;
+
+import org.apache.camel.RuntimeCamelException;
+
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Looks up custom metric types from {@link MetricRegistry} and registers
+ * them on first use, similar to {@link MetricRegistry#meter(String)} for
+ * built-in types.
+ */
+public final class MetricRegistryHelper {
+
+    private MetricRegistryHelper() {
+    }
+
+    public interface MetricFactory<T extends Metric> {
+
+        T newMetric();
+    }
+
+    public static <T extends Metric> T getOrRegister(MetricRegistry registry, String name, Class<T> type, MetricFactory<T> factory) {
+        Metric metric = registry.getMetrics().get(name);
+        if (metric == null) {
+            try {
+                metric = registry.register(name, factory.newMetric());
+            }
+            catch (IllegalArgumentException e) {
+                // registered concurrently
+                metric = registry.getMetrics().get(name);
+            }
+        }
+        if (type.isInstance(metric)) {
+            return type.cast(metric);
+        }
+        throw new RuntimeCamelException("Metric \"" + name + "\" is not " + type.getSimpleName());
+    }
+}
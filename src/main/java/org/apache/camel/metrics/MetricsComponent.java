@@ -1,14 +1,29 @@
 package org.apache.camel.metrics;
 
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
 import org.apache.camel.Endpoint;
 import org.apache.camel.RuntimeCamelException;
 import org.apache.camel.impl.DefaultComponent;
 import org.apache.camel.metrics.counter.CounterEndpoint;
 import org.apache.camel.metrics.histogram.HistogramEndpoint;
+import org.apache.camel.metrics.jmx.MetricsSummary;
 import org.apache.camel.metrics.meter.MeterEndpoint;
+import org.apache.camel.metrics.multi.MultiEndpoint;
+import org.apache.camel.metrics.reporter.ReportingScheduler;
+import org.apache.camel.metrics.reporter.SnapshotCache;
+import org.apache.camel.metrics.runtime.CamelRuntimeMetrics;
+import org.apache.camel.metrics.runtime.RedeliveryMetrics;
 import org.apache.camel.metrics.timer.TimerEndpoint;
 import org.apache.camel.spi.Registry;
 import org.apache.camel.util.ObjectHelper;
@@ -16,6 +31,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.ScheduledReporter;
 import com.codahale.metrics.Slf4jReporter;
 
 /**
@@ -26,6 +42,7 @@ public class MetricsComponent extends DefaultComponent {
     public static final String METRIC_REGISTRY_NAME = "metricRegistry";
     public static final MetricsType DEFAULT_METRICS_TYPE = MetricsType.METER;
     public static final long DEFAULT_REPORTING_INTERVAL_SECONDS = 60L;
+    public static final String JMX_DOMAIN = "org.apache.camel.metrics";
     public static final String HEADER_PERFIX = "CamelMetrics";
     public static final String HEADER_METRIC_NAME = HEADER_PERFIX + "Name";
     public static final String HEADER_COUNTER_INCREMENT = HEADER_PERFIX + "CounterIncrement";
@@ -33,44 +50,81 @@ public class MetricsComponent extends DefaultComponent {
     public static final String HEADER_HISTOGRAM_VALUE = HEADER_PERFIX + "HistogramValue";
     public static final String HEADER_METER_MARK = HEADER_PERFIX + "MeterMark";
     public static final String HEADER_TIMER_ACTION = HEADER_PERFIX + "TimerAction";
+    public static final String HEADER_TIMER_DURATION = HEADER_PERFIX + "TimerDuration";
 
     private static final Logger LOG = LoggerFactory.getLogger(MetricsComponent.class);
 
     private MetricRegistry metricRegistry;
 
+    private ReportingScheduler reportingScheduler;
+
+    private ScheduledReporter defaultReporter;
+
+    private SnapshotCache snapshotCache;
+
+    private long snapshotTick = SnapshotCache.DEFAULT_TICK_MILLIS;
+
+    private boolean jmxSummary;
+
+    private String[] jmxSummaryPrefixes = new String[] { "" };
+
+    private final List<ObjectName> summaryNames = new ArrayList<ObjectName>();
+
+    private boolean runtimeMetrics;
+
+    private String runtimeMetricsPrefix;
+
+    private CamelRuntimeMetrics camelRuntimeMetrics;
+
+    private boolean redeliveryMetrics;
+
+    private RedeliveryMetrics redeliveryNotifier;
+
     @Override
     protected Endpoint createEndpoint(String uri, String remaining, Map<String, Object> parameters) throws Exception {
-        if (metricRegistry == null) {
-            Registry camelRegistry = getCamelContext().getRegistry();
-            metricRegistry = getOrCreateMetricRegistry(camelRegistry, METRIC_REGISTRY_NAME);
-        }
+        MetricRegistry registry = getMetricRegistry();
         String metricsName = getMetricsName(remaining);
         MetricsType metricsType = getMetricsType(remaining);
-        LOG.info("Metrics type: {}; name: {}", metricsType, metricsName);
-        Endpoint endpoint = createNewEndpoint(metricRegistry, metricsType, metricsName);
+        LOG.debug("Metrics type: {}; name: {}", metricsType, metricsName);
+        Endpoint endpoint = createNewEndpoint(uri, registry, metricsType, metricsName);
         setProperties(endpoint, parameters);
         return endpoint;
     }
 
+    /**
+     * Returns registry of this component, looking it up from Camel registry
+     * or creating default one on first use.
+     */
+    public synchronized MetricRegistry getMetricRegistry() {
+        if (metricRegistry == null) {
+            Registry camelRegistry = getCamelContext().getRegistry();
+            metricRegistry = getOrCreateMetricRegistry(camelRegistry, METRIC_REGISTRY_NAME);
+        }
+        return metricRegistry;
+    }
+
     String getMetricsName(String remaining) {
         String name = ObjectHelper.after(remaining, ":");
         return name == null ? remaining : name;
     }
 
-    Endpoint createNewEndpoint(MetricRegistry registry, MetricsType type, String metricsName) {
+    Endpoint createNewEndpoint(String uri, MetricRegistry registry, MetricsType type, String metricsName) {
         Endpoint endpoint;
         switch (type) {
             case COUNTER:
-                endpoint = new CounterEndpoint(registry, metricsName);
+                endpoint = new CounterEndpoint(uri, this, registry, metricsName);
                 break;
             case METER:
-                endpoint = new MeterEndpoint(registry, metricsName);
+                endpoint = new MeterEndpoint(uri, this, registry, metricsName);
                 break;
             case HISTOGRAM:
-                endpoint = new HistogramEndpoint(registry, metricsName);
+                endpoint = new HistogramEndpoint(uri, this, registry, metricsName);
                 break;
             case TIMER:
-                endpoint = new TimerEndpoint(registry, metricsName);
+                endpoint = new TimerEndpoint(uri, this, registry, metricsName);
+                break;
+            case MULTI:
+                endpoint = new MultiEndpoint(uri, this, registry, metricsName);
                 break;
             default:
                 throw new RuntimeCamelException("Metrics type \"" + type.toString() + "\" not supported");
@@ -82,7 +136,8 @@ public class MetricsComponent extends DefaultComponent {
         String name = ObjectHelper.before(remaining, ":");
         MetricsType type;
         if (name == null) {
-            type = DEFAULT_METRICS_TYPE;
+            // metrics:multi needs no metrics name
+            type = MetricsType.MULTI.toString().equals(remaining) ? MetricsType.MULTI : DEFAULT_METRICS_TYPE;
         }
         else {
             type = MetricsType.getByName(name);
@@ -115,7 +170,205 @@ public class MetricsComponent extends DefaultComponent {
                 .convertRatesTo(TimeUnit.SECONDS)
                 .convertDurationsTo(TimeUnit.MILLISECONDS)
                 .build();
-        reporter.start(DEFAULT_REPORTING_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        getReportingScheduler().schedule(reporter, registry, DEFAULT_REPORTING_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        defaultReporter = reporter;
         return registry;
     }
+
+    @Override
+    protected void doStart() throws Exception {
+        super.doStart();
+        if (defaultReporter != null) {
+            // restarted component
+            getReportingScheduler().schedule(defaultReporter, metricRegistry, DEFAULT_REPORTING_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        }
+        if (snapshotTick != SnapshotCache.DEFAULT_TICK_MILLIS) {
+            // install configured cache before first report
+            getSnapshotCache();
+        }
+        if (jmxSummary) {
+            registerSummaries(ManagementFactory.getPlatformMBeanServer());
+        }
+        if (runtimeMetrics) {
+            camelRuntimeMetrics = new CamelRuntimeMetrics(getMetricRegistry(), getRuntimeMetricsPrefix(), snapshotTick, TimeUnit.MILLISECONDS);
+            camelRuntimeMetrics.install(getCamelContext());
+        }
+        if (redeliveryMetrics) {
+            redeliveryNotifier = new RedeliveryMetrics(getMetricRegistry(), getRuntimeMetricsPrefix());
+            redeliveryNotifier.install(getCamelContext());
+        }
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        if (defaultReporter != null) {
+            getReportingScheduler().cancel(defaultReporter);
+        }
+        unregisterSummaries(ManagementFactory.getPlatformMBeanServer());
+        releaseSnapshotCache();
+        if (camelRuntimeMetrics != null) {
+            camelRuntimeMetrics.uninstall();
+            camelRuntimeMetrics = null;
+        }
+        if (redeliveryNotifier != null) {
+            redeliveryNotifier.uninstall();
+            redeliveryNotifier = null;
+        }
+        super.doStop();
+    }
+
+    void registerSummaries(MBeanServer server) throws JMException {
+        SnapshotCache cache = getSnapshotCache();
+        for (String prefix : jmxSummaryPrefixes) {
+            ObjectName name = getSummaryName(prefix);
+            try {
+                server.registerMBean(new MetricsSummary(cache, prefix, TimeUnit.SECONDS, TimeUnit.MILLISECONDS), name);
+                summaryNames.add(name);
+            }
+            catch (InstanceAlreadyExistsException e) {
+                LOG.warn("Metrics summary MBean {} already registered", name);
+            }
+        }
+    }
+
+    void unregisterSummaries(MBeanServer server) throws JMException {
+        for (ObjectName name : summaryNames) {
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        }
+        summaryNames.clear();
+    }
+
+    ObjectName getSummaryName(String prefix) throws MalformedObjectNameException {
+        StringBuilder name = new StringBuilder(JMX_DOMAIN)
+                .append(":type=summary,context=")
+                .append(ObjectName.quote(getCamelContext().getName()));
+        if (!prefix.isEmpty()) {
+            name.append(",prefix=").append(ObjectName.quote(prefix));
+        }
+        return new ObjectName(name.toString());
+    }
+
+    /**
+     * Returns scheduler running reporters of this component. Unless set,
+     * scheduler shared by all components of the JVM is used.
+     */
+    public ReportingScheduler getReportingScheduler() {
+        if (reportingScheduler == null) {
+            reportingScheduler = ReportingScheduler.getDefault();
+        }
+        return reportingScheduler;
+    }
+
+    public void setReportingScheduler(ReportingScheduler reportingScheduler) {
+        this.reportingScheduler = reportingScheduler;
+    }
+
+    /**
+     * Returns cache of histogram and timer snapshots of the registry shared
+     * by reporters of the reporting scheduler and JMX summaries.
+     */
+    public synchronized SnapshotCache getSnapshotCache() {
+        if (snapshotCache == null) {
+            MetricRegistry registry = getMetricRegistry();
+            ReportingScheduler scheduler = getReportingScheduler();
+            SnapshotCache cache = scheduler.getSnapshotCache(registry);
+            if (cache.getTickNanos() != TimeUnit.MILLISECONDS.toNanos(snapshotTick)) {
+                cache = new SnapshotCache(registry, snapshotTick, TimeUnit.MILLISECONDS);
+                scheduler.setSnapshotCache(cache);
+            }
+            snapshotCache = cache;
+        }
+        return snapshotCache;
+    }
+
+    /**
+     * Drops snapshot cache of this component. Shared scheduler keeps no
+     * reference to registry once its last reporter is cancelled.
+     */
+    synchronized void releaseSnapshotCache() {
+        if (metricRegistry != null) {
+            getReportingScheduler().releaseSnapshotCache(metricRegistry);
+        }
+        snapshotCache = null;
+    }
+
+    public long getSnapshotTick() {
+        return snapshotTick;
+    }
+
+    /**
+     * Period in milliseconds for which computed snapshots are reused.
+     */
+    public void setSnapshotTick(long snapshotTick) {
+        this.snapshotTick = snapshotTick;
+    }
+
+    public boolean isJmxSummary() {
+        return jmxSummary;
+    }
+
+    /**
+     * Registers {@link MetricsSummary} MBean on start instead of requiring
+     * one MBean per metric.
+     */
+    public void setJmxSummary(boolean jmxSummary) {
+        this.jmxSummary = jmxSummary;
+    }
+
+    public String[] getJmxSummaryPrefixes() {
+        return jmxSummaryPrefixes;
+    }
+
+    /**
+     * Comma separated metric name prefixes; one summary MBean is registered
+     * per prefix. By default one MBean covers all metrics.
+     */
+    public void setJmxSummaryPrefixes(String jmxSummaryPrefixes) {
+        String[] prefixes = jmxSummaryPrefixes.split(",");
+        for (int i = 0; i < prefixes.length; i++) {
+            prefixes[i] = prefixes[i].trim();
+        }
+        this.jmxSummaryPrefixes = prefixes;
+    }
+
+    public boolean isRuntimeMetrics() {
+        return runtimeMetrics;
+    }
+
+    /**
+     * Registers gauges of Camel thread pools, SEDA queues and inflight
+     * exchanges on start, sampled at most once per snapshot tick.
+     */
+    public void setRuntimeMetrics(boolean runtimeMetrics) {
+        this.runtimeMetrics = runtimeMetrics;
+    }
+
+    public boolean isRedeliveryMetrics() {
+        return redeliveryMetrics;
+    }
+
+    /**
+     * Records redeliveries, redelivery time and exhausted exchanges of error
+     * handlers per route, named with runtime metrics prefix.
+     */
+    public void setRedeliveryMetrics(boolean redeliveryMetrics) {
+        this.redeliveryMetrics = redeliveryMetrics;
+    }
+
+    /**
+     * Returns name prefix of runtime gauges, by default
+     * <code>camel.&lt;context name&gt;</code>.
+     */
+    public String getRuntimeMetricsPrefix() {
+        if (runtimeMetricsPrefix == null && getCamelContext() != null) {
+            return MetricRegistry.name("camel", getCamelContext().getName());
+        }
+        return runtimeMetricsPrefix;
+    }
+
+    public void setRuntimeMetricsPrefix(String runtimeMetricsPrefix) {
+        this.runtimeMetricsPrefix = runtimeMetricsPrefix;
+    }
 }
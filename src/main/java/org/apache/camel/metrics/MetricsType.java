@@ -10,7 +10,8 @@ public enum MetricsType {
     COUNTER("counter"),
     HISTOGRAM("histogram"),
     METER("meter"),
-    TIMER("timer"), ;
+    TIMER("timer"),
+    MULTI("multi"), ;
 
     private static final Map<String, MetricsType> map = new HashMap<String, MetricsType>();
 
@@ -0,0 +1,21 @@
+package org.apache.camel.metrics;
+
+/**
+ * Reservoir used by histogram and timer endpoints.
+ */
+public enum ReservoirType {
+    /**
+     * Default reservoir of the registry, favouring last five minutes of values.
+     */
+    exponentiallyDecaying,
+    /**
+     * Mergeable quantile sketch with bounded relative error. Keeps all values
+     * since the metric was created and never decays; use {@link #rolling}
+     * for quantiles of recent values.
+     */
+    sketch,
+    /**
+     * Ring of time buckets answering quantiles of recent time window.
+     */
+    rolling;
+}
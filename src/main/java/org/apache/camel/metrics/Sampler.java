@@ -0,0 +1,77 @@
+package org.apache.camel.metrics;
+
+import org.apache.camel.Exchange;
+
+/**
+ * Selects one in {@link #getInterval()} exchanges. Decision is based on hash
+ * of exchange id, so all sampled endpoints with the same rate select the same
+ * exchanges; timer started for an exchange is also stopped for it. Timers
+ * started and stopped on different exchanges are sampled by correlation key
+ * with {@link #isKeySampled(Object)} instead.
+ */
+public class Sampler {
+
+    /**
+     * Largest relative difference of sample rate from {@code 1 / interval},
+     * so that rates given with few digits such as 0.333 are accepted.
+     */
+    static final double RATE_TOLERANCE = 0.005;
+
+    private final int interval;
+
+    /**
+     * Creates sampler for rate {@code 1 / N}. Other rates are rejected
+     * instead of being rounded, since counters and meters are scaled by whole
+     * {@code N}.
+     */
+    public Sampler(double sampleRate) {
+        if (sampleRate <= 0.0 || sampleRate > 1.0) {
+            throw new IllegalArgumentException("Sample rate must be in range (0, 1] but was " + sampleRate);
+        }
+        long nearest = Math.round(1.0 / sampleRate);
+        if (nearest > Integer.MAX_VALUE || Math.abs(nearest * sampleRate - 1.0) > RATE_TOLERANCE) {
+            throw new IllegalArgumentException("Sample rate must be 1/N for whole N but was " + sampleRate + ", nearest is 1/" + nearest);
+        }
+        this.interval = (int) nearest;
+    }
+
+    public boolean isSampled(Exchange exchange) {
+        return isSampled(exchange.getExchangeId().hashCode());
+    }
+
+    /**
+     * Selects by hash of given key, so that all endpoints with the same rate
+     * select the same keys whichever exchange carries them.
+     */
+    public boolean isKeySampled(Object key) {
+        return isSampled(key.hashCode());
+    }
+
+    private boolean isSampled(int hash) {
+        return interval == 1 || (mix(hash) & Integer.MAX_VALUE) % interval == 0;
+    }
+
+    /**
+     * Returns number of exchanges represented by one sampled exchange.
+     */
+    public int getInterval() {
+        return interval;
+    }
+
+    /**
+     * Returns effective sample rate, {@code 1 / interval}.
+     */
+    public double getSampleRate() {
+        return 1.0 / interval;
+    }
+
+    // murmur3 finalizer; spreads sequential exchange ids
+    static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,63 @@
+package org.apache.camel.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counter spreading updates over padded cells selected by thread id, so
+ * that concurrent writers rarely contend on the same cache line. Reading
+ * sums all cells and is therefore more expensive than writing.
+ */
+public class StripedCounter {
+
+    // 8 longs = 64 bytes, keeps cells on separate cache lines
+    private static final int PADDING = 8;
+    private static final int DEFAULT_STRIPES = Runtime.getRuntime().availableProcessors() * 2;
+
+    private final AtomicLongArray cells;
+    private final int mask;
+
+    public StripedCounter() {
+        this(DEFAULT_STRIPES);
+    }
+
+    public StripedCounter(int stripes) {
+        int size = 1;
+        while (size < stripes) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.cells = new AtomicLongArray(size * PADDING);
+    }
+
+    public void add(long x) {
+        cells.getAndAdd(index(), x);
+    }
+
+    public void increment() {
+        cells.getAndIncrement(index());
+    }
+
+    public long sum() {
+        long sum = 0L;
+        for (int i = 0; i < cells.length(); i += PADDING) {
+            sum += cells.get(i);
+        }
+        return sum;
+    }
+
+    public long sumThenReset() {
+        long sum = 0L;
+        for (int i = 0; i < cells.length(); i += PADDING) {
+            sum += cells.getAndSet(i, 0L);
+        }
+        return sum;
+    }
+
+    public int getStripes() {
+        return mask + 1;
+    }
+
+    private int index() {
+        return ((int) Thread.currentThread().getId() & mask) * PADDING;
+    }
+}
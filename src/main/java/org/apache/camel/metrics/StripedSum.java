@@ -0,0 +1,55 @@
+package org.apache.camel.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Sum of values kept as double in padded cells selected by thread id, like
+ * {@link StripedCounter}. Unlike sum of longs it does not overflow, e.g. for
+ * durations in nanoseconds summed over long uptime; precision is that of
+ * double.
+ */
+public class StripedSum {
+
+    // 8 longs = 64 bytes, keeps cells on separate cache lines
+    private static final int PADDING = 8;
+    private static final int DEFAULT_STRIPES = Runtime.getRuntime().availableProcessors() * 2;
+
+    private final AtomicLongArray cells;
+    private final int mask;
+
+    public StripedSum() {
+        this(DEFAULT_STRIPES);
+    }
+
+    public StripedSum(int stripes) {
+        int size = 1;
+        while (size < stripes) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.cells = new AtomicLongArray(size * PADDING);
+    }
+
+    public void add(double x) {
+        int index = ((int) Thread.currentThread().getId() & mask) * PADDING;
+        while (true) {
+            long bits = cells.get(index);
+            long updated = Double.doubleToRawLongBits(Double.longBitsToDouble(bits) + x);
+            if (cells.compareAndSet(index, bits, updated)) {
+                return;
+            }
+        }
+    }
+
+    public double sum() {
+        double sum = 0.0;
+        for (int i = 0; i < cells.length(); i += PADDING) {
+            sum += Double.longBitsToDouble(cells.get(i));
+        }
+        return sum;
+    }
+
+    public int getStripes() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,95 @@
+package org.apache.camel.metrics;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+
+import com.codahale.metrics.Clock;
+
+/**
+ * Writes at most one warning per interval for each reason. Warnings in
+ * between are only counted and the count is appended to the next warning
+ * written, so that failing on every exchange does not flood the log.
+ */
+public class ThrottledLog {
+
+    private final long intervalMillis;
+    private final Clock clock;
+    private final ConcurrentMap<String, Window> windows = new ConcurrentHashMap<String, Window>();
+
+    public ThrottledLog(long interval, TimeUnit unit) {
+        this(interval, unit, Clock.defaultClock());
+    }
+
+    public ThrottledLog(long interval, TimeUnit unit, Clock clock) {
+        this.intervalMillis = unit.toMillis(interval);
+        this.clock = clock;
+    }
+
+    /**
+     * Writes warning unless warning of the same reason was written less than
+     * interval ago. Message is not formatted for suppressed warnings.
+     */
+    public void warn(Logger log, String reason, String format, Object... args) {
+        long suppressed = acquire(reason);
+        if (suppressed < 0L || !log.isWarnEnabled()) {
+            return;
+        }
+        if (suppressed == 0L) {
+            log.warn(format, args);
+        }
+        else {
+            Object[] extended = new Object[args.length + 1];
+            System.arraycopy(args, 0, extended, 0, args.length);
+            extended[args.length] = suppressed;
+            log.warn(format + " ({} similar warnings suppressed)", extended);
+        }
+    }
+
+    /**
+     * Returns number of warnings suppressed since the previous warning of
+     * given reason was written, or -1 if warning must be suppressed.
+     */
+    long acquire(String reason) {
+        if (intervalMillis <= 0L) {
+            return 0L;
+        }
+        Window window = windows.get(reason);
+        if (window == null) {
+            window = new Window();
+            Window existing = windows.putIfAbsent(reason, window);
+            if (existing != null) {
+                window = existing;
+            }
+        }
+        long now = clock.getTime();
+        long next = window.next.get();
+        if (now >= next && window.next.compareAndSet(next, now + intervalMillis)) {
+            return window.suppressed.getAndSet(0L);
+        }
+        window.suppressed.incrementAndGet();
+        return -1L;
+    }
+
+    /**
+     * Returns number of warnings of given reason suppressed since the last
+     * warning written.
+     */
+    public long getSuppressedCount(String reason) {
+        Window window = windows.get(reason);
+        return window == null ? 0L : window.suppressed.get();
+    }
+
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    static final class Window {
+
+        private final AtomicLong next = new AtomicLong(Long.MIN_VALUE);
+        private final AtomicLong suppressed = new AtomicLong();
+    }
+}
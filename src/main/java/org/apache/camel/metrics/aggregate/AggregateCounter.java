@@ -0,0 +1,36 @@
+package org.apache.camel.metrics.aggregate;
+
+import java.util.List;
+
+import com.codahale.metrics.Counter;
+
+/**
+ * Read-only counter summing counts of other counters.
+ */
+public class AggregateCounter extends Counter {
+
+    private final List<Counter> counters;
+
+    public AggregateCounter(List<Counter> counters) {
+        this.counters = counters;
+    }
+
+    @Override
+    public long getCount() {
+        long count = 0L;
+        for (Counter counter : counters) {
+            count += counter.getCount();
+        }
+        return count;
+    }
+
+    @Override
+    public void inc(long n) {
+        throw new UnsupportedOperationException("Aggregate counter is read-only");
+    }
+
+    @Override
+    public void dec(long n) {
+        throw new UnsupportedOperationException("Aggregate counter is read-only");
+    }
+}
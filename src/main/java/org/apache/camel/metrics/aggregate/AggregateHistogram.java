@@ -0,0 +1,27 @@
+package org.apache.camel.metrics.aggregate;
+
+import java.util.List;
+
+import com.codahale.metrics.Histogram;
+
+/**
+ * Read-only histogram merging snapshots of other histograms.
+ */
+public class AggregateHistogram extends Histogram {
+
+    private final List<Histogram> histograms;
+
+    public AggregateHistogram(List<Histogram> histograms) {
+        super(new MergedReservoir(histograms));
+        this.histograms = histograms;
+    }
+
+    @Override
+    public long getCount() {
+        long count = 0L;
+        for (Histogram histogram : histograms) {
+            count += histogram.getCount();
+        }
+        return count;
+    }
+}
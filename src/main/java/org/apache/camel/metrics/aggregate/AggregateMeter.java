@@ -0,0 +1,88 @@
+package org.apache.camel.metrics.aggregate;
+
+import java.util.List;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metered;
+
+/**
+ * Read-only meter summing counts and rates of other meters.
+ */
+public class AggregateMeter extends Meter {
+
+    private final List<? extends Metered> meters;
+
+    public AggregateMeter(List<? extends Metered> meters) {
+        this.meters = meters;
+    }
+
+    @Override
+    public void mark(long n) {
+        throw new UnsupportedOperationException("Aggregate meter is read-only");
+    }
+
+    @Override
+    public long getCount() {
+        return getCount(meters);
+    }
+
+    @Override
+    public double getMeanRate() {
+        return getMeanRate(meters);
+    }
+
+    @Override
+    public double getOneMinuteRate() {
+        return getOneMinuteRate(meters);
+    }
+
+    @Override
+    public double getFiveMinuteRate() {
+        return getFiveMinuteRate(meters);
+    }
+
+    @Override
+    public double getFifteenMinuteRate() {
+        return getFifteenMinuteRate(meters);
+    }
+
+    static long getCount(List<? extends Metered> meters) {
+        long count = 0L;
+        for (Metered meter : meters) {
+            count += meter.getCount();
+        }
+        return count;
+    }
+
+    static double getMeanRate(List<? extends Metered> meters) {
+        double rate = 0.0;
+        for (Metered meter : meters) {
+            rate += meter.getMeanRate();
+        }
+        return rate;
+    }
+
+    static double getOneMinuteRate(List<? extends Metered> meters) {
+        double rate = 0.0;
+        for (Metered meter : meters) {
+            rate += meter.getOneMinuteRate();
+        }
+        return rate;
+    }
+
+    static double getFiveMinuteRate(List<? extends Metered> meters) {
+        double rate = 0.0;
+        for (Metered meter : meters) {
+            rate += meter.getFiveMinuteRate();
+        }
+        return rate;
+    }
+
+    static double getFifteenMinuteRate(List<? extends Metered> meters) {
+        double rate = 0.0;
+        for (Metered meter : meters) {
+            rate += meter.getFifteenMinuteRate();
+        }
+        return rate;
+    }
+}
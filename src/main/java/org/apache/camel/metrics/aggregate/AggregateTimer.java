@@ -0,0 +1,55 @@
+package org.apache.camel.metrics.aggregate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Timer;
+
+/**
+ * Read-only timer summing counts and rates and merging snapshots of other
+ * timers.
+ */
+public class AggregateTimer extends Timer {
+
+    private final List<Timer> timers;
+
+    public AggregateTimer(List<Timer> timers) {
+        super(new MergedReservoir(timers));
+        this.timers = timers;
+    }
+
+    @Override
+    public void update(long duration, TimeUnit unit) {
+        throw new UnsupportedOperationException("Aggregate timer is read-only");
+    }
+
+    @Override
+    public Context time() {
+        throw new UnsupportedOperationException("Aggregate timer is read-only");
+    }
+
+    @Override
+    public long getCount() {
+        return AggregateMeter.getCount(timers);
+    }
+
+    @Override
+    public double getMeanRate() {
+        return AggregateMeter.getMeanRate(timers);
+    }
+
+    @Override
+    public double getOneMinuteRate() {
+        return AggregateMeter.getOneMinuteRate(timers);
+    }
+
+    @Override
+    public double getFiveMinuteRate() {
+        return AggregateMeter.getFiveMinuteRate(timers);
+    }
+
+    @Override
+    public double getFifteenMinuteRate() {
+        return AggregateMeter.getFifteenMinuteRate(timers);
+    }
+}
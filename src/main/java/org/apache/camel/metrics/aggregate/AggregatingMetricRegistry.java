@@ -0,0 +1,166 @@
+package org.apache.camel.metrics.aggregate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+/**
+ * Read-only view over several {@link MetricRegistry} instances, for example
+ * registries of all Camel contexts in one JVM. Metrics with the same name are
+ * merged when read: counts and rates are summed and histogram and timer
+ * snapshots are merged by {@link MergedReservoir}. Nothing is copied on update,
+ * so the view can be handed to any scheduled reporter.
+ * <p>
+ * Gauges are not merged; gauge of the first registry containing the name is
+ * reported. Registry listeners are not supported.
+ */
+public class AggregatingMetricRegistry extends MetricRegistry {
+
+    private final List<MetricRegistry> registries = new CopyOnWriteArrayList<MetricRegistry>();
+
+    public AggregatingMetricRegistry() {
+    }
+
+    public AggregatingMetricRegistry(MetricRegistry... registries) {
+        for (MetricRegistry registry : registries) {
+            addRegistry(registry);
+        }
+    }
+
+    public void addRegistry(MetricRegistry registry) {
+        if (registry == this) {
+            throw new IllegalArgumentException("Cannot aggregate registry into itself");
+        }
+        ((CopyOnWriteArrayList<MetricRegistry>) registries).addIfAbsent(registry);
+    }
+
+    public boolean removeRegistry(MetricRegistry registry) {
+        return registries.remove(registry);
+    }
+
+    public List<MetricRegistry> getRegistries() {
+        return Collections.unmodifiableList(registries);
+    }
+
+    @Override
+    public <T extends Metric> T register(String name, T metric) throws IllegalArgumentException {
+        throw new UnsupportedOperationException("Cannot register metric \"" + name + "\" into aggregating view");
+    }
+
+    @Override
+    public SortedSet<String> getNames() {
+        SortedSet<String> names = new TreeSet<String>();
+        for (MetricRegistry registry : registries) {
+            names.addAll(registry.getNames());
+        }
+        return Collections.unmodifiableSortedSet(names);
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public SortedMap<String, Gauge> getGauges(MetricFilter filter) {
+        SortedMap<String, Gauge> result = new TreeMap<String, Gauge>();
+        for (MetricRegistry registry : registries) {
+            for (Map.Entry<String, Gauge> entry : registry.getGauges(filter).entrySet()) {
+                if (!result.containsKey(entry.getKey())) {
+                    result.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        return Collections.unmodifiableSortedMap(result);
+    }
+
+    @Override
+    public SortedMap<String, Counter> getCounters(MetricFilter filter) {
+        Map<String, List<Counter>> grouped = new TreeMap<String, List<Counter>>();
+        for (MetricRegistry registry : registries) {
+            group(grouped, registry.getCounters(filter));
+        }
+        SortedMap<String, Counter> result = new TreeMap<String, Counter>();
+        for (Map.Entry<String, List<Counter>> entry : grouped.entrySet()) {
+            List<Counter> counters = entry.getValue();
+            result.put(entry.getKey(), counters.size() == 1 ? counters.get(0) : new AggregateCounter(counters));
+        }
+        return Collections.unmodifiableSortedMap(result);
+    }
+
+    @Override
+    public SortedMap<String, Histogram> getHistograms(MetricFilter filter) {
+        Map<String, List<Histogram>> grouped = new TreeMap<String, List<Histogram>>();
+        for (MetricRegistry registry : registries) {
+            group(grouped, registry.getHistograms(filter));
+        }
+        SortedMap<String, Histogram> result = new TreeMap<String, Histogram>();
+        for (Map.Entry<String, List<Histogram>> entry : grouped.entrySet()) {
+            List<Histogram> histograms = entry.getValue();
+            result.put(entry.getKey(), histograms.size() == 1 ? histograms.get(0) : new AggregateHistogram(histograms));
+        }
+        return Collections.unmodifiableSortedMap(result);
+    }
+
+    @Override
+    public SortedMap<String, Meter> getMeters(MetricFilter filter) {
+        Map<String, List<Meter>> grouped = new TreeMap<String, List<Meter>>();
+        for (MetricRegistry registry : registries) {
+            group(grouped, registry.getMeters(filter));
+        }
+        SortedMap<String, Meter> result = new TreeMap<String, Meter>();
+        for (Map.Entry<String, List<Meter>> entry : grouped.entrySet()) {
+            List<Meter> meters = entry.getValue();
+            result.put(entry.getKey(), meters.size() == 1 ? meters.get(0) : new AggregateMeter(meters));
+        }
+        return Collections.unmodifiableSortedMap(result);
+    }
+
+    @Override
+    public SortedMap<String, Timer> getTimers(MetricFilter filter) {
+        Map<String, List<Timer>> grouped = new TreeMap<String, List<Timer>>();
+        for (MetricRegistry registry : registries) {
+            group(grouped, registry.getTimers(filter));
+        }
+        SortedMap<String, Timer> result = new TreeMap<String, Timer>();
+        for (Map.Entry<String, List<Timer>> entry : grouped.entrySet()) {
+            List<Timer> timers = entry.getValue();
+            result.put(entry.getKey(), timers.size() == 1 ? timers.get(0) : new AggregateTimer(timers));
+        }
+        return Collections.unmodifiableSortedMap(result);
+    }
+
+    @Override
+    public Map<String, Metric> getMetrics() {
+        Map<String, Metric> result = new HashMap<String, Metric>();
+        result.putAll(getGauges());
+        result.putAll(getCounters());
+        result.putAll(getHistograms());
+        result.putAll(getMeters());
+        result.putAll(getTimers());
+        return Collections.unmodifiableMap(result);
+    }
+
+    <T extends Metric> void group(Map<String, List<T>> grouped, Map<String, T> metrics) {
+        for (Map.Entry<String, T> entry : metrics.entrySet()) {
+            List<T> list = grouped.get(entry.getKey());
+            if (list == null) {
+                list = new ArrayList<T>();
+                grouped.put(entry.getKey(), list);
+            }
+            list.add(entry.getValue());
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package org.apache.camel.metrics.aggregate;
+
+import java.util.List;
+
+import org.apache.camel.metrics.sketch.QuantileSketch;
+import org.apache.camel.metrics.sketch.SketchSampling;
+import org.apache.camel.metrics.sketch.SketchSnapshot;
+
+import com.codahale.metrics.Counting;
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Sampling;
+import com.codahale.metrics.Snapshot;
+
+/**
+ * Read-only reservoir merging snapshots of other metrics on read. If all
+ * sources record into sketches with the same accuracy the sketches are merged
+ * without loss. Otherwise all sources are combined into a sketch, values
+ * sampled by other reservoirs weighted by count of their source, so that
+ * every source contributes to quantiles in proportion to its recorded values.
+ */
+public class MergedReservoir implements Reservoir {
+
+    private final List<? extends Sampling> sources;
+
+    public MergedReservoir(List<? extends Sampling> sources) {
+        this.sources = sources;
+    }
+
+    @Override
+    public int size() {
+        return getSnapshot().size();
+    }
+
+    @Override
+    public void update(long value) {
+        throw new UnsupportedOperationException("Merged reservoir is read-only");
+    }
+
+    @Override
+    public Snapshot getSnapshot() {
+        QuantileSketch sketch = mergeSketches();
+        if (sketch != null) {
+            return new SketchSnapshot(sketch);
+        }
+        return new SketchSnapshot(mergeWeighted());
+    }
+
+    QuantileSketch mergeSketches() {
+        QuantileSketch result = null;
+        for (Sampling source : sources) {
+            if (!(source instanceof SketchSampling)) {
+                return null;
+            }
+            QuantileSketch sketch = ((SketchSampling) source).getSketch();
+            if (result == null) {
+                result = sketch;
+            }
+            else if (Double.compare(result.getRelativeAccuracy(), sketch.getRelativeAccuracy()) == 0) {
+                result.merge(sketch);
+            }
+            else {
+                return null;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Merges sources into a sketch with the finest accuracy of sketch sources.
+     * Values of other sources are samples, so each one is added as many
+     * times as needed for the source to weigh by its count and not by size
+     * of its sample. Sketches with other accuracy add their bins by count.
+     */
+    QuantileSketch mergeWeighted() {
+        double accuracy = 1.0;
+        for (Sampling source : sources) {
+            if (source instanceof SketchSampling) {
+                accuracy = Math.min(accuracy, ((SketchSampling) source).getSketch().getRelativeAccuracy());
+            }
+        }
+        QuantileSketch result = new QuantileSketch(accuracy < 1.0 ? accuracy : QuantileSketch.DEFAULT_RELATIVE_ACCURACY);
+        for (Sampling source : sources) {
+            if (source instanceof SketchSampling) {
+                addSketch(result, ((SketchSampling) source).getSketch());
+            }
+            else {
+                long[] values = source.getSnapshot().getValues();
+                long count = source instanceof Counting ? ((Counting) source).getCount() : values.length;
+                addSample(result, values, Math.max(count, values.length));
+            }
+        }
+        return result;
+    }
+
+    static void addSketch(QuantileSketch result, QuantileSketch sketch) {
+        if (Double.compare(result.getRelativeAccuracy(), sketch.getRelativeAccuracy()) == 0) {
+            result.merge(sketch);
+        }
+        else {
+            long[] values = sketch.getBinValues();
+            long[] counts = sketch.getBinCounts();
+            for (int i = 0; i < values.length; i++) {
+                result.update(values[i], counts[i]);
+            }
+        }
+    }
+
+    /**
+     * Adds sample of {@code count} values, spreading count evenly over the
+     * sampled values so that weights sum up to count.
+     */
+    static void addSample(QuantileSketch result, long[] values, long count) {
+        int length = values.length;
+        for (int i = 0; i < length; i++) {
+            long weight = weight(i + 1, count, length) - weight(i, count, length);
+            result.update(values[i], weight);
+        }
+    }
+
+    private static long weight(int index, long count, int length) {
+        // count * index / length without overflow of the product
+        return count / length * index + count % length * index / length;
+    }
+}
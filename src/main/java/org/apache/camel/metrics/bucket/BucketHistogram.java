@@ -0,0 +1,29 @@
+package org.apache.camel.metrics.bucket;
+
+import com.codahale.metrics.Histogram;
+
+/**
+ * Histogram counting values in fixed buckets.
+ */
+public class BucketHistogram extends Histogram {
+
+    private final BucketReservoir reservoir;
+
+    public BucketHistogram(long[] bounds) {
+        this(new BucketReservoir(bounds));
+    }
+
+    private BucketHistogram(BucketReservoir reservoir) {
+        super(reservoir);
+        this.reservoir = reservoir;
+    }
+
+    @Override
+    public BucketSnapshot getSnapshot() {
+        return reservoir.getSnapshot();
+    }
+
+    public long[] getBounds() {
+        return reservoir.getBounds();
+    }
+}
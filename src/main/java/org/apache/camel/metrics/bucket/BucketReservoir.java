@@ -0,0 +1,109 @@
+package org.apache.camel.metrics.bucket;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.codahale.metrics.Reservoir;
+
+/**
+ * Reservoir counting values in fixed buckets. Bucket {@code i} counts values
+ * {@code <= bounds[i]} not counted by lower buckets and the last bucket
+ * counts values above the highest bound. Counters are striped by thread id
+ * over padded rows, so update is a binary search and two uncontended atomic
+ * additions and memory does not grow with number of values.
+ */
+public class BucketReservoir implements Reservoir {
+
+    // 8 longs = 64 bytes, keeps rows on separate cache lines
+    private static final int PADDING = 8;
+    private static final int DEFAULT_STRIPES = Runtime.getRuntime().availableProcessors() * 2;
+
+    private final long[] bounds;
+    private final int sumIndex;
+    private final int stride;
+    private final int mask;
+    private final AtomicLongArray cells;
+
+    public BucketReservoir(long[] bounds) {
+        this(bounds, DEFAULT_STRIPES);
+    }
+
+    public BucketReservoir(long[] bounds, int stripes) {
+        if (bounds.length == 0) {
+            throw new IllegalArgumentException("At least one bucket bound is required");
+        }
+        for (int i = 1; i < bounds.length; i++) {
+            if (bounds[i] <= bounds[i - 1]) {
+                throw new IllegalArgumentException("Bucket bounds must be in ascending order but " + bounds[i] + " follows " + bounds[i - 1]);
+            }
+        }
+        this.bounds = bounds.clone();
+        // one counter per bucket, one for values above last bound and sum of values
+        this.sumIndex = bounds.length + 1;
+        this.stride = (sumIndex / PADDING + 1) * PADDING;
+        int size = 1;
+        while (size < stripes) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.cells = new AtomicLongArray(size * stride);
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.min(getCount(), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void update(long value) {
+        int row = ((int) Thread.currentThread().getId() & mask) * stride;
+        cells.getAndIncrement(row + indexOf(value));
+        cells.getAndAdd(row + sumIndex, value);
+    }
+
+    @Override
+    public BucketSnapshot getSnapshot() {
+        long[] counts = new long[bounds.length + 1];
+        long sum = 0L;
+        for (int row = 0; row < cells.length(); row += stride) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += cells.get(row + i);
+            }
+            sum += cells.get(row + sumIndex);
+        }
+        return new BucketSnapshot(bounds, counts, sum);
+    }
+
+    public long[] getBounds() {
+        return bounds.clone();
+    }
+
+    /**
+     * Returns index of the bucket counting given value, that is index of
+     * the first bound not less than value or number of bounds if value is
+     * above all of them.
+     */
+    int indexOf(long value) {
+        int low = 0;
+        int high = bounds.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (bounds[mid] < value) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private long getCount() {
+        long count = 0L;
+        for (int row = 0; row < cells.length(); row += stride) {
+            for (int i = 0; i < sumIndex; i++) {
+                count += cells.get(row + i);
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,167 @@
+package org.apache.camel.metrics.bucket;
+
+import java.io.OutputStream;
+import java.io.PrintWriter;
+
+import com.codahale.metrics.Snapshot;
+
+/**
+ * Snapshot of bucket counts. Values are represented by upper bound of their
+ * bucket; values above the highest bound are represented by the highest
+ * bound. Mean is exact.
+ */
+public class BucketSnapshot extends Snapshot {
+
+    private final long[] bounds;
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+
+    public BucketSnapshot(long[] bounds, long[] counts, long sum) {
+        super(new long[0]);
+        this.bounds = bounds;
+        this.counts = counts;
+        this.sum = sum;
+        long total = 0L;
+        for (long c : counts) {
+            total += c;
+        }
+        this.count = total;
+    }
+
+    @Override
+    public double getValue(double quantile) {
+        if (quantile < 0.0 || quantile > 1.0) {
+            throw new IllegalArgumentException(quantile + " is not in [0..1]");
+        }
+        if (count == 0) {
+            return 0.0;
+        }
+        long rank = Math.max(1L, (long) Math.ceil(quantile * count));
+        long cumulative = 0L;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i];
+            if (cumulative >= rank) {
+                return valueOf(i);
+            }
+        }
+        return valueOf(counts.length - 1);
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.min(count, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns upper bound of each non-empty bucket instead of raw values.
+     */
+    @Override
+    public long[] getValues() {
+        int size = 0;
+        for (int i = 0; i < bounds.length; i++) {
+            if (counts[i] > 0 || (i == bounds.length - 1 && counts[bounds.length] > 0)) {
+                size++;
+            }
+        }
+        long[] values = new long[size];
+        int j = 0;
+        for (int i = 0; i < bounds.length; i++) {
+            if (counts[i] > 0 || (i == bounds.length - 1 && counts[bounds.length] > 0)) {
+                values[j++] = bounds[i];
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public long getMax() {
+        for (int i = counts.length - 1; i >= 0; i--) {
+            if (counts[i] > 0) {
+                return valueOf(i);
+            }
+        }
+        return 0L;
+    }
+
+    @Override
+    public long getMin() {
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                return valueOf(i);
+            }
+        }
+        return 0L;
+    }
+
+    @Override
+    public double getMean() {
+        return count == 0 ? 0.0 : (double) sum / count;
+    }
+
+    @Override
+    public double getStdDev() {
+        if (count <= 1) {
+            return 0.0;
+        }
+        double mean = getMean();
+        double sumOfSquares = 0.0;
+        for (int i = 0; i < counts.length; i++) {
+            double diff = valueOf(i) - mean;
+            sumOfSquares += counts[i] * diff * diff;
+        }
+        return Math.sqrt(sumOfSquares / (count - 1));
+    }
+
+    @Override
+    public void dump(OutputStream output) {
+        PrintWriter out = new PrintWriter(output);
+        try {
+            for (int i = 0; i < counts.length; i++) {
+                out.printf("%s %d%n", i < bounds.length ? String.valueOf(bounds[i]) : "+Inf", counts[i]);
+            }
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    public long[] getBounds() {
+        return bounds.clone();
+    }
+
+    /**
+     * Returns number of values in each bucket. Last element counts values
+     * above the highest bound.
+     */
+    public long[] getCounts() {
+        return counts.clone();
+    }
+
+    /**
+     * Returns number of values less than or equal to each bound, followed by
+     * total count, as exported by Prometheus histograms with labels
+     * {@code le="<bound>"} and {@code le="+Inf"}.
+     */
+    public long[] getCumulativeCounts() {
+        long[] cumulative = new long[counts.length];
+        long total = 0L;
+        for (int i = 0; i < counts.length; i++) {
+            total += counts[i];
+            cumulative[i] = total;
+        }
+        return cumulative;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    private long valueOf(int bucket) {
+        return bounds[Math.min(bucket, bounds.length - 1)];
+    }
+}
@@ -1,10 +1,12 @@
 package org.apache.camel.metrics.counter;
 
+import org.apache.camel.Component;
 import org.apache.camel.Producer;
 import org.apache.camel.metrics.AbstractMetricsEndpoint;
 import org.apache.camel.spi.UriEndpoint;
 import org.apache.camel.spi.UriParam;
 
+import com.codahale.metrics.Counter;
 import com.codahale.metrics.MetricRegistry;
 
 @UriEndpoint(scheme = "metrics:counter")
@@ -22,11 +24,27 @@ public class CounterEndpoint extends AbstractMetricsEndpoint {
         super(registry, metricsName);
     }
 
+    public CounterEndpoint(String endpointUri, Component component, MetricRegistry registry, String metricsName) {
+        super(endpointUri, component, registry, metricsName);
+    }
+
     @Override
     public Producer createProducer() throws Exception {
+        if (isStaticConfiguration()) {
+            return new StaticCounterProducer(this);
+        }
         return new CounterProducer(this);
     }
 
+    @Override
+    protected Counter registerMetric(String name) {
+        return registry.counter(name);
+    }
+
+    public Counter getCounter(String name) {
+        return (Counter) getMetric(name);
+    }
+
     public Long getIncrement() {
         return increment;
     }
@@ -19,19 +19,33 @@ public class CounterProducer extends AbstractMetricsProducer<CounterEndpoint> {
     @Override
     protected void doProcess(Exchange exchange, CounterEndpoint endpoint, MetricRegistry registry, String metricsName) throws Exception {
         Message in = exchange.getIn();
-        Counter counter = registry.counter(metricsName);
+        Counter counter = endpoint.getCounter(metricsName);
+        long scale = getSampleScale(endpoint);
         Long increment = endpoint.getIncrement();
         Long decrement = endpoint.getDecrement();
-        Long finalIncrement = getLongHeader(in, HEADER_COUNTER_INCREMENT, increment);
-        Long finalDecrement = getLongHeader(in, HEADER_COUNTER_DECREMENT, decrement);
-        if (finalIncrement != null) {
-            counter.inc(finalIncrement);
+        Object incrementHeader = getOverrideHeader(in, HEADER_COUNTER_INCREMENT);
+        Object decrementHeader = getOverrideHeader(in, HEADER_COUNTER_DECREMENT);
+        Object expression = incrementHeader == null ? endpoint.evaluateValue(exchange) : null;
+        if (incrementHeader != null) {
+            counter.inc(getLongValue(in, HEADER_COUNTER_INCREMENT, incrementHeader) * scale);
         }
-        else if (finalDecrement != null) {
-            counter.dec(finalDecrement);
+        else if (expression != null) {
+            counter.inc(convertToLong(exchange, expression) * scale);
         }
-        else {
+        else if (increment != null) {
+            counter.inc(increment * scale);
+        }
+        else if (decrementHeader != null) {
+            counter.dec(getLongValue(in, HEADER_COUNTER_DECREMENT, decrementHeader) * scale);
+        }
+        else if (decrement != null) {
+            counter.dec(decrement * scale);
+        }
+        else if (scale == 1L) {
             counter.inc();
         }
+        else {
+            counter.inc(scale);
+        }
     }
 }
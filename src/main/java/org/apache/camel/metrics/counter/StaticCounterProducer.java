@@ -0,0 +1,46 @@
+package org.apache.camel.metrics.counter;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.impl.DefaultProducer;
+import org.apache.camel.metrics.Sampler;
+
+import com.codahale.metrics.Counter;
+
+/**
+ * Producer for counter endpoint with fixed configuration and header
+ * overrides disabled. Counter and amount are resolved once; processing an
+ * exchange only updates the counter.
+ */
+public class StaticCounterProducer extends DefaultProducer {
+
+    private final Counter counter;
+    private final Sampler sampler;
+    private final long amount;
+
+    public StaticCounterProducer(CounterEndpoint endpoint) {
+        super(endpoint);
+        this.counter = endpoint.getCounter(endpoint.getMetricsName());
+        this.sampler = endpoint.getSampler();
+        long scale = sampler == null ? 1L : sampler.getInterval();
+        if (endpoint.getIncrement() != null) {
+            this.amount = endpoint.getIncrement() * scale;
+        }
+        else if (endpoint.getDecrement() != null) {
+            this.amount = -endpoint.getDecrement() * scale;
+        }
+        else {
+            this.amount = scale;
+        }
+    }
+
+    @Override
+    public void process(Exchange exchange) throws Exception {
+        if (sampler == null || sampler.isSampled(exchange)) {
+            counter.inc(amount);
+        }
+    }
+
+    long getAmount() {
+        return amount;
+    }
+}
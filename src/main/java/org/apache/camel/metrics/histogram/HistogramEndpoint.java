@@ -1,29 +1,57 @@
 package org.apache.camel.metrics.histogram;
 
+import org.apache.camel.Component;
 import org.apache.camel.Producer;
-import org.apache.camel.metrics.AbstractMetricsEndpoint;
+import org.apache.camel.metrics.AbstractDistributionEndpoint;
 import org.apache.camel.spi.UriEndpoint;
 import org.apache.camel.spi.UriParam;
 
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.MetricRegistry;
 
 @UriEndpoint(scheme = "metrics:histogram")
-public class HistogramEndpoint extends AbstractMetricsEndpoint {
+public class HistogramEndpoint extends AbstractDistributionEndpoint {
 
     public static String ENDPOINT_URI = "metrics:histogram";
 
+    public enum HistogramSource {
+        value, bodySize
+    }
+
     @UriParam
     private Long value;
 
+    @UriParam
+    private HistogramSource source = HistogramSource.value;
+
+    @UriParam
+    private long[] buckets;
+
     public HistogramEndpoint(MetricRegistry registry, String metricsName) {
         super(registry, metricsName);
     }
 
+    public HistogramEndpoint(String endpointUri, Component component, MetricRegistry registry, String metricsName) {
+        super(endpointUri, component, registry, metricsName);
+    }
+
     @Override
     public Producer createProducer() throws Exception {
+        if (isStaticConfiguration() && (source == HistogramSource.bodySize || value != null)) {
+            return new StaticHistogramProducer(this);
+        }
         return new HistogramProducer(this);
     }
 
+    @Override
+    protected Histogram registerMetric(String name) {
+        return registerHistogram(name, buckets);
+    }
+
+    public Histogram getHistogram(String name) {
+        return (Histogram) getMetric(name);
+    }
+
     public Long getValue() {
         return value;
     }
@@ -32,6 +60,29 @@ public class HistogramEndpoint extends AbstractMetricsEndpoint {
         this.value = value;
     }
 
+    public HistogramSource getSource() {
+        return source;
+    }
+
+    public void setSource(HistogramSource source) {
+        this.source = source;
+    }
+
+    public long[] getBuckets() {
+        return buckets == null ? null : buckets.clone();
+    }
+
+    /**
+     * Sets bucket bounds from comma separated list, as given in URI.
+     */
+    public void setBuckets(String buckets) {
+        this.buckets = parseBuckets(buckets);
+    }
+
+    public void setBuckets(long[] buckets) {
+        this.buckets = buckets == null ? null : buckets.clone();
+    }
+
     @Override
     protected String createEndpointUri() {
         return ENDPOINT_URI;
@@ -5,6 +5,7 @@ import static org.apache.camel.metrics.MetricsComponent.HEADER_HISTOGRAM_VALUE;
 import org.apache.camel.Exchange;
 import org.apache.camel.Message;
 import org.apache.camel.metrics.AbstractMetricsProducer;
+import org.apache.camel.metrics.histogram.HistogramEndpoint.HistogramSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -22,14 +23,30 @@ public class HistogramProducer extends AbstractMetricsProducer<HistogramEndpoint
     @Override
     protected void doProcess(Exchange exchange, HistogramEndpoint endpoint, MetricRegistry registry, String metricsName) throws Exception {
         Message in = exchange.getIn();
-        Histogram histogram = registry.histogram(metricsName);
+        Histogram histogram = endpoint.getHistogram(metricsName);
         Long value = endpoint.getValue();
-        Long finalValue = getLongHeader(in, HEADER_HISTOGRAM_VALUE, value);
-        if (finalValue != null) {
-            histogram.update(finalValue);
+        Object valueHeader = getOverrideHeader(in, HEADER_HISTOGRAM_VALUE);
+        Object expression = valueHeader == null ? endpoint.evaluateValue(exchange) : null;
+        if (valueHeader != null) {
+            histogram.update(getLongValue(in, HEADER_HISTOGRAM_VALUE, valueHeader));
+        }
+        else if (expression != null) {
+            histogram.update(convertToLong(exchange, expression));
+        }
+        else if (endpoint.getSource() == HistogramSource.bodySize) {
+            Long size = MessageSizeHelper.getSize(in);
+            if (size != null) {
+                histogram.update(size);
+            }
+            else {
+                endpoint.onError(LOG, "unknownSize", "Cannot update histogram \"{}\" - size of message body is not known", metricsName);
+            }
+        }
+        else if (value != null) {
+            histogram.update(value);
         }
         else {
-            LOG.warn("Cannot update histogram \"{}\" with null value", metricsName);
+            endpoint.onError(LOG, "nullValue", "Cannot update histogram \"{}\" with null value", metricsName);
         }
     }
 }
@@ -0,0 +1,82 @@
+package org.apache.camel.metrics.histogram;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.Message;
+import org.apache.camel.StreamCache;
+import org.apache.camel.TypeConversionException;
+import org.apache.camel.component.file.GenericFile;
+
+/**
+ * Resolves size of message body in bytes from what is already known about
+ * it. Body is never converted and streams are never read, so size of large
+ * streamed bodies can be recorded without loading them into memory.
+ */
+public final class MessageSizeHelper {
+
+    private MessageSizeHelper() {
+    }
+
+    /**
+     * Returns size of message body in bytes or null if size cannot be
+     * resolved without reading the body. Length of the body itself is
+     * preferred over {@code Content-Length} and {@code CamelFileLength}
+     * headers.
+     */
+    public static Long getSize(Message in) {
+        Long size = getBodySize(in.getBody());
+        if (size == null) {
+            size = getHeaderSize(in, Exchange.CONTENT_LENGTH);
+        }
+        if (size == null) {
+            size = getHeaderSize(in, Exchange.FILE_LENGTH);
+        }
+        return size;
+    }
+
+    static Long getBodySize(Object body) {
+        if (body instanceof byte[]) {
+            return (long) ((byte[]) body).length;
+        }
+        else if (body instanceof ByteBuffer) {
+            return (long) ((ByteBuffer) body).remaining();
+        }
+        else if (body instanceof StreamCache) {
+            return ((StreamCache) body).length();
+        }
+        else if (body instanceof File) {
+            File file = (File) body;
+            return file.isFile() ? file.length() : null;
+        }
+        else if (body instanceof GenericFile) {
+            return ((GenericFile<?>) body).getFileLength();
+        }
+        else {
+            return null;
+        }
+    }
+
+    /**
+     * Returns value of size header or null if header is not set or cannot be
+     * converted to long, e.g. malformed {@code Content-Length}.
+     */
+    static Long getHeaderSize(Message in, String header) {
+        Object value = in.getHeader(header);
+        if (value == null) {
+            return null;
+        }
+        else if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        else {
+            try {
+                return in.getHeader(header, Long.class);
+            }
+            catch (TypeConversionException e) {
+                return null;
+            }
+        }
+    }
+}
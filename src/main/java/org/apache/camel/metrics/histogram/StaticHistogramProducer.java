@@ -0,0 +1,65 @@
+package org.apache.camel.metrics.histogram;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.impl.DefaultProducer;
+import org.apache.camel.metrics.Sampler;
+import org.apache.camel.metrics.histogram.HistogramEndpoint.HistogramSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Histogram;
+
+/**
+ * Producer for histogram endpoint with fixed value or body size source and
+ * header overrides disabled. Histogram is resolved once; processing an
+ * exchange only updates it.
+ */
+public class StaticHistogramProducer extends DefaultProducer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StaticHistogramProducer.class);
+
+    private final Histogram histogram;
+    private final Sampler sampler;
+    private final boolean bodySize;
+    private final long value;
+
+    public StaticHistogramProducer(HistogramEndpoint endpoint) {
+        super(endpoint);
+        this.histogram = endpoint.getHistogram(endpoint.getMetricsName());
+        this.sampler = endpoint.getSampler();
+        this.bodySize = endpoint.getSource() == HistogramSource.bodySize;
+        this.value = bodySize ? 0L : endpoint.getValue();
+    }
+
+    @Override
+    public void process(Exchange exchange) throws Exception {
+        if (sampler == null || sampler.isSampled(exchange)) {
+            if (bodySize) {
+                updateBodySize(exchange);
+            }
+            else {
+                histogram.update(value);
+            }
+        }
+    }
+
+    void updateBodySize(Exchange exchange) {
+        HistogramEndpoint endpoint = (HistogramEndpoint) getEndpoint();
+        Long size;
+        try {
+            size = MessageSizeHelper.getSize(exchange.getIn());
+        }
+        catch (Exception e) {
+            // failure to produce metrics must not fail the route, as in AbstractMetricsProducer
+            endpoint.onError(LOG, "exception", "Failed to produce metrics for {} in {} - {}", endpoint.getMetricsName(), getClass().getSimpleName(),
+                    e.getMessage());
+            return;
+        }
+        if (size != null) {
+            histogram.update(size);
+        }
+        else {
+            endpoint.onError(LOG, "unknownSize", "Cannot update histogram \"{}\" - size of message body is not known", endpoint.getMetricsName());
+        }
+    }
+}
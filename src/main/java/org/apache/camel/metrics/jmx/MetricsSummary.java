@@ -0,0 +1,212 @@
+package org.apache.camel.metrics.jmx;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.camel.metrics.reporter.SnapshotCache;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metered;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Sampling;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+
+/**
+ * Aggregate MBean over {@link MetricRegistry}. Rates are converted to
+ * events per rate unit and timer durations to duration unit, like in
+ * scheduled reporters. When created with {@link SnapshotCache}, histogram
+ * and timer snapshots are read from the cache.
+ */
+public class MetricsSummary implements MetricsSummaryMXBean {
+
+    static final String[] COUNTER_COLUMNS = { "count" };
+    static final String[] GAUGE_COLUMNS = { "value" };
+    static final String[] METER_COLUMNS = { "count", "meanRate", "m1Rate", "m5Rate", "m15Rate" };
+    static final String[] HISTOGRAM_COLUMNS = { "count", "min", "max", "mean", "stddev", "p50", "p75", "p95", "p98", "p99", "p999" };
+    static final String[] TIMER_COLUMNS = { "count", "meanRate", "m1Rate", "m5Rate", "m15Rate",
+            "min", "max", "mean", "stddev", "p50", "p75", "p95", "p98", "p99", "p999" };
+
+    private final MetricRegistry registry;
+    private final SnapshotCache snapshotCache;
+    private final String prefix;
+    private final MetricFilter filter;
+    private final TimeUnit rateUnit;
+    private final TimeUnit durationUnit;
+    private final double rateFactor;
+    private final double durationFactor;
+
+    public MetricsSummary(MetricRegistry registry) {
+        this(registry, "", TimeUnit.SECONDS, TimeUnit.MILLISECONDS);
+    }
+
+    public MetricsSummary(MetricRegistry registry, String prefix, TimeUnit rateUnit, TimeUnit durationUnit) {
+        this(registry, null, prefix, rateUnit, durationUnit);
+    }
+
+    public MetricsSummary(SnapshotCache snapshotCache, String prefix, TimeUnit rateUnit, TimeUnit durationUnit) {
+        this(snapshotCache.getRegistry(), snapshotCache, prefix, rateUnit, durationUnit);
+    }
+
+    MetricsSummary(MetricRegistry registry, SnapshotCache snapshotCache, final String prefix, TimeUnit rateUnit, TimeUnit durationUnit) {
+        this.registry = registry;
+        this.snapshotCache = snapshotCache;
+        this.prefix = prefix == null ? "" : prefix;
+        this.filter = this.prefix.isEmpty() ? MetricFilter.ALL : new MetricFilter() {
+            @Override
+            public boolean matches(String name, Metric metric) {
+                return name.startsWith(prefix);
+            }
+        };
+        this.rateUnit = rateUnit;
+        this.durationUnit = durationUnit;
+        this.rateFactor = rateUnit.toSeconds(1);
+        this.durationFactor = 1.0 / durationUnit.toNanos(1);
+    }
+
+    @Override
+    public String getPrefix() {
+        return prefix;
+    }
+
+    @Override
+    public int getMetricCount() {
+        return getMetricNames().length;
+    }
+
+    @Override
+    public String[] getMetricNames() {
+        List<String> names = new ArrayList<String>();
+        for (String name : registry.getNames()) {
+            if (name.startsWith(prefix)) {
+                names.add(name);
+            }
+        }
+        return names.toArray(new String[names.size()]);
+    }
+
+    @Override
+    public String getRateUnit() {
+        String unit = rateUnit.toString().toLowerCase(Locale.US);
+        return "events/" + unit.substring(0, unit.length() - 1);
+    }
+
+    @Override
+    public String getDurationUnit() {
+        return durationUnit.toString().toLowerCase(Locale.US);
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public MetricsTable getGauges() {
+        SortedMap<String, Gauge> gauges = registry.getGauges(filter);
+        String[] names = new String[gauges.size()];
+        double[][] values = new double[names.length][];
+        int i = 0;
+        for (Map.Entry<String, Gauge> entry : gauges.entrySet()) {
+            names[i] = entry.getKey();
+            values[i++] = new double[] { toDouble(entry.getValue()) };
+        }
+        return new MetricsTable(names, GAUGE_COLUMNS, values);
+    }
+
+    @Override
+    public MetricsTable getCounters() {
+        SortedMap<String, Counter> counters = registry.getCounters(filter);
+        String[] names = new String[counters.size()];
+        double[][] values = new double[names.length][];
+        int i = 0;
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            names[i] = entry.getKey();
+            values[i++] = new double[] { entry.getValue().getCount() };
+        }
+        return new MetricsTable(names, COUNTER_COLUMNS, values);
+    }
+
+    @Override
+    public MetricsTable getMeters() {
+        SortedMap<String, Meter> meters = registry.getMeters(filter);
+        String[] names = new String[meters.size()];
+        double[][] values = new double[names.length][];
+        int i = 0;
+        for (Map.Entry<String, Meter> entry : meters.entrySet()) {
+            names[i] = entry.getKey();
+            double[] row = new double[METER_COLUMNS.length];
+            putRates(row, entry.getValue());
+            values[i++] = row;
+        }
+        return new MetricsTable(names, METER_COLUMNS, values);
+    }
+
+    @Override
+    public MetricsTable getHistograms() {
+        SortedMap<String, Histogram> histograms = registry.getHistograms(filter);
+        String[] names = new String[histograms.size()];
+        double[][] values = new double[names.length][];
+        int i = 0;
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            names[i] = entry.getKey();
+            double[] row = new double[HISTOGRAM_COLUMNS.length];
+            row[0] = entry.getValue().getCount();
+            putSnapshot(row, 1, getSnapshot(entry.getKey(), entry.getValue()), 1.0);
+            values[i++] = row;
+        }
+        return new MetricsTable(names, HISTOGRAM_COLUMNS, values);
+    }
+
+    @Override
+    public MetricsTable getTimers() {
+        SortedMap<String, Timer> timers = registry.getTimers(filter);
+        String[] names = new String[timers.size()];
+        double[][] values = new double[names.length][];
+        int i = 0;
+        for (Map.Entry<String, Timer> entry : timers.entrySet()) {
+            names[i] = entry.getKey();
+            double[] row = new double[TIMER_COLUMNS.length];
+            putRates(row, entry.getValue());
+            putSnapshot(row, METER_COLUMNS.length, getSnapshot(entry.getKey(), entry.getValue()), durationFactor);
+            values[i++] = row;
+        }
+        return new MetricsTable(names, TIMER_COLUMNS, values);
+    }
+
+    private Snapshot getSnapshot(String name, Sampling metric) {
+        return snapshotCache == null ? metric.getSnapshot() : snapshotCache.getSnapshot(name, metric);
+    }
+
+    private void putRates(double[] row, Metered metered) {
+        row[0] = metered.getCount();
+        row[1] = metered.getMeanRate() * rateFactor;
+        row[2] = metered.getOneMinuteRate() * rateFactor;
+        row[3] = metered.getFiveMinuteRate() * rateFactor;
+        row[4] = metered.getFifteenMinuteRate() * rateFactor;
+    }
+
+    private static void putSnapshot(double[] row, int offset, Snapshot snapshot, double factor) {
+        row[offset] = snapshot.getMin() * factor;
+        row[offset + 1] = snapshot.getMax() * factor;
+        row[offset + 2] = snapshot.getMean() * factor;
+        row[offset + 3] = snapshot.getStdDev() * factor;
+        row[offset + 4] = snapshot.getMedian() * factor;
+        row[offset + 5] = snapshot.get75thPercentile() * factor;
+        row[offset + 6] = snapshot.get95thPercentile() * factor;
+        row[offset + 7] = snapshot.get98thPercentile() * factor;
+        row[offset + 8] = snapshot.get99thPercentile() * factor;
+        row[offset + 9] = snapshot.get999thPercentile() * factor;
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static double toDouble(Gauge gauge) {
+        Object value = gauge.getValue();
+        return value instanceof Number ? ((Number) value).doubleValue() : Double.NaN;
+    }
+}
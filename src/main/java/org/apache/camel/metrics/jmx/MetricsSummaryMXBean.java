@@ -0,0 +1,34 @@
+package org.apache.camel.metrics.jmx;
+
+/**
+ * Exposes all metrics of a registry, or those starting with a prefix,
+ * through a single MBean. Each attribute is read in one pass over the
+ * registry and returns names and values of all metrics of one type, so a
+ * monitoring agent needs one JMX call per metric type instead of one per
+ * metric.
+ */
+public interface MetricsSummaryMXBean {
+
+    String getPrefix();
+
+    int getMetricCount();
+
+    String[] getMetricNames();
+
+    String getRateUnit();
+
+    String getDurationUnit();
+
+    /**
+     * Numeric gauges; other gauges are reported as NaN.
+     */
+    MetricsTable getGauges();
+
+    MetricsTable getCounters();
+
+    MetricsTable getMeters();
+
+    MetricsTable getHistograms();
+
+    MetricsTable getTimers();
+}
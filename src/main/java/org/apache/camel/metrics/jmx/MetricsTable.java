@@ -0,0 +1,34 @@
+package org.apache.camel.metrics.jmx;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Values of metrics of one type read in one pass over the registry. Row
+ * {@code i} of {@link #getValues()} holds values of metric
+ * {@code getNames()[i]} in order of {@link #getColumns()}.
+ */
+public class MetricsTable {
+
+    private final String[] names;
+    private final String[] columns;
+    private final double[][] values;
+
+    @ConstructorProperties({ "names", "columns", "values" })
+    public MetricsTable(String[] names, String[] columns, double[][] values) {
+        this.names = names;
+        this.columns = columns;
+        this.values = values;
+    }
+
+    public String[] getNames() {
+        return names;
+    }
+
+    public String[] getColumns() {
+        return columns;
+    }
+
+    public double[][] getValues() {
+        return values;
+    }
+}
@@ -0,0 +1,167 @@
+package org.apache.camel.metrics.meter;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.camel.metrics.StripedCounter;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Meter;
+
+/**
+ * Meter recording marks into {@link StripedCounter} only. Exponentially
+ * weighted moving averages are computed when rates are read, at most once
+ * per {@link #TICK_INTERVAL}. Rate windows are configurable. Reporters read
+ * rates through {@link Meter}, so first three windows are reported by
+ * position as one, five and fifteen minute rates whatever their length;
+ * rate of a window by its length is read with {@link #getWindowRate(long)}.
+ */
+public class LazyMeter extends Meter {
+
+    static final long TICK_INTERVAL = TimeUnit.SECONDS.toNanos(5);
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final long[] DEFAULT_WINDOWS = { 60L, 300L, 900L };
+
+    private final StripedCounter count = new StripedCounter();
+    private final Clock clock;
+    private final long startTime;
+    private final long[] windows;
+    private final double[] rates;
+    private long lastTick;
+    private long lastCount;
+    private boolean initialized;
+
+    public LazyMeter() {
+        this(DEFAULT_WINDOWS);
+    }
+
+    public LazyMeter(long[] windowSeconds) {
+        this(windowSeconds, Clock.defaultClock());
+    }
+
+    public LazyMeter(long[] windowSeconds, Clock clock) {
+        if (windowSeconds == null || windowSeconds.length == 0) {
+            throw new IllegalArgumentException("At least one rate window required");
+        }
+        this.clock = clock;
+        this.startTime = clock.getTick();
+        this.lastTick = startTime;
+        this.windows = new long[windowSeconds.length];
+        for (int i = 0; i < windowSeconds.length; i++) {
+            windows[i] = TimeUnit.SECONDS.toNanos(windowSeconds[i]);
+        }
+        this.rates = new double[windows.length];
+    }
+
+    @Override
+    public void mark() {
+        count.increment();
+    }
+
+    @Override
+    public void mark(long n) {
+        count.add(n);
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public double getMeanRate() {
+        long count = getCount();
+        if (count == 0) {
+            return 0.0;
+        }
+        double elapsed = clock.getTick() - startTime;
+        return count / elapsed * NANOS_PER_SECOND;
+    }
+
+    @Override
+    public double getOneMinuteRate() {
+        return getReportedRate(0);
+    }
+
+    @Override
+    public double getFiveMinuteRate() {
+        return getReportedRate(1);
+    }
+
+    @Override
+    public double getFifteenMinuteRate() {
+        return getReportedRate(2);
+    }
+
+    /**
+     * Returns rate per second for window with given index.
+     */
+    public synchronized double getRate(int index) {
+        tickIfNecessary();
+        return rates[index];
+    }
+
+    /**
+     * Returns rate per second for window of given length in seconds.
+     *
+     * @throws IllegalArgumentException if meter has no such window
+     */
+    public double getWindowRate(long windowSeconds) {
+        long window = TimeUnit.SECONDS.toNanos(windowSeconds);
+        for (int i = 0; i < windows.length; i++) {
+            if (windows[i] == window) {
+                return getRate(i);
+            }
+        }
+        throw new IllegalArgumentException("No rate window of " + windowSeconds + " seconds in " + this);
+    }
+
+    /**
+     * Returns configured rate windows in seconds.
+     */
+    public long[] getWindows() {
+        long[] result = new long[windows.length];
+        for (int i = 0; i < windows.length; i++) {
+            result[i] = TimeUnit.NANOSECONDS.toSeconds(windows[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns copy of default rate windows in seconds, one, five and fifteen
+     * minutes.
+     */
+    public static long[] getDefaultWindows() {
+        return DEFAULT_WINDOWS.clone();
+    }
+
+    private double getReportedRate(int index) {
+        return index < rates.length ? getRate(index) : 0.0;
+    }
+
+    private void tickIfNecessary() {
+        long now = clock.getTick();
+        long age = now - lastTick;
+        if (age >= TICK_INTERVAL) {
+            long current = count.sum();
+            double instantRate = (current - lastCount) / (double) age * NANOS_PER_SECOND;
+            for (int i = 0; i < rates.length; i++) {
+                if (initialized) {
+                    // closed form of applying EWMA over whole elapsed period
+                    rates[i] = instantRate + (rates[i] - instantRate) * Math.exp(-age / (double) windows[i]);
+                }
+                else {
+                    rates[i] = instantRate;
+                }
+            }
+            initialized = true;
+            lastTick = now;
+            lastCount = current;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LazyMeter" + Arrays.toString(getWindows());
+    }
+}
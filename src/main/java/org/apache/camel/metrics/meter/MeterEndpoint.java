@@ -1,10 +1,14 @@
 package org.apache.camel.metrics.meter;
 
+import org.apache.camel.Component;
 import org.apache.camel.Producer;
 import org.apache.camel.metrics.AbstractMetricsEndpoint;
+import org.apache.camel.metrics.MetricRegistryHelper;
+import org.apache.camel.metrics.MetricRegistryHelper.MetricFactory;
 import org.apache.camel.spi.UriEndpoint;
 import org.apache.camel.spi.UriParam;
 
+import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 
 @UriEndpoint(scheme = "metrics:meter")
@@ -15,15 +19,48 @@ public class MeterEndpoint extends AbstractMetricsEndpoint {
     @UriParam
     private Long mark;
 
+    @UriParam
+    private boolean lazy;
+
+    @UriParam
+    private long[] rateWindows = LazyMeter.getDefaultWindows();
+
     public MeterEndpoint(MetricRegistry registry, String metricsName) {
         super(registry, metricsName);
     }
 
+    public MeterEndpoint(String endpointUri, Component component, MetricRegistry registry, String metricsName) {
+        super(endpointUri, component, registry, metricsName);
+    }
+
     @Override
     public Producer createProducer() throws Exception {
+        if (isStaticConfiguration()) {
+            return new StaticMeterProducer(this);
+        }
         return new MeterProducer(this);
     }
 
+    @Override
+    protected Meter registerMetric(String name) {
+        if (lazy) {
+            final long[] windows = rateWindows;
+            return MetricRegistryHelper.getOrRegister(registry, name, Meter.class, new MetricFactory<Meter>() {
+                @Override
+                public Meter newMetric() {
+                    return new LazyMeter(windows);
+                }
+            });
+        }
+        else {
+            return registry.meter(name);
+        }
+    }
+
+    public Meter getMeter(String name) {
+        return (Meter) getMetric(name);
+    }
+
     public Long getMark() {
         return mark;
     }
@@ -32,6 +69,27 @@ public class MeterEndpoint extends AbstractMetricsEndpoint {
         this.mark = mark;
     }
 
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    public void setLazy(boolean lazy) {
+        this.lazy = lazy;
+    }
+
+    public long[] getRateWindows() {
+        return rateWindows.clone();
+    }
+
+    public void setRateWindows(String rateWindows) {
+        String[] values = rateWindows.split(",");
+        long[] windows = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            windows[i] = Long.parseLong(values[i].trim());
+        }
+        this.rateWindows = windows;
+    }
+
     @Override
     protected String createEndpointUri() {
         return ENDPOINT_URI;
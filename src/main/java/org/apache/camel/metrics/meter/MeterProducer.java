@@ -18,14 +18,25 @@ public class MeterProducer extends AbstractMetricsProducer<MeterEndpoint> {
     @Override
     protected void doProcess(Exchange exchange, MeterEndpoint endpoint, MetricRegistry registry, String metricsName) throws Exception {
         Message in = exchange.getIn();
-        Meter meter = registry.meter(metricsName);
+        Meter meter = endpoint.getMeter(metricsName);
+        long scale = getSampleScale(endpoint);
         Long mark = endpoint.getMark();
-        Long finalMark = getLongHeader(in, HEADER_METER_MARK, mark);
-        if (finalMark == null) {
+        Object markHeader = getOverrideHeader(in, HEADER_METER_MARK);
+        Object expression = markHeader == null ? endpoint.evaluateValue(exchange) : null;
+        if (markHeader != null) {
+            meter.mark(getLongValue(in, HEADER_METER_MARK, markHeader) * scale);
+        }
+        else if (expression != null) {
+            meter.mark(convertToLong(exchange, expression) * scale);
+        }
+        else if (mark != null) {
+            meter.mark(mark * scale);
+        }
+        else if (scale == 1L) {
             meter.mark();
         }
         else {
-            meter.mark(finalMark);
+            meter.mark(scale);
         }
     }
 }
@@ -0,0 +1,38 @@
+package org.apache.camel.metrics.meter;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.impl.DefaultProducer;
+import org.apache.camel.metrics.Sampler;
+
+import com.codahale.metrics.Meter;
+
+/**
+ * Producer for meter endpoint with fixed configuration and header overrides
+ * disabled. Meter and mark are resolved once; processing an exchange only
+ * marks the meter.
+ */
+public class StaticMeterProducer extends DefaultProducer {
+
+    private final Meter meter;
+    private final Sampler sampler;
+    private final long mark;
+
+    public StaticMeterProducer(MeterEndpoint endpoint) {
+        super(endpoint);
+        this.meter = endpoint.getMeter(endpoint.getMetricsName());
+        this.sampler = endpoint.getSampler();
+        long scale = sampler == null ? 1L : sampler.getInterval();
+        this.mark = endpoint.getMark() == null ? scale : endpoint.getMark() * scale;
+    }
+
+    @Override
+    public void process(Exchange exchange) throws Exception {
+        if (sampler == null || sampler.isSampled(exchange)) {
+            meter.mark(mark);
+        }
+    }
+
+    long getMark() {
+        return mark;
+    }
+}
@@ -0,0 +1,236 @@
+package org.apache.camel.metrics.multi;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.camel.Component;
+import org.apache.camel.Producer;
+import org.apache.camel.RuntimeCamelException;
+import org.apache.camel.metrics.AbstractDistributionEndpoint;
+import org.apache.camel.spi.UriEndpoint;
+import org.apache.camel.spi.UriParam;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Endpoint updating several counters, meters and histograms in one producer
+ * call. Metrics are resolved once on start instead of per exchange.
+ * Histograms are registered with the reservoir or buckets options of the
+ * endpoint, as by {@link org.apache.camel.metrics.histogram.HistogramEndpoint}.
+ */
+@UriEndpoint(scheme = "metrics:multi")
+public class MultiEndpoint extends AbstractDistributionEndpoint {
+
+    public static final String ENDPOINT_URI = "metrics:multi";
+
+    @UriParam
+    private String[] counter;
+
+    @UriParam
+    private Long counterIncrement;
+
+    @UriParam
+    private String[] meter;
+
+    @UriParam
+    private Long meterMark;
+
+    @UriParam
+    private String[] histogram;
+
+    @UriParam
+    private Long histogramValue;
+
+    @UriParam
+    private long[] buckets;
+
+    private volatile Counter[] counters;
+
+    private volatile Meter[] meters;
+
+    private volatile Histogram[] histograms;
+
+    public MultiEndpoint(MetricRegistry registry, String metricsName) {
+        super(registry, metricsName);
+    }
+
+    public MultiEndpoint(String endpointUri, Component component, MetricRegistry registry, String metricsName) {
+        super(endpointUri, component, registry, metricsName);
+    }
+
+    @Override
+    public Producer createProducer() throws Exception {
+        return new MultiProducer(this);
+    }
+
+    /**
+     * Fails on start if options inherited from other endpoints, which multi
+     * endpoint does not apply, are set, instead of silently ignoring them.
+     */
+    @Override
+    protected void doStart() throws Exception {
+        if (getValueExpression() != null || !DEFAULT_VALUE_LANGUAGE.equals(getValueLanguage())) {
+            throw new RuntimeCamelException("Options valueExpression and valueLanguage are not supported by " + getClass().getSimpleName() + ": "
+                    + getEndpointUri());
+        }
+        super.doStart();
+        counters = registerCounters();
+        meters = registerMeters();
+        histograms = registerHistograms();
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        counters = null;
+        meters = null;
+        histograms = null;
+        super.doStop();
+    }
+
+    /**
+     * Endpoint has no metric of its own; metrics are resolved by type in
+     * {@link #doStart()}.
+     */
+    @Override
+    protected Metric registerMetric(String name) {
+        return null;
+    }
+
+    public Counter[] getCounters() {
+        Counter[] started = counters;
+        return started != null ? started : registerCounters();
+    }
+
+    public Meter[] getMeters() {
+        Meter[] started = meters;
+        return started != null ? started : registerMeters();
+    }
+
+    public Histogram[] getHistograms() {
+        Histogram[] started = histograms;
+        return started != null ? started : registerHistograms();
+    }
+
+    Counter[] registerCounters() {
+        Counter[] result = new Counter[counter == null ? 0 : counter.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = registry.counter(counter[i]);
+        }
+        return result;
+    }
+
+    Meter[] registerMeters() {
+        Meter[] result = new Meter[meter == null ? 0 : meter.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = registry.meter(meter[i]);
+        }
+        return result;
+    }
+
+    Histogram[] registerHistograms() {
+        Histogram[] result = new Histogram[histogram == null ? 0 : histogram.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = registerHistogram(histogram[i], buckets);
+        }
+        return result;
+    }
+
+    /**
+     * Counts errors after the first metric of the endpoint, so that multi
+     * endpoints do not share one error counter.
+     */
+    @Override
+    public String getErrorCounterName() {
+        String[] names = counter != null ? counter : (meter != null ? meter : histogram);
+        if (names == null) {
+            return super.getErrorCounterName();
+        }
+        return MetricRegistry.name(names[0], ERRORS_SUFFIX);
+    }
+
+    static String[] splitNames(String names) {
+        if (names == null) {
+            return null;
+        }
+        List<String> result = new ArrayList<String>();
+        for (String name : names.split(",")) {
+            String trimmed = name.trim();
+            if (trimmed.length() > 0) {
+                result.add(trimmed);
+            }
+        }
+        return result.isEmpty() ? null : result.toArray(new String[result.size()]);
+    }
+
+    public String[] getCounter() {
+        return counter;
+    }
+
+    public void setCounter(String counter) {
+        this.counter = splitNames(counter);
+    }
+
+    public Long getCounterIncrement() {
+        return counterIncrement;
+    }
+
+    public void setCounterIncrement(Long counterIncrement) {
+        this.counterIncrement = counterIncrement;
+    }
+
+    public String[] getMeter() {
+        return meter;
+    }
+
+    public void setMeter(String meter) {
+        this.meter = splitNames(meter);
+    }
+
+    public Long getMeterMark() {
+        return meterMark;
+    }
+
+    public void setMeterMark(Long meterMark) {
+        this.meterMark = meterMark;
+    }
+
+    public String[] getHistogram() {
+        return histogram;
+    }
+
+    public void setHistogram(String histogram) {
+        this.histogram = splitNames(histogram);
+    }
+
+    public Long getHistogramValue() {
+        return histogramValue;
+    }
+
+    public void setHistogramValue(Long histogramValue) {
+        this.histogramValue = histogramValue;
+    }
+
+    public long[] getBuckets() {
+        return buckets == null ? null : buckets.clone();
+    }
+
+    /**
+     * Sets bucket bounds from comma separated list, as given in URI.
+     */
+    public void setBuckets(String buckets) {
+        this.buckets = parseBuckets(buckets);
+    }
+
+    public void setBuckets(long[] buckets) {
+        this.buckets = buckets == null ? null : buckets.clone();
+    }
+
+    @Override
+    protected String createEndpointUri() {
+        return ENDPOINT_URI;
+    }
+}
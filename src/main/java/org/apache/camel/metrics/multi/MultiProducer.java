@@ -0,0 +1,70 @@
+package org.apache.camel.metrics.multi;
+
+import static org.apache.camel.metrics.MetricsComponent.HEADER_COUNTER_INCREMENT;
+import static org.apache.camel.metrics.MetricsComponent.HEADER_HISTOGRAM_VALUE;
+import static org.apache.camel.metrics.MetricsComponent.HEADER_METER_MARK;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.Message;
+import org.apache.camel.metrics.AbstractMetricsProducer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+public class MultiProducer extends AbstractMetricsProducer<MultiEndpoint> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MultiProducer.class);
+
+    public MultiProducer(MultiEndpoint endpoint) {
+        super(endpoint);
+    }
+
+    /**
+     * Metrics of multi endpoint are named by its options, so
+     * {@code CamelMetricsName} header is not read.
+     */
+    @Override
+    public String getMetricsName(Message in, String defaultValue) {
+        return defaultValue;
+    }
+
+    @Override
+    protected void doProcess(Exchange exchange, MultiEndpoint endpoint, MetricRegistry registry, String metricsName) throws Exception {
+        Message in = exchange.getIn();
+        long scale = getSampleScale(endpoint);
+        Counter[] counters = endpoint.getCounters();
+        if (counters.length > 0) {
+            Long configured = endpoint.getCounterIncrement();
+            long increment = getOverrideLong(in, HEADER_COUNTER_INCREMENT, configured != null ? configured : 1L) * scale;
+            for (Counter counter : counters) {
+                counter.inc(increment);
+            }
+        }
+        Meter[] meters = endpoint.getMeters();
+        if (meters.length > 0) {
+            Long configured = endpoint.getMeterMark();
+            long mark = getOverrideLong(in, HEADER_METER_MARK, configured != null ? configured : 1L) * scale;
+            for (Meter meter : meters) {
+                meter.mark(mark);
+            }
+        }
+        Histogram[] histograms = endpoint.getHistograms();
+        if (histograms.length > 0) {
+            Long configured = endpoint.getHistogramValue();
+            Object valueHeader = getOverrideHeader(in, HEADER_HISTOGRAM_VALUE);
+            if (valueHeader != null || configured != null) {
+                long value = valueHeader != null ? getLongValue(in, HEADER_HISTOGRAM_VALUE, valueHeader) : configured;
+                for (Histogram histogram : histograms) {
+                    histogram.update(value);
+                }
+            }
+            else {
+                endpoint.onError(LOG, "nullValue", "Cannot update histograms of \"{}\" with null value", endpoint.getEndpointUri());
+            }
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package org.apache.camel.metrics.reporter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metered;
+import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.ScheduledReporter;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+
+/**
+ * Reporter appending metric values to one file per day. Values are read on
+ * the reporting thread; formatting and writing happen on a separate writer
+ * thread through {@link java.nio.channels.FileChannel} and a reusable direct
+ * buffer. Files of previous days are compressed with gzip.
+ * <p>
+ * In CSV format each line is {@code time,type,name,values...} where time is
+ * milliseconds since epoch and values follow columns of the type listed in
+ * the comment lines at the start of each file. In binary format file starts
+ * with magic bytes {@code CMB1} and each record is time (long), type
+ * (byte, ordinal of {@link MetricType}), name length (unsigned short), name
+ * in UTF-8 and values of the type columns (doubles), all big-endian.
+ */
+public class FileReporter extends ScheduledReporter {
+
+    public enum Format {
+        csv("csv"),
+        binary("bin");
+
+        private final String extension;
+
+        private Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    public enum MetricType {
+        gauge("value"),
+        counter("count"),
+        histogram("count", "min", "max", "mean", "stddev", "p50", "p75", "p95", "p98", "p99", "p999"),
+        meter("count", "meanRate", "m1Rate", "m5Rate", "m15Rate"),
+        timer("count", "meanRate", "m1Rate", "m5Rate", "m15Rate", "min", "max", "mean", "stddev", "p50", "p75", "p95", "p98", "p99", "p999");
+
+        private final String[] columns;
+
+        private MetricType(String... columns) {
+            this.columns = columns;
+        }
+
+        public String[] getColumns() {
+            return columns.clone();
+        }
+    }
+
+    public static final int DEFAULT_QUEUE_SIZE = 16;
+    static final byte[] BINARY_MAGIC = new byte[] { 'C', 'M', 'B', '1' };
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final Logger LOG = LoggerFactory.getLogger(FileReporter.class);
+
+    private final Format format;
+    private final Clock clock;
+    private final RollingFileChannel file;
+    private final ThreadPoolExecutor writer;
+    private final AtomicLong dropped = new AtomicLong();
+    private final double rateFactor;
+    private final double durationFactor;
+
+    FileReporter(MetricRegistry registry, File directory, String prefix, Format format, boolean compress, int queueSize,
+            TimeUnit rateUnit, TimeUnit durationUnit, MetricFilter filter, Clock clock) {
+        super(registry, "file-reporter", filter, rateUnit, durationUnit);
+        this.format = format;
+        this.clock = clock;
+        this.rateFactor = rateUnit.toSeconds(1);
+        this.durationFactor = 1.0 / durationUnit.toNanos(1);
+        this.file = new RollingFileChannel(directory, prefix, format.getExtension(), compress, createFileHeader(format), RollingFileChannel.DEFAULT_BUFFER_SIZE);
+        this.writer = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(queueSize), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "metrics-file-writer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        }, new RejectedExecutionHandler() {
+            @Override
+            public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+                if (executor.isShutdown()) {
+                    LOG.debug("File reporter stopped, report not written");
+                }
+                else if (dropped.getAndIncrement() == 0) {
+                    LOG.warn("Metrics file writer cannot keep up, dropping reports");
+                }
+            }
+        });
+    }
+
+    public static Builder forRegistry(MetricRegistry registry) {
+        return new Builder(registry);
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public void report(SortedMap<String, Gauge> gauges, SortedMap<String, Counter> counters, SortedMap<String, Histogram> histograms,
+            SortedMap<String, Meter> meters, SortedMap<String, Timer> timers) {
+        long time = clock.getTime();
+        List<Row> rows = new ArrayList<Row>(gauges.size() + counters.size() + histograms.size() + meters.size() + timers.size());
+        for (Map.Entry<String, Gauge> entry : gauges.entrySet()) {
+            Object value = entry.getValue().getValue();
+            if (value instanceof Number) {
+                rows.add(new Row(MetricType.gauge, entry.getKey(), new double[] { ((Number) value).doubleValue() }));
+            }
+        }
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            rows.add(new Row(MetricType.counter, entry.getKey(), new double[] { entry.getValue().getCount() }));
+        }
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            double[] values = new double[11];
+            values[0] = entry.getValue().getCount();
+            putSnapshot(values, 1, entry.getValue().getSnapshot(), 1.0);
+            rows.add(new Row(MetricType.histogram, entry.getKey(), values));
+        }
+        for (Map.Entry<String, Meter> entry : meters.entrySet()) {
+            double[] values = new double[5];
+            putRates(values, entry.getValue());
+            rows.add(new Row(MetricType.meter, entry.getKey(), values));
+        }
+        for (Map.Entry<String, Timer> entry : timers.entrySet()) {
+            double[] values = new double[15];
+            putRates(values, entry.getValue());
+            putSnapshot(values, 5, entry.getValue().getSnapshot(), durationFactor);
+            rows.add(new Row(MetricType.timer, entry.getKey(), values));
+        }
+        writer.execute(new WriteTask(time, rows));
+    }
+
+    /**
+     * Stops writer thread after queued reports are written and closes the
+     * file. Stopped reporter cannot be used again.
+     */
+    @Override
+    public void stop() {
+        super.stop();
+        writer.shutdown();
+        try {
+            if (writer.awaitTermination(10, TimeUnit.SECONDS)) {
+                file.close();
+            }
+            else {
+                LOG.warn("Metrics file writer did not stop in time");
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (IOException e) {
+            LOG.warn("Cannot close metrics file {} - {}", file.getFile(), e.getMessage());
+        }
+    }
+
+    /**
+     * Returns number of reports dropped because writer thread was behind.
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    File getFile() {
+        return file.getFile();
+    }
+
+    void write(long time, List<Row> rows) throws IOException {
+        file.roll(time);
+        if (format == Format.binary) {
+            for (Row row : rows) {
+                writeBinary(time, row);
+            }
+        }
+        else {
+            StringBuilder line = new StringBuilder(256);
+            for (Row row : rows) {
+                line.setLength(0);
+                line.append(time).append(',').append(row.type.name()).append(',').append(escape(row.name));
+                for (double value : row.values) {
+                    line.append(',').append(value);
+                }
+                line.append('\n');
+                file.put(line.toString().getBytes(UTF8));
+            }
+        }
+        file.flush();
+    }
+
+    private void writeBinary(long time, Row row) throws IOException {
+        byte[] name = row.name.getBytes(UTF8);
+        int length = Math.min(name.length, 0xFFFF);
+        ByteBuffer buffer = file.reserve(8 + 1 + 2 + length + 8 * row.values.length);
+        buffer.putLong(time);
+        buffer.put((byte) row.type.ordinal());
+        buffer.putShort((short) length);
+        buffer.put(name, 0, length);
+        for (double value : row.values) {
+            buffer.putDouble(value);
+        }
+    }
+
+    private void putRates(double[] values, Metered metered) {
+        values[0] = metered.getCount();
+        values[1] = convertRate(metered.getMeanRate());
+        values[2] = convertRate(metered.getOneMinuteRate());
+        values[3] = convertRate(metered.getFiveMinuteRate());
+        values[4] = convertRate(metered.getFifteenMinuteRate());
+    }
+
+    private static void putSnapshot(double[] values, int offset, Snapshot snapshot, double factor) {
+        values[offset] = snapshot.getMin() * factor;
+        values[offset + 1] = snapshot.getMax() * factor;
+        values[offset + 2] = snapshot.getMean() * factor;
+        values[offset + 3] = snapshot.getStdDev() * factor;
+        values[offset + 4] = snapshot.getMedian() * factor;
+        values[offset + 5] = snapshot.get75thPercentile() * factor;
+        values[offset + 6] = snapshot.get95thPercentile() * factor;
+        values[offset + 7] = snapshot.get98thPercentile() * factor;
+        values[offset + 8] = snapshot.get99thPercentile() * factor;
+        values[offset + 9] = snapshot.get999thPercentile() * factor;
+    }
+
+    static String escape(String name) {
+        if (name.indexOf(',') < 0 && name.indexOf('"') < 0 && name.indexOf('\n') < 0) {
+            return name;
+        }
+        return '"' + name.replace("\"", "\"\"") + '"';
+    }
+
+    static byte[] createFileHeader(Format format) {
+        if (format == Format.binary) {
+            return BINARY_MAGIC.clone();
+        }
+        StringBuilder header = new StringBuilder();
+        for (MetricType type : MetricType.values()) {
+            header.append("# time,type,name");
+            for (String column : type.columns) {
+                header.append(',').append(column);
+            }
+            header.append(" - ").append(type.name()).append('\n');
+        }
+        return header.toString().getBytes(UTF8);
+    }
+
+    static final class Row {
+
+        private final MetricType type;
+        private final String name;
+        private final double[] values;
+
+        Row(MetricType type, String name, double[] values) {
+            this.type = type;
+            this.name = name;
+            this.values = values;
+        }
+    }
+
+    final class WriteTask implements Runnable {
+
+        private final long time;
+        private final List<Row> rows;
+
+        WriteTask(long time, List<Row> rows) {
+            this.time = time;
+            this.rows = rows;
+        }
+
+        @Override
+        public void run() {
+            try {
+                write(time, rows);
+            }
+            catch (IOException e) {
+                LOG.warn("Cannot write metrics to {} - {}", file.getFile(), e.getMessage());
+            }
+        }
+    }
+
+    public static final class Builder {
+
+        private final MetricRegistry registry;
+        private String prefix = "metrics";
+        private Format format = Format.csv;
+        private boolean compress = true;
+        private int queueSize = DEFAULT_QUEUE_SIZE;
+        private TimeUnit rateUnit = TimeUnit.SECONDS;
+        private TimeUnit durationUnit = TimeUnit.MILLISECONDS;
+        private MetricFilter filter = MetricFilter.ALL;
+        private Clock clock = Clock.defaultClock();
+
+        private Builder(MetricRegistry registry) {
+            this.registry = registry;
+        }
+
+        /**
+         * Prefix of file names, followed by day and format.
+         */
+        public Builder prefixedWith(String prefix) {
+            this.prefix = prefix;
+            return this;
+        }
+
+        public Builder format(Format format) {
+            this.format = format;
+            return this;
+        }
+
+        /**
+         * Compress files of previous days; enabled by default.
+         */
+        public Builder compress(boolean compress) {
+            this.compress = compress;
+            return this;
+        }
+
+        /**
+         * Maximum number of reports waiting to be written.
+         */
+        public Builder queueSize(int queueSize) {
+            this.queueSize = queueSize;
+            return this;
+        }
+
+        public Builder convertRatesTo(TimeUnit rateUnit) {
+            this.rateUnit = rateUnit;
+            return this;
+        }
+
+        public Builder convertDurationsTo(TimeUnit durationUnit) {
+            this.durationUnit = durationUnit;
+            return this;
+        }
+
+        public Builder filter(MetricFilter filter) {
+            this.filter = filter;
+            return this;
+        }
+
+        public Builder withClock(Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        public FileReporter build(File directory) {
+            return new FileReporter(registry, directory, prefix, format, compress, queueSize, rateUnit, durationUnit, filter, clock);
+        }
+    }
+}
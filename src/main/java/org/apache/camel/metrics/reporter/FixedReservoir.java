@@ -0,0 +1,31 @@
+package org.apache.camel.metrics.reporter;
+
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+
+/**
+ * Read-only reservoir returning snapshot taken earlier.
+ */
+public class FixedReservoir implements Reservoir {
+
+    private final Snapshot snapshot;
+
+    public FixedReservoir(Snapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    @Override
+    public int size() {
+        return snapshot.size();
+    }
+
+    @Override
+    public void update(long value) {
+        throw new UnsupportedOperationException("Fixed reservoir is read-only");
+    }
+
+    @Override
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+}
@@ -0,0 +1,287 @@
+package org.apache.camel.metrics.reporter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.ScheduledReporter;
+import com.codahale.metrics.Timer;
+
+/**
+ * Runs {@link ScheduledReporter}s on small shared thread pool instead of one
+ * thread per reporter. Reporters of the same registry and period run in the
+ * same tick: metrics are read from registry once per tick and shared between
+ * the reporters. Histogram and timer snapshots are read through
+ * {@link SnapshotCache} of the registry, so reporters of different periods
+ * and other readers of the cache share them too. Ticks of different
+ * registries are staggered over the period to avoid bursts.
+ * <p>
+ * Scheduled reporters must not be started with
+ * {@link ScheduledReporter#start(long, TimeUnit)}.
+ */
+public class ReportingScheduler {
+
+    public static final int DEFAULT_POOL_SIZE = 2;
+    private static final double STAGGER_STEP = 0.6180339887498949;
+    private static final Logger LOG = LoggerFactory.getLogger(ReportingScheduler.class);
+    private static ReportingScheduler defaultScheduler;
+
+    private final ScheduledExecutorService executor;
+    private final List<ReportingTask> tasks = new ArrayList<ReportingTask>();
+    private final Map<MetricRegistry, SnapshotCache> snapshotCaches = new HashMap<MetricRegistry, SnapshotCache>();
+    private int sequence;
+
+    public ReportingScheduler() {
+        this(DEFAULT_POOL_SIZE);
+    }
+
+    public ReportingScheduler(int poolSize) {
+        this(Executors.newScheduledThreadPool(poolSize, new ReportingThreadFactory()));
+    }
+
+    public ReportingScheduler(ScheduledExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Returns scheduler shared by all Metrics components of the JVM.
+     */
+    public static synchronized ReportingScheduler getDefault() {
+        if (defaultScheduler == null) {
+            defaultScheduler = new ReportingScheduler();
+        }
+        return defaultScheduler;
+    }
+
+    /**
+     * Runs reporter periodically with metrics of given registry. Reporter
+     * already scheduled is left as is.
+     */
+    public void schedule(ScheduledReporter reporter, MetricRegistry registry, long period, TimeUnit unit) {
+        schedule(reporter, registry, MetricFilter.ALL, period, unit);
+    }
+
+    public synchronized void schedule(ScheduledReporter reporter, MetricRegistry registry, MetricFilter filter, long period, TimeUnit unit) {
+        long periodNanos = unit.toNanos(period);
+        if (periodNanos < 1) {
+            throw new IllegalArgumentException("Reporting period must be positive but was " + period + " " + unit);
+        }
+        if (isScheduled(reporter)) {
+            return;
+        }
+        ReportingTask task = findTask(registry, periodNanos);
+        if (task == null) {
+            task = new ReportingTask(registry, getSnapshotCache(registry), periodNanos);
+            long offset = (long) (periodNanos * ((sequence++ * STAGGER_STEP) % 1.0));
+            task.future = executor.scheduleAtFixedRate(task, periodNanos + offset, periodNanos, TimeUnit.NANOSECONDS);
+            tasks.add(task);
+        }
+        task.reporters.add(new ScheduledEntry(reporter, filter));
+    }
+
+    /**
+     * Stops running given reporter. Returns false if reporter was not scheduled.
+     */
+    public synchronized boolean cancel(ScheduledReporter reporter) {
+        boolean found = false;
+        for (ReportingTask task : new ArrayList<ReportingTask>(tasks)) {
+            for (ScheduledEntry entry : task.reporters) {
+                if (entry.reporter == reporter) {
+                    task.reporters.remove(entry);
+                    found = true;
+                }
+            }
+            if (task.reporters.isEmpty()) {
+                task.future.cancel(false);
+                tasks.remove(task);
+                releaseSnapshotCache(task.registry);
+            }
+        }
+        return found;
+    }
+
+    public synchronized boolean isScheduled(ScheduledReporter reporter) {
+        for (ReportingTask task : tasks) {
+            for (ScheduledEntry entry : task.reporters) {
+                if (entry.reporter == reporter) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public synchronized int getScheduledCount() {
+        int count = 0;
+        for (ReportingTask task : tasks) {
+            count += task.reporters.size();
+        }
+        return count;
+    }
+
+    /**
+     * Returns snapshot cache used for given registry, creating one with
+     * default tick on first use.
+     */
+    public synchronized SnapshotCache getSnapshotCache(MetricRegistry registry) {
+        SnapshotCache cache = snapshotCaches.get(registry);
+        if (cache == null) {
+            cache = new SnapshotCache(registry);
+            snapshotCaches.put(registry, cache);
+        }
+        return cache;
+    }
+
+    /**
+     * Replaces snapshot cache used for registry of given cache. Replaced
+     * cache is closed.
+     */
+    public synchronized void setSnapshotCache(SnapshotCache cache) {
+        SnapshotCache replaced = snapshotCaches.put(cache.getRegistry(), cache);
+        if (replaced != null && replaced != cache) {
+            replaced.close();
+        }
+        for (ReportingTask task : tasks) {
+            if (task.registry == cache.getRegistry()) {
+                task.cache = cache;
+            }
+        }
+    }
+
+    /**
+     * Drops and closes snapshot cache of given registry unless reporters of
+     * the registry are still scheduled. Returns true if cache was dropped.
+     */
+    public synchronized boolean releaseSnapshotCache(MetricRegistry registry) {
+        for (ReportingTask task : tasks) {
+            if (task.registry == registry) {
+                return false;
+            }
+        }
+        SnapshotCache cache = snapshotCaches.remove(registry);
+        if (cache == null) {
+            return false;
+        }
+        cache.close();
+        return true;
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    ReportingTask findTask(MetricRegistry registry, long periodNanos) {
+        for (ReportingTask task : tasks) {
+            if (task.registry == registry && task.periodNanos == periodNanos) {
+                return task;
+            }
+        }
+        return null;
+    }
+
+    synchronized List<ReportingTask> getTasks() {
+        return new ArrayList<ReportingTask>(tasks);
+    }
+
+    static final class ScheduledEntry {
+
+        private final ScheduledReporter reporter;
+        private final MetricFilter filter;
+
+        ScheduledEntry(ScheduledReporter reporter, MetricFilter filter) {
+            this.reporter = reporter;
+            this.filter = filter;
+        }
+    }
+
+    static final class ReportingTask implements Runnable {
+
+        private final MetricRegistry registry;
+        private final long periodNanos;
+        private final List<ScheduledEntry> reporters = new CopyOnWriteArrayList<ScheduledEntry>();
+        private volatile SnapshotCache cache;
+        private ScheduledFuture<?> future;
+
+        ReportingTask(MetricRegistry registry, SnapshotCache cache, long periodNanos) {
+            this.registry = registry;
+            this.cache = cache;
+            this.periodNanos = periodNanos;
+        }
+
+        @Override
+        @SuppressWarnings("rawtypes")
+        public void run() {
+            SortedMap<String, Gauge> gauges = registry.getGauges();
+            SortedMap<String, Counter> counters = registry.getCounters();
+            SortedMap<String, Meter> meters = registry.getMeters();
+            SortedMap<String, Histogram> histograms = cache.getHistograms(MetricFilter.ALL);
+            SortedMap<String, Timer> timers = cache.getTimers(MetricFilter.ALL);
+            for (ScheduledEntry entry : reporters) {
+                try {
+                    entry.reporter.report(
+                            filter(gauges, entry.filter),
+                            filter(counters, entry.filter),
+                            filter(histograms, entry.filter),
+                            filter(meters, entry.filter),
+                            filter(timers, entry.filter));
+                }
+                catch (RuntimeException e) {
+                    LOG.warn("Reporter {} failed - {}", entry.reporter, e.getMessage());
+                }
+            }
+        }
+
+        static <T extends Metric> SortedMap<String, T> filter(SortedMap<String, T> metrics, MetricFilter filter) {
+            if (filter == MetricFilter.ALL) {
+                return metrics;
+            }
+            SortedMap<String, T> result = new TreeMap<String, T>();
+            for (Map.Entry<String, T> entry : metrics.entrySet()) {
+                if (filter.matches(entry.getKey(), entry.getValue())) {
+                    result.put(entry.getKey(), entry.getValue());
+                }
+            }
+            return result;
+        }
+
+        long getPeriodNanos() {
+            return periodNanos;
+        }
+
+        SnapshotCache getSnapshotCache() {
+            return cache;
+        }
+    }
+
+    static final class ReportingThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "metrics-reporting-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
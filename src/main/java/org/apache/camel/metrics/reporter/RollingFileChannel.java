@@ -0,0 +1,159 @@
+package org.apache.camel.metrics.reporter;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.camel.util.IOHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Appends records to one file per day through {@link FileChannel} and one
+ * reusable direct buffer. When day changes the previous file is closed and
+ * optionally compressed with gzip. Not thread-safe; used from single writer
+ * thread.
+ */
+class RollingFileChannel {
+
+    static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final Logger LOG = LoggerFactory.getLogger(RollingFileChannel.class);
+
+    private final File directory;
+    private final String prefix;
+    private final String extension;
+    private final boolean compress;
+    private final byte[] fileHeader;
+    private final ByteBuffer buffer;
+    private final SimpleDateFormat dayFormat = new SimpleDateFormat("yyyy-MM-dd");
+
+    private String day;
+    private File file;
+    private FileChannel channel;
+
+    RollingFileChannel(File directory, String prefix, String extension, boolean compress, byte[] fileHeader, int bufferSize) {
+        this.directory = directory;
+        this.prefix = prefix;
+        this.extension = extension;
+        this.compress = compress;
+        this.fileHeader = fileHeader;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * Switches to file of the day of given time, rotating current file if
+     * needed. File that failed to open is opened again by the next call.
+     */
+    void roll(long time) throws IOException {
+        String recordDay = dayFormat.format(new Date(time));
+        if (channel != null && recordDay.equals(day)) {
+            return;
+        }
+        File previous = file;
+        close();
+        // previous file is forgotten before opening the next one, so it is compressed only once
+        day = null;
+        file = null;
+        if (previous != null && compress) {
+            compress(previous);
+        }
+        File next = new File(directory, prefix + "-" + recordDay + "." + extension);
+        boolean created = !next.exists() || next.length() == 0;
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Cannot create directory " + directory);
+        }
+        channel = new FileOutputStream(next, true).getChannel();
+        day = recordDay;
+        file = next;
+        if (created && fileHeader.length > 0) {
+            reserve(fileHeader.length).put(fileHeader);
+        }
+    }
+
+    /**
+     * Returns buffer with at least given number of bytes remaining, writing
+     * out buffered bytes first if needed.
+     */
+    ByteBuffer reserve(int bytes) throws IOException {
+        if (bytes > buffer.capacity()) {
+            throw new IOException("Record of " + bytes + " bytes does not fit into buffer of " + buffer.capacity() + " bytes");
+        }
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+        return buffer;
+    }
+
+    void put(byte[] bytes) throws IOException {
+        if (bytes.length > buffer.capacity()) {
+            flush();
+            ByteBuffer wrapped = ByteBuffer.wrap(bytes);
+            while (wrapped.hasRemaining()) {
+                channel.write(wrapped);
+            }
+        }
+        else {
+            reserve(bytes.length).put(bytes);
+        }
+    }
+
+    void flush() throws IOException {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        finally {
+            buffer.clear();
+        }
+    }
+
+    void close() throws IOException {
+        if (channel != null) {
+            try {
+                flush();
+            }
+            finally {
+                channel.close();
+                channel = null;
+            }
+        }
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    void compress(File source) {
+        File target = new File(source.getPath() + ".gz");
+        InputStream in = null;
+        OutputStream out = null;
+        try {
+            in = new FileInputStream(source);
+            out = new GZIPOutputStream(new FileOutputStream(target));
+            IOHelper.copy(in, out);
+            IOHelper.closeWithException(out);
+            out = null;
+            IOHelper.close(in);
+            in = null;
+            if (!source.delete()) {
+                LOG.warn("Cannot delete compressed metrics file {}", source);
+            }
+        }
+        catch (IOException e) {
+            LOG.warn("Cannot compress metrics file {} - {}", source, e.getMessage());
+        }
+        finally {
+            IOHelper.close(in, out);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package org.apache.camel.metrics.reporter;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.MetricRegistryListener;
+import com.codahale.metrics.Sampling;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+
+/**
+ * Computes snapshot of each histogram and timer of registry at most once per
+ * tick and serves it to all readers: reporters, JMX and applications.
+ * Cached snapshots are invalidated by version counter, which advances with
+ * every tick of clock and on {@link #invalidate()}.
+ */
+public class SnapshotCache {
+
+    public static final long DEFAULT_TICK_MILLIS = 1000L;
+
+    private final MetricRegistry registry;
+    private final long tickNanos;
+    private final Clock clock;
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong computations = new AtomicLong();
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+    private final MetricRegistryListener listener = new MetricRegistryListener.Base() {
+        @Override
+        public void onHistogramRemoved(String name) {
+            entries.remove(name);
+        }
+
+        @Override
+        public void onTimerRemoved(String name) {
+            entries.remove(name);
+        }
+    };
+
+    public SnapshotCache(MetricRegistry registry) {
+        this(registry, DEFAULT_TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public SnapshotCache(MetricRegistry registry, long tick, TimeUnit unit) {
+        this(registry, tick, unit, Clock.defaultClock());
+    }
+
+    public SnapshotCache(MetricRegistry registry, long tick, TimeUnit unit, Clock clock) {
+        long nanos = unit.toNanos(tick);
+        if (nanos < 1) {
+            throw new IllegalArgumentException("Snapshot tick must be positive but was " + tick + " " + unit);
+        }
+        this.registry = registry;
+        this.tickNanos = nanos;
+        this.clock = clock;
+        registry.addListener(listener);
+    }
+
+    /**
+     * Stops following removals from registry and drops cached snapshots, so
+     * that registry does not keep cache no longer used.
+     */
+    public void close() {
+        registry.removeListener(listener);
+        entries.clear();
+    }
+
+    /**
+     * Returns current version. Snapshots cached with older version are
+     * recomputed on next read.
+     */
+    public long getVersion() {
+        return clock.getTick() / tickNanos + invalidations.get();
+    }
+
+    /**
+     * Forces snapshots to be recomputed on next read.
+     */
+    public void invalidate() {
+        invalidations.incrementAndGet();
+    }
+
+    /**
+     * Returns snapshot of given histogram or timer registered with name.
+     */
+    public Snapshot getSnapshot(String name, Sampling metric) {
+        Entry entry = entries.get(name);
+        if (entry == null || entry.metric != metric) {
+            // new or replaced metric
+            entry = new Entry(metric);
+            entries.put(name, entry);
+        }
+        return entry.getSnapshot(getVersion());
+    }
+
+    /**
+     * Returns snapshot of histogram or timer registered with name or null if
+     * no such metric exists.
+     */
+    public Snapshot getSnapshot(String name) {
+        Metric metric = registry.getMetrics().get(name);
+        return metric instanceof Sampling ? getSnapshot(name, (Sampling) metric) : null;
+    }
+
+    /**
+     * Returns read-only copies of matching histograms with cached snapshots.
+     */
+    public SortedMap<String, Histogram> getHistograms(MetricFilter filter) {
+        SortedMap<String, Histogram> histograms = new TreeMap<String, Histogram>();
+        for (Map.Entry<String, Histogram> entry : registry.getHistograms(filter).entrySet()) {
+            Histogram histogram = entry.getValue();
+            histograms.put(entry.getKey(), new SnapshotHistogram(histogram, getSnapshot(entry.getKey(), histogram)));
+        }
+        return histograms;
+    }
+
+    /**
+     * Returns read-only copies of matching timers with cached snapshots.
+     */
+    public SortedMap<String, Timer> getTimers(MetricFilter filter) {
+        SortedMap<String, Timer> timers = new TreeMap<String, Timer>();
+        for (Map.Entry<String, Timer> entry : registry.getTimers(filter).entrySet()) {
+            Timer timer = entry.getValue();
+            timers.put(entry.getKey(), new SnapshotTimer(timer, getSnapshot(entry.getKey(), timer)));
+        }
+        return timers;
+    }
+
+    public MetricRegistry getRegistry() {
+        return registry;
+    }
+
+    public long getTickNanos() {
+        return tickNanos;
+    }
+
+    /**
+     * Returns number of snapshots computed from the metrics so far.
+     */
+    public long getComputedCount() {
+        return computations.get();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    final class Entry {
+
+        private final Sampling metric;
+        private volatile Cached cached;
+
+        Entry(Sampling metric) {
+            this.metric = metric;
+        }
+
+        Snapshot getSnapshot(long version) {
+            Cached current = cached;
+            if (current == null || current.version != version) {
+                synchronized (this) {
+                    current = cached;
+                    if (current == null || current.version != version) {
+                        computations.incrementAndGet();
+                        current = new Cached(version, metric.getSnapshot());
+                        cached = current;
+                    }
+                }
+            }
+            return current.snapshot;
+        }
+    }
+
+    static final class Cached {
+
+        private final long version;
+        private final Snapshot snapshot;
+
+        Cached(long version, Snapshot snapshot) {
+            this.version = version;
+            this.snapshot = snapshot;
+        }
+    }
+}
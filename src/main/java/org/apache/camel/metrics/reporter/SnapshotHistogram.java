@@ -0,0 +1,36 @@
+package org.apache.camel.metrics.reporter;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Snapshot;
+
+/**
+ * Read-only histogram with count and snapshot of other histogram taken on
+ * creation.
+ */
+public class SnapshotHistogram extends Histogram {
+
+    private final long count;
+
+    public SnapshotHistogram(Histogram histogram) {
+        this(histogram, histogram.getSnapshot());
+    }
+
+    /**
+     * Creates histogram with count of other histogram and snapshot taken
+     * earlier.
+     */
+    public SnapshotHistogram(Histogram histogram, Snapshot snapshot) {
+        super(new FixedReservoir(snapshot));
+        this.count = histogram.getCount();
+    }
+
+    @Override
+    public void update(long value) {
+        throw new UnsupportedOperationException("Snapshot histogram is read-only");
+    }
+
+    @Override
+    public long getCount() {
+        return count;
+    }
+}
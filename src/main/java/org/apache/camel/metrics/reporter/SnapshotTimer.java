@@ -0,0 +1,71 @@
+package org.apache.camel.metrics.reporter;
+
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+
+/**
+ * Read-only timer with count, rates and snapshot of other timer taken on
+ * creation.
+ */
+public class SnapshotTimer extends Timer {
+
+    private final long count;
+    private final double meanRate;
+    private final double oneMinuteRate;
+    private final double fiveMinuteRate;
+    private final double fifteenMinuteRate;
+
+    public SnapshotTimer(Timer timer) {
+        this(timer, timer.getSnapshot());
+    }
+
+    /**
+     * Creates timer with count and rates of other timer and snapshot taken
+     * earlier.
+     */
+    public SnapshotTimer(Timer timer, Snapshot snapshot) {
+        super(new FixedReservoir(snapshot));
+        this.count = timer.getCount();
+        this.meanRate = timer.getMeanRate();
+        this.oneMinuteRate = timer.getOneMinuteRate();
+        this.fiveMinuteRate = timer.getFiveMinuteRate();
+        this.fifteenMinuteRate = timer.getFifteenMinuteRate();
+    }
+
+    @Override
+    public void update(long duration, TimeUnit unit) {
+        throw new UnsupportedOperationException("Snapshot timer is read-only");
+    }
+
+    @Override
+    public Context time() {
+        throw new UnsupportedOperationException("Snapshot timer is read-only");
+    }
+
+    @Override
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public double getMeanRate() {
+        return meanRate;
+    }
+
+    @Override
+    public double getOneMinuteRate() {
+        return oneMinuteRate;
+    }
+
+    @Override
+    public double getFiveMinuteRate() {
+        return fiveMinuteRate;
+    }
+
+    @Override
+    public double getFifteenMinuteRate() {
+        return fifteenMinuteRate;
+    }
+}
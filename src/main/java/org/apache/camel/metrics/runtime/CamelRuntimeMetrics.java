@@ -0,0 +1,218 @@
+package org.apache.camel.metrics.runtime;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.camel.CamelContext;
+import org.apache.camel.Endpoint;
+import org.apache.camel.Route;
+import org.apache.camel.component.seda.SedaEndpoint;
+import org.apache.camel.spi.InflightRepository;
+import org.apache.camel.support.LifecycleStrategySupport;
+import org.apache.camel.util.ObjectHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.CachedGauge;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Registers gauges for Camel internals: thread pools created through
+ * {@link org.apache.camel.spi.ExecutorServiceManager}, queue sizes of SEDA
+ * endpoints and inflight exchanges of the context and of each route.
+ * Gauges are kept in sync with the context as {@link org.apache.camel.spi.LifecycleStrategy}.
+ * <p>
+ * Values are cached for given time, so that reporters read Camel structures
+ * at most once per tick. All gauges of a thread pool share one sample.
+ */
+public class CamelRuntimeMetrics extends LifecycleStrategySupport {
+
+    public static final String THREAD_POOLS = "threadPools";
+    public static final String SEDA = "seda";
+    public static final String ROUTES = "routes";
+    public static final String INFLIGHT = "inflight";
+
+    private static final Logger LOG = LoggerFactory.getLogger(CamelRuntimeMetrics.class);
+
+    private final MetricRegistry registry;
+    private final String prefix;
+    private final long cacheTime;
+    private final TimeUnit cacheTimeUnit;
+    private final Map<Object, List<String>> registered = new HashMap<Object, List<String>>();
+    private volatile CamelContext camelContext;
+
+    public CamelRuntimeMetrics(MetricRegistry registry, String prefix, long cacheTime, TimeUnit cacheTimeUnit) {
+        this.registry = registry;
+        this.prefix = prefix;
+        this.cacheTime = cacheTime;
+        this.cacheTimeUnit = cacheTimeUnit;
+    }
+
+    /**
+     * Registers gauges for existing routes and endpoints of the context and
+     * starts following changes. Thread pools created before are not seen.
+     */
+    public synchronized void install(CamelContext camelContext) {
+        this.camelContext = camelContext;
+        register(camelContext, MetricRegistry.name(prefix, INFLIGHT), new CachedGauge<Integer>(cacheTime, cacheTimeUnit) {
+            @Override
+            protected Integer loadValue() {
+                return getInflightRepository().size();
+            }
+        });
+        for (Endpoint endpoint : camelContext.getEndpoints()) {
+            onEndpointAdd(endpoint);
+        }
+        onRoutesAdd(camelContext.getRoutes());
+        camelContext.addLifecycleStrategy(this);
+    }
+
+    /**
+     * Removes all gauges and stops following changes of the context.
+     */
+    public synchronized void uninstall() {
+        if (camelContext != null) {
+            camelContext.getLifecycleStrategies().remove(this);
+            camelContext = null;
+        }
+        for (Object source : new ArrayList<Object>(registered.keySet())) {
+            unregister(source);
+        }
+    }
+
+    @Override
+    public void onThreadPoolAdd(CamelContext camelContext, ThreadPoolExecutor threadPool, String id, String sourceId, String routeId,
+            String threadPoolProfileId) {
+        ThreadPoolSample sample = new ThreadPoolSample(threadPool, cacheTime, cacheTimeUnit);
+        String name = MetricRegistry.name(prefix, THREAD_POOLS, id);
+        register(threadPool, MetricRegistry.name(name, "activeCount"), sample.gauge(ThreadPoolSample.ACTIVE));
+        register(threadPool, MetricRegistry.name(name, "poolSize"), sample.gauge(ThreadPoolSample.POOL_SIZE));
+        register(threadPool, MetricRegistry.name(name, "queueSize"), sample.gauge(ThreadPoolSample.QUEUE_SIZE));
+        register(threadPool, MetricRegistry.name(name, "completedTaskCount"), sample.gauge(ThreadPoolSample.COMPLETED));
+    }
+
+    @Override
+    public void onThreadPoolRemove(CamelContext camelContext, ThreadPoolExecutor threadPool) {
+        unregister(threadPool);
+    }
+
+    @Override
+    public void onEndpointAdd(Endpoint endpoint) {
+        if (endpoint instanceof SedaEndpoint) {
+            final SedaEndpoint seda = (SedaEndpoint) endpoint;
+            register(endpoint, MetricRegistry.name(prefix, SEDA, getSedaName(seda), "queueSize"), new CachedGauge<Integer>(cacheTime, cacheTimeUnit) {
+                @Override
+                protected Integer loadValue() {
+                    return seda.getCurrentQueueSize();
+                }
+            });
+        }
+    }
+
+    @Override
+    public void onEndpointRemove(Endpoint endpoint) {
+        unregister(endpoint);
+    }
+
+    @Override
+    public void onRoutesAdd(Collection<Route> routes) {
+        for (Route route : routes) {
+            final String routeId = route.getId();
+            register(route, MetricRegistry.name(prefix, ROUTES, routeId, INFLIGHT), new CachedGauge<Integer>(cacheTime, cacheTimeUnit) {
+                @Override
+                protected Integer loadValue() {
+                    return getInflightRepository().size(routeId);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void onRoutesRemove(Collection<Route> routes) {
+        for (Route route : routes) {
+            unregister(route);
+        }
+    }
+
+    String getSedaName(SedaEndpoint endpoint) {
+        String name = endpoint.getEndpointKey();
+        String after = ObjectHelper.after(name, "://");
+        if (after != null) {
+            name = after;
+        }
+        String before = ObjectHelper.before(name, "?");
+        return before == null ? name : before;
+    }
+
+    InflightRepository getInflightRepository() {
+        CamelContext context = camelContext;
+        if (context == null) {
+            throw new IllegalStateException("Runtime metrics not installed");
+        }
+        return context.getInflightRepository();
+    }
+
+    synchronized void register(Object source, String name, Gauge<?> gauge) {
+        try {
+            registry.register(name, gauge);
+        }
+        catch (IllegalArgumentException e) {
+            LOG.debug("Gauge \"{}\" already registered", name);
+            return;
+        }
+        List<String> names = registered.get(source);
+        if (names == null) {
+            names = new ArrayList<String>();
+            registered.put(source, names);
+        }
+        names.add(name);
+    }
+
+    synchronized void unregister(Object source) {
+        List<String> names = registered.remove(source);
+        if (names != null) {
+            for (String name : names) {
+                registry.remove(name);
+            }
+        }
+    }
+
+    /**
+     * Reads counters of thread pool once per cache time. Reading them takes
+     * the main lock of the pool.
+     */
+    static final class ThreadPoolSample extends CachedGauge<long[]> {
+
+        static final int ACTIVE = 0;
+        static final int POOL_SIZE = 1;
+        static final int QUEUE_SIZE = 2;
+        static final int COMPLETED = 3;
+
+        private final ThreadPoolExecutor threadPool;
+
+        ThreadPoolSample(ThreadPoolExecutor threadPool, long cacheTime, TimeUnit cacheTimeUnit) {
+            super(cacheTime, cacheTimeUnit);
+            this.threadPool = threadPool;
+        }
+
+        @Override
+        protected long[] loadValue() {
+            return new long[] { threadPool.getActiveCount(), threadPool.getPoolSize(), threadPool.getQueue().size(), threadPool.getCompletedTaskCount() };
+        }
+
+        Gauge<Long> gauge(final int index) {
+            return new Gauge<Long>() {
+                @Override
+                public Long getValue() {
+                    return ThreadPoolSample.this.getValue()[index];
+                }
+            };
+        }
+    }
+}
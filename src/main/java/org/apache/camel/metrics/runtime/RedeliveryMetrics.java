@@ -0,0 +1,276 @@
+package org.apache.camel.metrics.runtime;
+
+import java.util.Date;
+import java.util.EventObject;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.Message;
+import org.apache.camel.Route;
+import org.apache.camel.management.event.ExchangeFailedEvent;
+import org.apache.camel.management.event.ExchangeFailureHandledEvent;
+import org.apache.camel.management.event.ExchangeRedeliveryEvent;
+import org.apache.camel.spi.RouteContext;
+import org.apache.camel.spi.UnitOfWork;
+import org.apache.camel.support.EventNotifierSupport;
+import org.apache.camel.support.SynchronizationAdapter;
+import org.apache.camel.util.ServiceHelper;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+/**
+ * Records redeliveries made by Camel error handlers as
+ * {@link org.apache.camel.spi.EventNotifier}. For each route counts
+ * redeliveries in {@code <prefix>.routes.<id>.redeliveries} and exchanges
+ * exhausting redeliveries in {@code <prefix>.routes.<id>.exhausted}. Time
+ * from start of failed attempt until its redelivery, that is duration of the
+ * attempt plus redelivery delay, is recorded into timer
+ * {@code <prefix>.routes.<id>.redeliveryTime}. Camel does not tell when the
+ * first attempt started, so the first redelivery is timed from creation of
+ * the exchange with wall clock in milliseconds; later redeliveries are timed
+ * with tick of the clock from the previous redelivery.
+ * <p>
+ * Tick of the last redelivery is kept in exchange property together with id
+ * of the exchange, so that copies of the property made into sub-exchanges by
+ * wire tap, split or multicast are ignored. The property is removed when the
+ * exchange completes or fails.
+ * <p>
+ * Only redelivery and failure events are subscribed, so that exchanges
+ * processed without errors do not create events. Metrics of a route are
+ * looked up once and kept.
+ */
+public class RedeliveryMetrics extends EventNotifierSupport {
+
+    public static final String REDELIVERIES = "redeliveries";
+    public static final String REDELIVERY_TIME = "redeliveryTime";
+    public static final String EXHAUSTED = "exhausted";
+    public static final String PROPERTY_LAST_ATTEMPT = "CamelMetricsRedeliveryAttemptTick";
+
+    private final MetricRegistry registry;
+    private final String prefix;
+    private final Clock clock;
+    private final ConcurrentMap<String, RouteRedeliveries> routes = new ConcurrentHashMap<String, RouteRedeliveries>();
+    private volatile CamelContext camelContext;
+
+    public RedeliveryMetrics(MetricRegistry registry, String prefix) {
+        this(registry, prefix, Clock.defaultClock());
+    }
+
+    public RedeliveryMetrics(MetricRegistry registry, String prefix, Clock clock) {
+        this.registry = registry;
+        this.prefix = prefix;
+        this.clock = clock;
+        setIgnoreCamelContextEvents(true);
+        setIgnoreRouteEvents(true);
+        setIgnoreServiceEvents(true);
+        setIgnoreExchangeCreatedEvent(true);
+        setIgnoreExchangeCompletedEvent(true);
+        setIgnoreExchangeSendingEvents(true);
+        setIgnoreExchangeSentEvents(true);
+    }
+
+    /**
+     * Registers metrics of existing routes and starts receiving events of
+     * the context.
+     */
+    public synchronized void install(CamelContext camelContext) throws Exception {
+        this.camelContext = camelContext;
+        for (Route route : camelContext.getRoutes()) {
+            getRouteRedeliveries(route.getId());
+        }
+        ServiceHelper.startService(this);
+        camelContext.getManagementStrategy().addEventNotifier(this);
+    }
+
+    /**
+     * Stops receiving events. Registered metrics are kept.
+     */
+    public synchronized void uninstall() throws Exception {
+        if (camelContext != null) {
+            camelContext.getManagementStrategy().getEventNotifiers().remove(this);
+            camelContext = null;
+        }
+        ServiceHelper.stopService(this);
+    }
+
+    @Override
+    public boolean isEnabled(EventObject event) {
+        return event instanceof ExchangeRedeliveryEvent || event instanceof ExchangeFailureHandledEvent || event instanceof ExchangeFailedEvent;
+    }
+
+    @Override
+    public void notify(EventObject event) throws Exception {
+        if (event instanceof ExchangeRedeliveryEvent) {
+            onRedelivery(((ExchangeRedeliveryEvent) event).getExchange());
+        }
+        else if (event instanceof ExchangeFailureHandledEvent) {
+            onFailure(((ExchangeFailureHandledEvent) event).getExchange());
+        }
+        else if (event instanceof ExchangeFailedEvent) {
+            onFailed(((ExchangeFailedEvent) event).getExchange());
+        }
+    }
+
+    void onRedelivery(Exchange exchange) {
+        RouteRedeliveries metrics = getRouteRedeliveries(getRouteId(exchange));
+        metrics.redeliveries.inc();
+        long now = clock.getTick();
+        LastAttempt lastAttempt = getLastAttempt(exchange);
+        long elapsed = getElapsedSinceLastAttempt(exchange, lastAttempt, now);
+        if (elapsed >= 0L) {
+            metrics.redeliveryTime.update(elapsed, TimeUnit.NANOSECONDS);
+        }
+        if (lastAttempt == null) {
+            exchange.addOnCompletion(new LastAttemptRemoval(exchange.getExchangeId()));
+        }
+        exchange.setProperty(PROPERTY_LAST_ATTEMPT, new LastAttempt(exchange.getExchangeId(), now));
+    }
+
+    /**
+     * Counts exchange failing after redeliveries as exhausted. Error handler
+     * clears its exhausted flag before events are sent, so redelivery headers
+     * are checked instead. Property of last attempt is removed, so exchange
+     * is counted once although both failure handled and failed events are
+     * sent for it.
+     */
+    void onFailure(Exchange exchange) {
+        if (getLastAttempt(exchange) == null) {
+            // not redelivered, or property copied from another exchange
+            return;
+        }
+        Message in = exchange.getIn();
+        Integer counter = in.getHeader(Exchange.REDELIVERY_COUNTER, Integer.class);
+        Integer maxCounter = in.getHeader(Exchange.REDELIVERY_MAX_COUNTER, Integer.class);
+        if (counter != null && maxCounter != null && counter < maxCounter) {
+            // failed elsewhere after successful redelivery
+            return;
+        }
+        onExhausted(exchange);
+    }
+
+    /**
+     * Failed event is the last one sent for failed exchange, so property of
+     * last attempt is removed even if exchange was not exhausted.
+     */
+    void onFailed(Exchange exchange) {
+        onFailure(exchange);
+        exchange.removeProperty(PROPERTY_LAST_ATTEMPT);
+    }
+
+    void onExhausted(Exchange exchange) {
+        String routeId = exchange.getProperty(Exchange.FAILURE_ROUTE_ID, String.class);
+        if (routeId == null) {
+            routeId = getRouteId(exchange);
+        }
+        getRouteRedeliveries(routeId).exhausted.inc();
+        exchange.removeProperty(PROPERTY_LAST_ATTEMPT);
+    }
+
+    /**
+     * Returns last redelivery of the exchange, or null if it was not
+     * redelivered. Property copied from another exchange is ignored.
+     */
+    LastAttempt getLastAttempt(Exchange exchange) {
+        LastAttempt lastAttempt = exchange.getProperty(PROPERTY_LAST_ATTEMPT, LastAttempt.class);
+        if (lastAttempt == null || !lastAttempt.exchangeId.equals(exchange.getExchangeId())) {
+            return null;
+        }
+        return lastAttempt;
+    }
+
+    long getElapsedSinceLastAttempt(Exchange exchange, LastAttempt lastAttempt, long now) {
+        if (lastAttempt != null) {
+            return now - lastAttempt.tick;
+        }
+        Date created = exchange.getProperty(Exchange.CREATED_TIMESTAMP, Date.class);
+        if (created != null) {
+            return TimeUnit.MILLISECONDS.toNanos(clock.getTime() - created.getTime());
+        }
+        return -1L;
+    }
+
+    String getRouteId(Exchange exchange) {
+        UnitOfWork unitOfWork = exchange.getUnitOfWork();
+        RouteContext routeContext = unitOfWork == null ? null : unitOfWork.getRouteContext();
+        if (routeContext != null && routeContext.getRoute() != null) {
+            return routeContext.getRoute().getId();
+        }
+        return exchange.getFromRouteId();
+    }
+
+    RouteRedeliveries getRouteRedeliveries(String routeId) {
+        String key = routeId == null ? "unknown" : routeId;
+        RouteRedeliveries metrics = routes.get(key);
+        if (metrics == null) {
+            metrics = new RouteRedeliveries(registry, MetricRegistry.name(prefix, CamelRuntimeMetrics.ROUTES, key));
+            RouteRedeliveries existing = routes.putIfAbsent(key, metrics);
+            if (existing != null) {
+                metrics = existing;
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Tick of the last redelivery and id of the exchange redelivered.
+     */
+    static final class LastAttempt {
+
+        private final String exchangeId;
+        private final long tick;
+
+        LastAttempt(String exchangeId, long tick) {
+            this.exchangeId = exchangeId;
+            this.tick = tick;
+        }
+
+        String getExchangeId() {
+            return exchangeId;
+        }
+
+        long getTick() {
+            return tick;
+        }
+    }
+
+    /**
+     * Removes property of last attempt when exchange completes after
+     * successful redelivery. Failed exchange keeps it until failed event, as
+     * synchronizations are done before the event is sent.
+     */
+    static final class LastAttemptRemoval extends SynchronizationAdapter {
+
+        private final String exchangeId;
+
+        LastAttemptRemoval(String exchangeId) {
+            this.exchangeId = exchangeId;
+        }
+
+        @Override
+        public void onComplete(Exchange exchange) {
+            // synchronization handed over to another exchange leaves its property alone
+            if (exchangeId.equals(exchange.getExchangeId())) {
+                exchange.removeProperty(PROPERTY_LAST_ATTEMPT);
+            }
+        }
+    }
+
+    static final class RouteRedeliveries {
+
+        private final Counter redeliveries;
+        private final Timer redeliveryTime;
+        private final Counter exhausted;
+
+        RouteRedeliveries(MetricRegistry registry, String name) {
+            this.redeliveries = registry.counter(MetricRegistry.name(name, REDELIVERIES));
+            this.redeliveryTime = registry.timer(MetricRegistry.name(name, REDELIVERY_TIME));
+            this.exhausted = registry.counter(MetricRegistry.name(name, EXHAUSTED));
+        }
+    }
+}
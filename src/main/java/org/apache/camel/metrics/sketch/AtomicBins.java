@@ -0,0 +1,124 @@
+package org.apache.camel.metrics.sketch;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Logarithmic bins of {@link QuantileSketch} updated with atomic increments
+ * only, so that concurrent writers never take a lock. Bins are allocated in
+ * pages of {@value #PAGE_SIZE} on first use, so only pages of value range
+ * actually seen take memory. Zero has a bin of its own, positive values
+ * follow it and negative values follow all positive ones. Exact minimum and
+ * maximum are kept.
+ */
+final class AtomicBins {
+
+    static final int PAGE_SIZE = 64;
+    private static final int PAGE_SHIFT = 6;
+
+    private final QuantileSketch mapping;
+    private final int maxIndex;
+    private final AtomicReferenceArray<AtomicLongArray> pages;
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * Creates bins with index mapping of given sketch, which is only read.
+     */
+    AtomicBins(QuantileSketch mapping) {
+        this.mapping = mapping;
+        this.maxIndex = mapping.index(-(double) Long.MIN_VALUE);
+        this.pages = new AtomicReferenceArray<AtomicLongArray>((2 * maxIndex + 3 + PAGE_SIZE - 1) >>> PAGE_SHIFT);
+    }
+
+    void record(long value) {
+        int bin = bin(value);
+        int page = bin >>> PAGE_SHIFT;
+        AtomicLongArray counts = pages.get(page);
+        if (counts == null) {
+            counts = new AtomicLongArray(PAGE_SIZE);
+            if (!pages.compareAndSet(page, null, counts)) {
+                counts = pages.get(page);
+            }
+        }
+        counts.incrementAndGet(bin & (PAGE_SIZE - 1));
+        long current = min.get();
+        while (value < current && !min.compareAndSet(current, value)) {
+            current = min.get();
+        }
+        current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Adds counts of all bins into sketch of the same accuracy, each at
+     * representative value of the bin.
+     */
+    void addTo(QuantileSketch sketch) {
+        for (int page = 0; page < pages.length(); page++) {
+            AtomicLongArray counts = pages.get(page);
+            if (counts != null) {
+                for (int i = 0; i < PAGE_SIZE; i++) {
+                    long n = counts.get(i);
+                    if (n > 0L) {
+                        sketch.update(value((page << PAGE_SHIFT) + i), n);
+                    }
+                }
+            }
+        }
+    }
+
+    long getCount() {
+        long count = 0L;
+        for (int page = 0; page < pages.length(); page++) {
+            AtomicLongArray counts = pages.get(page);
+            if (counts != null) {
+                for (int i = 0; i < PAGE_SIZE; i++) {
+                    count += counts.get(i);
+                }
+            }
+        }
+        return count;
+    }
+
+    long getMin() {
+        return min.get();
+    }
+
+    long getMax() {
+        return max.get();
+    }
+
+    int getAllocatedPages() {
+        int allocated = 0;
+        for (int page = 0; page < pages.length(); page++) {
+            if (pages.get(page) != null) {
+                allocated++;
+            }
+        }
+        return allocated;
+    }
+
+    int bin(long value) {
+        if (value > 0L) {
+            return 1 + mapping.index(value);
+        }
+        if (value < 0L) {
+            return 2 + maxIndex + mapping.index(-(double) value);
+        }
+        return 0;
+    }
+
+    double value(int bin) {
+        if (bin == 0) {
+            return 0.0;
+        }
+        if (bin <= maxIndex + 1) {
+            return mapping.value(bin - 1);
+        }
+        return -mapping.value(bin - 2 - maxIndex);
+    }
+}
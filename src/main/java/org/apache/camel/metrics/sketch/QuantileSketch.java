@@ -0,0 +1,469 @@
+package org.apache.camel.metrics.sketch;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Mergeable quantile sketch with bounded relative error (DDSketch). Values
+ * are counted in logarithmically sized bins, so that any quantile is
+ * returned within {@code relativeAccuracy} of the exact value. Sketches with
+ * the same accuracy can be merged without loss and serialized into compact
+ * byte form.
+ */
+public class QuantileSketch {
+
+    public static final double DEFAULT_RELATIVE_ACCURACY = 0.01;
+    private static final byte VERSION = 1;
+
+    private final double relativeAccuracy;
+    private final double gamma;
+    private final double logGamma;
+    private final Bins positive = new Bins();
+    private final Bins negative = new Bins();
+    private long zeroCount;
+    private long count;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+    private double sum;
+    private double sumOfSquares;
+
+    public QuantileSketch() {
+        this(DEFAULT_RELATIVE_ACCURACY);
+    }
+
+    public QuantileSketch(double relativeAccuracy) {
+        if (!(relativeAccuracy > 0.0 && relativeAccuracy < 1.0)) {
+            throw new IllegalArgumentException("Relative accuracy must be in range (0, 1) but was " + relativeAccuracy);
+        }
+        this.relativeAccuracy = relativeAccuracy;
+        this.gamma = (1.0 + relativeAccuracy) / (1.0 - relativeAccuracy);
+        this.logGamma = Math.log(gamma);
+    }
+
+    public synchronized void update(long value) {
+        if (value > 0) {
+            positive.add(index(value), 1L);
+        }
+        else if (value < 0) {
+            negative.add(index(-(double) value), 1L);
+        }
+        else {
+            zeroCount++;
+        }
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        sum += value;
+        sumOfSquares += (double) value * value;
+    }
+
+    /**
+     * Adds value n times, e.g. a sampled value standing for n recorded ones.
+     */
+    public synchronized void update(long value, long n) {
+        if (n <= 0L) {
+            return;
+        }
+        if (value > 0) {
+            positive.add(index(value), n);
+        }
+        else if (value < 0) {
+            negative.add(index(-(double) value), n);
+        }
+        else {
+            zeroCount += n;
+        }
+        count += n;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        sum += (double) value * n;
+        sumOfSquares += (double) value * value * n;
+    }
+
+    /**
+     * Adds value n times. Used when copying bins of other histograms, value
+     * is representative value of the bin.
+     */
+    synchronized void update(double value, long n) {
+        if (value > 0.0) {
+            positive.add(index(value), n);
+        }
+        else if (value < 0.0) {
+            negative.add(index(-value), n);
+        }
+        else {
+            zeroCount += n;
+        }
+        count += n;
+        min = Math.min(min, (long) Math.floor(value));
+        max = Math.max(max, (long) Math.ceil(value));
+        sum += value * n;
+        sumOfSquares += value * value * n;
+    }
+
+    /**
+     * Replaces tracked minimum and maximum with exact values known by caller.
+     */
+    synchronized void setRange(long min, long max) {
+        this.min = min;
+        this.max = max;
+    }
+
+    /**
+     * Replaces sum of values, approximated from bins, with exact value known
+     * by caller. Sum of squares is shifted so that variance computed from
+     * bins is kept.
+     */
+    synchronized void setSum(double sum) {
+        if (count > 0) {
+            sumOfSquares += (sum * sum - this.sum * this.sum) / count;
+        }
+        this.sum = sum;
+    }
+
+    /**
+     * Returns value at given quantile in range [0, 1].
+     */
+    public synchronized double getValue(double quantile) {
+        if (quantile < 0.0 || quantile > 1.0 || Double.isNaN(quantile)) {
+            throw new IllegalArgumentException(quantile + " is not in [0..1]");
+        }
+        if (count == 0) {
+            return 0.0;
+        }
+        if (quantile == 0.0) {
+            return min;
+        }
+        if (quantile == 1.0) {
+            return max;
+        }
+        double rank = quantile * (count - 1);
+        long seen = 0L;
+        for (int i = negative.maxIndex(); i >= negative.minIndex(); i--) {
+            seen += negative.get(i);
+            if (seen > rank) {
+                return clamp(-value(i));
+            }
+        }
+        seen += zeroCount;
+        if (seen > rank) {
+            return clamp(0.0);
+        }
+        for (int i = positive.minIndex(); i <= positive.maxIndex(); i++) {
+            seen += positive.get(i);
+            if (seen > rank) {
+                return clamp(value(i));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Adds all values of other sketch into this one. Both sketches must have
+     * the same relative accuracy.
+     */
+    public void merge(QuantileSketch other) {
+        if (Double.compare(relativeAccuracy, other.relativeAccuracy) != 0) {
+            throw new IllegalArgumentException("Cannot merge sketch with relative accuracy " + other.relativeAccuracy + " into " + relativeAccuracy);
+        }
+        // copy first, never hold both locks
+        QuantileSketch source = other == this ? copy() : other.copy();
+        synchronized (this) {
+            positive.addAll(source.positive);
+            negative.addAll(source.negative);
+            zeroCount += source.zeroCount;
+            count += source.count;
+            min = Math.min(min, source.min);
+            max = Math.max(max, source.max);
+            sum += source.sum;
+            sumOfSquares += source.sumOfSquares;
+        }
+    }
+
+    public synchronized QuantileSketch copy() {
+        QuantileSketch copy = new QuantileSketch(relativeAccuracy);
+        copy.positive.addAll(positive);
+        copy.negative.addAll(negative);
+        copy.zeroCount = zeroCount;
+        copy.count = count;
+        copy.min = min;
+        copy.max = max;
+        copy.sum = sum;
+        copy.sumOfSquares = sumOfSquares;
+        return copy;
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized long getMin() {
+        return count == 0 ? 0L : min;
+    }
+
+    public synchronized long getMax() {
+        return count == 0 ? 0L : max;
+    }
+
+    public synchronized double getMean() {
+        return count == 0 ? 0.0 : sum / count;
+    }
+
+    public synchronized double getStdDev() {
+        if (count <= 1) {
+            return 0.0;
+        }
+        double variance = (sumOfSquares - sum * sum / count) / (count - 1);
+        return variance > 0.0 ? Math.sqrt(variance) : 0.0;
+    }
+
+    public double getRelativeAccuracy() {
+        return relativeAccuracy;
+    }
+
+    /**
+     * Returns representative values of non-empty bins in ascending order.
+     */
+    public synchronized long[] getBinValues() {
+        long[] values = new long[negative.nonEmpty() + (zeroCount > 0 ? 1 : 0) + positive.nonEmpty()];
+        int n = 0;
+        for (int i = negative.maxIndex(); i >= negative.minIndex(); i--) {
+            if (negative.get(i) > 0) {
+                values[n++] = Math.round(clamp(-value(i)));
+            }
+        }
+        if (zeroCount > 0) {
+            values[n++] = 0L;
+        }
+        for (int i = positive.minIndex(); i <= positive.maxIndex(); i++) {
+            if (positive.get(i) > 0) {
+                values[n++] = Math.round(clamp(value(i)));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Returns counts of non-empty bins in the order of {@link #getBinValues()}.
+     */
+    public synchronized long[] getBinCounts() {
+        long[] counts = new long[negative.nonEmpty() + (zeroCount > 0 ? 1 : 0) + positive.nonEmpty()];
+        int n = 0;
+        for (int i = negative.maxIndex(); i >= negative.minIndex(); i--) {
+            if (negative.get(i) > 0) {
+                counts[n++] = negative.get(i);
+            }
+        }
+        if (zeroCount > 0) {
+            counts[n++] = zeroCount;
+        }
+        for (int i = positive.minIndex(); i <= positive.maxIndex(); i++) {
+            if (positive.get(i) > 0) {
+                counts[n++] = positive.get(i);
+            }
+        }
+        return counts;
+    }
+
+    public synchronized byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(VERSION);
+            out.writeDouble(relativeAccuracy);
+            writeVarLong(out, count);
+            writeVarLong(out, zeroCount);
+            writeVarLong(out, zigZag(min));
+            writeVarLong(out, zigZag(max));
+            out.writeDouble(sum);
+            out.writeDouble(sumOfSquares);
+            negative.write(out);
+            positive.write(out);
+            out.flush();
+        }
+        catch (IOException e) {
+            // not possible with in-memory stream
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static QuantileSketch fromBytes(byte[] data) {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        try {
+            byte version = in.readByte();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported sketch version " + version);
+            }
+            QuantileSketch sketch = new QuantileSketch(in.readDouble());
+            sketch.count = readVarLong(in);
+            sketch.zeroCount = readVarLong(in);
+            sketch.min = unZigZag(readVarLong(in));
+            sketch.max = unZigZag(readVarLong(in));
+            sketch.sum = in.readDouble();
+            sketch.sumOfSquares = in.readDouble();
+            sketch.negative.read(in);
+            sketch.positive.read(in);
+            return sketch;
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("Invalid sketch data", e);
+        }
+    }
+
+    int index(double value) {
+        return (int) Math.ceil(Math.log(value) / logGamma);
+    }
+
+    double value(int index) {
+        return 2.0 * Math.pow(gamma, index) / (gamma + 1.0);
+    }
+
+    private double clamp(double value) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0L) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0L;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Dense counts for contiguous range of bin indexes, grown on demand.
+     */
+    static final class Bins {
+
+        private static final int INITIAL_SIZE = 32;
+        private static final int GROWTH = 32;
+
+        private long[] counts;
+        private int offset;
+
+        void add(int index, long n) {
+            if (counts == null) {
+                counts = new long[INITIAL_SIZE];
+                offset = index - INITIAL_SIZE / 2;
+            }
+            else if (index < offset || index >= offset + counts.length) {
+                grow(index);
+            }
+            counts[index - offset] += n;
+        }
+
+        long get(int index) {
+            return counts[index - offset];
+        }
+
+        void addAll(Bins other) {
+            if (other.counts != null) {
+                for (int i = other.minIndex(); i <= other.maxIndex(); i++) {
+                    long n = other.get(i);
+                    if (n != 0L) {
+                        add(i, n);
+                    }
+                }
+            }
+        }
+
+        int minIndex() {
+            return counts == null ? 0 : offset;
+        }
+
+        int maxIndex() {
+            return counts == null ? -1 : offset + counts.length - 1;
+        }
+
+        int nonEmpty() {
+            int n = 0;
+            if (counts != null) {
+                for (long c : counts) {
+                    if (c != 0L) {
+                        n++;
+                    }
+                }
+            }
+            return n;
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            int first = -1;
+            int last = -2;
+            if (counts != null) {
+                for (int i = 0; i < counts.length; i++) {
+                    if (counts[i] != 0L) {
+                        if (first < 0) {
+                            first = i;
+                        }
+                        last = i;
+                    }
+                }
+            }
+            int length = last - first + 1;
+            writeVarLong(out, length);
+            if (length > 0) {
+                writeVarLong(out, zigZag(offset + first));
+                for (int i = first; i <= last; i++) {
+                    writeVarLong(out, counts[i]);
+                }
+            }
+        }
+
+        void read(DataInputStream in) throws IOException {
+            int length = (int) readVarLong(in);
+            if (length > 0) {
+                offset = (int) unZigZag(readVarLong(in));
+                counts = new long[length];
+                for (int i = 0; i < length; i++) {
+                    counts[i] = readVarLong(in);
+                }
+            }
+        }
+
+        private void grow(int index) {
+            int newMin = Math.min(offset, index);
+            int newMax = Math.max(offset + counts.length - 1, index);
+            if (index < offset) {
+                newMin -= GROWTH;
+            }
+            else {
+                newMax += GROWTH;
+            }
+            long[] grown = new long[newMax - newMin + 1];
+            System.arraycopy(counts, 0, grown, offset - newMin, counts.length);
+            counts = grown;
+            offset = newMin;
+        }
+
+        @Override
+        public String toString() {
+            return offset + ":" + Arrays.toString(counts);
+        }
+    }
+}
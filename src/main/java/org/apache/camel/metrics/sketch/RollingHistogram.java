@@ -0,0 +1,29 @@
+package org.apache.camel.metrics.sketch;
+
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Histogram;
+
+/**
+ * Histogram with snapshot of values recorded during last time window.
+ *
+ * @see RollingSketchReservoir
+ */
+public class RollingHistogram extends Histogram implements SketchSampling {
+
+    private final RollingSketchReservoir reservoir;
+
+    public RollingHistogram(double relativeAccuracy, int buckets, long bucketWidth, TimeUnit unit) {
+        this(new RollingSketchReservoir(relativeAccuracy, buckets, bucketWidth, unit));
+    }
+
+    public RollingHistogram(RollingSketchReservoir reservoir) {
+        super(reservoir);
+        this.reservoir = reservoir;
+    }
+
+    @Override
+    public QuantileSketch getSketch() {
+        return reservoir.getSketch();
+    }
+}
@@ -0,0 +1,131 @@
+package org.apache.camel.metrics.sketch;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+
+/**
+ * Reservoir keeping ring of fixed width time buckets. Each bucket counts
+ * values in {@link AtomicBins}, updated with atomic increments only and
+ * allocated in pages of {@value AtomicBins#PAGE_SIZE} bins on first use, so
+ * that a bucket holds only the pages of value range actually seen instead of
+ * bins for the whole range of long. Expired bucket is replaced with
+ * compare-and-set by the first update falling into its slot. Snapshot merges
+ * buckets of the last {@code buckets * bucketWidth} into
+ * {@link QuantileSketch}, so quantiles are within relative accuracy of exact
+ * values of the window and short spikes are not decayed away.
+ * <p>
+ * Zero and negative values are counted in bins of their own, as by
+ * {@link QuantileSketch}; exact minimum and maximum are kept.
+ */
+public class RollingSketchReservoir implements Reservoir, SketchSampling {
+
+    private final QuantileSketch mapping;
+    private final long bucketWidth;
+    private final AtomicReferenceArray<Bucket> ring;
+    private final Clock clock;
+    private final long startTick;
+
+    public RollingSketchReservoir(double relativeAccuracy, int buckets, long bucketWidth, TimeUnit unit) {
+        this(relativeAccuracy, buckets, bucketWidth, unit, Clock.defaultClock());
+    }
+
+    public RollingSketchReservoir(double relativeAccuracy, int buckets, long bucketWidth, TimeUnit unit, Clock clock) {
+        if (buckets < 1) {
+            throw new IllegalArgumentException("Number of buckets must be positive but was " + buckets);
+        }
+        if (bucketWidth < 1) {
+            throw new IllegalArgumentException("Bucket width must be positive but was " + bucketWidth);
+        }
+        this.mapping = new QuantileSketch(relativeAccuracy);
+        this.bucketWidth = unit.toNanos(bucketWidth);
+        this.ring = new AtomicReferenceArray<Bucket>(buckets);
+        this.clock = clock;
+        this.startTick = clock.getTick();
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.min(getSketch().getCount(), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void update(long value) {
+        getBucket(getEpoch()).bins.record(value);
+    }
+
+    @Override
+    public Snapshot getSnapshot() {
+        return new SketchSnapshot(getSketch());
+    }
+
+    @Override
+    public QuantileSketch getSketch() {
+        long oldest = getEpoch() - ring.length();
+        QuantileSketch sketch = new QuantileSketch(mapping.getRelativeAccuracy());
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < ring.length(); i++) {
+            Bucket bucket = ring.get(i);
+            if (bucket != null && bucket.epoch > oldest) {
+                bucket.bins.addTo(sketch);
+                min = Math.min(min, bucket.bins.getMin());
+                max = Math.max(max, bucket.bins.getMax());
+            }
+        }
+        if (sketch.getCount() > 0L) {
+            sketch.setRange(min, max);
+        }
+        return sketch;
+    }
+
+    public int getBuckets() {
+        return ring.length();
+    }
+
+    /**
+     * Returns number of bin pages allocated by live buckets.
+     */
+    int getAllocatedPages() {
+        int allocated = 0;
+        for (int i = 0; i < ring.length(); i++) {
+            Bucket bucket = ring.get(i);
+            if (bucket != null) {
+                allocated += bucket.bins.getAllocatedPages();
+            }
+        }
+        return allocated;
+    }
+
+    Bucket getBucket(long epoch) {
+        int slot = (int) (epoch % ring.length());
+        while (true) {
+            Bucket bucket = ring.get(slot);
+            if (bucket != null && bucket.epoch >= epoch) {
+                return bucket;
+            }
+            Bucket fresh = new Bucket(epoch, new AtomicBins(mapping));
+            if (ring.compareAndSet(slot, bucket, fresh)) {
+                return fresh;
+            }
+        }
+    }
+
+    long getEpoch() {
+        return (clock.getTick() - startTick) / bucketWidth;
+    }
+
+    static final class Bucket {
+
+        private final long epoch;
+        private final AtomicBins bins;
+
+        Bucket(long epoch, AtomicBins bins) {
+            this.epoch = epoch;
+            this.bins = bins;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package org.apache.camel.metrics.sketch;
+
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Timer;
+
+/**
+ * Timer with snapshot of durations recorded during last time window.
+ *
+ * @see RollingSketchReservoir
+ */
+public class RollingTimer extends Timer implements SketchSampling {
+
+    private final RollingSketchReservoir reservoir;
+
+    public RollingTimer(double relativeAccuracy, int buckets, long bucketWidth, TimeUnit unit) {
+        this(new RollingSketchReservoir(relativeAccuracy, buckets, bucketWidth, unit));
+    }
+
+    public RollingTimer(RollingSketchReservoir reservoir) {
+        super(reservoir);
+        this.reservoir = reservoir;
+    }
+
+    @Override
+    public QuantileSketch getSketch() {
+        return reservoir.getSketch();
+    }
+}
@@ -0,0 +1,25 @@
+package org.apache.camel.metrics.sketch;
+
+import com.codahale.metrics.Histogram;
+
+/**
+ * Histogram recording into {@link QuantileSketch}.
+ */
+public class SketchHistogram extends Histogram implements SketchSampling {
+
+    private final SketchReservoir reservoir;
+
+    public SketchHistogram(double relativeAccuracy) {
+        this(new SketchReservoir(relativeAccuracy));
+    }
+
+    private SketchHistogram(SketchReservoir reservoir) {
+        super(reservoir);
+        this.reservoir = reservoir;
+    }
+
+    @Override
+    public QuantileSketch getSketch() {
+        return reservoir.getSketch();
+    }
+}
@@ -0,0 +1,56 @@
+package org.apache.camel.metrics.sketch;
+
+import org.apache.camel.metrics.StripedSum;
+
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+
+/**
+ * Reservoir keeping all values seen, with bounded relative error, in memory
+ * proportional to the value range. Values are counted in {@link AtomicBins}
+ * and their sum in {@link StripedSum}, so update takes no lock; bins are
+ * copied into {@link QuantileSketch} only when snapshot is taken. Mean is
+ * exact, standard deviation is computed from representative values of bins.
+ * <p>
+ * Values are never decayed or reset: snapshot answers quantiles since the
+ * reservoir was created, so a change of latency late in uptime barely moves
+ * them. {@link RollingSketchReservoir} answers quantiles of recent window.
+ */
+public class SketchReservoir implements Reservoir, SketchSampling {
+
+    private final QuantileSketch mapping;
+    private final AtomicBins bins;
+    private final StripedSum sum = new StripedSum();
+
+    public SketchReservoir(double relativeAccuracy) {
+        this.mapping = new QuantileSketch(relativeAccuracy);
+        this.bins = new AtomicBins(mapping);
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.min(bins.getCount(), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void update(long value) {
+        bins.record(value);
+        sum.add(value);
+    }
+
+    @Override
+    public Snapshot getSnapshot() {
+        return new SketchSnapshot(getSketch());
+    }
+
+    @Override
+    public QuantileSketch getSketch() {
+        QuantileSketch sketch = new QuantileSketch(mapping.getRelativeAccuracy());
+        bins.addTo(sketch);
+        if (sketch.getCount() > 0L) {
+            sketch.setRange(bins.getMin(), bins.getMax());
+            sketch.setSum(sum.sum());
+        }
+        return sketch;
+    }
+}
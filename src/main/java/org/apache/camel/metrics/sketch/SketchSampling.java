@@ -0,0 +1,12 @@
+package org.apache.camel.metrics.sketch;
+
+/**
+ * Metric recording values into {@link QuantileSketch}.
+ */
+public interface SketchSampling {
+
+    /**
+     * Returns copy of current sketch, safe to merge or serialize.
+     */
+    QuantileSketch getSketch();
+}
@@ -0,0 +1,72 @@
+package org.apache.camel.metrics.sketch;
+
+import java.io.OutputStream;
+import java.io.PrintWriter;
+
+import com.codahale.metrics.Snapshot;
+
+/**
+ * Snapshot answering from {@link QuantileSketch}. {@link #getValues()}
+ * returns representative value of each non-empty bin instead of raw values.
+ */
+public class SketchSnapshot extends Snapshot {
+
+    private final QuantileSketch sketch;
+
+    public SketchSnapshot(QuantileSketch sketch) {
+        super(new long[0]);
+        this.sketch = sketch;
+    }
+
+    @Override
+    public double getValue(double quantile) {
+        return sketch.getValue(quantile);
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.min(sketch.getCount(), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public long[] getValues() {
+        return sketch.getBinValues();
+    }
+
+    @Override
+    public long getMax() {
+        return sketch.getMax();
+    }
+
+    @Override
+    public long getMin() {
+        return sketch.getMin();
+    }
+
+    @Override
+    public double getMean() {
+        return sketch.getMean();
+    }
+
+    @Override
+    public double getStdDev() {
+        return sketch.getStdDev();
+    }
+
+    @Override
+    public void dump(OutputStream output) {
+        PrintWriter out = new PrintWriter(output);
+        try {
+            for (long value : getValues()) {
+                out.printf("%d%n", value);
+            }
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    public QuantileSketch getSketch() {
+        return sketch;
+    }
+}
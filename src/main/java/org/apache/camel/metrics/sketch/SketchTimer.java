@@ -0,0 +1,25 @@
+package org.apache.camel.metrics.sketch;
+
+import com.codahale.metrics.Timer;
+
+/**
+ * Timer recording durations in nanoseconds into {@link QuantileSketch}.
+ */
+public class SketchTimer extends Timer implements SketchSampling {
+
+    private final SketchReservoir reservoir;
+
+    public SketchTimer(double relativeAccuracy) {
+        this(new SketchReservoir(relativeAccuracy));
+    }
+
+    private SketchTimer(SketchReservoir reservoir) {
+        super(reservoir);
+        this.reservoir = reservoir;
+    }
+
+    @Override
+    public QuantileSketch getSketch() {
+        return reservoir.getSketch();
+    }
+}
@@ -0,0 +1,290 @@
+package org.apache.camel.metrics.timer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.camel.metrics.MetricRegistryHelper;
+import org.apache.camel.metrics.MetricRegistryHelper.MetricFactory;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Holds start ticks of timers started on one exchange and stopped on another,
+ * keyed by correlation value. Keys and ticks live in striped open addressing
+ * tables of plain arrays, so that a pending start costs no objects besides
+ * the key itself. Store is bounded: starts beyond maximum size are rejected.
+ * Entries older than timeout are dropped on access and counted in
+ * {@code <timer name>.expired}. Registered into {@link MetricRegistry} as
+ * gauge of pending starts with name {@code <timer name>.pending}.
+ */
+public class CorrelationStore implements Gauge<Integer> {
+
+    public static final String SUFFIX = "pending";
+    public static final String EXPIRED_SUFFIX = "expired";
+    public static final int DEFAULT_MAX_SIZE = 10000;
+    public static final long DEFAULT_TIMEOUT = 60000L;
+
+    private static final int MAX_STRIPES = 16;
+    private static final int MIN_STRIPE_SIZE = 64;
+
+    private final Stripe[] stripes;
+    private final int maxSize;
+    private final long timeoutNanos;
+    private final Clock clock;
+    private final Counter expired;
+    private final AtomicLong rejected = new AtomicLong();
+
+    public CorrelationStore(int maxSize, long timeout, TimeUnit unit, Counter expired) {
+        this(maxSize, timeout, unit, expired, Clock.defaultClock());
+    }
+
+    public CorrelationStore(int maxSize, long timeout, TimeUnit unit, Counter expired, Clock clock) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Maximum size must be positive but was " + maxSize);
+        }
+        long nanos = unit.toNanos(timeout);
+        if (nanos < 1) {
+            throw new IllegalArgumentException("Timeout must be positive but was " + timeout + " " + unit);
+        }
+        this.maxSize = maxSize;
+        this.timeoutNanos = nanos;
+        this.clock = clock;
+        this.expired = expired;
+        int count = Integer.highestOneBit(Math.max(1, Math.min(MAX_STRIPES, maxSize / MIN_STRIPE_SIZE)));
+        int stripeSize = (maxSize + count - 1) / count;
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe(stripeSize);
+        }
+    }
+
+    /**
+     * Records start for given key. Returns false if start for equal key is
+     * already pending and not expired, or store is full.
+     */
+    public boolean start(Object key) {
+        int hash = spread(key.hashCode());
+        if (stripeFor(hash).put(key, hash, clock.getTick())) {
+            return true;
+        }
+        rejected.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Removes start of given key and returns nanoseconds elapsed since, or -1
+     * if no start is pending or it has expired.
+     */
+    public long stop(Object key) {
+        int hash = spread(key.hashCode());
+        return stripeFor(hash).remove(key, hash, clock.getTick());
+    }
+
+    /**
+     * Drops all expired entries. Stores are swept on access as well, so this
+     * is needed only to settle idle stores.
+     */
+    public void expire() {
+        long now = clock.getTick();
+        for (Stripe stripe : stripes) {
+            stripe.sweep(now);
+        }
+    }
+
+    /**
+     * Returns number of pending starts, including expired ones not yet swept.
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    @Override
+    public Integer getValue() {
+        return size();
+    }
+
+    /**
+     * Returns number of starts rejected because of pending equal key or full
+     * store.
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    public long getExpiredCount() {
+        return expired.getCount();
+    }
+
+    public long getTimeoutNanos() {
+        return timeoutNanos;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns true if store was created with given maximum size and timeout
+     * in milliseconds.
+     */
+    public boolean isConfiguredAs(int maxSize, long timeout) {
+        return this.maxSize == maxSize && timeoutNanos == TimeUnit.MILLISECONDS.toNanos(timeout);
+    }
+
+    private Stripe stripeFor(int hash) {
+        return stripes[hash & (stripes.length - 1)];
+    }
+
+    static int spread(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    public static String getName(String metricsName) {
+        return MetricRegistry.name(metricsName, SUFFIX);
+    }
+
+    /**
+     * Returns store registered for timer or registers a new one. Store
+     * already registered is returned as it is, whatever its configuration.
+     */
+    public static CorrelationStore getOrRegister(final MetricRegistry registry, final String metricsName, final int maxSize, final long timeout) {
+        return MetricRegistryHelper.getOrRegister(registry, getName(metricsName), CorrelationStore.class, new MetricFactory<CorrelationStore>() {
+            @Override
+            public CorrelationStore newMetric() {
+                return new CorrelationStore(maxSize, timeout, TimeUnit.MILLISECONDS, registry.counter(MetricRegistry.name(metricsName, EXPIRED_SUFFIX)));
+            }
+        });
+    }
+
+    /**
+     * Linear probing table with backward shift deletion, so that no
+     * tombstones are left behind. Table is at most half full.
+     */
+    final class Stripe {
+
+        private final int maxSize;
+        private final int mask;
+        private final Object[] keys;
+        private final long[] ticks;
+        private int size;
+        private long nextSweep;
+
+        Stripe(int maxSize) {
+            this.maxSize = maxSize;
+            int capacity = Integer.highestOneBit(Math.max(2, maxSize) * 2 - 1) << 1;
+            this.mask = capacity - 1;
+            this.keys = new Object[capacity];
+            this.ticks = new long[capacity];
+        }
+
+        synchronized boolean put(Object key, int hash, long now) {
+            if (size > 0 && now - nextSweep >= 0) {
+                sweep(now);
+            }
+            int i = slot(hash);
+            while (keys[i] != null) {
+                if (keys[i].equals(key)) {
+                    if (now - ticks[i] > timeoutNanos) {
+                        // pending start expired but not yet swept
+                        expired.inc();
+                        ticks[i] = now;
+                        return true;
+                    }
+                    return false;
+                }
+                i = (i + 1) & mask;
+            }
+            if (size >= maxSize) {
+                sweep(now);
+                if (size >= maxSize) {
+                    return false;
+                }
+                // sweep may have shifted entries into probe sequence
+                i = slot(hash);
+                while (keys[i] != null) {
+                    i = (i + 1) & mask;
+                }
+            }
+            if (size == 0) {
+                nextSweep = now + timeoutNanos / 4;
+            }
+            keys[i] = key;
+            ticks[i] = now;
+            size++;
+            return true;
+        }
+
+        synchronized long remove(Object key, int hash, long now) {
+            int i = slot(hash);
+            while (keys[i] != null) {
+                if (keys[i].equals(key)) {
+                    long elapsed = now - ticks[i];
+                    delete(i);
+                    if (elapsed > timeoutNanos) {
+                        expired.inc();
+                        return -1L;
+                    }
+                    return elapsed;
+                }
+                i = (i + 1) & mask;
+            }
+            return -1L;
+        }
+
+        synchronized void sweep(long now) {
+            int count = 0;
+            int i = 0;
+            while (i < keys.length) {
+                if (keys[i] != null && now - ticks[i] > timeoutNanos) {
+                    // entry shifted into this slot is checked next
+                    delete(i);
+                    count++;
+                }
+                else {
+                    i++;
+                }
+            }
+            if (count > 0) {
+                expired.inc(count);
+            }
+            nextSweep = now + timeoutNanos / 4;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        private int slot(int hash) {
+            return (hash >>> 4) & mask;
+        }
+
+        private void delete(int slot) {
+            int hole = slot;
+            int i = slot;
+            while (true) {
+                i = (i + 1) & mask;
+                Object key = keys[i];
+                if (key == null) {
+                    break;
+                }
+                int home = slot(spread(key.hashCode()));
+                // move entry unless its home lies cyclically in (hole, i]
+                if (hole <= i ? (home <= hole || home > i) : (home <= hole && home > i)) {
+                    keys[hole] = key;
+                    ticks[hole] = ticks[i];
+                    hole = i;
+                }
+            }
+            keys[hole] = null;
+            size--;
+        }
+    }
+}
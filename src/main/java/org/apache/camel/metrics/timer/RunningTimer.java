@@ -0,0 +1,94 @@
+package org.apache.camel.metrics.timer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.camel.Exchange;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Timer;
+
+/**
+ * Timer started by {@link TimerProducer} and kept in exchange property until
+ * stopped. Remembers exchange it was started on, so that copies of the
+ * property made into sub-exchanges by split, multicast or recipient list are
+ * recognized as branches instead of being stopped as the timer itself.
+ * Branches stopped are counted on the timer they were copied from.
+ */
+public class RunningTimer {
+
+    public static final String BRANCH = "branch";
+    public static final String BRANCHES = "branches";
+
+    private final Timer.Context context;
+    private final String exchangeId;
+    private final RunningTimer parent;
+    private final Clock clock;
+    private final long startTick;
+    private final AtomicInteger branches = new AtomicInteger();
+    private long elapsed = -1L;
+
+    public RunningTimer(Timer.Context context, String exchangeId, RunningTimer parent) {
+        this(context, exchangeId, parent, Clock.defaultClock());
+    }
+
+    public RunningTimer(Timer.Context context, String exchangeId, RunningTimer parent, Clock clock) {
+        this.context = context;
+        this.exchangeId = exchangeId;
+        this.parent = parent;
+        this.clock = clock;
+        this.startTick = clock.getTick();
+    }
+
+    /**
+     * Returns true if timer was started on given exchange, false if it was
+     * copied into it from the exchange it was started on.
+     */
+    public boolean isStartedOn(Exchange exchange) {
+        return exchangeId.equals(exchange.getExchangeId());
+    }
+
+    /**
+     * Stops timer, records elapsed time into timer it was started from and
+     * returns elapsed time in nanoseconds. Timer already stopped is not
+     * recorded again; time it was stopped with is returned.
+     */
+    public synchronized long stop() {
+        if (elapsed < 0L) {
+            elapsed = context.stop();
+        }
+        return elapsed;
+    }
+
+    public synchronized boolean isStopped() {
+        return elapsed >= 0L;
+    }
+
+    /**
+     * Returns nanoseconds elapsed since start without stopping timer.
+     */
+    public long getElapsed() {
+        return clock.getTick() - startTick;
+    }
+
+    /**
+     * Counts branch stopped and returns number of branches stopped so far.
+     */
+    public int branchStopped() {
+        return branches.incrementAndGet();
+    }
+
+    public int getBranchCount() {
+        return branches.get();
+    }
+
+    public String getExchangeId() {
+        return exchangeId;
+    }
+
+    /**
+     * Returns timer this timer was started as branch of, or null.
+     */
+    public RunningTimer getParent() {
+        return parent;
+    }
+}
@@ -0,0 +1,79 @@
+package org.apache.camel.metrics.timer;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.camel.Exchange;
+
+/**
+ * Details of single slow exchange captured by {@link SlowExchanges}.
+ */
+public class SlowExchange {
+
+    private final String exchangeId;
+    private final String breadcrumbId;
+    private final long duration;
+    private final long timestamp;
+    private final Map<String, Object> headers;
+
+    public SlowExchange(String exchangeId, String breadcrumbId, long duration, long timestamp, Map<String, Object> headers) {
+        this.exchangeId = exchangeId;
+        this.breadcrumbId = breadcrumbId;
+        this.duration = duration;
+        this.timestamp = timestamp;
+        this.headers = headers;
+    }
+
+    public static SlowExchange of(Exchange exchange, long duration, String[] headerNames) {
+        Map<String, Object> headers;
+        if (headerNames == null || headerNames.length == 0) {
+            headers = Collections.emptyMap();
+        }
+        else {
+            headers = new LinkedHashMap<String, Object>();
+            for (String name : headerNames) {
+                headers.put(name, exchange.getIn().getHeader(name));
+            }
+        }
+        String breadcrumbId = exchange.getIn().getHeader(Exchange.BREADCRUMB_ID, String.class);
+        return new SlowExchange(exchange.getExchangeId(), breadcrumbId, duration, System.currentTimeMillis(), headers);
+    }
+
+    public String getExchangeId() {
+        return exchangeId;
+    }
+
+    public String getBreadcrumbId() {
+        return breadcrumbId;
+    }
+
+    /**
+     * Duration in nanoseconds.
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * Time of capture in milliseconds since epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public Map<String, Object> getHeaders() {
+        return headers;
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder("SlowExchange[")
+                .append("exchangeId=").append(exchangeId)
+                .append(", breadcrumbId=").append(breadcrumbId)
+                .append(", duration=").append(duration)
+                .append(", headers=").append(headers)
+                .append("]")
+                .toString();
+    }
+}
@@ -0,0 +1,40 @@
+package org.apache.camel.metrics.timer;
+
+import java.util.List;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.apache.camel.impl.ScheduledPollConsumer;
+
+/**
+ * Emits slowest exchanges captured for a timer once per window. Message body
+ * is {@code List<SlowExchange>}, slowest first. Nothing is emitted for empty
+ * windows.
+ */
+public class SlowExchangeConsumer extends ScheduledPollConsumer {
+
+    public SlowExchangeConsumer(TimerEndpoint endpoint, Processor processor) {
+        super(endpoint, processor);
+        setInitialDelay(endpoint.getSlowExchangeWindow());
+        setDelay(endpoint.getSlowExchangeWindow());
+    }
+
+    @Override
+    public TimerEndpoint getEndpoint() {
+        return (TimerEndpoint) super.getEndpoint();
+    }
+
+    @Override
+    protected int poll() throws Exception {
+        TimerEndpoint endpoint = getEndpoint();
+        SlowExchanges slowExchanges = endpoint.getSlowest(endpoint.getMetricsName());
+        List<SlowExchange> captured = slowExchanges.drain();
+        if (captured.isEmpty()) {
+            return 0;
+        }
+        Exchange exchange = endpoint.createExchange();
+        exchange.getIn().setBody(captured);
+        getProcessor().process(exchange);
+        return 1;
+    }
+}
@@ -0,0 +1,161 @@
+package org.apache.camel.metrics.timer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.camel.metrics.MetricRegistryHelper;
+import org.apache.camel.metrics.MetricRegistryHelper.MetricFactory;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Keeps bounded set of slowest exchanges seen by a timer in a time window.
+ * Durations not exceeding current threshold are rejected with single
+ * comparison; only candidates take the lock. Window is rotated by the next
+ * capture, read or drain after it ends: captured exchanges are kept as
+ * previous window and the threshold starts again from zero, so a single
+ * spike does not block capture for good while the gauge is reported.
+ * Registered into {@link MetricRegistry} as gauge with name
+ * {@code <timer name>.slowest}.
+ */
+public class SlowExchanges implements Gauge<List<SlowExchange>> {
+
+    public static final String SUFFIX = "slowest";
+
+    private static final Comparator<SlowExchange> BY_DURATION = new Comparator<SlowExchange>() {
+        @Override
+        public int compare(SlowExchange a, SlowExchange b) {
+            return a.getDuration() < b.getDuration() ? -1 : (a.getDuration() == b.getDuration() ? 0 : 1);
+        }
+    };
+
+    private final int capacity;
+    private final long windowNanos;
+    private final Clock clock;
+    private final PriorityQueue<SlowExchange> queue;
+    private List<SlowExchange> previous = Collections.emptyList();
+    private volatile long threshold;
+    private long windowEnd;
+
+    public SlowExchanges(int capacity) {
+        this(capacity, TimerEndpoint.DEFAULT_SLOW_EXCHANGE_WINDOW, TimeUnit.MILLISECONDS, Clock.defaultClock());
+    }
+
+    public SlowExchanges(int capacity, long window, TimeUnit unit, Clock clock) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive but was " + capacity);
+        }
+        long nanos = unit.toNanos(window);
+        if (nanos < 1) {
+            throw new IllegalArgumentException("Window must be positive but was " + window + " " + unit);
+        }
+        this.capacity = capacity;
+        this.windowNanos = nanos;
+        this.clock = clock;
+        this.queue = new PriorityQueue<SlowExchange>(capacity + 1, BY_DURATION);
+        this.windowEnd = clock.getTick() + nanos;
+    }
+
+    /**
+     * Returns true if exchange with given duration would be captured in
+     * current window.
+     */
+    public boolean isCandidate(long duration) {
+        return duration > threshold;
+    }
+
+    public void add(SlowExchange slowExchange) {
+        synchronized (queue) {
+            rotate(clock.getTick());
+            if (queue.size() < capacity) {
+                queue.add(slowExchange);
+            }
+            else if (slowExchange.getDuration() > queue.peek().getDuration()) {
+                queue.poll();
+                queue.add(slowExchange);
+            }
+            if (queue.size() == capacity) {
+                threshold = queue.peek().getDuration();
+            }
+        }
+    }
+
+    /**
+     * Returns slowest exchanges captured in current and previous window,
+     * slowest first.
+     */
+    @Override
+    public List<SlowExchange> getValue() {
+        synchronized (queue) {
+            rotate(clock.getTick());
+            return collect();
+        }
+    }
+
+    /**
+     * Returns slowest exchanges captured in current and previous window,
+     * slowest first, and starts new window.
+     */
+    public List<SlowExchange> drain() {
+        synchronized (queue) {
+            rotate(clock.getTick());
+            List<SlowExchange> result = collect();
+            previous = Collections.emptyList();
+            queue.clear();
+            threshold = 0L;
+            windowEnd = clock.getTick() + windowNanos;
+            return result;
+        }
+    }
+
+    private void rotate(long now) {
+        if (now - windowEnd < 0) {
+            return;
+        }
+        // window ended without drain, keep only exchanges of the last one
+        previous = now - windowEnd < windowNanos ? new ArrayList<SlowExchange>(queue) : Collections.<SlowExchange> emptyList();
+        queue.clear();
+        threshold = 0L;
+        windowEnd = now + windowNanos;
+    }
+
+    private List<SlowExchange> collect() {
+        List<SlowExchange> result = new ArrayList<SlowExchange>(previous.size() + queue.size());
+        result.addAll(previous);
+        result.addAll(queue);
+        sorted(result);
+        return result.size() > capacity ? new ArrayList<SlowExchange>(result.subList(0, capacity)) : result;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getWindowNanos() {
+        return windowNanos;
+    }
+
+    private static List<SlowExchange> sorted(List<SlowExchange> list) {
+        Collections.sort(list, Collections.reverseOrder(BY_DURATION));
+        return list;
+    }
+
+    public static String getName(String metricsName) {
+        return MetricRegistry.name(metricsName, SUFFIX);
+    }
+
+    public static SlowExchanges getOrRegister(MetricRegistry registry, String metricsName, final int capacity, final long window) {
+        return MetricRegistryHelper.getOrRegister(registry, getName(metricsName), SlowExchanges.class, new MetricFactory<SlowExchanges>() {
+            @Override
+            public SlowExchanges newMetric() {
+                return new SlowExchanges(capacity, window, TimeUnit.MILLISECONDS, Clock.defaultClock());
+            }
+        });
+    }
+}
@@ -1,34 +1,244 @@
 package org.apache.camel.metrics.timer;
 
+import java.util.concurrent.TimeUnit;
+
+import org.apache.camel.CamelContext;
+import org.apache.camel.Component;
+import org.apache.camel.Consumer;
+import org.apache.camel.Exchange;
+import org.apache.camel.Expression;
+import org.apache.camel.Processor;
 import org.apache.camel.Producer;
-import org.apache.camel.metrics.AbstractMetricsEndpoint;
+import org.apache.camel.RuntimeCamelException;
+import org.apache.camel.metrics.AbstractDistributionEndpoint;
+import org.apache.camel.metrics.MetricRegistryHelper;
+import org.apache.camel.metrics.MetricRegistryHelper.MetricFactory;
+import org.apache.camel.metrics.ReservoirType;
+import org.apache.camel.metrics.sketch.RollingTimer;
+import org.apache.camel.metrics.sketch.SketchTimer;
 import org.apache.camel.spi.UriEndpoint;
 import org.apache.camel.spi.UriParam;
 
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 
 @UriEndpoint(scheme = "metrics:timer")
-public class TimerEndpoint extends AbstractMetricsEndpoint {
+public class TimerEndpoint extends AbstractDistributionEndpoint {
 
     public static final String ENDPOINT_URI = "metrics:timer";
+    public static final long DEFAULT_SLOW_EXCHANGE_WINDOW = 60000L;
+    public static final String DEFAULT_CORRELATION_LANGUAGE = "simple";
 
     public enum TimerAction {
         start,
-        stop;
+        stop,
+        update;
     }
 
     @UriParam
     private TimerAction action;
 
+    @UriParam
+    private boolean autoStop;
+
+    @UriParam
+    private Long duration;
+
+    @UriParam
+    private TimeUnit durationUnit = TimeUnit.MILLISECONDS;
+
+    @UriParam
+    private int slowExchanges;
+
+    @UriParam
+    private String[] slowExchangeHeaders;
+
+    @UriParam
+    private long slowExchangeWindow = DEFAULT_SLOW_EXCHANGE_WINDOW;
+
+    @UriParam
+    private String correlationExpression;
+
+    @UriParam
+    private String correlationLanguage = DEFAULT_CORRELATION_LANGUAGE;
+
+    @UriParam
+    private long correlationTimeout = CorrelationStore.DEFAULT_TIMEOUT;
+
+    @UriParam
+    private int correlationMaxSize = CorrelationStore.DEFAULT_MAX_SIZE;
+
+    private volatile Expression correlation;
+
+    private volatile CorrelationStore correlationStore;
+
+    private volatile SlowExchanges slowest;
+
+    private volatile Timer successTimer;
+
+    private volatile Timer failureTimer;
+
     public TimerEndpoint(MetricRegistry registry, String metricsName) {
         super(registry, metricsName);
     }
 
+    public TimerEndpoint(String endpointUri, Component component, MetricRegistry registry, String metricsName) {
+        super(endpointUri, component, registry, metricsName);
+    }
+
     @Override
     public Producer createProducer() throws Exception {
         return new TimerProducer(this);
     }
 
+    @Override
+    public Consumer createConsumer(Processor processor) throws Exception {
+        if (slowExchanges < 1) {
+            throw new RuntimeCamelException("Cannot consume from " + getClass().getSimpleName() + " without slowExchanges: " + getEndpointUri());
+        }
+        SlowExchangeConsumer consumer = new SlowExchangeConsumer(this, processor);
+        configureConsumer(consumer);
+        return consumer;
+    }
+
+    @Override
+    protected void doStart() throws Exception {
+        super.doStart();
+        if (correlationExpression != null) {
+            if (correlation == null) {
+                correlation = createCorrelation(getCamelContext());
+            }
+            correlationStore = resolveCorrelationStore(getMetricsName());
+        }
+        if (slowExchanges > 0) {
+            slowest = SlowExchanges.getOrRegister(registry, getMetricsName(), slowExchanges, slowExchangeWindow);
+        }
+        if (autoStop) {
+            successTimer = registerMetric(MetricRegistry.name(getMetricsName(), TimerSynchronization.SUCCESS));
+            failureTimer = registerMetric(MetricRegistry.name(getMetricsName(), TimerSynchronization.FAILURE));
+        }
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        correlationStore = null;
+        slowest = null;
+        successTimer = null;
+        failureTimer = null;
+        super.doStop();
+    }
+
+    @Override
+    protected Timer registerMetric(String name) {
+        ReservoirType reservoir = getReservoir();
+        if (reservoir == ReservoirType.sketch) {
+            final double relativeAccuracy = getRelativeAccuracy();
+            return MetricRegistryHelper.getOrRegister(registry, name, Timer.class, new MetricFactory<Timer>() {
+                @Override
+                public Timer newMetric() {
+                    return new SketchTimer(relativeAccuracy);
+                }
+            });
+        }
+        else if (reservoir == ReservoirType.rolling) {
+            final double relativeAccuracy = getRelativeAccuracy();
+            final int buckets = getRollingBuckets();
+            final long bucketWidth = getRollingBucketWidth();
+            return MetricRegistryHelper.getOrRegister(registry, name, Timer.class, new MetricFactory<Timer>() {
+                @Override
+                public Timer newMetric() {
+                    return new RollingTimer(relativeAccuracy, buckets, bucketWidth, TimeUnit.MILLISECONDS);
+                }
+            });
+        }
+        else {
+            return registry.timer(name);
+        }
+    }
+
+    public Timer getTimer(String name) {
+        return (Timer) getMetric(name);
+    }
+
+    /**
+     * Returns timer {@code <name>.<outcome>} recording exchanges timed with
+     * {@code autoStop}, registered with the reservoir of this endpoint like
+     * the timer itself. Outcome timers of the endpoint's own timer are
+     * resolved once on start.
+     */
+    public Timer getOutcomeTimer(String name, String outcome) {
+        if (name.equals(getMetricsName())) {
+            Timer started = TimerSynchronization.SUCCESS.equals(outcome) ? successTimer : failureTimer;
+            if (started != null) {
+                return started;
+            }
+        }
+        return registerMetric(MetricRegistry.name(name, outcome));
+    }
+
+    /**
+     * Evaluates {@code correlationExpression} against exchange. Returns null
+     * if no expression is set. Expression is compiled once, on start or on
+     * first use.
+     */
+    public Object evaluateCorrelation(Exchange exchange) {
+        if (correlationExpression == null) {
+            return null;
+        }
+        Expression compiled = correlation;
+        if (compiled == null) {
+            compiled = createCorrelation(exchange.getContext());
+            correlation = compiled;
+        }
+        return compiled.evaluate(exchange, Object.class);
+    }
+
+    /**
+     * Returns slowest exchanges captured for timer with given name, shared by
+     * all endpoints of the timer through registry. Those of the endpoint's
+     * own timer are resolved once on start.
+     */
+    public SlowExchanges getSlowest(String name) {
+        SlowExchanges started = slowest;
+        if (started != null && name.equals(getMetricsName())) {
+            return started;
+        }
+        return SlowExchanges.getOrRegister(registry, name, slowExchanges, slowExchangeWindow);
+    }
+
+    /**
+     * Returns store of pending correlated starts for timer with given name,
+     * shared by all endpoints of the timer through registry. Store of the
+     * endpoint's own timer is resolved once on start; stores of names set by
+     * header are looked up on each call.
+     */
+    public CorrelationStore getCorrelationStore(String name) {
+        CorrelationStore store = correlationStore;
+        if (store != null && name.equals(getMetricsName())) {
+            return store;
+        }
+        return resolveCorrelationStore(name);
+    }
+
+    /**
+     * Looks up store of timer with given name. Store is created by the
+     * first endpoint of the timer; endpoint configured with different
+     * {@code correlationMaxSize} or {@code correlationTimeout} fails instead
+     * of silently running with the settings of the other one.
+     */
+    CorrelationStore resolveCorrelationStore(String name) {
+        CorrelationStore store = CorrelationStore.getOrRegister(registry, name, correlationMaxSize, correlationTimeout);
+        if (!store.isConfiguredAs(correlationMaxSize, correlationTimeout)) {
+            throw new RuntimeCamelException("Correlated timer \"" + name + "\" already registered with correlationMaxSize=" + store.getMaxSize()
+                    + " and correlationTimeout=" + TimeUnit.NANOSECONDS.toMillis(store.getTimeoutNanos()) + " by another endpoint: " + getEndpointUri());
+        }
+        return store;
+    }
+
+    Expression createCorrelation(CamelContext camelContext) {
+        return camelContext.resolveLanguage(correlationLanguage).createExpression(correlationExpression);
+    }
+
     public TimerAction getAction() {
         return action;
     }
@@ -37,6 +247,97 @@ public class TimerEndpoint extends AbstractMetricsEndpoint {
         this.action = action;
     }
 
+    public boolean isAutoStop() {
+        return autoStop;
+    }
+
+    public void setAutoStop(boolean autoStop) {
+        this.autoStop = autoStop;
+    }
+
+    public Long getDuration() {
+        return duration;
+    }
+
+    public void setDuration(Long duration) {
+        this.duration = duration;
+    }
+
+    public TimeUnit getDurationUnit() {
+        return durationUnit;
+    }
+
+    public void setDurationUnit(TimeUnit durationUnit) {
+        this.durationUnit = durationUnit;
+    }
+
+    public int getSlowExchanges() {
+        return slowExchanges;
+    }
+
+    public void setSlowExchanges(int slowExchanges) {
+        this.slowExchanges = slowExchanges;
+    }
+
+    public String[] getSlowExchangeHeaders() {
+        return slowExchangeHeaders;
+    }
+
+    public void setSlowExchangeHeaders(String slowExchangeHeaders) {
+        this.slowExchangeHeaders = slowExchangeHeaders == null ? null : slowExchangeHeaders.split(",");
+    }
+
+    public long getSlowExchangeWindow() {
+        return slowExchangeWindow;
+    }
+
+    public void setSlowExchangeWindow(long slowExchangeWindow) {
+        this.slowExchangeWindow = slowExchangeWindow;
+    }
+
+    public String getCorrelationExpression() {
+        return correlationExpression;
+    }
+
+    /**
+     * Expression evaluating to key that pairs start and stop of timer on
+     * different exchanges. When set, start times are held in
+     * {@link CorrelationStore} instead of exchange properties.
+     */
+    public void setCorrelationExpression(String correlationExpression) {
+        this.correlationExpression = correlationExpression;
+        this.correlation = null;
+    }
+
+    public String getCorrelationLanguage() {
+        return correlationLanguage;
+    }
+
+    public void setCorrelationLanguage(String correlationLanguage) {
+        this.correlationLanguage = correlationLanguage;
+        this.correlation = null;
+    }
+
+    public long getCorrelationTimeout() {
+        return correlationTimeout;
+    }
+
+    /**
+     * Time in milliseconds after which pending start is dropped and counted
+     * as expired.
+     */
+    public void setCorrelationTimeout(long correlationTimeout) {
+        this.correlationTimeout = correlationTimeout;
+    }
+
+    public int getCorrelationMaxSize() {
+        return correlationMaxSize;
+    }
+
+    public void setCorrelationMaxSize(int correlationMaxSize) {
+        this.correlationMaxSize = correlationMaxSize;
+    }
+
     @Override
     protected String createEndpointUri() {
         return ENDPOINT_URI;
@@ -1,11 +1,16 @@
 package org.apache.camel.metrics.timer;
 
 import static org.apache.camel.metrics.MetricsComponent.HEADER_TIMER_ACTION;
+import static org.apache.camel.metrics.MetricsComponent.HEADER_TIMER_DURATION;
 import static org.apache.camel.metrics.timer.TimerEndpoint.ENDPOINT_URI;
 
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
 import org.apache.camel.Exchange;
 import org.apache.camel.Message;
 import org.apache.camel.metrics.AbstractMetricsProducer;
+import org.apache.camel.metrics.Sampler;
 import org.apache.camel.metrics.timer.TimerEndpoint.TimerAction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,45 +26,182 @@ public class TimerProducer extends AbstractMetricsProducer<TimerEndpoint> {
         super(endpoint);
     }
 
+    /**
+     * Start and stop of correlated timer run on different exchanges, so they
+     * are sampled by correlation key instead of exchange.
+     */
+    @Override
+    protected boolean isSampled(Exchange exchange, TimerEndpoint endpoint) {
+        return endpoint.getCorrelationExpression() != null || super.isSampled(exchange, endpoint);
+    }
+
     @Override
     protected void doProcess(Exchange exchange, TimerEndpoint endpoint, MetricRegistry registry, String metricsName) throws Exception {
         Message in = exchange.getIn();
         TimerAction action = endpoint.getAction();
-        TimerAction finalAction = in.getHeader(HEADER_TIMER_ACTION, action, TimerAction.class);
+        TimerAction finalAction = isHeaderOverrides() ? in.getHeader(HEADER_TIMER_ACTION, action, TimerAction.class) : action;
         if (finalAction == TimerAction.start) {
-            handleStart(exchange, registry, metricsName);
+            handleStart(exchange, endpoint, registry, metricsName);
         }
         else if (finalAction == TimerAction.stop) {
-            handleStop(exchange, registry, metricsName);
+            handleStop(exchange, endpoint, registry, metricsName);
+        }
+        else if (finalAction == TimerAction.update) {
+            if (endpoint.getCorrelationExpression() == null || super.isSampled(exchange, endpoint)) {
+                handleUpdate(exchange, in, endpoint, registry, metricsName);
+            }
         }
         else {
-            LOG.warn("No action provided for timer \"{}\"", metricsName);
+            endpoint.onError(LOG, "noAction", "No action provided for timer \"{}\"", metricsName);
         }
     }
 
-    void handleStart(Exchange exchange, MetricRegistry registry, String metricsName) {
+    void handleStart(Exchange exchange, TimerEndpoint endpoint, MetricRegistry registry, String metricsName) {
+        if (endpoint.getCorrelationExpression() != null) {
+            handleCorrelatedStart(exchange, endpoint, metricsName);
+            return;
+        }
         String propertyName = getPropertyName(metricsName);
-        Timer.Context context = getTimerContextFromExchange(exchange, propertyName);
-        if (context == null) {
-            Timer timer = registry.timer(metricsName);
-            context = timer.time();
-            exchange.setProperty(propertyName, context);
+        RunningTimer running = getTimerContextFromExchange(exchange, propertyName);
+        if (running == null) {
+            Timer timer = endpoint.getTimer(metricsName);
+            running = new RunningTimer(timer.time(), exchange.getExchangeId(), null);
+            exchange.setProperty(propertyName, running);
+            if (endpoint.isAutoStop()) {
+                Timer success = endpoint.getOutcomeTimer(metricsName, TimerSynchronization.SUCCESS);
+                Timer failure = endpoint.getOutcomeTimer(metricsName, TimerSynchronization.FAILURE);
+                SlowExchanges slowest = endpoint.getSlowExchanges() > 0 ? endpoint.getSlowest(metricsName) : null;
+                String[] headers = endpoint.getSlowExchangeHeaders();
+                exchange.addOnCompletion(new TimerSynchronization(success, failure, metricsName, propertyName, running, slowest, headers));
+            }
+        }
+        else if (!running.isStartedOn(exchange)) {
+            // copied into sub-exchange by split or multicast, time the branch
+            Timer timer = endpoint.getTimer(MetricRegistry.name(metricsName, RunningTimer.BRANCH));
+            exchange.setProperty(propertyName, new RunningTimer(timer.time(), exchange.getExchangeId(), running));
         }
         else {
-            LOG.warn("Timer \"{}\" already running", metricsName);
+            endpoint.onError(LOG, "alreadyRunning", "Timer \"{}\" already running", metricsName);
         }
     }
 
-    void handleStop(Exchange exchange, MetricRegistry registry, String metricsName) {
+    void handleStop(Exchange exchange, TimerEndpoint endpoint, MetricRegistry registry, String metricsName) {
+        if (endpoint.getCorrelationExpression() != null) {
+            handleCorrelatedStop(exchange, endpoint, metricsName);
+            return;
+        }
         String propertyName = getPropertyName(metricsName);
-        Timer.Context context = getTimerContextFromExchange(exchange, propertyName);
-        if (context != null) {
-            context.stop();
+        RunningTimer running = getTimerContextFromExchange(exchange, propertyName);
+        if (running == null) {
+            endpoint.onError(LOG, "notFound", "Timer \"{}\" not found", metricsName);
+        }
+        else if (!running.isStartedOn(exchange)) {
+            // copied into sub-exchange by split or multicast, branch is timed from start of the copied timer
+            endpoint.getTimer(MetricRegistry.name(metricsName, RunningTimer.BRANCH)).update(running.getElapsed(), TimeUnit.NANOSECONDS);
+            running.branchStopped();
+            exchange.removeProperty(propertyName);
+        }
+        else if (running.getParent() != null) {
+            running.stop();
+            running.getParent().branchStopped();
+            exchange.removeProperty(propertyName);
+        }
+        else {
+            long elapsed = running.stop();
             exchange.removeProperty(propertyName);
+            int branches = running.getBranchCount();
+            if (branches > 0) {
+                registry.histogram(MetricRegistry.name(metricsName, RunningTimer.BRANCHES)).update(branches);
+            }
+            onStopped(exchange, endpoint, metricsName, elapsed);
+        }
+    }
+
+    void handleCorrelatedStart(Exchange exchange, TimerEndpoint endpoint, String metricsName) {
+        Object key = endpoint.evaluateCorrelation(exchange);
+        if (key == null) {
+            endpoint.onError(LOG, "nullCorrelation", "Cannot start timer \"{}\" with null correlation", metricsName);
+        }
+        else if (isKeySampled(endpoint, key) && !endpoint.getCorrelationStore(metricsName).start(key)) {
+            endpoint.onError(LOG, "rejected", "Timer \"{}\" already running for correlation \"{}\" or too many running", metricsName, key);
+        }
+    }
+
+    void handleCorrelatedStop(Exchange exchange, TimerEndpoint endpoint, String metricsName) {
+        Object key = endpoint.evaluateCorrelation(exchange);
+        if (key == null) {
+            endpoint.onError(LOG, "nullCorrelation", "Cannot stop timer \"{}\" with null correlation", metricsName);
+            return;
+        }
+        if (!isKeySampled(endpoint, key)) {
+            return;
+        }
+        long elapsed = endpoint.getCorrelationStore(metricsName).stop(key);
+        if (elapsed >= 0L) {
+            endpoint.getTimer(metricsName).update(elapsed, TimeUnit.NANOSECONDS);
+            onStopped(exchange, endpoint, metricsName, elapsed);
         }
         else {
-            LOG.warn("Timer \"{}\" not found", metricsName);
+            endpoint.onError(LOG, "notFound", "Timer \"{}\" not found for correlation \"{}\"", metricsName, key);
+        }
+    }
+
+    boolean isKeySampled(TimerEndpoint endpoint, Object key) {
+        Sampler sampler = endpoint.getSampler();
+        return sampler == null || sampler.isKeySampled(key);
+    }
+
+    void onStopped(Exchange exchange, TimerEndpoint endpoint, String metricsName, long elapsed) {
+        if (endpoint.getSlowExchanges() > 0) {
+            captureSlowExchange(exchange, endpoint, endpoint.getSlowest(metricsName), elapsed);
+        }
+    }
+
+    void captureSlowExchange(Exchange exchange, TimerEndpoint endpoint, SlowExchanges slowExchanges, long elapsed) {
+        if (slowExchanges.isCandidate(elapsed)) {
+            slowExchanges.add(SlowExchange.of(exchange, elapsed, endpoint.getSlowExchangeHeaders()));
+        }
+    }
+
+    void handleUpdate(Exchange exchange, Message in, TimerEndpoint endpoint, MetricRegistry registry, String metricsName) throws Exception {
+        Object duration = getDuration(exchange, in, endpoint);
+        if (duration != null) {
+            Timer timer = endpoint.getTimer(metricsName);
+            updateTimer(exchange, timer, duration, endpoint.getDurationUnit());
+        }
+        else {
+            endpoint.onError(LOG, "nullDuration", "Cannot update timer \"{}\" with null duration", metricsName);
+        }
+    }
+
+    void updateTimer(Exchange exchange, Timer timer, Object duration, TimeUnit unit) throws Exception {
+        if (duration instanceof Collection) {
+            for (Object value : (Collection<?>) duration) {
+                timer.update(convertToLong(exchange, value), unit);
+            }
+        }
+        else if (duration instanceof long[]) {
+            for (long value : (long[]) duration) {
+                timer.update(value, unit);
+            }
+        }
+        else {
+            timer.update(convertToLong(exchange, duration), unit);
+        }
+    }
+
+    Object getDuration(Exchange exchange, Message in, TimerEndpoint endpoint) {
+        Object duration = getOverrideHeader(in, HEADER_TIMER_DURATION);
+        if (duration == null) {
+            duration = endpoint.evaluateValue(exchange);
+        }
+        if (duration == null) {
+            duration = endpoint.getDuration();
+        }
+        if (duration == null) {
+            duration = in.getBody();
         }
+        return duration;
     }
 
     String getPropertyName(String metricsName) {
@@ -69,7 +211,7 @@ public class TimerProducer extends AbstractMetricsProducer<TimerEndpoint> {
                 .toString();
     }
 
-    Timer.Context getTimerContextFromExchange(Exchange exchange, String propertyName) {
-        return exchange.getProperty(propertyName, Timer.Context.class);
+    RunningTimer getTimerContextFromExchange(Exchange exchange, String propertyName) {
+        return exchange.getProperty(propertyName, RunningTimer.class);
     }
 }
@@ -0,0 +1,82 @@
+package org.apache.camel.metrics.timer;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.support.SynchronizationAdapter;
+
+import com.codahale.metrics.Timer;
+
+/**
+ * Records timer started with {@code autoStop} into timer
+ * {@code <name>.success} or {@code <name>.failure} depending on outcome of
+ * the exchange, whether it was stopped normally or not. Outcome timers are
+ * resolved by {@link TimerEndpoint#getOutcomeTimer(String, String)} when the
+ * timer is started. Timer still running when exchange completes is stopped
+ * and recorded into the timer itself too, and offered to slow exchanges of
+ * the timer if they are captured. Sub-exchanges carrying copy of the timer
+ * do not stop it.
+ */
+public class TimerSynchronization extends SynchronizationAdapter {
+
+    public static final String SUCCESS = "success";
+    public static final String FAILURE = "failure";
+
+    private final Timer successTimer;
+    private final Timer failureTimer;
+    private final String metricsName;
+    private final String propertyName;
+    private final RunningTimer running;
+    private final SlowExchanges slowExchanges;
+    private final String[] slowExchangeHeaders;
+
+    /**
+     * Creates synchronization for timer started on exchange; slow exchanges
+     * are null if the endpoint does not capture them.
+     */
+    public TimerSynchronization(Timer successTimer, Timer failureTimer, String metricsName, String propertyName, RunningTimer running,
+            SlowExchanges slowExchanges, String[] slowExchangeHeaders) {
+        this.successTimer = successTimer;
+        this.failureTimer = failureTimer;
+        this.metricsName = metricsName;
+        this.propertyName = propertyName;
+        this.running = running;
+        this.slowExchanges = slowExchanges;
+        this.slowExchangeHeaders = slowExchangeHeaders;
+    }
+
+    @Override
+    public void onComplete(Exchange exchange) {
+        stopRunningTimer(exchange, successTimer);
+    }
+
+    @Override
+    public void onFailure(Exchange exchange) {
+        stopRunningTimer(exchange, failureTimer);
+    }
+
+    void stopRunningTimer(Exchange exchange, Timer outcome) {
+        // copies in sub-exchanges are left to the exchange timer was started on
+        if (!running.isStartedOn(exchange)) {
+            return;
+        }
+        boolean stopped = running.isStopped();
+        long elapsed = running.stop();
+        if (!stopped) {
+            exchange.removeProperty(propertyName);
+        }
+        outcome.update(elapsed, TimeUnit.NANOSECONDS);
+        // timer stopped by stop action was offered to slow exchanges already
+        if (!stopped && slowExchanges != null && slowExchanges.isCandidate(elapsed)) {
+            slowExchanges.add(SlowExchange.of(exchange, elapsed, slowExchangeHeaders));
+        }
+    }
+
+    public String getMetricsName() {
+        return metricsName;
+    }
+
+    public String getPropertyName() {
+        return propertyName;
+    }
+}
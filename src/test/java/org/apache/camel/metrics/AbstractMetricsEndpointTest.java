@@ -2,13 +2,19 @@ package org.apache.camel.metrics;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import org.apache.camel.CamelContext;
 import org.apache.camel.Exchange;
+import org.apache.camel.Expression;
 import org.apache.camel.Message;
 import org.apache.camel.Processor;
 import org.apache.camel.Producer;
 import org.apache.camel.RuntimeCamelException;
+import org.apache.camel.spi.Language;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -17,7 +23,10 @@ import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.slf4j.Logger;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Metric;
 import com.codahale.metrics.MetricRegistry;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -42,6 +51,15 @@ public class AbstractMetricsEndpointTest {
     @Mock
     private Message in;
 
+    @Mock
+    private CamelContext camelContext;
+
+    @Mock
+    private Language language;
+
+    @Mock
+    private Expression expression;
+
     private AbstractMetricsEndpoint endpoint;
 
     private InOrder inOrder;
@@ -58,8 +76,13 @@ public class AbstractMetricsEndpointTest {
             protected String createEndpointUri() {
                 return "not real endpoint";
             }
+
+            @Override
+            protected Metric registerMetric(String name) {
+                return registry.counter(name);
+            }
         };
-        inOrder = Mockito.inOrder(registry, processor, exchange, in);
+        inOrder = Mockito.inOrder(registry, processor, exchange, in, camelContext, language, expression);
         when(exchange.getIn()).thenReturn(in);
     }
 
@@ -81,7 +104,7 @@ public class AbstractMetricsEndpointTest {
 
     @Test
     public void testIsSingleton() throws Exception {
-        assertThat(endpoint.isSingleton(), is(false));
+        assertThat(endpoint.isSingleton(), is(true));
     }
 
     @Test
@@ -93,4 +116,64 @@ public class AbstractMetricsEndpointTest {
     public void testGetMetricsName() throws Exception {
         assertThat(endpoint.getMetricsName(), is(METRICS_NAME));
     }
+
+    @Test
+    public void testGetSampler() throws Exception {
+        assertThat(endpoint.getSampleRate(), is(nullValue()));
+        assertThat(endpoint.getSampler(), is(nullValue()));
+    }
+
+    @Test
+    public void testSetSampleRate() throws Exception {
+        endpoint.setSampleRate(0.1);
+        assertThat(endpoint.getSampleRate(), is(0.1));
+        assertThat(endpoint.getSampler().getInterval(), is(10));
+        endpoint.setSampleRate(1.0);
+        assertThat(endpoint.getSampler(), is(nullValue()));
+    }
+
+    @Test
+    public void testGetValueExpression() throws Exception {
+        assertThat(endpoint.getValueExpression(), is(nullValue()));
+        assertThat(endpoint.getValueLanguage(), is(AbstractMetricsEndpoint.DEFAULT_VALUE_LANGUAGE));
+        assertThat(endpoint.evaluateValue(exchange), is(nullValue()));
+    }
+
+    @Test
+    public void testEvaluateValue() throws Exception {
+        endpoint.setValueExpression("${body.length}");
+        endpoint.setValueLanguage("simple");
+        when(exchange.getContext()).thenReturn(camelContext);
+        when(camelContext.resolveLanguage("simple")).thenReturn(language);
+        when(language.createExpression("${body.length}")).thenReturn(expression);
+        when(expression.evaluate(exchange, Object.class)).thenReturn(LONG_VALUE);
+        assertThat(endpoint.evaluateValue(exchange), is((Object) LONG_VALUE));
+        assertThat(endpoint.evaluateValue(exchange), is((Object) LONG_VALUE));
+        inOrder.verify(exchange, times(1)).getContext();
+        inOrder.verify(camelContext, times(1)).resolveLanguage("simple");
+        inOrder.verify(language, times(1)).createExpression("${body.length}");
+        inOrder.verify(expression, times(2)).evaluate(exchange, Object.class);
+    }
+
+    @Test
+    public void testOnError() throws Exception {
+        Counter errors = Mockito.mock(Counter.class);
+        Logger log = Mockito.mock(Logger.class);
+        when(registry.counter(METRICS_NAME + ".errors")).thenReturn(errors);
+        when(log.isWarnEnabled()).thenReturn(true);
+        assertThat(endpoint.getErrorLogInterval(), is(AbstractMetricsEndpoint.DEFAULT_ERROR_LOG_INTERVAL));
+        endpoint.onError(log, "reason", "Failed {}", METRICS_NAME);
+        endpoint.onError(log, "reason", "Failed {}", METRICS_NAME);
+        inOrder.verify(registry, times(1)).counter(METRICS_NAME + ".errors");
+        verify(errors, times(2)).inc();
+        verify(log, times(1)).warn("Failed {}", new Object[] { METRICS_NAME });
+        assertThat(endpoint.getErrorLog().getSuppressedCount("reason"), is(1L));
+    }
+
+    @Test
+    public void testSetErrorLogInterval() throws Exception {
+        endpoint.setErrorLogInterval(5000L);
+        assertThat(endpoint.getErrorLogInterval(), is(5000L));
+        assertThat(endpoint.getErrorLog().getIntervalMillis(), is(5000L));
+    }
 }
@@ -4,12 +4,21 @@ import static org.apache.camel.metrics.AbstractMetricsProducer.HEADER_PATTERN;
 import static org.apache.camel.metrics.MetricsComponent.HEADER_HISTOGRAM_VALUE;
 import static org.apache.camel.metrics.MetricsComponent.HEADER_METRIC_NAME;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.when;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.apache.camel.Exchange;
 import org.apache.camel.Message;
+import org.apache.camel.RuntimeCamelException;
 import org.apache.camel.impl.DefaultMessage;
 import org.junit.Before;
 import org.junit.Test;
@@ -18,6 +27,7 @@ import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.slf4j.Logger;
 
 import com.codahale.metrics.MetricRegistry;
 
@@ -46,6 +56,7 @@ public class AbstractMetricsProducerTest {
 
     @Before
     public void setUp() throws Exception {
+        when(endpoint.isHeaderOverrides()).thenReturn(true);
         okProducer = new AbstractMetricsProducer<AbstractMetricsEndpoint>(endpoint) {
             @Override
             protected void doProcess(Exchange exchange, AbstractMetricsEndpoint endpoint, MetricRegistry registry, String metricsName) throws Exception {
@@ -70,6 +81,7 @@ public class AbstractMetricsProducerTest {
         when(in.removeHeaders(HEADER_PATTERN)).thenReturn(true);
         okProducer.process(exchange);
         inOrder.verify(exchange, times(1)).getIn();
+        inOrder.verify(endpoint, times(1)).getSampler();
         inOrder.verify(endpoint, times(1)).getMetricsName();
         inOrder.verify(in, times(1)).getHeader(HEADER_METRIC_NAME, String.class);
         inOrder.verify(endpoint, times(1)).getRegistry();
@@ -83,13 +95,55 @@ public class AbstractMetricsProducerTest {
         when(in.removeHeaders(HEADER_PATTERN)).thenReturn(true);
         failProducer.process(exchange);
         inOrder.verify(exchange, times(1)).getIn();
+        inOrder.verify(endpoint, times(1)).getSampler();
         inOrder.verify(endpoint, times(1)).getMetricsName();
         inOrder.verify(in, times(1)).getHeader(HEADER_METRIC_NAME, String.class);
         inOrder.verify(endpoint, times(1)).getRegistry();
+        inOrder.verify(endpoint, times(1)).onError(any(Logger.class), eq("exception"), anyString(), eq(METRIC_NAME), anyString(), eq("Muchos problemos"));
         inOrder.verify(in, times(1)).removeHeaders(HEADER_PATTERN);
         inOrder.verifyNoMoreInteractions();
     }
 
+    @Test
+    public void testDoProcessNotSampled() throws Exception {
+        Sampler sampler = Mockito.mock(Sampler.class);
+        when(endpoint.getSampler()).thenReturn(sampler);
+        when(sampler.isSampled(exchange)).thenReturn(false);
+        when(in.removeHeaders(HEADER_PATTERN)).thenReturn(true);
+        okProducer.process(exchange);
+        inOrder.verify(exchange, times(1)).getIn();
+        inOrder.verify(endpoint, times(1)).getSampler();
+        inOrder.verify(in, times(1)).removeHeaders(HEADER_PATTERN);
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void testDoProcessWithoutHeaderOverrides() throws Exception {
+        when(endpoint.isHeaderOverrides()).thenReturn(false);
+        AbstractMetricsProducer<AbstractMetricsEndpoint> producer = new AbstractMetricsProducer<AbstractMetricsEndpoint>(endpoint) {
+            @Override
+            protected void doProcess(Exchange exchange, AbstractMetricsEndpoint endpoint, MetricRegistry registry, String metricsName) throws Exception {
+                assertThat(metricsName, is(METRIC_NAME));
+                assertThat(getOverrideHeader(in, HEADER_HISTOGRAM_VALUE), is(nullValue()));
+                assertThat(getOverrideLong(in, HEADER_HISTOGRAM_VALUE, 5L), is(5L));
+            }
+        };
+        producer.process(exchange);
+        inOrder.verify(exchange, times(1)).getIn();
+        inOrder.verify(endpoint, times(1)).getSampler();
+        inOrder.verify(endpoint, times(1)).getMetricsName();
+        inOrder.verify(endpoint, times(1)).getRegistry();
+        inOrder.verifyNoMoreInteractions();
+        Mockito.verifyZeroInteractions(in);
+    }
+
+    @Test
+    public void testGetSampleScale() throws Exception {
+        assertThat(okProducer.getSampleScale(endpoint), is(1L));
+        when(endpoint.getSampler()).thenReturn(new Sampler(0.2));
+        assertThat(okProducer.getSampleScale(endpoint), is(5L));
+    }
+
     @Test
     public void testGetMetricsName() throws Exception {
         when(in.getHeader(HEADER_METRIC_NAME, String.class)).thenReturn("A");
@@ -140,12 +194,76 @@ public class AbstractMetricsProducerTest {
 
     @Test
     public void testGetLongHeader() throws Exception {
-        when(in.getHeader(HEADER_HISTOGRAM_VALUE, 19L, Long.class)).thenReturn(201L);
+        when(in.getHeader(HEADER_HISTOGRAM_VALUE)).thenReturn(201L);
+        assertThat(okProducer.getLongHeader(in, HEADER_HISTOGRAM_VALUE, 19L), is(201L));
+        inOrder.verify(in, times(1)).getHeader(HEADER_HISTOGRAM_VALUE);
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void testGetLongHeaderNotSet() throws Exception {
+        when(in.getHeader(HEADER_HISTOGRAM_VALUE)).thenReturn(null);
+        assertThat(okProducer.getLongHeader(in, HEADER_HISTOGRAM_VALUE, 19L), is(19L));
+        inOrder.verify(in, times(1)).getHeader(HEADER_HISTOGRAM_VALUE);
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void testGetLongHeaderWithInteger() throws Exception {
+        when(in.getHeader(HEADER_HISTOGRAM_VALUE)).thenReturn(201);
         assertThat(okProducer.getLongHeader(in, HEADER_HISTOGRAM_VALUE, 19L), is(201L));
-        inOrder.verify(in, times(1)).getHeader(HEADER_HISTOGRAM_VALUE, 19L, Long.class);
+        inOrder.verify(in, times(1)).getHeader(HEADER_HISTOGRAM_VALUE);
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void testGetLongHeaderWithString() throws Exception {
+        when(in.getHeader(HEADER_HISTOGRAM_VALUE)).thenReturn("201");
+        when(in.getHeader(HEADER_HISTOGRAM_VALUE, Long.class)).thenReturn(201L);
+        assertThat(okProducer.getLongHeader(in, HEADER_HISTOGRAM_VALUE, 19L), is(201L));
+        inOrder.verify(in, times(1)).getHeader(HEADER_HISTOGRAM_VALUE);
+        inOrder.verify(in, times(1)).getHeader(HEADER_HISTOGRAM_VALUE, Long.class);
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void testHasLongHeader() throws Exception {
+        when(in.getHeader(HEADER_HISTOGRAM_VALUE)).thenReturn(201L);
+        assertThat(okProducer.hasLongHeader(in, HEADER_HISTOGRAM_VALUE), is(true));
+        assertThat(okProducer.hasLongHeader(in, HEADER_METRIC_NAME), is(false));
+    }
+
+    @Test
+    public void testGetLongValue() throws Exception {
+        assertThat(okProducer.getLongValue(in, HEADER_HISTOGRAM_VALUE, 201L), is(201L));
+        assertThat(okProducer.getLongValue(in, HEADER_HISTOGRAM_VALUE, 202), is(202L));
+        assertThat(okProducer.getLongValue(in, HEADER_HISTOGRAM_VALUE, (short) 203), is(203L));
+        assertThat(okProducer.getLongValue(in, HEADER_HISTOGRAM_VALUE, (byte) 4), is(4L));
         inOrder.verifyNoMoreInteractions();
     }
 
+    @Test
+    public void testGetLongValueWithOtherNumbers() throws Exception {
+        assertThat(okProducer.getLongValue(in, HEADER_HISTOGRAM_VALUE, 201.9d), is(201L));
+        assertThat(okProducer.getLongValue(in, HEADER_HISTOGRAM_VALUE, -2.5f), is(-2L));
+        assertThat(okProducer.getLongValue(in, HEADER_HISTOGRAM_VALUE, new BigDecimal("7.8")), is(7L));
+        assertThat(okProducer.getLongValue(in, HEADER_HISTOGRAM_VALUE, BigInteger.TEN), is(10L));
+        assertThat(okProducer.getLongValue(in, HEADER_HISTOGRAM_VALUE, new AtomicLong(3L)), is(3L));
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test(expected = RuntimeCamelException.class)
+    public void testGetLongValueNaN() throws Exception {
+        when(in.getHeader(HEADER_HISTOGRAM_VALUE, Long.class)).thenReturn(null);
+        okProducer.getLongValue(in, HEADER_HISTOGRAM_VALUE, Double.NaN);
+    }
+
+    @Test(expected = RuntimeCamelException.class)
+    public void testGetLongValueNotConvertible() throws Exception {
+        when(in.getHeader(HEADER_HISTOGRAM_VALUE, Long.class)).thenReturn(null);
+        okProducer.getLongValue(in, HEADER_HISTOGRAM_VALUE, new Object());
+    }
+
     @Test
     public void testClearMetricsHeaders() throws Exception {
         when(in.removeHeaders(HEADER_PATTERN)).thenReturn(true);
@@ -1,5 +1,6 @@
 package org.apache.camel.metrics;
 
+import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.when;
 
@@ -63,6 +64,8 @@ public class MetricComponentSpringTest {
     public void testMetricsRegistryFromCamelRegistry() throws Exception {
         // TODO - 12.05.2014, Lauri - is there any better way to set this up?
         MetricRegistry mockRegistry = endpoint.getCamelContext().getRegistry().lookupByNameAndType(MetricsComponent.METRIC_REGISTRY_NAME, MetricRegistry.class);
+        // forget metrics registered when routes were started
+        reset(mockRegistry);
         Counter mockCounter = Mockito.mock(Counter.class);
         InOrder inOrder = Mockito.inOrder(mockRegistry, mockCounter);
         when(mockRegistry.counter("A")).thenReturn(mockCounter);
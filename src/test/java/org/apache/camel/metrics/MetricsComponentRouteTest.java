@@ -3,11 +3,16 @@ package org.apache.camel.metrics;
 import static org.apache.camel.metrics.MetricsComponent.HEADER_HISTOGRAM_VALUE;
 import static org.apache.camel.metrics.MetricsComponent.HEADER_METRIC_NAME;
 import static org.apache.camel.metrics.MetricsComponent.HEADER_PERFIX;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
 
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.apache.camel.Endpoint;
 import org.apache.camel.Produce;
 import org.apache.camel.ProducerTemplate;
 import org.apache.camel.builder.RouteBuilder;
@@ -15,6 +20,8 @@ import org.apache.camel.component.mock.MockEndpoint;
 import org.apache.camel.test.junit4.CamelTestSupport;
 import org.junit.Test;
 
+import com.codahale.metrics.MetricRegistry;
+
 public class MetricsComponentRouteTest extends CamelTestSupport {
 
     @Produce(uri = "direct:start-1")
@@ -23,6 +30,9 @@ public class MetricsComponentRouteTest extends CamelTestSupport {
     @Produce(uri = "direct:start-2")
     protected ProducerTemplate template2;
 
+    @Produce(uri = "direct:start-3")
+    protected ProducerTemplate template3;
+
     @Test
     public void testMetrics() throws Exception {
         MockEndpoint mock = getMockEndpoint("mock:result");
@@ -70,6 +80,26 @@ public class MetricsComponentRouteTest extends CamelTestSupport {
         assertMockEndpointsSatisfied();
     }
 
+    @Test
+    public void testEndpointsShared() throws Exception {
+        Endpoint endpoint = context.getEndpoint("metrics:counter:C?increment=5&decrement=1");
+        assertThat(context.getEndpoint("metrics:counter:C?decrement=1&increment=5"), is(sameInstance(endpoint)));
+        assertThat(context.getEndpoint("metrics:counter:C?increment=19291"), is(not(sameInstance(endpoint))));
+    }
+
+    @Test
+    public void testRecipientListToDifferentMetrics() throws Exception {
+        MockEndpoint mock = getMockEndpoint("mock:result");
+        mock.expectedMessageCount(3);
+        template3.sendBodyAndHeader(new Object(), "metrics", "metrics:counter:G?increment=5");
+        template3.sendBodyAndHeader(new Object(), "metrics", "metrics:counter:H?increment=7");
+        template3.sendBodyAndHeader(new Object(), "metrics", "metrics:counter:G?increment=5");
+        assertMockEndpointsSatisfied();
+        MetricRegistry registry = context.getComponent("metrics", MetricsComponent.class).getMetricRegistry();
+        assertThat(registry.counter("G").getCount(), is(10L));
+        assertThat(registry.counter("H").getCount(), is(7L));
+    }
+
     @Override
     protected RouteBuilder createRouteBuilder() throws Exception {
         return new RouteBuilder() {
@@ -93,6 +123,10 @@ public class MetricsComponentRouteTest extends CamelTestSupport {
                 from("direct:start-2")
                         .to("metrics:meter:F?mark=88")
                         .to("mock:result");
+
+                from("direct:start-3")
+                        .recipientList(header("metrics"))
+                        .to("mock:result");
             }
         };
     }
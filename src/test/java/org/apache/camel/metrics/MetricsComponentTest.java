@@ -5,19 +5,32 @@ import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.same;
 import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
 
 import org.apache.camel.CamelContext;
+import org.apache.camel.Component;
 import org.apache.camel.Endpoint;
 import org.apache.camel.RuntimeCamelException;
 import org.apache.camel.metrics.counter.CounterEndpoint;
 import org.apache.camel.metrics.histogram.HistogramEndpoint;
 import org.apache.camel.metrics.meter.MeterEndpoint;
+import org.apache.camel.metrics.multi.MultiEndpoint;
+import org.apache.camel.metrics.reporter.ReportingScheduler;
+import org.apache.camel.metrics.reporter.SnapshotCache;
 import org.apache.camel.metrics.timer.TimerEndpoint;
 import org.apache.camel.spi.Registry;
 import org.junit.Before;
@@ -29,6 +42,7 @@ import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.ScheduledReporter;
 
 @RunWith(MockitoJUnitRunner.class)
 public class MetricsComponentTest {
@@ -68,6 +82,8 @@ public class MetricsComponentTest {
         assertThat(me.getMark(), is(value));
         assertThat(me.getMetricsName(), is("long.meter"));
         assertThat(me.getRegistry(), is(metricRegistry));
+        assertThat(me.getEndpointUri(), is("metrics:meter:long.meter"));
+        assertThat(me.getComponent(), is((Component) component));
         inOrder.verify(camelContext, times(1)).getRegistry();
         inOrder.verify(camelRegistry, times(1)).lookupByNameAndType(MetricsComponent.METRIC_REGISTRY_NAME, MetricRegistry.class);
         inOrder.verify(camelContext, times(1)).getTypeConverter();
@@ -120,33 +136,40 @@ public class MetricsComponentTest {
 
     @Test
     public void testCreateNewEndpointForCounter() throws Exception {
-        Endpoint endpoint = component.createNewEndpoint(metricRegistry, MetricsType.COUNTER, "a name");
+        Endpoint endpoint = component.createNewEndpoint("metrics:counter:a name", metricRegistry, MetricsType.COUNTER, "a name");
         assertThat(endpoint, is(notNullValue()));
         assertThat(endpoint, is(instanceOf(CounterEndpoint.class)));
     }
 
     @Test
     public void testCreateNewEndpointForMeter() throws Exception {
-        Endpoint endpoint = component.createNewEndpoint(metricRegistry, MetricsType.METER, "a name");
+        Endpoint endpoint = component.createNewEndpoint("metrics:meter:a name", metricRegistry, MetricsType.METER, "a name");
         assertThat(endpoint, is(notNullValue()));
         assertThat(endpoint, is(instanceOf(MeterEndpoint.class)));
     }
 
+    @Test
+    public void testCreateNewEndpointForMulti() throws Exception {
+        Endpoint endpoint = component.createNewEndpoint("metrics:multi", metricRegistry, MetricsType.MULTI, "multi");
+        assertThat(endpoint, is(notNullValue()));
+        assertThat(endpoint, is(instanceOf(MultiEndpoint.class)));
+    }
+
     @Test(expected = RuntimeCamelException.class)
     public void testCreateNewEndpointForGauge() throws Exception {
-        component.createNewEndpoint(metricRegistry, MetricsType.GAUGE, "a name");
+        component.createNewEndpoint("metrics:gauge:a name", metricRegistry, MetricsType.GAUGE, "a name");
     }
 
     @Test
     public void testCreateNewEndpointForHistogram() throws Exception {
-        Endpoint endpoint = component.createNewEndpoint(metricRegistry, MetricsType.HISTOGRAM, "a name");
+        Endpoint endpoint = component.createNewEndpoint("metrics:histogram:a name", metricRegistry, MetricsType.HISTOGRAM, "a name");
         assertThat(endpoint, is(notNullValue()));
         assertThat(endpoint, is(instanceOf(HistogramEndpoint.class)));
     }
 
     @Test
     public void testCreateNewEndpointForTimer() throws Exception {
-        Endpoint endpoint = component.createNewEndpoint(metricRegistry, MetricsType.TIMER, "a name");
+        Endpoint endpoint = component.createNewEndpoint("metrics:timer:a name", metricRegistry, MetricsType.TIMER, "a name");
         assertThat(endpoint, is(notNullValue()));
         assertThat(endpoint, is(instanceOf(TimerEndpoint.class)));
     }
@@ -163,6 +186,11 @@ public class MetricsComponentTest {
         assertThat(component.getMetricsType("no-metrics-type"), is(MetricsComponent.DEFAULT_METRICS_TYPE));
     }
 
+    @Test
+    public void testGetMetricsTypeMulti() throws Exception {
+        assertThat(component.getMetricsType("multi"), is(MetricsType.MULTI));
+    }
+
     @Test(expected = RuntimeCamelException.class)
     public void testGetMetricsTypeNotFound() throws Exception {
         component.getMetricsType("unknown-metrics:metrics-name");
@@ -201,4 +229,123 @@ public class MetricsComponentTest {
         MetricRegistry registry = component.createMetricRegistry();
         assertThat(registry, is(notNullValue()));
     }
+
+    @Test
+    public void testCreateMetricRegistryWithReportingScheduler() throws Exception {
+        ReportingScheduler scheduler = Mockito.mock(ReportingScheduler.class);
+        component.setReportingScheduler(scheduler);
+        MetricRegistry registry = component.createMetricRegistry();
+        assertThat(component.getReportingScheduler(), is(scheduler));
+        verify(scheduler, times(1)).schedule(any(ScheduledReporter.class), same(registry), eq(MetricsComponent.DEFAULT_REPORTING_INTERVAL_SECONDS),
+                eq(TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testGetReportingScheduler() throws Exception {
+        assertThat(component.getReportingScheduler(), is(ReportingScheduler.getDefault()));
+    }
+
+    @Test
+    public void testGetSnapshotCache() throws Exception {
+        MetricRegistry registry = new MetricRegistry();
+        ReportingScheduler scheduler = new ReportingScheduler(1);
+        component.setReportingScheduler(scheduler);
+        component.setCamelContext(camelContext);
+        when(camelContext.getRegistry()).thenReturn(camelRegistry);
+        when(camelRegistry.lookupByNameAndType(MetricsComponent.METRIC_REGISTRY_NAME, MetricRegistry.class)).thenReturn(registry);
+        SnapshotCache cache = component.getSnapshotCache();
+        assertThat(cache, is(scheduler.getSnapshotCache(registry)));
+        assertThat(cache.getTickNanos(), is(TimeUnit.MILLISECONDS.toNanos(SnapshotCache.DEFAULT_TICK_MILLIS)));
+        assertThat(component.getSnapshotCache(), is(cache));
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void testGetSnapshotCacheWithTick() throws Exception {
+        MetricRegistry registry = new MetricRegistry();
+        ReportingScheduler scheduler = new ReportingScheduler(1);
+        component.setReportingScheduler(scheduler);
+        component.setCamelContext(camelContext);
+        component.setSnapshotTick(250L);
+        when(camelContext.getRegistry()).thenReturn(camelRegistry);
+        when(camelRegistry.lookupByNameAndType(MetricsComponent.METRIC_REGISTRY_NAME, MetricRegistry.class)).thenReturn(registry);
+        assertThat(component.getSnapshotTick(), is(250L));
+        SnapshotCache cache = component.getSnapshotCache();
+        assertThat(cache.getTickNanos(), is(TimeUnit.MILLISECONDS.toNanos(250L)));
+        assertThat(scheduler.getSnapshotCache(registry), is(cache));
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void testReleaseSnapshotCache() throws Exception {
+        MetricRegistry registry = new MetricRegistry();
+        ReportingScheduler scheduler = new ReportingScheduler(1);
+        component.setReportingScheduler(scheduler);
+        component.setCamelContext(camelContext);
+        when(camelContext.getRegistry()).thenReturn(camelRegistry);
+        when(camelRegistry.lookupByNameAndType(MetricsComponent.METRIC_REGISTRY_NAME, MetricRegistry.class)).thenReturn(registry);
+        SnapshotCache cache = component.getSnapshotCache();
+        component.releaseSnapshotCache();
+        assertThat(scheduler.releaseSnapshotCache(registry), is(false));
+        assertThat(component.getSnapshotCache(), is(not(cache)));
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void testSetRuntimeMetrics() throws Exception {
+        component.setCamelContext(camelContext);
+        when(camelContext.getName()).thenReturn("camel-1");
+        assertThat(component.isRuntimeMetrics(), is(false));
+        assertThat(component.getRuntimeMetricsPrefix(), is("camel.camel-1"));
+        component.setRuntimeMetrics(true);
+        component.setRuntimeMetricsPrefix("runtime");
+        assertThat(component.isRuntimeMetrics(), is(true));
+        assertThat(component.getRuntimeMetricsPrefix(), is("runtime"));
+    }
+
+    @Test
+    public void testSetRedeliveryMetrics() throws Exception {
+        assertThat(component.isRedeliveryMetrics(), is(false));
+        component.setRedeliveryMetrics(true);
+        assertThat(component.isRedeliveryMetrics(), is(true));
+    }
+
+    @Test
+    public void testGetMetricRegistry() throws Exception {
+        component.setCamelContext(camelContext);
+        when(camelContext.getRegistry()).thenReturn(camelRegistry);
+        when(camelRegistry.lookupByNameAndType(MetricsComponent.METRIC_REGISTRY_NAME, MetricRegistry.class)).thenReturn(metricRegistry);
+        assertThat(component.getMetricRegistry(), is(metricRegistry));
+        assertThat(component.getMetricRegistry(), is(metricRegistry));
+        inOrder.verify(camelContext, times(1)).getRegistry();
+        inOrder.verify(camelRegistry, times(1)).lookupByNameAndType(MetricsComponent.METRIC_REGISTRY_NAME, MetricRegistry.class);
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void testSetJmxSummary() throws Exception {
+        assertThat(component.isJmxSummary(), is(false));
+        assertThat(component.getJmxSummaryPrefixes(), is(new String[] { "" }));
+        component.setJmxSummary(true);
+        component.setJmxSummaryPrefixes("orders., payments.");
+        assertThat(component.isJmxSummary(), is(true));
+        assertThat(component.getJmxSummaryPrefixes(), is(new String[] { "orders.", "payments." }));
+    }
+
+    @Test
+    public void testRegisterSummaries() throws Exception {
+        component.setCamelContext(camelContext);
+        component.setJmxSummaryPrefixes("orders.,payments.");
+        when(camelContext.getName()).thenReturn("camel-1");
+        when(camelContext.getRegistry()).thenReturn(camelRegistry);
+        when(camelRegistry.lookupByNameAndType(MetricsComponent.METRIC_REGISTRY_NAME, MetricRegistry.class)).thenReturn(new MetricRegistry());
+        MBeanServer server = MBeanServerFactory.newMBeanServer();
+        component.registerSummaries(server);
+        ObjectName name = new ObjectName("org.apache.camel.metrics:type=summary,context=\"camel-1\",prefix=\"orders.\"");
+        assertThat(server.isRegistered(name), is(true));
+        assertThat((String) server.getAttribute(name, "Prefix"), is("orders."));
+        assertThat(server.queryNames(new ObjectName(MetricsComponent.JMX_DOMAIN + ":*"), null).size(), is(2));
+        component.unregisterSummaries(server);
+        assertThat(server.queryNames(new ObjectName(MetricsComponent.JMX_DOMAIN + ":*"), null).size(), is(0));
+    }
 }
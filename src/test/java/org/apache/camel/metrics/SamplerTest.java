@@ -0,0 +1,73 @@
+package org.apache.camel.metrics;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.mockito.Mockito.when;
+
+import org.apache.camel.Exchange;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SamplerTest {
+
+    @Mock
+    private Exchange exchange;
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroRate() throws Exception {
+        new Sampler(0.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRateAboveOne() throws Exception {
+        new Sampler(1.5);
+    }
+
+    @Test
+    public void testInterval() throws Exception {
+        assertThat(new Sampler(1.0).getInterval(), is(1));
+        assertThat(new Sampler(0.1).getInterval(), is(10));
+        assertThat(new Sampler(0.25).getInterval(), is(4));
+        assertThat(new Sampler(0.333).getInterval(), is(3));
+        assertThat(new Sampler(0.333).getSampleRate(), is(1.0 / 3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRateNotInverseOfWholeNumber() throws Exception {
+        new Sampler(0.7);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRateRoundedTooFar() throws Exception {
+        new Sampler(0.3);
+    }
+
+    @Test
+    public void testSameDecisionForSameExchange() throws Exception {
+        Sampler sampler = new Sampler(0.5);
+        when(exchange.getExchangeId()).thenReturn("ID-host-1234-1-1");
+        boolean first = sampler.isSampled(exchange);
+        for (int i = 0; i < 10; i++) {
+            assertThat(sampler.isSampled(exchange), is(first));
+        }
+    }
+
+    @Test
+    public void testSequentialExchangeIds() throws Exception {
+        Sampler sampler = new Sampler(0.1);
+        int sampled = 0;
+        for (int i = 0; i < 10000; i++) {
+            when(exchange.getExchangeId()).thenReturn("ID-host-1234-1-" + i);
+            if (sampler.isSampled(exchange)) {
+                sampled++;
+            }
+        }
+        assertThat(sampled, is(greaterThan(800)));
+        assertThat(sampled, is(lessThan(1200)));
+    }
+}
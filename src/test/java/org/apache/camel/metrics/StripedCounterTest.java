@@ -0,0 +1,50 @@
+package org.apache.camel.metrics;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+public class StripedCounterTest {
+
+    @Test
+    public void testStripes() throws Exception {
+        assertThat(new StripedCounter(1).getStripes(), is(1));
+        assertThat(new StripedCounter(3).getStripes(), is(4));
+        assertThat(new StripedCounter(8).getStripes(), is(8));
+    }
+
+    @Test
+    public void testAddAndSum() throws Exception {
+        StripedCounter counter = new StripedCounter(4);
+        counter.increment();
+        counter.add(10L);
+        counter.add(-3L);
+        assertThat(counter.sum(), is(8L));
+        assertThat(counter.sumThenReset(), is(8L));
+        assertThat(counter.sum(), is(0L));
+    }
+
+    @Test
+    public void testConcurrentAdd() throws Exception {
+        final StripedCounter counter = new StripedCounter(4);
+        final int threads = 8;
+        final int updates = 10000;
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < updates; j++) {
+                        counter.increment();
+                    }
+                    done.countDown();
+                }
+            }.start();
+        }
+        done.await();
+        assertThat(counter.sum(), is((long) threads * updates));
+    }
+}
@@ -0,0 +1,56 @@
+package org.apache.camel.metrics;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+public class StripedSumTest {
+
+    @Test
+    public void testStripes() throws Exception {
+        assertThat(new StripedSum(1).getStripes(), is(1));
+        assertThat(new StripedSum(3).getStripes(), is(4));
+    }
+
+    @Test
+    public void testAddAndSum() throws Exception {
+        StripedSum sum = new StripedSum(4);
+        assertThat(sum.sum(), is(0.0));
+        sum.add(10L);
+        sum.add(-3L);
+        sum.add(0.5);
+        assertThat(sum.sum(), is(7.5));
+    }
+
+    @Test
+    public void testDoesNotOverflow() throws Exception {
+        StripedSum sum = new StripedSum(1);
+        sum.add(Long.MAX_VALUE);
+        sum.add(Long.MAX_VALUE);
+        assertThat(sum.sum(), is(2.0 * Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testConcurrentAdd() throws Exception {
+        final StripedSum sum = new StripedSum(4);
+        final int threads = 8;
+        final int updates = 10000;
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < updates; j++) {
+                        sum.add(1L);
+                    }
+                    done.countDown();
+                }
+            }.start();
+        }
+        done.await();
+        assertThat(sum.sum(), is((double) threads * updates));
+    }
+}
@@ -0,0 +1,100 @@
+package org.apache.camel.metrics;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.slf4j.Logger;
+
+import com.codahale.metrics.Clock;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ThrottledLogTest {
+
+    @Mock
+    private Logger log;
+
+    private ManualClock clock;
+
+    private ThrottledLog throttledLog;
+
+    private InOrder inOrder;
+
+    @Before
+    public void setUp() throws Exception {
+        clock = new ManualClock();
+        clock.time = 1000L;
+        throttledLog = new ThrottledLog(10L, TimeUnit.SECONDS, clock);
+        inOrder = Mockito.inOrder(log);
+        when(log.isWarnEnabled()).thenReturn(true);
+    }
+
+    @Test
+    public void testWarnThrottled() throws Exception {
+        throttledLog.warn(log, "a", "Failed {}", "x");
+        throttledLog.warn(log, "a", "Failed {}", "x");
+        throttledLog.warn(log, "a", "Failed {}", "x");
+        assertThat(throttledLog.getSuppressedCount("a"), is(2L));
+        clock.time += 10000L;
+        throttledLog.warn(log, "a", "Failed {}", "y");
+        assertThat(throttledLog.getSuppressedCount("a"), is(0L));
+        inOrder.verify(log, times(1)).isWarnEnabled();
+        inOrder.verify(log, times(1)).warn("Failed {}", new Object[] { "x" });
+        inOrder.verify(log, times(1)).isWarnEnabled();
+        inOrder.verify(log, times(1)).warn("Failed {} ({} similar warnings suppressed)", new Object[] { "y", 2L });
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void testWarnPerReason() throws Exception {
+        throttledLog.warn(log, "a", "Failed a");
+        throttledLog.warn(log, "b", "Failed b");
+        inOrder.verify(log, times(1)).isWarnEnabled();
+        inOrder.verify(log, times(1)).warn("Failed a", new Object[0]);
+        inOrder.verify(log, times(1)).isWarnEnabled();
+        inOrder.verify(log, times(1)).warn("Failed b", new Object[0]);
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void testWarnNotThrottled() throws Exception {
+        throttledLog = new ThrottledLog(0L, TimeUnit.SECONDS, clock);
+        assertThat(throttledLog.acquire("a"), is(0L));
+        assertThat(throttledLog.acquire("a"), is(0L));
+    }
+
+    @Test
+    public void testAcquire() throws Exception {
+        assertThat(throttledLog.acquire("a"), is(0L));
+        assertThat(throttledLog.acquire("a"), is(-1L));
+        clock.time += 9999L;
+        assertThat(throttledLog.acquire("a"), is(-1L));
+        clock.time += 1L;
+        assertThat(throttledLog.acquire("a"), is(2L));
+    }
+
+    private static class ManualClock extends Clock {
+
+        private long time;
+
+        @Override
+        public long getTick() {
+            return time * 1000000L;
+        }
+
+        @Override
+        public long getTime() {
+            return time;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package org.apache.camel.metrics.aggregate;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.camel.metrics.sketch.SketchHistogram;
+import org.apache.camel.metrics.sketch.SketchSnapshot;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+
+public class AggregatingMetricRegistryTest {
+
+    private static final String METRICS_NAME = "metrics.name";
+
+    private MetricRegistry registryA;
+
+    private MetricRegistry registryB;
+
+    private AggregatingMetricRegistry aggregate;
+
+    @Before
+    public void setUp() throws Exception {
+        registryA = new MetricRegistry();
+        registryB = new MetricRegistry();
+        aggregate = new AggregatingMetricRegistry(registryA, registryB);
+    }
+
+    @Test
+    public void testAddRegistry() throws Exception {
+        aggregate.addRegistry(registryA);
+        assertThat(aggregate.getRegistries().size(), is(2));
+        assertThat(aggregate.removeRegistry(registryB), is(true));
+        assertThat(aggregate.getRegistries().size(), is(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddItself() throws Exception {
+        aggregate.addRegistry(aggregate);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testRegister() throws Exception {
+        aggregate.counter(METRICS_NAME);
+    }
+
+    @Test
+    public void testGetNames() throws Exception {
+        registryA.counter("a");
+        registryB.counter("b");
+        registryB.counter("a");
+        assertThat(aggregate.getNames().size(), is(2));
+    }
+
+    @Test
+    public void testCounters() throws Exception {
+        registryA.counter(METRICS_NAME).inc(3L);
+        registryB.counter(METRICS_NAME).inc(4L);
+        Counter single = registryB.counter("single");
+        Counter counter = aggregate.getCounters().get(METRICS_NAME);
+        assertThat(counter, is(instanceOf(AggregateCounter.class)));
+        assertThat(counter.getCount(), is(7L));
+        registryA.counter(METRICS_NAME).inc();
+        assertThat(counter.getCount(), is(8L));
+        assertThat(aggregate.getCounters().get("single"), is(sameInstance(single)));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testAggregateCounterReadOnly() throws Exception {
+        registryA.counter(METRICS_NAME);
+        registryB.counter(METRICS_NAME);
+        aggregate.getCounters().get(METRICS_NAME).inc();
+    }
+
+    @Test
+    public void testMeters() throws Exception {
+        registryA.meter(METRICS_NAME).mark(5L);
+        registryB.meter(METRICS_NAME).mark(6L);
+        assertThat(aggregate.getMeters().get(METRICS_NAME).getCount(), is(11L));
+    }
+
+    @Test
+    public void testHistograms() throws Exception {
+        registryA.histogram(METRICS_NAME).update(1L);
+        registryB.histogram(METRICS_NAME).update(2L);
+        registryB.histogram(METRICS_NAME).update(3L);
+        Histogram histogram = aggregate.getHistograms().get(METRICS_NAME);
+        assertThat(histogram.getCount(), is(3L));
+        Snapshot snapshot = histogram.getSnapshot();
+        assertThat(snapshot.size(), is(3));
+        assertThat(snapshot.getMin(), is(1L));
+        assertThat(snapshot.getMax(), is(3L));
+    }
+
+    @Test
+    public void testSketchHistograms() throws Exception {
+        SketchHistogram a = registryA.register(METRICS_NAME, new SketchHistogram(0.01));
+        SketchHistogram b = registryB.register(METRICS_NAME, new SketchHistogram(0.01));
+        for (long i = 1; i <= 500; i++) {
+            a.update(i);
+            b.update(i + 500);
+        }
+        Snapshot snapshot = aggregate.getHistograms().get(METRICS_NAME).getSnapshot();
+        assertThat(snapshot, is(instanceOf(SketchSnapshot.class)));
+        assertThat(snapshot.size(), is(1000));
+        assertThat(snapshot.getMedian(), is(closeTo(500.0, 5.0)));
+        assertThat(snapshot.getMax(), is(1000L));
+    }
+
+    @Test
+    public void testTimers() throws Exception {
+        registryA.timer(METRICS_NAME).update(1L, TimeUnit.SECONDS);
+        registryB.timer(METRICS_NAME).update(2L, TimeUnit.SECONDS);
+        Timer timer = aggregate.getTimers().get(METRICS_NAME);
+        assertThat(timer, is(instanceOf(AggregateTimer.class)));
+        assertThat(timer.getCount(), is(2L));
+        assertThat(timer.getSnapshot().getMax(), is(TimeUnit.SECONDS.toNanos(2L)));
+    }
+
+    @Test
+    public void testGauges() throws Exception {
+        registryA.register(METRICS_NAME, new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return 1;
+            }
+        });
+        registryB.register(METRICS_NAME, new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return 2;
+            }
+        });
+        assertThat(aggregate.getGauges().get(METRICS_NAME).getValue(), is((Object) 1));
+    }
+
+    @Test
+    public void testGetMetrics() throws Exception {
+        registryA.counter("a");
+        registryB.meter("b");
+        registryB.timer("c");
+        assertThat(aggregate.getMetrics().size(), is(3));
+    }
+}
@@ -0,0 +1,81 @@
+package org.apache.camel.metrics.aggregate;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+
+import java.util.Arrays;
+
+import org.apache.camel.metrics.sketch.QuantileSketch;
+import org.apache.camel.metrics.sketch.SketchHistogram;
+import org.junit.Test;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Sampling;
+import com.codahale.metrics.SlidingWindowReservoir;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.UniformReservoir;
+
+public class MergedReservoirTest {
+
+    @Test
+    public void testMixedSourcesWeightedByCount() throws Exception {
+        SketchHistogram sketch = new SketchHistogram(0.01);
+        for (int i = 0; i < 9000; i++) {
+            sketch.update(1000L);
+        }
+        // samples 100 of 1000 values
+        Histogram sampled = new Histogram(new SlidingWindowReservoir(100));
+        for (int i = 0; i < 1000; i++) {
+            sampled.update(10L);
+        }
+        Snapshot snapshot = new MergedReservoir(Arrays.<Sampling> asList(sketch, sampled)).getSnapshot();
+        assertThat(snapshot.size(), is(10000));
+        assertThat(snapshot.getMin(), is(10L));
+        assertThat(snapshot.getMax(), is(1000L));
+        assertThat(snapshot.getMedian(), is(closeTo(1000.0, 10.0)));
+        assertThat(snapshot.getValue(0.05), is(closeTo(10.0, 0.1)));
+        assertThat(snapshot.getValue(0.15), is(closeTo(1000.0, 10.0)));
+    }
+
+    @Test
+    public void testSampledSourcesWeightedByCount() throws Exception {
+        Histogram small = new Histogram(new UniformReservoir(10));
+        for (int i = 0; i < 10; i++) {
+            small.update(5L);
+        }
+        Histogram large = new Histogram(new UniformReservoir(10));
+        for (int i = 0; i < 990; i++) {
+            large.update(500L);
+        }
+        Snapshot snapshot = new MergedReservoir(Arrays.<Sampling> asList(small, large)).getSnapshot();
+        assertThat(snapshot.size(), is(1000));
+        assertThat(snapshot.getValue(0.005), is(closeTo(5.0, 0.1)));
+        assertThat(snapshot.getValue(0.02), is(closeTo(500.0, 5.0)));
+        assertThat(snapshot.getMedian(), is(closeTo(500.0, 5.0)));
+    }
+
+    @Test
+    public void testSketchesWithDifferentAccuracy() throws Exception {
+        SketchHistogram coarse = new SketchHistogram(0.05);
+        SketchHistogram fine = new SketchHistogram(0.01);
+        for (long i = 1; i <= 300; i++) {
+            coarse.update(i);
+        }
+        for (long i = 301; i <= 1000; i++) {
+            fine.update(i);
+        }
+        Snapshot snapshot = new MergedReservoir(Arrays.<Sampling> asList(coarse, fine)).getSnapshot();
+        assertThat(snapshot.size(), is(1000));
+        assertThat(snapshot.getValue(0.2), is(closeTo(200.0, 10.0)));
+        assertThat(snapshot.getMedian(), is(closeTo(500.0, 5.0)));
+    }
+
+    @Test
+    public void testAddSampleWeightsSumToCount() throws Exception {
+        QuantileSketch sketch = new QuantileSketch();
+        MergedReservoir.addSample(sketch, new long[] { 1L, 2L, 3L }, 10L);
+        assertThat(sketch.getCount(), is(10L));
+        assertThat(sketch.getBinCounts(), is(new long[] { 3L, 3L, 4L }));
+    }
+}
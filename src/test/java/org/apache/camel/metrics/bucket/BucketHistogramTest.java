@@ -0,0 +1,25 @@
+package org.apache.camel.metrics.bucket;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+public class BucketHistogramTest {
+
+    @Test
+    public void testBucketHistogram() throws Exception {
+        MetricRegistry registry = new MetricRegistry();
+        BucketHistogram histogram = registry.register("latency", new BucketHistogram(new long[] { 5L, 10L, 50L }));
+        histogram.update(3L);
+        histogram.update(30L);
+        histogram.update(300L);
+        assertThat(histogram.getCount(), is(3L));
+        assertThat(histogram.getBounds(), is(new long[] { 5L, 10L, 50L }));
+        assertThat(histogram.getSnapshot().getCumulativeCounts(), is(new long[] { 1L, 1L, 2L, 3L }));
+        assertThat(histogram.getSnapshot().getSum(), is(333L));
+        assertThat(registry.getHistograms().get("latency").getSnapshot().get75thPercentile(), is(50.0));
+    }
+}
@@ -0,0 +1,98 @@
+package org.apache.camel.metrics.bucket;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class BucketReservoirTest {
+
+    private static final long[] BOUNDS = new long[] { 5L, 10L, 50L, 100L, 500L };
+
+    private BucketReservoir reservoir;
+
+    @Before
+    public void setUp() throws Exception {
+        reservoir = new BucketReservoir(BOUNDS, 4);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoBounds() throws Exception {
+        new BucketReservoir(new long[0]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBoundsNotAscending() throws Exception {
+        new BucketReservoir(new long[] { 5L, 5L, 10L });
+    }
+
+    @Test
+    public void testIndexOf() throws Exception {
+        assertThat(reservoir.indexOf(-1L), is(0));
+        assertThat(reservoir.indexOf(5L), is(0));
+        assertThat(reservoir.indexOf(6L), is(1));
+        assertThat(reservoir.indexOf(10L), is(1));
+        assertThat(reservoir.indexOf(99L), is(3));
+        assertThat(reservoir.indexOf(500L), is(4));
+        assertThat(reservoir.indexOf(501L), is(5));
+        assertThat(reservoir.indexOf(Long.MAX_VALUE), is(5));
+    }
+
+    @Test
+    public void testSnapshot() throws Exception {
+        reservoir.update(1L);
+        reservoir.update(5L);
+        reservoir.update(7L);
+        reservoir.update(70L);
+        reservoir.update(1000L);
+        BucketSnapshot snapshot = reservoir.getSnapshot();
+        assertThat(reservoir.size(), is(5));
+        assertThat(snapshot.size(), is(5));
+        assertThat(snapshot.getCount(), is(5L));
+        assertThat(snapshot.getSum(), is(1083L));
+        assertThat(snapshot.getMean(), is(1083.0 / 5));
+        assertThat(snapshot.getCounts(), is(new long[] { 2L, 1L, 0L, 1L, 0L, 1L }));
+        assertThat(snapshot.getCumulativeCounts(), is(new long[] { 2L, 3L, 3L, 4L, 4L, 5L }));
+        assertThat(snapshot.getMin(), is(5L));
+        assertThat(snapshot.getMax(), is(500L));
+        assertThat(snapshot.getMedian(), is(10.0));
+        assertThat(snapshot.getValue(0.8), is(100.0));
+        assertThat(snapshot.getValues(), is(new long[] { 5L, 10L, 100L, 500L }));
+    }
+
+    @Test
+    public void testEmptySnapshot() throws Exception {
+        BucketSnapshot snapshot = reservoir.getSnapshot();
+        assertThat(snapshot.getCount(), is(0L));
+        assertThat(snapshot.getMean(), is(0.0));
+        assertThat(snapshot.getMax(), is(0L));
+        assertThat(snapshot.getValue(0.99), is(0.0));
+        assertThat(snapshot.getValues().length, is(0));
+    }
+
+    @Test
+    public void testConcurrentUpdates() throws Exception {
+        final int threads = 8;
+        final int updates = 10000;
+        final CountDownLatch latch = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < updates; i++) {
+                        reservoir.update(i % 1000);
+                    }
+                    latch.countDown();
+                }
+            }.start();
+        }
+        latch.await();
+        BucketSnapshot snapshot = reservoir.getSnapshot();
+        assertThat(snapshot.getCount(), is((long) threads * updates));
+        // values 0..500 of every 1000 are within the last bound
+        assertThat(snapshot.getCumulativeCounts()[4], is((long) threads * updates / 1000 * 501));
+    }
+}
@@ -5,6 +5,8 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.when;
 
 import org.apache.camel.Producer;
 import org.junit.After;
@@ -16,17 +18,22 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import com.codahale.metrics.Counter;
 import com.codahale.metrics.MetricRegistry;
 
 @RunWith(MockitoJUnitRunner.class)
 public class CounterEndpointTest {
 
     private static final String METRICS_NAME = "metrics.name";
+    private static final String OTHER_NAME = "other.name";
     private static final Long VALUE = System.currentTimeMillis();
 
     @Mock
     private MetricRegistry registry;
 
+    @Mock
+    private Counter counter;
+
     private CounterEndpoint endpoint;
 
     private InOrder inOrder;
@@ -57,6 +64,17 @@ public class CounterEndpointTest {
         assertThat(producer, is(instanceOf(CounterProducer.class)));
     }
 
+    @Test
+    public void testCreateStaticProducer() throws Exception {
+        when(registry.counter(METRICS_NAME)).thenReturn(counter);
+        endpoint.setHeaderOverrides(false);
+        Producer producer = endpoint.createProducer();
+        assertThat(producer, is(instanceOf(StaticCounterProducer.class)));
+        inOrder.verify(registry, times(1)).counter(METRICS_NAME);
+        endpoint.setValueExpression("${header.foo}");
+        assertThat(endpoint.createProducer(), is(instanceOf(CounterProducer.class)));
+    }
+
     @Test
     public void testGetIncrement() throws Exception {
         assertThat(endpoint.getIncrement(), is(nullValue()));
@@ -81,6 +99,27 @@ public class CounterEndpointTest {
         assertThat(endpoint.getDecrement(), is(VALUE));
     }
 
+    @Test
+    public void testGetCounter() throws Exception {
+        when(registry.counter(METRICS_NAME)).thenReturn(counter);
+        assertThat(endpoint.getCounter(METRICS_NAME), is(counter));
+        inOrder.verify(registry, times(1)).counter(METRICS_NAME);
+    }
+
+    @Test
+    public void testGetCounterStarted() throws Exception {
+        when(registry.counter(METRICS_NAME)).thenReturn(counter);
+        endpoint.start();
+        assertThat(endpoint.getCounter(METRICS_NAME), is(counter));
+        assertThat(endpoint.getCounter(METRICS_NAME), is(counter));
+        endpoint.getCounter(OTHER_NAME);
+        endpoint.stop();
+        endpoint.getCounter(METRICS_NAME);
+        inOrder.verify(registry, times(1)).counter(METRICS_NAME);
+        inOrder.verify(registry, times(1)).counter(OTHER_NAME);
+        inOrder.verify(registry, times(1)).counter(METRICS_NAME);
+    }
+
     @Test
     public void testCreateEndpointUri() throws Exception {
         assertThat(endpoint.createEndpointUri(), is(CounterEndpoint.ENDPOINT_URI));
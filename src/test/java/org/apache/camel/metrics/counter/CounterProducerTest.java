@@ -9,6 +9,7 @@ import static org.mockito.Mockito.when;
 
 import org.apache.camel.Exchange;
 import org.apache.camel.Message;
+import org.apache.camel.metrics.Sampler;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -48,10 +49,11 @@ public class CounterProducerTest {
 
     @Before
     public void setUp() throws Exception {
+        when(endpoint.isHeaderOverrides()).thenReturn(true);
         producer = new CounterProducer(endpoint);
         inOrder = Mockito.inOrder(endpoint, exchange, registry, counter, in);
         when(endpoint.getRegistry()).thenReturn(registry);
-        when(registry.counter(METRICS_NAME)).thenReturn(counter);
+        when(endpoint.getCounter(METRICS_NAME)).thenReturn(counter);
         when(exchange.getIn()).thenReturn(in);
     }
 
@@ -64,15 +66,17 @@ public class CounterProducerTest {
     public void testProcessWithIncrementOnly() throws Exception {
         when(endpoint.getIncrement()).thenReturn(INCREMENT);
         when(endpoint.getDecrement()).thenReturn(null);
-        when(in.getHeader(HEADER_COUNTER_INCREMENT, INCREMENT, Long.class)).thenReturn(INCREMENT);
-        when(in.getHeader(HEADER_COUNTER_DECREMENT, null, Long.class)).thenReturn(null);
+        when(in.getHeader(HEADER_COUNTER_INCREMENT)).thenReturn(null);
+        when(in.getHeader(HEADER_COUNTER_DECREMENT)).thenReturn(null);
         producer.doProcess(exchange, endpoint, registry, METRICS_NAME);
         inOrder.verify(exchange, times(1)).getIn();
-        inOrder.verify(registry, times(1)).counter(METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).getCounter(METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).getSampler();
         inOrder.verify(endpoint, times(1)).getIncrement();
         inOrder.verify(endpoint, times(1)).getDecrement();
-        inOrder.verify(in, times(1)).getHeader(HEADER_COUNTER_INCREMENT, INCREMENT, Long.class);
-        inOrder.verify(in, times(1)).getHeader(HEADER_COUNTER_DECREMENT, null, Long.class);
+        inOrder.verify(in, times(1)).getHeader(HEADER_COUNTER_INCREMENT);
+        inOrder.verify(in, times(1)).getHeader(HEADER_COUNTER_DECREMENT);
+        inOrder.verify(endpoint, times(1)).evaluateValue(exchange);
         inOrder.verify(counter, times(1)).inc(INCREMENT);
         inOrder.verifyNoMoreInteractions();
     }
@@ -81,15 +85,17 @@ public class CounterProducerTest {
     public void testProcessWithDecrementOnly() throws Exception {
         when(endpoint.getIncrement()).thenReturn(null);
         when(endpoint.getDecrement()).thenReturn(DECREMENT);
-        when(in.getHeader(HEADER_COUNTER_INCREMENT, null, Long.class)).thenReturn(null);
-        when(in.getHeader(HEADER_COUNTER_DECREMENT, DECREMENT, Long.class)).thenReturn(DECREMENT);
+        when(in.getHeader(HEADER_COUNTER_INCREMENT)).thenReturn(null);
+        when(in.getHeader(HEADER_COUNTER_DECREMENT)).thenReturn(null);
         producer.doProcess(exchange, endpoint, registry, METRICS_NAME);
         inOrder.verify(exchange, times(1)).getIn();
-        inOrder.verify(registry, times(1)).counter(METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).getCounter(METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).getSampler();
         inOrder.verify(endpoint, times(1)).getIncrement();
         inOrder.verify(endpoint, times(1)).getDecrement();
-        inOrder.verify(in, times(1)).getHeader(HEADER_COUNTER_INCREMENT, null, Long.class);
-        inOrder.verify(in, times(1)).getHeader(HEADER_COUNTER_DECREMENT, DECREMENT, Long.class);
+        inOrder.verify(in, times(1)).getHeader(HEADER_COUNTER_INCREMENT);
+        inOrder.verify(in, times(1)).getHeader(HEADER_COUNTER_DECREMENT);
+        inOrder.verify(endpoint, times(1)).evaluateValue(exchange);
         inOrder.verify(counter, times(1)).dec(DECREMENT);
         inOrder.verifyNoMoreInteractions();
     }
@@ -98,15 +104,17 @@ public class CounterProducerTest {
     public void testDoProcessWithIncrementAndDecrement() throws Exception {
         when(endpoint.getIncrement()).thenReturn(INCREMENT);
         when(endpoint.getDecrement()).thenReturn(DECREMENT);
-        when(in.getHeader(HEADER_COUNTER_INCREMENT, INCREMENT, Long.class)).thenReturn(INCREMENT);
-        when(in.getHeader(HEADER_COUNTER_DECREMENT, DECREMENT, Long.class)).thenReturn(DECREMENT);
+        when(in.getHeader(HEADER_COUNTER_INCREMENT)).thenReturn(null);
+        when(in.getHeader(HEADER_COUNTER_DECREMENT)).thenReturn(null);
         producer.doProcess(exchange, endpoint, registry, METRICS_NAME);
         inOrder.verify(exchange, times(1)).getIn();
-        inOrder.verify(registry, times(1)).counter(METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).getCounter(METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).getSampler();
         inOrder.verify(endpoint, times(1)).getIncrement();
         inOrder.verify(endpoint, times(1)).getDecrement();
-        inOrder.verify(in, times(1)).getHeader(HEADER_COUNTER_INCREMENT, INCREMENT, Long.class);
-        inOrder.verify(in, times(1)).getHeader(HEADER_COUNTER_DECREMENT, DECREMENT, Long.class);
+        inOrder.verify(in, times(1)).getHeader(HEADER_COUNTER_INCREMENT);
+        inOrder.verify(in, times(1)).getHeader(HEADER_COUNTER_DECREMENT);
+        inOrder.verify(endpoint, times(1)).evaluateValue(exchange);
         inOrder.verify(counter, times(1)).inc(INCREMENT);
         inOrder.verifyNoMoreInteractions();
     }
@@ -115,15 +123,17 @@ public class CounterProducerTest {
     public void testProcessWithOutIncrementAndDecrement() throws Exception {
         when(endpoint.getIncrement()).thenReturn(null);
         when(endpoint.getDecrement()).thenReturn(null);
-        when(in.getHeader(HEADER_COUNTER_INCREMENT, null, Long.class)).thenReturn(null);
-        when(in.getHeader(HEADER_COUNTER_DECREMENT, null, Long.class)).thenReturn(null);
+        when(in.getHeader(HEADER_COUNTER_INCREMENT)).thenReturn(null);
+        when(in.getHeader(HEADER_COUNTER_DECREMENT)).thenReturn(null);
         producer.doProcess(exchange, endpoint, registry, METRICS_NAME);
         inOrder.verify(exchange, times(1)).getIn();
-        inOrder.verify(registry, times(1)).counter(METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).getCounter(METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).getSampler();
         inOrder.verify(endpoint, times(1)).getIncrement();
         inOrder.verify(endpoint, times(1)).getDecrement();
-        inOrder.verify(in, times(1)).getHeader(HEADER_COUNTER_INCREMENT, null, Long.class);
-        inOrder.verify(in, times(1)).getHeader(HEADER_COUNTER_DECREMENT, null, Long.class);
+        inOrder.verify(in, times(1)).getHeader(HEADER_COUNTER_INCREMENT);
+        inOrder.verify(in, times(1)).getHeader(HEADER_COUNTER_DECREMENT);
+        inOrder.verify(endpoint, times(1)).evaluateValue(exchange);
         inOrder.verify(counter, times(1)).inc();
         inOrder.verifyNoMoreInteractions();
     }
@@ -132,15 +142,16 @@ public class CounterProducerTest {
     public void testProcessWithHeaderValuesOnly() throws Exception {
         when(endpoint.getIncrement()).thenReturn(null);
         when(endpoint.getDecrement()).thenReturn(null);
-        when(in.getHeader(HEADER_COUNTER_INCREMENT, null, Long.class)).thenReturn(INCREMENT + 1);
-        when(in.getHeader(HEADER_COUNTER_DECREMENT, null, Long.class)).thenReturn(DECREMENT - 1);
+        when(in.getHeader(HEADER_COUNTER_INCREMENT)).thenReturn(INCREMENT + 1);
+        when(in.getHeader(HEADER_COUNTER_DECREMENT)).thenReturn(DECREMENT - 1);
         producer.doProcess(exchange, endpoint, registry, METRICS_NAME);
         inOrder.verify(exchange, times(1)).getIn();
-        inOrder.verify(registry, times(1)).counter(METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).getCounter(METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).getSampler();
         inOrder.verify(endpoint, times(1)).getIncrement();
         inOrder.verify(endpoint, times(1)).getDecrement();
-        inOrder.verify(in, times(1)).getHeader(HEADER_COUNTER_INCREMENT, null, Long.class);
-        inOrder.verify(in, times(1)).getHeader(HEADER_COUNTER_DECREMENT, null, Long.class);
+        inOrder.verify(in, times(1)).getHeader(HEADER_COUNTER_INCREMENT);
+        inOrder.verify(in, times(1)).getHeader(HEADER_COUNTER_DECREMENT);
         inOrder.verify(counter, times(1)).inc(INCREMENT + 1);
         inOrder.verifyNoMoreInteractions();
     }
@@ -149,15 +160,16 @@ public class CounterProducerTest {
     public void testProcessOverridingIncrement() throws Exception {
         when(endpoint.getIncrement()).thenReturn(INCREMENT);
         when(endpoint.getDecrement()).thenReturn(DECREMENT);
-        when(in.getHeader(HEADER_COUNTER_INCREMENT, INCREMENT, Long.class)).thenReturn(INCREMENT + 1);
-        when(in.getHeader(HEADER_COUNTER_DECREMENT, DECREMENT, Long.class)).thenReturn(DECREMENT);
+        when(in.getHeader(HEADER_COUNTER_INCREMENT)).thenReturn(INCREMENT + 1);
+        when(in.getHeader(HEADER_COUNTER_DECREMENT)).thenReturn(null);
         producer.doProcess(exchange, endpoint, registry, METRICS_NAME);
         inOrder.verify(exchange, times(1)).getIn();
-        inOrder.verify(registry, times(1)).counter(METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).getCounter(METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).getSampler();
         inOrder.verify(endpoint, times(1)).getIncrement();
         inOrder.verify(endpoint, times(1)).getDecrement();
-        inOrder.verify(in, times(1)).getHeader(HEADER_COUNTER_INCREMENT, INCREMENT, Long.class);
-        inOrder.verify(in, times(1)).getHeader(HEADER_COUNTER_DECREMENT, DECREMENT, Long.class);
+        inOrder.verify(in, times(1)).getHeader(HEADER_COUNTER_INCREMENT);
+        inOrder.verify(in, times(1)).getHeader(HEADER_COUNTER_DECREMENT);
         inOrder.verify(counter, times(1)).inc(INCREMENT + 1);
         inOrder.verifyNoMoreInteractions();
     }
@@ -166,16 +178,84 @@ public class CounterProducerTest {
     public void testProcessOverridingDecrement() throws Exception {
         when(endpoint.getIncrement()).thenReturn(null);
         when(endpoint.getDecrement()).thenReturn(DECREMENT);
-        when(in.getHeader(HEADER_COUNTER_INCREMENT, null, Long.class)).thenReturn(null);
-        when(in.getHeader(HEADER_COUNTER_DECREMENT, DECREMENT, Long.class)).thenReturn(DECREMENT - 1);
+        when(in.getHeader(HEADER_COUNTER_INCREMENT)).thenReturn(null);
+        when(in.getHeader(HEADER_COUNTER_DECREMENT)).thenReturn(DECREMENT - 1);
         producer.doProcess(exchange, endpoint, registry, METRICS_NAME);
         inOrder.verify(exchange, times(1)).getIn();
-        inOrder.verify(registry, times(1)).counter(METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).getCounter(METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).getSampler();
         inOrder.verify(endpoint, times(1)).getIncrement();
         inOrder.verify(endpoint, times(1)).getDecrement();
-        inOrder.verify(in, times(1)).getHeader(HEADER_COUNTER_INCREMENT, null, Long.class);
-        inOrder.verify(in, times(1)).getHeader(HEADER_COUNTER_DECREMENT, DECREMENT, Long.class);
+        inOrder.verify(in, times(1)).getHeader(HEADER_COUNTER_INCREMENT);
+        inOrder.verify(in, times(1)).getHeader(HEADER_COUNTER_DECREMENT);
+        inOrder.verify(endpoint, times(1)).evaluateValue(exchange);
         inOrder.verify(counter, times(1)).dec(DECREMENT - 1);
         inOrder.verifyNoMoreInteractions();
     }
+
+    @Test
+    public void testProcessWithIntegerHeaderValue() throws Exception {
+        when(endpoint.getIncrement()).thenReturn(null);
+        when(endpoint.getDecrement()).thenReturn(null);
+        when(in.getHeader(HEADER_COUNTER_INCREMENT)).thenReturn(7);
+        when(in.getHeader(HEADER_COUNTER_DECREMENT)).thenReturn(null);
+        producer.doProcess(exchange, endpoint, registry, METRICS_NAME);
+        inOrder.verify(exchange, times(1)).getIn();
+        inOrder.verify(endpoint, times(1)).getCounter(METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).getSampler();
+        inOrder.verify(endpoint, times(1)).getIncrement();
+        inOrder.verify(endpoint, times(1)).getDecrement();
+        inOrder.verify(in, times(1)).getHeader(HEADER_COUNTER_INCREMENT);
+        inOrder.verify(in, times(1)).getHeader(HEADER_COUNTER_DECREMENT);
+        inOrder.verify(counter, times(1)).inc(7L);
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void testProcessSampled() throws Exception {
+        when(endpoint.getSampler()).thenReturn(new Sampler(0.1));
+        when(endpoint.getIncrement()).thenReturn(INCREMENT);
+        when(endpoint.getDecrement()).thenReturn(null);
+        when(in.getHeader(HEADER_COUNTER_INCREMENT)).thenReturn(null);
+        when(in.getHeader(HEADER_COUNTER_DECREMENT)).thenReturn(null);
+        producer.doProcess(exchange, endpoint, registry, METRICS_NAME);
+        inOrder.verify(exchange, times(1)).getIn();
+        inOrder.verify(endpoint, times(1)).getCounter(METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).getSampler();
+        inOrder.verify(endpoint, times(1)).getIncrement();
+        inOrder.verify(endpoint, times(1)).getDecrement();
+        inOrder.verify(in, times(1)).getHeader(HEADER_COUNTER_INCREMENT);
+        inOrder.verify(in, times(1)).getHeader(HEADER_COUNTER_DECREMENT);
+        inOrder.verify(endpoint, times(1)).evaluateValue(exchange);
+        inOrder.verify(counter, times(1)).inc(INCREMENT * 10);
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void testProcessSampledWithoutIncrement() throws Exception {
+        when(endpoint.getSampler()).thenReturn(new Sampler(0.25));
+        when(in.getHeader(HEADER_COUNTER_INCREMENT)).thenReturn(null);
+        when(in.getHeader(HEADER_COUNTER_DECREMENT)).thenReturn(null);
+        producer.doProcess(exchange, endpoint, registry, METRICS_NAME);
+        inOrder.verify(counter, times(1)).inc(4L);
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void testProcessWithValueExpression() throws Exception {
+        when(endpoint.getIncrement()).thenReturn(INCREMENT);
+        when(endpoint.getDecrement()).thenReturn(null);
+        when(endpoint.evaluateValue(exchange)).thenReturn(11);
+        producer.doProcess(exchange, endpoint, registry, METRICS_NAME);
+        inOrder.verify(exchange, times(1)).getIn();
+        inOrder.verify(endpoint, times(1)).getCounter(METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).getSampler();
+        inOrder.verify(endpoint, times(1)).getIncrement();
+        inOrder.verify(endpoint, times(1)).getDecrement();
+        inOrder.verify(in, times(1)).getHeader(HEADER_COUNTER_INCREMENT);
+        inOrder.verify(in, times(1)).getHeader(HEADER_COUNTER_DECREMENT);
+        inOrder.verify(endpoint, times(1)).evaluateValue(exchange);
+        inOrder.verify(counter, times(1)).inc(11L);
+        inOrder.verifyNoMoreInteractions();
+    }
 }
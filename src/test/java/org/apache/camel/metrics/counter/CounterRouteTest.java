@@ -103,6 +103,8 @@ public class CounterRouteTest {
     public void setup() {
         // TODO - 12.05.2014, Lauri - is there any better way to set this up?
         mockRegistry = endpoint.getCamelContext().getRegistry().lookupByNameAndType(METRIC_REGISTRY_NAME, MetricRegistry.class);
+        // forget metrics registered when routes were started
+        reset(mockRegistry);
         mockCounter = mock(Counter.class);
         inOrder = Mockito.inOrder(mockRegistry, mockCounter);
     }
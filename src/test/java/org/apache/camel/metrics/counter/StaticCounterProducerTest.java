@@ -0,0 +1,77 @@
+package org.apache.camel.metrics.counter;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.when;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.metrics.Sampler;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.codahale.metrics.Counter;
+
+@RunWith(MockitoJUnitRunner.class)
+public class StaticCounterProducerTest {
+
+    private static final String METRICS_NAME = "metrics.name";
+
+    @Mock
+    private CounterEndpoint endpoint;
+
+    @Mock
+    private Exchange exchange;
+
+    @Mock
+    private Counter counter;
+
+    private InOrder inOrder;
+
+    @Before
+    public void setUp() throws Exception {
+        inOrder = Mockito.inOrder(exchange, counter);
+        when(endpoint.getMetricsName()).thenReturn(METRICS_NAME);
+        when(endpoint.getCounter(METRICS_NAME)).thenReturn(counter);
+    }
+
+    @Test
+    public void testProcess() throws Exception {
+        StaticCounterProducer producer = new StaticCounterProducer(endpoint);
+        assertThat(producer.getAmount(), is(1L));
+        producer.process(exchange);
+        inOrder.verify(counter, times(1)).inc(1L);
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void testProcessWithIncrement() throws Exception {
+        when(endpoint.getIncrement()).thenReturn(5L);
+        StaticCounterProducer producer = new StaticCounterProducer(endpoint);
+        producer.process(exchange);
+        inOrder.verify(counter, times(1)).inc(5L);
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void testProcessWithDecrement() throws Exception {
+        when(endpoint.getDecrement()).thenReturn(3L);
+        StaticCounterProducer producer = new StaticCounterProducer(endpoint);
+        producer.process(exchange);
+        inOrder.verify(counter, times(1)).inc(-3L);
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void testProcessSampled() throws Exception {
+        when(endpoint.getSampler()).thenReturn(new Sampler(0.5));
+        when(endpoint.getIncrement()).thenReturn(5L);
+        StaticCounterProducer producer = new StaticCounterProducer(endpoint);
+        assertThat(producer.getAmount(), is(10L));
+    }
+}
@@ -2,10 +2,21 @@ package org.apache.camel.metrics.histogram;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.when;
 
 import org.apache.camel.Producer;
+import org.apache.camel.metrics.AbstractDistributionEndpoint;
+import org.apache.camel.metrics.ReservoirType;
+import org.apache.camel.metrics.bucket.BucketHistogram;
+import org.apache.camel.metrics.histogram.HistogramEndpoint.HistogramSource;
+import org.apache.camel.metrics.sketch.QuantileSketch;
+import org.apache.camel.metrics.sketch.RollingHistogram;
+import org.apache.camel.metrics.sketch.SketchHistogram;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -15,17 +26,22 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.MetricRegistry;
 
 @RunWith(MockitoJUnitRunner.class)
 public class HistogramEndpointTest {
 
     private static final String METRICS_NAME = "metrics.name";
+    private static final String OTHER_NAME = "other.name";
     private static final Long VALUE = System.currentTimeMillis();
 
     @Mock
     private MetricRegistry registry;
 
+    @Mock
+    private Histogram histogram;
+
     private HistogramEndpoint endpoint;
 
     private InOrder inOrder;
@@ -55,6 +71,17 @@ public class HistogramEndpointTest {
         assertThat(producer, is(HistogramProducer.class));
     }
 
+    @Test
+    public void testCreateStaticProducer() throws Exception {
+        when(registry.histogram(METRICS_NAME)).thenReturn(histogram);
+        endpoint.setHeaderOverrides(false);
+        // no value to record
+        assertThat(endpoint.createProducer(), is(instanceOf(HistogramProducer.class)));
+        endpoint.setSource(HistogramSource.bodySize);
+        assertThat(endpoint.createProducer(), is(instanceOf(StaticHistogramProducer.class)));
+        inOrder.verify(registry, times(1)).histogram(METRICS_NAME);
+    }
+
     @Test
     public void testGetValue() throws Exception {
         assertThat(endpoint.getValue(), is(nullValue()));
@@ -67,6 +94,120 @@ public class HistogramEndpointTest {
         assertThat(endpoint.getValue(), is(VALUE));
     }
 
+    @Test
+    public void testGetSource() throws Exception {
+        assertThat(endpoint.getSource(), is(HistogramSource.value));
+    }
+
+    @Test
+    public void testSetSource() throws Exception {
+        endpoint.setSource(HistogramSource.bodySize);
+        assertThat(endpoint.getSource(), is(HistogramSource.bodySize));
+    }
+
+    @Test
+    public void testGetReservoir() throws Exception {
+        assertThat(endpoint.getReservoir(), is(nullValue()));
+        assertThat(endpoint.getRelativeAccuracy(), is(QuantileSketch.DEFAULT_RELATIVE_ACCURACY));
+        assertThat(endpoint.getRollingBuckets(), is(AbstractDistributionEndpoint.DEFAULT_ROLLING_BUCKETS));
+        assertThat(endpoint.getRollingBucketWidth(), is(AbstractDistributionEndpoint.DEFAULT_ROLLING_BUCKET_WIDTH));
+    }
+
+    @Test
+    public void testSetReservoir() throws Exception {
+        endpoint.setReservoir(ReservoirType.sketch);
+        endpoint.setRelativeAccuracy(0.001);
+        assertThat(endpoint.getReservoir(), is(ReservoirType.sketch));
+        assertThat(endpoint.getRelativeAccuracy(), is(0.001));
+    }
+
+    @Test
+    public void testSetRolling() throws Exception {
+        endpoint.setReservoir(ReservoirType.rolling);
+        endpoint.setRollingBuckets(12);
+        endpoint.setRollingBucketWidth(5000L);
+        assertThat(endpoint.getReservoir(), is(ReservoirType.rolling));
+        assertThat(endpoint.getRollingBuckets(), is(12));
+        assertThat(endpoint.getRollingBucketWidth(), is(5000L));
+    }
+
+    @Test
+    public void testGetBuckets() throws Exception {
+        assertThat(endpoint.getBuckets(), is(nullValue()));
+    }
+
+    @Test
+    public void testSetBuckets() throws Exception {
+        endpoint.setBuckets("5, 10,50");
+        assertThat(endpoint.getBuckets(), is(new long[] { 5L, 10L, 50L }));
+        endpoint.setBuckets((String) null);
+        assertThat(endpoint.getBuckets(), is(nullValue()));
+    }
+
+    @Test
+    public void testSetBucketsArray() throws Exception {
+        long[] bounds = { 5L, 10L, 50L };
+        endpoint.setBuckets(bounds);
+        bounds[0] = 1L;
+        assertThat(endpoint.getBuckets(), is(new long[] { 5L, 10L, 50L }));
+        endpoint.getBuckets()[0] = 1L;
+        assertThat(endpoint.getBuckets(), is(new long[] { 5L, 10L, 50L }));
+        endpoint.setBuckets((long[]) null);
+        assertThat(endpoint.getBuckets(), is(nullValue()));
+    }
+
+    @Test
+    public void testGetHistogram() throws Exception {
+        when(registry.histogram(METRICS_NAME)).thenReturn(histogram);
+        assertThat(endpoint.getHistogram(METRICS_NAME), is(histogram));
+        inOrder.verify(registry, times(1)).histogram(METRICS_NAME);
+    }
+
+    @Test
+    public void testGetHistogramStarted() throws Exception {
+        when(registry.histogram(METRICS_NAME)).thenReturn(histogram);
+        endpoint.start();
+        assertThat(endpoint.getHistogram(METRICS_NAME), is(histogram));
+        assertThat(endpoint.getHistogram(METRICS_NAME), is(histogram));
+        endpoint.getHistogram(OTHER_NAME);
+        endpoint.stop();
+        endpoint.getHistogram(METRICS_NAME);
+        inOrder.verify(registry, times(1)).histogram(METRICS_NAME);
+        inOrder.verify(registry, times(1)).histogram(OTHER_NAME);
+        inOrder.verify(registry, times(1)).histogram(METRICS_NAME);
+    }
+
+    @Test
+    public void testGetHistogramWithSketch() throws Exception {
+        HistogramEndpoint sketchEndpoint = new HistogramEndpoint(new MetricRegistry(), METRICS_NAME);
+        sketchEndpoint.setReservoir(ReservoirType.sketch);
+        sketchEndpoint.setRelativeAccuracy(0.02);
+        Histogram result = sketchEndpoint.getHistogram(METRICS_NAME);
+        assertThat(result, is(instanceOf(SketchHistogram.class)));
+        assertThat(((SketchHistogram) result).getSketch().getRelativeAccuracy(), is(0.02));
+        assertThat(sketchEndpoint.getHistogram(METRICS_NAME), is(sameInstance(result)));
+    }
+
+    @Test
+    public void testGetHistogramWithRolling() throws Exception {
+        HistogramEndpoint rollingEndpoint = new HistogramEndpoint(new MetricRegistry(), METRICS_NAME);
+        rollingEndpoint.setReservoir(ReservoirType.rolling);
+        Histogram result = rollingEndpoint.getHistogram(METRICS_NAME);
+        assertThat(result, is(instanceOf(RollingHistogram.class)));
+        assertThat(rollingEndpoint.getHistogram(METRICS_NAME), is(sameInstance(result)));
+    }
+
+    @Test
+    public void testGetHistogramWithBuckets() throws Exception {
+        HistogramEndpoint bucketEndpoint = new HistogramEndpoint(new MetricRegistry(), METRICS_NAME);
+        bucketEndpoint.setBuckets("5,10,50");
+        bucketEndpoint.setReservoir(ReservoirType.sketch);
+        Histogram result = bucketEndpoint.getHistogram(METRICS_NAME);
+        assertThat(result, is(instanceOf(BucketHistogram.class)));
+        assertThat(((BucketHistogram) result).getBounds(), is(new long[] { 5L, 10L, 50L }));
+        assertThat(bucketEndpoint.getHistogram(METRICS_NAME), is(sameInstance(result)));
+    }
+
     @Test
     public void testCreateEndpointUri() throws Exception {
         assertThat(endpoint.createEndpointUri(), is(HistogramEndpoint.ENDPOINT_URI));
@@ -3,11 +3,15 @@ package org.apache.camel.metrics.histogram;
 import static org.apache.camel.metrics.MetricsComponent.HEADER_HISTOGRAM_VALUE;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.when;
 
 import org.apache.camel.Exchange;
 import org.apache.camel.Message;
+import org.apache.camel.metrics.histogram.HistogramEndpoint.HistogramSource;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -15,6 +19,7 @@ import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.slf4j.Logger;
 
 import com.codahale.metrics.Histogram;
 import com.codahale.metrics.MetricRegistry;
@@ -46,10 +51,11 @@ public class HistogramProducerTest {
 
     @Before
     public void setUp() throws Exception {
+        when(endpoint.isHeaderOverrides()).thenReturn(true);
         producer = new HistogramProducer(endpoint);
         inOrder = Mockito.inOrder(endpoint, registry, histogram, exchange, in);
         when(endpoint.getRegistry()).thenReturn(registry);
-        when(registry.histogram(METRICS_NAME)).thenReturn(histogram);
+        when(endpoint.getHistogram(METRICS_NAME)).thenReturn(histogram);
         when(exchange.getIn()).thenReturn(in);
     }
 
@@ -61,12 +67,14 @@ public class HistogramProducerTest {
     @Test
     public void testProcessValueSet() throws Exception {
         when(endpoint.getValue()).thenReturn(VALUE);
-        when(in.getHeader(HEADER_HISTOGRAM_VALUE, VALUE, Long.class)).thenReturn(VALUE);
+        when(in.getHeader(HEADER_HISTOGRAM_VALUE)).thenReturn(null);
         producer.doProcess(exchange, endpoint, registry, METRICS_NAME);
         inOrder.verify(exchange, times(1)).getIn();
-        inOrder.verify(registry, times(1)).histogram(METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).getHistogram(METRICS_NAME);
         inOrder.verify(endpoint, times(1)).getValue();
-        inOrder.verify(in, times(1)).getHeader(HEADER_HISTOGRAM_VALUE, VALUE, Long.class);
+        inOrder.verify(in, times(1)).getHeader(HEADER_HISTOGRAM_VALUE);
+        inOrder.verify(endpoint, times(1)).evaluateValue(exchange);
+        inOrder.verify(endpoint, times(1)).getSource();
         inOrder.verify(histogram, times(1)).update(VALUE);
         inOrder.verifyNoMoreInteractions();
     }
@@ -74,24 +82,27 @@ public class HistogramProducerTest {
     @Test
     public void testProcessValueNotSet() throws Exception {
         when(endpoint.getValue()).thenReturn(null);
-        when(in.getHeader(HEADER_HISTOGRAM_VALUE, null, Long.class)).thenReturn(null);
+        when(in.getHeader(HEADER_HISTOGRAM_VALUE)).thenReturn(null);
         producer.doProcess(exchange, endpoint, registry, METRICS_NAME);
         inOrder.verify(exchange, times(1)).getIn();
-        inOrder.verify(registry, times(1)).histogram(METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).getHistogram(METRICS_NAME);
         inOrder.verify(endpoint, times(1)).getValue();
-        inOrder.verify(in, times(1)).getHeader(HEADER_HISTOGRAM_VALUE, null, Long.class);
+        inOrder.verify(in, times(1)).getHeader(HEADER_HISTOGRAM_VALUE);
+        inOrder.verify(endpoint, times(1)).evaluateValue(exchange);
+        inOrder.verify(endpoint, times(1)).getSource();
+        inOrder.verify(endpoint, times(1)).onError(any(Logger.class), eq("nullValue"), anyString(), eq(METRICS_NAME));
         inOrder.verifyNoMoreInteractions();
     }
 
     @Test
     public void testProcessOverrideValue() throws Exception {
         when(endpoint.getValue()).thenReturn(VALUE);
-        when(in.getHeader(HEADER_HISTOGRAM_VALUE, VALUE, Long.class)).thenReturn(VALUE + 3);
+        when(in.getHeader(HEADER_HISTOGRAM_VALUE)).thenReturn(VALUE + 3);
         producer.doProcess(exchange, endpoint, registry, METRICS_NAME);
         inOrder.verify(exchange, times(1)).getIn();
-        inOrder.verify(registry, times(1)).histogram(METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).getHistogram(METRICS_NAME);
         inOrder.verify(endpoint, times(1)).getValue();
-        inOrder.verify(in, times(1)).getHeader(HEADER_HISTOGRAM_VALUE, VALUE, Long.class);
+        inOrder.verify(in, times(1)).getHeader(HEADER_HISTOGRAM_VALUE);
         inOrder.verify(histogram, times(1)).update(VALUE + 3);
         inOrder.verifyNoMoreInteractions();
     }
@@ -99,13 +110,77 @@ public class HistogramProducerTest {
     @Test
     public void testProcessOverrideUriValueNotSet() throws Exception {
         when(endpoint.getValue()).thenReturn(null);
-        when(in.getHeader(HEADER_HISTOGRAM_VALUE, null, Long.class)).thenReturn(VALUE + 2);
+        when(in.getHeader(HEADER_HISTOGRAM_VALUE)).thenReturn(VALUE + 2);
         producer.doProcess(exchange, endpoint, registry, METRICS_NAME);
         inOrder.verify(exchange, times(1)).getIn();
-        inOrder.verify(registry, times(1)).histogram(METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).getHistogram(METRICS_NAME);
         inOrder.verify(endpoint, times(1)).getValue();
-        inOrder.verify(in, times(1)).getHeader(HEADER_HISTOGRAM_VALUE, null, Long.class);
+        inOrder.verify(in, times(1)).getHeader(HEADER_HISTOGRAM_VALUE);
         inOrder.verify(histogram, times(1)).update(VALUE + 2);
         inOrder.verifyNoMoreInteractions();
     }
+
+    @Test
+    public void testProcessBodySize() throws Exception {
+        when(endpoint.getValue()).thenReturn(VALUE);
+        when(endpoint.getSource()).thenReturn(HistogramSource.bodySize);
+        when(in.getHeader(HEADER_HISTOGRAM_VALUE)).thenReturn(null);
+        when(in.getBody()).thenReturn(new byte[12]);
+        producer.doProcess(exchange, endpoint, registry, METRICS_NAME);
+        inOrder.verify(exchange, times(1)).getIn();
+        inOrder.verify(endpoint, times(1)).getHistogram(METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).getValue();
+        inOrder.verify(in, times(1)).getHeader(HEADER_HISTOGRAM_VALUE);
+        inOrder.verify(endpoint, times(1)).evaluateValue(exchange);
+        inOrder.verify(endpoint, times(1)).getSource();
+        inOrder.verify(in, times(1)).getBody();
+        inOrder.verify(histogram, times(1)).update(12L);
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void testProcessBodySizeNotKnown() throws Exception {
+        when(endpoint.getSource()).thenReturn(HistogramSource.bodySize);
+        when(in.getHeader(HEADER_HISTOGRAM_VALUE)).thenReturn(null);
+        when(in.getBody()).thenReturn(new Object());
+        producer.doProcess(exchange, endpoint, registry, METRICS_NAME);
+        inOrder.verify(exchange, times(1)).getIn();
+        inOrder.verify(endpoint, times(1)).getHistogram(METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).getValue();
+        inOrder.verify(in, times(1)).getHeader(HEADER_HISTOGRAM_VALUE);
+        inOrder.verify(endpoint, times(1)).evaluateValue(exchange);
+        inOrder.verify(endpoint, times(1)).getSource();
+        inOrder.verify(in, times(1)).getBody();
+        inOrder.verify(in, times(1)).getHeader(Exchange.CONTENT_LENGTH);
+        inOrder.verify(in, times(1)).getHeader(Exchange.FILE_LENGTH);
+        inOrder.verify(endpoint, times(1)).onError(any(Logger.class), eq("unknownSize"), anyString(), eq(METRICS_NAME));
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void testProcessBodySizeOverrideValue() throws Exception {
+        when(endpoint.getSource()).thenReturn(HistogramSource.bodySize);
+        when(in.getHeader(HEADER_HISTOGRAM_VALUE)).thenReturn(VALUE);
+        producer.doProcess(exchange, endpoint, registry, METRICS_NAME);
+        inOrder.verify(exchange, times(1)).getIn();
+        inOrder.verify(endpoint, times(1)).getHistogram(METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).getValue();
+        inOrder.verify(in, times(1)).getHeader(HEADER_HISTOGRAM_VALUE);
+        inOrder.verify(histogram, times(1)).update(VALUE);
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void testProcessWithValueExpression() throws Exception {
+        when(endpoint.getValue()).thenReturn(VALUE);
+        when(endpoint.evaluateValue(exchange)).thenReturn(13L);
+        producer.doProcess(exchange, endpoint, registry, METRICS_NAME);
+        inOrder.verify(exchange, times(1)).getIn();
+        inOrder.verify(endpoint, times(1)).getHistogram(METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).getValue();
+        inOrder.verify(in, times(1)).getHeader(HEADER_HISTOGRAM_VALUE);
+        inOrder.verify(endpoint, times(1)).evaluateValue(exchange);
+        inOrder.verify(histogram, times(1)).update(13L);
+        inOrder.verifyNoMoreInteractions();
+    }
 }
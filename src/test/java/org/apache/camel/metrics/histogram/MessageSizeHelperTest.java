@@ -0,0 +1,117 @@
+package org.apache.camel.metrics.histogram;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.Message;
+import org.apache.camel.StreamCache;
+import org.apache.camel.TypeConversionException;
+import org.apache.camel.component.file.GenericFile;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MessageSizeHelperTest {
+
+    @Mock
+    private Message in;
+
+    @Mock
+    private StreamCache streamCache;
+
+    @Mock
+    private InputStream inputStream;
+
+    @Test
+    public void testGetSizeOfByteArray() throws Exception {
+        when(in.getBody()).thenReturn(new byte[17]);
+        assertThat(MessageSizeHelper.getSize(in), is(17L));
+    }
+
+    @Test
+    public void testGetSizeOfByteBuffer() throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(32);
+        buffer.position(8);
+        when(in.getBody()).thenReturn(buffer);
+        assertThat(MessageSizeHelper.getSize(in), is(24L));
+        assertThat(buffer.position(), is(8));
+    }
+
+    @Test
+    public void testGetSizeOfStreamCache() throws Exception {
+        when(streamCache.length()).thenReturn(50000000L);
+        when(in.getBody()).thenReturn(streamCache);
+        assertThat(MessageSizeHelper.getSize(in), is(50000000L));
+        verify(streamCache, times(1)).length();
+        verify(streamCache, never()).reset();
+    }
+
+    @Test
+    public void testGetSizeOfFile() throws Exception {
+        File file = File.createTempFile("metrics", ".tmp");
+        file.deleteOnExit();
+        when(in.getBody()).thenReturn(file);
+        assertThat(MessageSizeHelper.getSize(in), is(0L));
+        file.delete();
+        assertThat(MessageSizeHelper.getSize(in), is(nullValue()));
+    }
+
+    @Test
+    public void testGetSizeOfGenericFile() throws Exception {
+        GenericFile<File> file = new GenericFile<File>();
+        file.setFileLength(1234L);
+        when(in.getBody()).thenReturn(file);
+        assertThat(MessageSizeHelper.getSize(in), is(1234L));
+    }
+
+    @Test
+    public void testGetSizeFromContentLength() throws Exception {
+        when(in.getBody()).thenReturn(inputStream);
+        when(in.getHeader(Exchange.CONTENT_LENGTH)).thenReturn(4096);
+        assertThat(MessageSizeHelper.getSize(in), is(4096L));
+        verify(inputStream, never()).read();
+    }
+
+    @Test
+    public void testGetSizeFromContentLengthString() throws Exception {
+        when(in.getBody()).thenReturn(inputStream);
+        when(in.getHeader(Exchange.CONTENT_LENGTH)).thenReturn("4096");
+        when(in.getHeader(Exchange.CONTENT_LENGTH, Long.class)).thenReturn(4096L);
+        assertThat(MessageSizeHelper.getSize(in), is(4096L));
+    }
+
+    @Test
+    public void testGetSizeFromMalformedContentLength() throws Exception {
+        when(in.getBody()).thenReturn(inputStream);
+        when(in.getHeader(Exchange.CONTENT_LENGTH)).thenReturn("unknown");
+        when(in.getHeader(Exchange.CONTENT_LENGTH, Long.class)).thenThrow(new TypeConversionException("unknown", Long.class, null));
+        when(in.getHeader(Exchange.FILE_LENGTH)).thenReturn(2048L);
+        assertThat(MessageSizeHelper.getSize(in), is(2048L));
+    }
+
+    @Test
+    public void testGetSizeFromFileLength() throws Exception {
+        when(in.getBody()).thenReturn(inputStream);
+        when(in.getHeader(Exchange.FILE_LENGTH)).thenReturn(2048L);
+        assertThat(MessageSizeHelper.getSize(in), is(2048L));
+    }
+
+    @Test
+    public void testGetSizeNotKnown() throws Exception {
+        when(in.getBody()).thenReturn(inputStream);
+        assertThat(MessageSizeHelper.getSize(in), is(nullValue()));
+        verify(inputStream, never()).read();
+    }
+}
@@ -0,0 +1,89 @@
+package org.apache.camel.metrics.histogram;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.Message;
+import org.apache.camel.metrics.histogram.HistogramEndpoint.HistogramSource;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.slf4j.Logger;
+
+import com.codahale.metrics.Histogram;
+
+@RunWith(MockitoJUnitRunner.class)
+public class StaticHistogramProducerTest {
+
+    private static final String METRICS_NAME = "metrics.name";
+
+    @Mock
+    private HistogramEndpoint endpoint;
+
+    @Mock
+    private Exchange exchange;
+
+    @Mock
+    private Message in;
+
+    @Mock
+    private Histogram histogram;
+
+    private InOrder inOrder;
+
+    @Before
+    public void setUp() throws Exception {
+        inOrder = Mockito.inOrder(exchange, histogram);
+        when(endpoint.getMetricsName()).thenReturn(METRICS_NAME);
+        when(endpoint.getHistogram(METRICS_NAME)).thenReturn(histogram);
+        when(endpoint.getSource()).thenReturn(HistogramSource.value);
+        when(exchange.getIn()).thenReturn(in);
+    }
+
+    @Test
+    public void testProcessWithValue() throws Exception {
+        when(endpoint.getValue()).thenReturn(12L);
+        new StaticHistogramProducer(endpoint).process(exchange);
+        inOrder.verify(histogram, times(1)).update(12L);
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void testProcessWithBodySize() throws Exception {
+        when(endpoint.getSource()).thenReturn(HistogramSource.bodySize);
+        when(in.getBody()).thenReturn(new byte[17]);
+        new StaticHistogramProducer(endpoint).process(exchange);
+        inOrder.verify(exchange, times(1)).getIn();
+        inOrder.verify(histogram, times(1)).update(17L);
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void testProcessWithUnknownBodySize() throws Exception {
+        when(endpoint.getSource()).thenReturn(HistogramSource.bodySize);
+        when(in.getBody()).thenReturn("body");
+        new StaticHistogramProducer(endpoint).process(exchange);
+        inOrder.verify(exchange, times(1)).getIn();
+        inOrder.verifyNoMoreInteractions();
+        verify(endpoint, times(1)).onError(any(Logger.class), eq("unknownSize"), anyString(), eq(METRICS_NAME));
+    }
+
+    @Test
+    public void testProcessWithBodySizeFailure() throws Exception {
+        when(endpoint.getSource()).thenReturn(HistogramSource.bodySize);
+        when(in.getBody()).thenThrow(new IllegalStateException("Muchos problemos"));
+        new StaticHistogramProducer(endpoint).process(exchange);
+        inOrder.verify(exchange, times(1)).getIn();
+        inOrder.verifyNoMoreInteractions();
+        verify(endpoint, times(1)).onError(any(Logger.class), eq("exception"), anyString(), eq(METRICS_NAME), anyString(), eq("Muchos problemos"));
+    }
+}
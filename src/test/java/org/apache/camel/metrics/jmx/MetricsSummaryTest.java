@@ -0,0 +1,134 @@
+package org.apache.camel.metrics.jmx;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import org.apache.camel.metrics.reporter.SnapshotCache;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+public class MetricsSummaryTest {
+
+    private MetricRegistry registry;
+
+    private MetricsSummary summary;
+
+    @Before
+    public void setUp() throws Exception {
+        registry = new MetricRegistry();
+        registry.counter("a.counter").inc(3L);
+        registry.counter("b.counter").inc(5L);
+        registry.meter("a.meter").mark(7L);
+        registry.histogram("a.histogram").update(9L);
+        registry.timer("a.timer").update(2L, TimeUnit.SECONDS);
+        registry.register("a.gauge", new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return 11;
+            }
+        });
+        registry.register("a.text", new Gauge<String>() {
+            @Override
+            public String getValue() {
+                return "text";
+            }
+        });
+        summary = new MetricsSummary(registry);
+    }
+
+    @Test
+    public void testGetMetricNames() throws Exception {
+        assertThat(summary.getPrefix(), is(""));
+        assertThat(summary.getMetricCount(), is(7));
+        assertThat(new MetricsSummary(registry, "b.", TimeUnit.SECONDS, TimeUnit.MILLISECONDS).getMetricNames(), is(new String[] { "b.counter" }));
+    }
+
+    @Test
+    public void testGetUnits() throws Exception {
+        assertThat(summary.getRateUnit(), is("events/second"));
+        assertThat(summary.getDurationUnit(), is("milliseconds"));
+    }
+
+    @Test
+    public void testGetCounters() throws Exception {
+        MetricsTable table = summary.getCounters();
+        assertThat(table.getNames(), is(new String[] { "a.counter", "b.counter" }));
+        assertThat(table.getColumns(), is(MetricsSummary.COUNTER_COLUMNS));
+        assertThat(table.getValues()[0][0], is(3.0));
+        assertThat(table.getValues()[1][0], is(5.0));
+    }
+
+    @Test
+    public void testGetCountersWithPrefix() throws Exception {
+        MetricsTable table = new MetricsSummary(registry, "a.", TimeUnit.SECONDS, TimeUnit.MILLISECONDS).getCounters();
+        assertThat(table.getNames(), is(new String[] { "a.counter" }));
+    }
+
+    @Test
+    public void testGetGauges() throws Exception {
+        MetricsTable table = summary.getGauges();
+        assertThat(table.getNames(), is(new String[] { "a.gauge", "a.text" }));
+        assertThat(table.getValues()[0][0], is(11.0));
+        assertThat(Double.isNaN(table.getValues()[1][0]), is(true));
+    }
+
+    @Test
+    public void testGetMeters() throws Exception {
+        MetricsTable table = summary.getMeters();
+        assertThat(table.getNames(), is(new String[] { "a.meter" }));
+        assertThat(table.getValues()[0].length, is(MetricsSummary.METER_COLUMNS.length));
+        assertThat(table.getValues()[0][0], is(7.0));
+    }
+
+    @Test
+    public void testGetHistograms() throws Exception {
+        MetricsTable table = summary.getHistograms();
+        assertThat(table.getNames(), is(new String[] { "a.histogram" }));
+        assertThat(table.getValues()[0][0], is(1.0));
+        assertThat(table.getValues()[0][2], is(9.0));
+    }
+
+    @Test
+    public void testGetTimers() throws Exception {
+        MetricsTable table = summary.getTimers();
+        assertThat(table.getNames(), is(new String[] { "a.timer" }));
+        assertThat(table.getValues()[0][0], is(1.0));
+        // max in milliseconds
+        assertThat(table.getValues()[0][6], is(2000.0));
+    }
+
+    @Test
+    public void testGetHistogramsWithSnapshotCache() throws Exception {
+        SnapshotCache cache = new SnapshotCache(registry, 1L, TimeUnit.HOURS);
+        MetricsSummary cached = new MetricsSummary(cache, "", TimeUnit.SECONDS, TimeUnit.MILLISECONDS);
+        assertThat(cached.getHistograms().getValues()[0][2], is(9.0));
+        registry.histogram("a.histogram").update(13L);
+        // snapshot reused within tick
+        assertThat(cached.getHistograms().getValues()[0][2], is(9.0));
+        cached.getTimers();
+        assertThat(cache.getComputedCount(), is(2L));
+        cache.invalidate();
+        assertThat(cached.getHistograms().getValues()[0][2], is(13.0));
+    }
+
+    @Test
+    public void testReadThroughMBeanServer() throws Exception {
+        MBeanServer server = MBeanServerFactory.newMBeanServer();
+        ObjectName name = new ObjectName("org.apache.camel.metrics:type=summary");
+        server.registerMBean(summary, name);
+        CompositeData counters = (CompositeData) server.getAttribute(name, "Counters");
+        assertThat((String[]) counters.get("names"), is(new String[] { "a.counter", "b.counter" }));
+        assertThat(((double[][]) counters.get("values"))[1][0], is(5.0));
+        assertThat((Integer) server.getAttribute(name, "MetricCount"), is(7));
+    }
+}
@@ -0,0 +1,107 @@
+package org.apache.camel.metrics.meter;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.lessThan;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.codahale.metrics.Clock;
+
+public class LazyMeterTest {
+
+    private ManualClock clock;
+
+    private LazyMeter meter;
+
+    @Before
+    public void setUp() throws Exception {
+        clock = new ManualClock();
+        meter = new LazyMeter(new long[] { 10L, 60L }, clock);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoWindows() throws Exception {
+        new LazyMeter(new long[0], clock);
+    }
+
+    @Test
+    public void testMark() throws Exception {
+        meter.mark();
+        meter.mark(9L);
+        assertThat(meter.getCount(), is(10L));
+    }
+
+    @Test
+    public void testRatesBeforeFirstTick() throws Exception {
+        meter.mark(100L);
+        clock.advance(1L);
+        assertThat(meter.getRate(0), is(0.0));
+        assertThat(meter.getMeanRate(), closeTo(100.0, 0.001));
+    }
+
+    @Test
+    public void testFirstTickUsesInstantRate() throws Exception {
+        meter.mark(50L);
+        clock.advance(5L);
+        assertThat(meter.getOneMinuteRate(), closeTo(10.0, 0.001));
+        assertThat(meter.getFiveMinuteRate(), closeTo(10.0, 0.001));
+        assertThat(meter.getFifteenMinuteRate(), is(0.0));
+    }
+
+    @Test
+    public void testRatesDecay() throws Exception {
+        meter.mark(50L);
+        clock.advance(5L);
+        assertThat(meter.getRate(0), closeTo(10.0, 0.001));
+        clock.advance(10L);
+        // no marks for one 10 second window
+        assertThat(meter.getRate(0), closeTo(10.0 * Math.exp(-1.0), 0.001));
+        assertThat(meter.getRate(1), closeTo(10.0 * Math.exp(-10.0 / 60.0), 0.001));
+        assertThat(meter.getRate(0), lessThan(meter.getRate(1)));
+    }
+
+    @Test
+    public void testGetWindows() throws Exception {
+        assertThat(meter.getWindows(), is(new long[] { 10L, 60L }));
+        assertThat(new LazyMeter().getWindows(), is(new long[] { 60L, 300L, 900L }));
+    }
+
+    @Test
+    public void testDefaultWindowsCopied() throws Exception {
+        LazyMeter.getDefaultWindows()[0] = 1L;
+        assertThat(LazyMeter.getDefaultWindows(), is(new long[] { 60L, 300L, 900L }));
+    }
+
+    @Test
+    public void testGetWindowRate() throws Exception {
+        meter.mark(100L);
+        clock.advance(10L);
+        assertThat(meter.getWindowRate(10L), is(meter.getRate(0)));
+        assertThat(meter.getWindowRate(60L), is(meter.getRate(1)));
+        assertThat(meter.getOneMinuteRate(), is(meter.getRate(0)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetWindowRateUnknownWindow() throws Exception {
+        meter.getWindowRate(300L);
+    }
+
+    private static class ManualClock extends Clock {
+
+        private long tick;
+
+        @Override
+        public long getTick() {
+            return tick;
+        }
+
+        void advance(long seconds) {
+            tick += TimeUnit.SECONDS.toNanos(seconds);
+        }
+    }
+}
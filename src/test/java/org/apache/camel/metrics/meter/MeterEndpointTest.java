@@ -5,6 +5,8 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.when;
 
 import org.apache.camel.Producer;
 import org.junit.After;
@@ -16,17 +18,22 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 
 @RunWith(MockitoJUnitRunner.class)
 public class MeterEndpointTest {
 
     private static final String METRICS_NAME = "metrics.name";
+    private static final String OTHER_NAME = "other.name";
     private static final Long VALUE = System.currentTimeMillis();
 
     @Mock
     private MetricRegistry registry;
 
+    @Mock
+    private Meter meter;
+
     private MeterEndpoint endpoint;
 
     private InOrder inOrder;
@@ -56,6 +63,15 @@ public class MeterEndpointTest {
         assertThat(producer, is(instanceOf(MeterProducer.class)));
     }
 
+    @Test
+    public void testCreateStaticProducer() throws Exception {
+        when(registry.meter(METRICS_NAME)).thenReturn(meter);
+        endpoint.setHeaderOverrides(false);
+        Producer producer = endpoint.createProducer();
+        assertThat(producer, is(instanceOf(StaticMeterProducer.class)));
+        inOrder.verify(registry, times(1)).meter(METRICS_NAME);
+    }
+
     @Test
     public void testGetMark() throws Exception {
         assertThat(endpoint.getMark(), is(nullValue()));
@@ -68,6 +84,59 @@ public class MeterEndpointTest {
         assertThat(endpoint.getMark(), is(VALUE));
     }
 
+    @Test
+    public void testIsLazy() throws Exception {
+        assertThat(endpoint.isLazy(), is(false));
+        endpoint.setLazy(true);
+        assertThat(endpoint.isLazy(), is(true));
+    }
+
+    @Test
+    public void testGetRateWindows() throws Exception {
+        assertThat(endpoint.getRateWindows(), is(LazyMeter.getDefaultWindows()));
+        endpoint.getRateWindows()[0] = 1L;
+        assertThat(endpoint.getRateWindows(), is(new long[] { 60L, 300L, 900L }));
+    }
+
+    @Test
+    public void testSetRateWindows() throws Exception {
+        endpoint.setRateWindows("10, 60,300");
+        assertThat(endpoint.getRateWindows(), is(new long[] { 10L, 60L, 300L }));
+    }
+
+    @Test
+    public void testGetMeter() throws Exception {
+        when(registry.meter(METRICS_NAME)).thenReturn(meter);
+        assertThat(endpoint.getMeter(METRICS_NAME), is(meter));
+        inOrder.verify(registry, times(1)).meter(METRICS_NAME);
+    }
+
+    @Test
+    public void testGetMeterStarted() throws Exception {
+        when(registry.meter(METRICS_NAME)).thenReturn(meter);
+        endpoint.start();
+        assertThat(endpoint.getMeter(METRICS_NAME), is(meter));
+        assertThat(endpoint.getMeter(METRICS_NAME), is(meter));
+        endpoint.getMeter(OTHER_NAME);
+        endpoint.stop();
+        endpoint.getMeter(METRICS_NAME);
+        inOrder.verify(registry, times(1)).meter(METRICS_NAME);
+        inOrder.verify(registry, times(1)).meter(OTHER_NAME);
+        inOrder.verify(registry, times(1)).meter(METRICS_NAME);
+    }
+
+    @Test
+    public void testGetLazyMeter() throws Exception {
+        MeterEndpoint lazyEndpoint = new MeterEndpoint(new MetricRegistry(), METRICS_NAME);
+        lazyEndpoint.setLazy(true);
+        lazyEndpoint.setRateWindows("10,60");
+        Meter result = lazyEndpoint.getMeter(METRICS_NAME);
+        assertThat(result, is(instanceOf(LazyMeter.class)));
+        assertThat(((LazyMeter) result).getWindows(), is(new long[] { 10L, 60L }));
+        assertThat(lazyEndpoint.getMeter(METRICS_NAME), is(result));
+        assertThat(lazyEndpoint.getRegistry().getMeters().get(METRICS_NAME), is(result));
+    }
+
     @Test
     public void testCreateEndpointUri() throws Exception {
         assertThat(endpoint.createEndpointUri(), is(MeterEndpoint.ENDPOINT_URI));
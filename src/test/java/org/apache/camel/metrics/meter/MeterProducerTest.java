@@ -9,6 +9,7 @@ import static org.mockito.Mockito.when;
 
 import org.apache.camel.Exchange;
 import org.apache.camel.Message;
+import org.apache.camel.metrics.Sampler;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -47,10 +48,11 @@ public class MeterProducerTest {
 
     @Before
     public void setUp() throws Exception {
+        when(endpoint.isHeaderOverrides()).thenReturn(true);
         producer = new MeterProducer(endpoint);
         inOrder = Mockito.inOrder(endpoint, registry, meter, exchange, in);
         when(endpoint.getRegistry()).thenReturn(registry);
-        when(registry.meter(METRICS_NAME)).thenReturn(meter);
+        when(endpoint.getMeter(METRICS_NAME)).thenReturn(meter);
         when(exchange.getIn()).thenReturn(in);
     }
 
@@ -63,12 +65,14 @@ public class MeterProducerTest {
     @Test
     public void testProcessMarkSet() throws Exception {
         when(endpoint.getMark()).thenReturn(MARK);
-        when(in.getHeader(HEADER_METER_MARK, MARK, Long.class)).thenReturn(MARK);
+        when(in.getHeader(HEADER_METER_MARK)).thenReturn(null);
         producer.doProcess(exchange, endpoint, registry, METRICS_NAME);
         inOrder.verify(exchange, times(1)).getIn();
-        inOrder.verify(registry, times(1)).meter(METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).getMeter(METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).getSampler();
         inOrder.verify(endpoint, times(1)).getMark();
-        inOrder.verify(in, times(1)).getHeader(HEADER_METER_MARK, MARK, Long.class);
+        inOrder.verify(in, times(1)).getHeader(HEADER_METER_MARK);
+        inOrder.verify(endpoint, times(1)).evaluateValue(exchange);
         inOrder.verify(meter, times(1)).mark(MARK);
         inOrder.verifyNoMoreInteractions();
     }
@@ -76,12 +80,13 @@ public class MeterProducerTest {
     @Test
     public void testProcessMarkSetOverrideByHeaderValue() throws Exception {
         when(endpoint.getMark()).thenReturn(MARK);
-        when(in.getHeader(HEADER_METER_MARK, MARK, Long.class)).thenReturn(MARK + 101);
+        when(in.getHeader(HEADER_METER_MARK)).thenReturn(MARK + 101);
         producer.doProcess(exchange, endpoint, registry, METRICS_NAME);
         inOrder.verify(exchange, times(1)).getIn();
-        inOrder.verify(registry, times(1)).meter(METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).getMeter(METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).getSampler();
         inOrder.verify(endpoint, times(1)).getMark();
-        inOrder.verify(in, times(1)).getHeader(HEADER_METER_MARK, MARK, Long.class);
+        inOrder.verify(in, times(1)).getHeader(HEADER_METER_MARK);
         inOrder.verify(meter, times(1)).mark(MARK + 101);
         inOrder.verifyNoMoreInteractions();
     }
@@ -89,11 +94,13 @@ public class MeterProducerTest {
     @Test
     public void testProcessMarkNotSet() throws Exception {
         when(endpoint.getMark()).thenReturn(null);
-        when(in.getHeader(HEADER_METER_MARK, null, Long.class)).thenReturn(null);
+        when(in.getHeader(HEADER_METER_MARK)).thenReturn(null);
         producer.doProcess(exchange, endpoint, registry, METRICS_NAME);
-        inOrder.verify(registry, times(1)).meter(METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).getMeter(METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).getSampler();
         inOrder.verify(endpoint, times(1)).getMark();
-        inOrder.verify(in, times(1)).getHeader(HEADER_METER_MARK, null, Long.class);
+        inOrder.verify(in, times(1)).getHeader(HEADER_METER_MARK);
+        inOrder.verify(endpoint, times(1)).evaluateValue(exchange);
         inOrder.verify(meter, times(1)).mark();
         inOrder.verifyNoMoreInteractions();
     }
@@ -101,12 +108,43 @@ public class MeterProducerTest {
     @Test
     public void testProcessMarkNotSetOverrideByHeaderValue() throws Exception {
         when(endpoint.getMark()).thenReturn(null);
-        when(in.getHeader(HEADER_METER_MARK, null, Long.class)).thenReturn(MARK);
+        when(in.getHeader(HEADER_METER_MARK)).thenReturn(MARK);
         producer.doProcess(exchange, endpoint, registry, METRICS_NAME);
-        inOrder.verify(registry, times(1)).meter(METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).getMeter(METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).getSampler();
         inOrder.verify(endpoint, times(1)).getMark();
-        inOrder.verify(in, times(1)).getHeader(HEADER_METER_MARK, null, Long.class);
+        inOrder.verify(in, times(1)).getHeader(HEADER_METER_MARK);
         inOrder.verify(meter, times(1)).mark(MARK);
         inOrder.verifyNoMoreInteractions();
     }
+
+    @Test
+    public void testProcessMarkNotSetSampled() throws Exception {
+        when(endpoint.getSampler()).thenReturn(new Sampler(0.01));
+        when(endpoint.getMark()).thenReturn(null);
+        when(in.getHeader(HEADER_METER_MARK)).thenReturn(null);
+        producer.doProcess(exchange, endpoint, registry, METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).getMeter(METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).getSampler();
+        inOrder.verify(endpoint, times(1)).getMark();
+        inOrder.verify(in, times(1)).getHeader(HEADER_METER_MARK);
+        inOrder.verify(endpoint, times(1)).evaluateValue(exchange);
+        inOrder.verify(meter, times(1)).mark(100L);
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void testProcessWithValueExpression() throws Exception {
+        when(endpoint.getMark()).thenReturn(MARK);
+        when(endpoint.evaluateValue(exchange)).thenReturn(12L);
+        producer.doProcess(exchange, endpoint, registry, METRICS_NAME);
+        inOrder.verify(exchange, times(1)).getIn();
+        inOrder.verify(endpoint, times(1)).getMeter(METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).getSampler();
+        inOrder.verify(endpoint, times(1)).getMark();
+        inOrder.verify(in, times(1)).getHeader(HEADER_METER_MARK);
+        inOrder.verify(endpoint, times(1)).evaluateValue(exchange);
+        inOrder.verify(meter, times(1)).mark(12L);
+        inOrder.verifyNoMoreInteractions();
+    }
 }
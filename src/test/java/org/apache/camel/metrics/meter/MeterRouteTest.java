@@ -82,6 +82,8 @@ public class MeterRouteTest {
     public void setup() {
         // TODO - 12.05.2014, Lauri - is there any better way to set this up?
         mockRegistry = endpoint.getCamelContext().getRegistry().lookupByNameAndType(METRIC_REGISTRY_NAME, MetricRegistry.class);
+        // forget metrics registered when routes were started
+        reset(mockRegistry);
         mockMeter = Mockito.mock(Meter.class);
         inOrder = Mockito.inOrder(mockRegistry, mockMeter);
         when(mockRegistry.meter("A")).thenReturn(mockMeter);
@@ -0,0 +1,67 @@
+package org.apache.camel.metrics.meter;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.when;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.metrics.Sampler;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.codahale.metrics.Meter;
+
+@RunWith(MockitoJUnitRunner.class)
+public class StaticMeterProducerTest {
+
+    private static final String METRICS_NAME = "metrics.name";
+
+    @Mock
+    private MeterEndpoint endpoint;
+
+    @Mock
+    private Exchange exchange;
+
+    @Mock
+    private Meter meter;
+
+    private InOrder inOrder;
+
+    @Before
+    public void setUp() throws Exception {
+        inOrder = Mockito.inOrder(exchange, meter);
+        when(endpoint.getMetricsName()).thenReturn(METRICS_NAME);
+        when(endpoint.getMeter(METRICS_NAME)).thenReturn(meter);
+    }
+
+    @Test
+    public void testProcess() throws Exception {
+        StaticMeterProducer producer = new StaticMeterProducer(endpoint);
+        assertThat(producer.getMark(), is(1L));
+        producer.process(exchange);
+        inOrder.verify(meter, times(1)).mark(1L);
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void testProcessWithMark() throws Exception {
+        when(endpoint.getMark()).thenReturn(7L);
+        StaticMeterProducer producer = new StaticMeterProducer(endpoint);
+        producer.process(exchange);
+        inOrder.verify(meter, times(1)).mark(7L);
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void testProcessSampled() throws Exception {
+        when(endpoint.getSampler()).thenReturn(new Sampler(0.25));
+        StaticMeterProducer producer = new StaticMeterProducer(endpoint);
+        assertThat(producer.getMark(), is(4L));
+    }
+}
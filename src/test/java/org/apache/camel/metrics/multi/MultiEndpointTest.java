@@ -0,0 +1,185 @@
+package org.apache.camel.metrics.multi;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.when;
+
+import org.apache.camel.Producer;
+import org.apache.camel.RuntimeCamelException;
+import org.apache.camel.metrics.ReservoirType;
+import org.apache.camel.metrics.bucket.BucketHistogram;
+import org.apache.camel.metrics.sketch.SketchHistogram;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MultiEndpointTest {
+
+    private static final String METRICS_NAME = "multi";
+
+    @Mock
+    private MetricRegistry registry;
+
+    @Mock
+    private Counter counter;
+
+    @Mock
+    private Meter meter;
+
+    @Mock
+    private Histogram histogram;
+
+    private MultiEndpoint endpoint;
+
+    private InOrder inOrder;
+
+    @Before
+    public void setUp() throws Exception {
+        endpoint = new MultiEndpoint(registry, METRICS_NAME);
+        inOrder = Mockito.inOrder(registry);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void testMultiEndpoint() throws Exception {
+        assertThat(endpoint, is(notNullValue()));
+        assertThat(endpoint.getRegistry(), is(registry));
+        assertThat(endpoint.getMetricsName(), is(METRICS_NAME));
+    }
+
+    @Test
+    public void testCreateProducer() throws Exception {
+        Producer producer = endpoint.createProducer();
+        assertThat(producer, is(notNullValue()));
+        assertThat(producer, is(instanceOf(MultiProducer.class)));
+    }
+
+    @Test
+    public void testGetOptions() throws Exception {
+        assertThat(endpoint.getCounter(), is(nullValue()));
+        assertThat(endpoint.getCounterIncrement(), is(nullValue()));
+        assertThat(endpoint.getMeter(), is(nullValue()));
+        assertThat(endpoint.getMeterMark(), is(nullValue()));
+        assertThat(endpoint.getHistogram(), is(nullValue()));
+        assertThat(endpoint.getHistogramValue(), is(nullValue()));
+        assertThat(endpoint.getBuckets(), is(nullValue()));
+    }
+
+    @Test
+    public void testSetOptions() throws Exception {
+        endpoint.setCounter("a,b");
+        endpoint.setCounterIncrement(2L);
+        endpoint.setMeter("c");
+        endpoint.setMeterMark(3L);
+        endpoint.setHistogram("d");
+        endpoint.setHistogramValue(4L);
+        assertThat(endpoint.getCounter(), is(new String[] { "a", "b" }));
+        assertThat(endpoint.getCounterIncrement(), is(2L));
+        assertThat(endpoint.getMeter(), is(new String[] { "c" }));
+        assertThat(endpoint.getMeterMark(), is(3L));
+        assertThat(endpoint.getHistogram(), is(new String[] { "d" }));
+        assertThat(endpoint.getHistogramValue(), is(4L));
+    }
+
+    @Test
+    public void testSetOptionsTrimsNames() throws Exception {
+        endpoint.setCounter(" a , b,,");
+        endpoint.setMeter(" ");
+        endpoint.setHistogram("d ");
+        endpoint.setBuckets("10, 100");
+        assertThat(endpoint.getCounter(), is(new String[] { "a", "b" }));
+        assertThat(endpoint.getMeter(), is(nullValue()));
+        assertThat(endpoint.getHistogram(), is(new String[] { "d" }));
+        assertThat(endpoint.getBuckets(), is(new long[] { 10L, 100L }));
+    }
+
+    @Test
+    public void testGetErrorCounterName() throws Exception {
+        assertThat(endpoint.getErrorCounterName(), is(METRICS_NAME + ".errors"));
+        endpoint.setHistogram("c");
+        assertThat(endpoint.getErrorCounterName(), is("c.errors"));
+        endpoint.setMeter("b");
+        assertThat(endpoint.getErrorCounterName(), is("b.errors"));
+        endpoint.setCounter("a");
+        assertThat(endpoint.getErrorCounterName(), is("a.errors"));
+    }
+
+    @Test
+    public void testGetHistogramsWithReservoir() throws Exception {
+        MultiEndpoint sketchEndpoint = new MultiEndpoint(new MetricRegistry(), METRICS_NAME);
+        sketchEndpoint.setHistogram("a");
+        sketchEndpoint.setReservoir(ReservoirType.sketch);
+        assertThat(sketchEndpoint.getHistograms()[0], is(instanceOf(SketchHistogram.class)));
+        MultiEndpoint bucketEndpoint = new MultiEndpoint(new MetricRegistry(), METRICS_NAME);
+        bucketEndpoint.setHistogram("b");
+        bucketEndpoint.setBuckets("10,100");
+        assertThat(bucketEndpoint.getHistograms()[0], is(instanceOf(BucketHistogram.class)));
+    }
+
+    @Test
+    public void testGetMetrics() throws Exception {
+        endpoint.setCounter("a,b");
+        when(registry.counter("a")).thenReturn(counter);
+        when(registry.counter("b")).thenReturn(counter);
+        assertThat(endpoint.getCounters(), is(new Counter[] { counter, counter }));
+        assertThat(endpoint.getMeters().length, is(0));
+        assertThat(endpoint.getHistograms().length, is(0));
+        inOrder.verify(registry, times(1)).counter("a");
+        inOrder.verify(registry, times(1)).counter("b");
+    }
+
+    @Test
+    public void testGetMetricsStarted() throws Exception {
+        endpoint.setCounter("a");
+        endpoint.setMeter("b");
+        endpoint.setHistogram("c");
+        when(registry.counter("a")).thenReturn(counter);
+        when(registry.meter("b")).thenReturn(meter);
+        when(registry.histogram("c")).thenReturn(histogram);
+        endpoint.start();
+        assertThat(endpoint.getCounters(), is(new Counter[] { counter }));
+        assertThat(endpoint.getMeters(), is(new Meter[] { meter }));
+        assertThat(endpoint.getHistograms(), is(new Histogram[] { histogram }));
+        assertThat(endpoint.getCounters(), is(new Counter[] { counter }));
+        endpoint.stop();
+        inOrder.verify(registry, times(1)).counter("a");
+        inOrder.verify(registry, times(1)).meter("b");
+        inOrder.verify(registry, times(1)).histogram("c");
+    }
+
+    @Test(expected = RuntimeCamelException.class)
+    public void testStartWithValueExpression() throws Exception {
+        endpoint.setValueExpression("${body.length}");
+        endpoint.start();
+    }
+
+    @Test(expected = RuntimeCamelException.class)
+    public void testStartWithValueLanguage() throws Exception {
+        endpoint.setValueLanguage("xpath");
+        endpoint.start();
+    }
+
+    @Test
+    public void testCreateEndpointUri() throws Exception {
+        assertThat(endpoint.createEndpointUri(), is(MultiEndpoint.ENDPOINT_URI));
+    }
+}
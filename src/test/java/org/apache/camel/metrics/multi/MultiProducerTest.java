@@ -0,0 +1,187 @@
+package org.apache.camel.metrics.multi;
+
+import static org.apache.camel.metrics.MetricsComponent.HEADER_COUNTER_INCREMENT;
+import static org.apache.camel.metrics.MetricsComponent.HEADER_HISTOGRAM_VALUE;
+import static org.apache.camel.metrics.MetricsComponent.HEADER_METER_MARK;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.when;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.Message;
+import org.apache.camel.metrics.AbstractMetricsProducer;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.slf4j.Logger;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MultiProducerTest {
+
+    private static final String METRICS_NAME = "multi";
+    private static final Long VALUE = 1234L;
+
+    @Mock
+    private MultiEndpoint endpoint;
+
+    @Mock
+    private Exchange exchange;
+
+    @Mock
+    private MetricRegistry registry;
+
+    @Mock
+    private Counter counter1;
+
+    @Mock
+    private Counter counter2;
+
+    @Mock
+    private Meter meter;
+
+    @Mock
+    private Histogram histogram;
+
+    @Mock
+    private Message in;
+
+    private MultiProducer producer;
+
+    private InOrder inOrder;
+
+    @Before
+    public void setUp() throws Exception {
+        when(endpoint.isHeaderOverrides()).thenReturn(true);
+        producer = new MultiProducer(endpoint);
+        inOrder = Mockito.inOrder(endpoint, exchange, registry, counter1, counter2, meter, histogram, in);
+        when(endpoint.getRegistry()).thenReturn(registry);
+        when(endpoint.getCounters()).thenReturn(new Counter[] { counter1, counter2 });
+        when(endpoint.getMeters()).thenReturn(new Meter[] { meter });
+        when(endpoint.getHistograms()).thenReturn(new Histogram[] { histogram });
+        when(exchange.getIn()).thenReturn(in);
+    }
+
+    @Test
+    public void testMultiProducer() throws Exception {
+        assertThat(producer.getEndpoint().equals(endpoint), is(true));
+    }
+
+    @Test
+    public void testProcess() throws Exception {
+        when(endpoint.getHistogramValue()).thenReturn(VALUE);
+        producer.doProcess(exchange, endpoint, registry, METRICS_NAME);
+        inOrder.verify(exchange, times(1)).getIn();
+        inOrder.verify(endpoint, times(1)).getSampler();
+        inOrder.verify(endpoint, times(1)).getCounters();
+        inOrder.verify(endpoint, times(1)).getCounterIncrement();
+        inOrder.verify(in, times(1)).getHeader(HEADER_COUNTER_INCREMENT);
+        inOrder.verify(counter1, times(1)).inc(1L);
+        inOrder.verify(counter2, times(1)).inc(1L);
+        inOrder.verify(endpoint, times(1)).getMeters();
+        inOrder.verify(endpoint, times(1)).getMeterMark();
+        inOrder.verify(in, times(1)).getHeader(HEADER_METER_MARK);
+        inOrder.verify(meter, times(1)).mark(1L);
+        inOrder.verify(endpoint, times(1)).getHistograms();
+        inOrder.verify(endpoint, times(1)).getHistogramValue();
+        inOrder.verify(in, times(1)).getHeader(HEADER_HISTOGRAM_VALUE);
+        inOrder.verify(histogram, times(1)).update(VALUE);
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void testProcessWithValues() throws Exception {
+        when(endpoint.getCounterIncrement()).thenReturn(3L);
+        when(endpoint.getMeterMark()).thenReturn(5L);
+        when(in.getHeader(HEADER_HISTOGRAM_VALUE)).thenReturn(VALUE);
+        producer.doProcess(exchange, endpoint, registry, METRICS_NAME);
+        inOrder.verify(exchange, times(1)).getIn();
+        inOrder.verify(endpoint, times(1)).getSampler();
+        inOrder.verify(endpoint, times(1)).getCounters();
+        inOrder.verify(endpoint, times(1)).getCounterIncrement();
+        inOrder.verify(in, times(1)).getHeader(HEADER_COUNTER_INCREMENT);
+        inOrder.verify(counter1, times(1)).inc(3L);
+        inOrder.verify(counter2, times(1)).inc(3L);
+        inOrder.verify(endpoint, times(1)).getMeters();
+        inOrder.verify(endpoint, times(1)).getMeterMark();
+        inOrder.verify(in, times(1)).getHeader(HEADER_METER_MARK);
+        inOrder.verify(meter, times(1)).mark(5L);
+        inOrder.verify(endpoint, times(1)).getHistograms();
+        inOrder.verify(endpoint, times(1)).getHistogramValue();
+        inOrder.verify(in, times(1)).getHeader(HEADER_HISTOGRAM_VALUE);
+        inOrder.verify(histogram, times(1)).update(VALUE);
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void testProcessOverrideFromHeaders() throws Exception {
+        when(endpoint.getCounterIncrement()).thenReturn(3L);
+        when(in.getHeader(HEADER_COUNTER_INCREMENT)).thenReturn(7L);
+        when(in.getHeader(HEADER_METER_MARK)).thenReturn(11);
+        when(endpoint.getEndpointUri()).thenReturn(MultiEndpoint.ENDPOINT_URI);
+        producer.doProcess(exchange, endpoint, registry, METRICS_NAME);
+        inOrder.verify(exchange, times(1)).getIn();
+        inOrder.verify(endpoint, times(1)).getSampler();
+        inOrder.verify(endpoint, times(1)).getCounters();
+        inOrder.verify(endpoint, times(1)).getCounterIncrement();
+        inOrder.verify(in, times(1)).getHeader(HEADER_COUNTER_INCREMENT);
+        inOrder.verify(counter1, times(1)).inc(7L);
+        inOrder.verify(counter2, times(1)).inc(7L);
+        inOrder.verify(endpoint, times(1)).getMeters();
+        inOrder.verify(endpoint, times(1)).getMeterMark();
+        inOrder.verify(in, times(1)).getHeader(HEADER_METER_MARK);
+        inOrder.verify(meter, times(1)).mark(11L);
+        inOrder.verify(endpoint, times(1)).getHistograms();
+        inOrder.verify(endpoint, times(1)).getHistogramValue();
+        inOrder.verify(in, times(1)).getHeader(HEADER_HISTOGRAM_VALUE);
+        inOrder.verify(endpoint, times(1)).getEndpointUri();
+        inOrder.verify(endpoint, times(1)).onError(any(Logger.class), eq("nullValue"), anyString(), eq(MultiEndpoint.ENDPOINT_URI));
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void testProcessDoesNotReadMetricsName() throws Exception {
+        when(endpoint.getMetricsName()).thenReturn(METRICS_NAME);
+        when(endpoint.getCounters()).thenReturn(new Counter[0]);
+        when(endpoint.getMeters()).thenReturn(new Meter[0]);
+        when(endpoint.getHistograms()).thenReturn(new Histogram[0]);
+        producer.process(exchange);
+        inOrder.verify(exchange, times(1)).getIn();
+        inOrder.verify(endpoint, times(1)).getSampler();
+        inOrder.verify(endpoint, times(1)).getMetricsName();
+        inOrder.verify(endpoint, times(1)).getRegistry();
+        inOrder.verify(exchange, times(1)).getIn();
+        inOrder.verify(endpoint, times(1)).getSampler();
+        inOrder.verify(endpoint, times(1)).getCounters();
+        inOrder.verify(endpoint, times(1)).getMeters();
+        inOrder.verify(endpoint, times(1)).getHistograms();
+        inOrder.verify(in, times(1)).removeHeaders(AbstractMetricsProducer.HEADER_PATTERN);
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void testProcessNoMetrics() throws Exception {
+        when(endpoint.getCounters()).thenReturn(new Counter[0]);
+        when(endpoint.getMeters()).thenReturn(new Meter[0]);
+        when(endpoint.getHistograms()).thenReturn(new Histogram[0]);
+        producer.doProcess(exchange, endpoint, registry, METRICS_NAME);
+        inOrder.verify(exchange, times(1)).getIn();
+        inOrder.verify(endpoint, times(1)).getSampler();
+        inOrder.verify(endpoint, times(1)).getCounters();
+        inOrder.verify(endpoint, times(1)).getMeters();
+        inOrder.verify(endpoint, times(1)).getHistograms();
+        inOrder.verifyNoMoreInteractions();
+    }
+}
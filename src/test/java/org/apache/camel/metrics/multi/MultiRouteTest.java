@@ -0,0 +1,111 @@
+package org.apache.camel.metrics.multi;
+
+import static org.apache.camel.metrics.MetricsComponent.HEADER_HISTOGRAM_VALUE;
+import static org.apache.camel.metrics.MetricsComponent.METRIC_REGISTRY_NAME;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.when;
+
+import org.apache.camel.EndpointInject;
+import org.apache.camel.Produce;
+import org.apache.camel.ProducerTemplate;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.component.mock.MockEndpoint;
+import org.apache.camel.spring.javaconfig.SingleRouteCamelConfiguration;
+import org.apache.camel.test.spring.CamelSpringDelegatingTestContextLoader;
+import org.apache.camel.test.spring.CamelSpringJUnit4ClassRunner;
+import org.apache.camel.test.spring.MockEndpoints;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.ContextConfiguration;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+@RunWith(CamelSpringJUnit4ClassRunner.class)
+@ContextConfiguration(
+        classes = { MultiRouteTest.TestConfig.class },
+        loader = CamelSpringDelegatingTestContextLoader.class)
+@MockEndpoints
+public class MultiRouteTest {
+
+    private static final Counter COUNTER = mock(Counter.class);
+    private static final Meter METER = mock(Meter.class);
+    private static final Histogram HISTOGRAM = mock(Histogram.class);
+
+    @EndpointInject(uri = "mock:out")
+    private MockEndpoint endpoint;
+
+    @Produce(uri = "direct:in")
+    private ProducerTemplate producer;
+
+    private MetricRegistry mockRegistry;
+
+    private InOrder inOrder;
+
+    @Configuration
+    public static class TestConfig extends SingleRouteCamelConfiguration {
+
+        @Bean
+        @Override
+        public RouteBuilder route() {
+            return new RouteBuilder() {
+
+                @Override
+                public void configure() throws Exception {
+                    from("direct:in")
+                            .to("metrics:multi?counter=A&meter=B&histogram=C&histogramValue=10")
+                            .to("mock:out");
+                }
+            };
+        }
+
+        @Bean(name = METRIC_REGISTRY_NAME)
+        public MetricRegistry getMetricRegistry() {
+            MetricRegistry registry = Mockito.mock(MetricRegistry.class);
+            when(registry.counter("A")).thenReturn(COUNTER);
+            when(registry.meter("B")).thenReturn(METER);
+            when(registry.histogram("C")).thenReturn(HISTOGRAM);
+            return registry;
+        }
+    }
+
+    @Before
+    public void setup() {
+        mockRegistry = endpoint.getCamelContext().getRegistry().lookupByNameAndType(METRIC_REGISTRY_NAME, MetricRegistry.class);
+        inOrder = Mockito.inOrder(mockRegistry, COUNTER, METER, HISTOGRAM);
+    }
+
+    @After
+    public void tearDown() {
+        endpoint.reset();
+        reset(COUNTER, METER, HISTOGRAM);
+    }
+
+    @Test
+    public void testMetricsResolvedOnStart() throws Exception {
+        endpoint.expectedMessageCount(2);
+        producer.sendBody(new Object());
+        producer.sendBodyAndHeader(new Object(), HEADER_HISTOGRAM_VALUE, 20L);
+        endpoint.assertIsSatisfied();
+        inOrder.verify(mockRegistry, times(1)).counter("A");
+        inOrder.verify(mockRegistry, times(1)).meter("B");
+        inOrder.verify(mockRegistry, times(1)).histogram("C");
+        inOrder.verify(COUNTER, times(1)).inc(1L);
+        inOrder.verify(METER, times(1)).mark(1L);
+        inOrder.verify(HISTOGRAM, times(1)).update(10L);
+        inOrder.verify(COUNTER, times(1)).inc(1L);
+        inOrder.verify(METER, times(1)).mark(1L);
+        inOrder.verify(HISTOGRAM, times(1)).update(20L);
+        inOrder.verifyNoMoreInteractions();
+    }
+}
@@ -0,0 +1,181 @@
+package org.apache.camel.metrics.reporter;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Calendar;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.camel.metrics.reporter.FileReporter.Format;
+import org.apache.camel.metrics.reporter.FileReporter.MetricType;
+import org.apache.camel.util.FileUtil;
+import org.apache.camel.util.IOHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.MetricRegistry;
+
+public class FileReporterTest {
+
+    private MetricRegistry registry;
+
+    private ManualClock clock;
+
+    private File directory;
+
+    @Before
+    public void setUp() throws Exception {
+        registry = new MetricRegistry();
+        registry.counter("orders,total").inc(3L);
+        registry.histogram("size").update(10L);
+        clock = new ManualClock();
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(2014, Calendar.MAY, 13, 12, 0, 0);
+        clock.time = calendar.getTimeInMillis();
+        directory = File.createTempFile("metrics", "");
+        directory.delete();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtil.removeDir(directory);
+    }
+
+    @Test
+    public void testWriteCsv() throws Exception {
+        FileReporter reporter = FileReporter.forRegistry(registry).withClock(clock).build(directory);
+        reporter.report();
+        reporter.report();
+        reporter.stop();
+        File file = new File(directory, "metrics-2014-05-13.csv");
+        String[] lines = read(new FileInputStream(file)).split("\n");
+        assertThat(lines.length, is(MetricType.values().length + 4));
+        assertThat(lines[0], is("# time,type,name,value - gauge"));
+        assertThat(lines[5], is(clock.time + ",counter,\"orders,total\",3.0"));
+        assertThat(lines[6], is(clock.time + ",histogram,size,1.0,10.0,10.0,10.0,0.0,10.0,10.0,10.0,10.0,10.0,10.0"));
+        assertThat(reporter.getDroppedCount(), is(0L));
+    }
+
+    @Test
+    public void testWriteBinary() throws Exception {
+        FileReporter reporter = FileReporter.forRegistry(registry).withClock(clock).format(Format.binary).filter(new PrefixFilter("orders")).build(directory);
+        reporter.report();
+        reporter.stop();
+        DataInputStream in = new DataInputStream(new FileInputStream(new File(directory, "metrics-2014-05-13.bin")));
+        try {
+            byte[] magic = new byte[4];
+            in.readFully(magic);
+            assertThat(magic, is(FileReporter.BINARY_MAGIC));
+            assertThat(in.readLong(), is(clock.time));
+            assertThat((int) in.readByte(), is(MetricType.counter.ordinal()));
+            byte[] name = new byte[in.readUnsignedShort()];
+            in.readFully(name);
+            assertThat(new String(name, "UTF-8"), is("orders,total"));
+            assertThat(in.readDouble(), is(3.0));
+            assertThat(in.read(), is(-1));
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    @Test
+    public void testRollAndCompress() throws Exception {
+        FileReporter reporter = FileReporter.forRegistry(registry).withClock(clock).prefixedWith("camel").build(directory);
+        reporter.report();
+        clock.time += 24L * 60 * 60 * 1000;
+        reporter.report();
+        reporter.stop();
+        assertThat(new File(directory, "camel-2014-05-13.csv").exists(), is(false));
+        assertThat(new File(directory, "camel-2014-05-14.csv").exists(), is(true));
+        String previous = read(new GZIPInputStream(new FileInputStream(new File(directory, "camel-2014-05-13.csv.gz"))));
+        assertThat(previous.split("\n").length, is(MetricType.values().length + 2));
+    }
+
+    @Test
+    public void testRollWithoutCompress() throws Exception {
+        FileReporter reporter = FileReporter.forRegistry(registry).withClock(clock).compress(false).build(directory);
+        reporter.report();
+        clock.time += 24L * 60 * 60 * 1000;
+        reporter.report();
+        reporter.stop();
+        assertThat(new File(directory, "metrics-2014-05-13.csv").exists(), is(true));
+        assertThat(new File(directory, "metrics-2014-05-14.csv").exists(), is(true));
+    }
+
+    @Test
+    public void testRollAfterFailedOpen() throws Exception {
+        // regular file in place of parent directory makes mkdirs fail
+        assertThat(directory.createNewFile(), is(true));
+        File subdirectory = new File(directory, "sub");
+        RollingFileChannel channel = new RollingFileChannel(subdirectory, "metrics", "csv", false, new byte[0], 16);
+        boolean failed = false;
+        try {
+            channel.roll(clock.time);
+        }
+        catch (IOException e) {
+            failed = true;
+        }
+        assertThat(failed, is(true));
+        assertThat(channel.getFile(), is(nullValue()));
+        assertThat(directory.delete(), is(true));
+        channel.roll(clock.time);
+        channel.put("x".getBytes("UTF-8"));
+        channel.close();
+        assertThat(read(new FileInputStream(new File(subdirectory, "metrics-2014-05-13.csv"))), is("x\n"));
+    }
+
+    @Test
+    public void testEscape() throws Exception {
+        assertThat(FileReporter.escape("a.b"), is("a.b"));
+        assertThat(FileReporter.escape("a,\"b\""), is("\"a,\"\"b\"\"\""));
+    }
+
+    private static String read(InputStream in) throws IOException {
+        try {
+            return IOHelper.loadText(in);
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    private static class PrefixFilter implements MetricFilter {
+
+        private final String prefix;
+
+        PrefixFilter(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public boolean matches(String name, Metric metric) {
+            return name.startsWith(prefix);
+        }
+    }
+
+    private static class ManualClock extends Clock {
+
+        private long time;
+
+        @Override
+        public long getTick() {
+            return time * 1000000L;
+        }
+
+        @Override
+        public long getTime() {
+            return time;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package org.apache.camel.metrics.reporter;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.SortedMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.camel.metrics.reporter.ReportingScheduler.ReportingTask;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.ScheduledReporter;
+import com.codahale.metrics.Timer;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReportingSchedulerTest {
+
+    @Mock
+    private ScheduledExecutorService executor;
+
+    @Mock
+    @SuppressWarnings("rawtypes")
+    private ScheduledFuture future;
+
+    private MetricRegistry registry;
+
+    private ReportingScheduler scheduler;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        registry = new MetricRegistry();
+        scheduler = new ReportingScheduler(executor);
+        when(executor.scheduleAtFixedRate(any(Runnable.class), anyLong(), anyLong(), eq(TimeUnit.NANOSECONDS))).thenReturn(future);
+    }
+
+    @Test
+    public void testScheduleSharesTask() throws Exception {
+        RecordingReporter reporter1 = new RecordingReporter(registry);
+        RecordingReporter reporter2 = new RecordingReporter(registry);
+        scheduler.schedule(reporter1, registry, 10L, TimeUnit.SECONDS);
+        scheduler.schedule(reporter2, registry, 10L, TimeUnit.SECONDS);
+        scheduler.schedule(reporter2, registry, 10L, TimeUnit.SECONDS);
+        assertThat(scheduler.getTasks().size(), is(1));
+        assertThat(scheduler.getScheduledCount(), is(2));
+        assertThat(scheduler.isScheduled(reporter1), is(true));
+        verify(executor, times(1)).scheduleAtFixedRate(any(Runnable.class), anyLong(), eq(TimeUnit.SECONDS.toNanos(10L)), eq(TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    public void testScheduleDifferentPeriod() throws Exception {
+        scheduler.schedule(new RecordingReporter(registry), registry, 10L, TimeUnit.SECONDS);
+        scheduler.schedule(new RecordingReporter(registry), registry, 1L, TimeUnit.SECONDS);
+        scheduler.schedule(new RecordingReporter(registry), new MetricRegistry(), 1L, TimeUnit.SECONDS);
+        assertThat(scheduler.getTasks().size(), is(3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testScheduleInvalidPeriod() throws Exception {
+        scheduler.schedule(new RecordingReporter(registry), registry, 0L, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testRunSharesSnapshots() throws Exception {
+        registry.counter("counter").inc(3L);
+        registry.histogram("histogram").update(7L);
+        registry.timer("timer").update(1L, TimeUnit.SECONDS);
+        RecordingReporter reporter1 = new RecordingReporter(registry);
+        RecordingReporter reporter2 = new RecordingReporter(registry);
+        scheduler.schedule(reporter1, registry, 10L, TimeUnit.SECONDS);
+        scheduler.schedule(reporter2, registry, 10L, TimeUnit.SECONDS);
+        scheduler.getTasks().get(0).run();
+        assertThat(reporter1.counters.get("counter").getCount(), is(3L));
+        Histogram histogram = reporter1.histograms.get("histogram");
+        assertThat(histogram.getCount(), is(1L));
+        assertThat(histogram.getSnapshot().getMax(), is(7L));
+        assertThat(reporter2.histograms.get("histogram"), is(sameInstance(histogram)));
+        assertThat(reporter2.histograms.get("histogram").getSnapshot(), is(sameInstance(histogram.getSnapshot())));
+        Timer timer = reporter2.timers.get("timer");
+        assertThat(timer.getCount(), is(1L));
+        assertThat(timer.getSnapshot().getMax(), is(TimeUnit.SECONDS.toNanos(1L)));
+        assertThat(reporter1.timers.get("timer"), is(sameInstance(timer)));
+    }
+
+    @Test
+    public void testSnapshotCacheSharedByTasks() throws Exception {
+        registry.histogram("histogram").update(7L);
+        RecordingReporter reporter1 = new RecordingReporter(registry);
+        RecordingReporter reporter2 = new RecordingReporter(registry);
+        scheduler.schedule(reporter1, registry, 10L, TimeUnit.SECONDS);
+        scheduler.schedule(reporter2, registry, 1L, TimeUnit.SECONDS);
+        SnapshotCache cache = scheduler.getSnapshotCache(registry);
+        assertThat(scheduler.getTasks().get(0).getSnapshotCache(), is(sameInstance(cache)));
+        assertThat(scheduler.getTasks().get(1).getSnapshotCache(), is(sameInstance(cache)));
+        scheduler.getTasks().get(0).run();
+        scheduler.getTasks().get(1).run();
+        assertThat(reporter2.histograms.get("histogram").getSnapshot(), is(sameInstance(reporter1.histograms.get("histogram").getSnapshot())));
+        assertThat(cache.getComputedCount(), is(1L));
+    }
+
+    @Test
+    public void testSetSnapshotCache() throws Exception {
+        scheduler.schedule(new RecordingReporter(registry), registry, 10L, TimeUnit.SECONDS);
+        SnapshotCache replaced = scheduler.getSnapshotCache(registry);
+        registry.histogram("histogram");
+        replaced.getSnapshot("histogram");
+        SnapshotCache cache = new SnapshotCache(registry, 5L, TimeUnit.SECONDS);
+        scheduler.setSnapshotCache(cache);
+        assertThat(scheduler.getSnapshotCache(registry), is(sameInstance(cache)));
+        assertThat(scheduler.getTasks().get(0).getSnapshotCache(), is(sameInstance(cache)));
+        assertThat(replaced.size(), is(0));
+    }
+
+    @Test
+    public void testReleaseSnapshotCache() throws Exception {
+        RecordingReporter reporter = new RecordingReporter(registry);
+        scheduler.schedule(reporter, registry, 10L, TimeUnit.SECONDS);
+        SnapshotCache cache = scheduler.getSnapshotCache(registry);
+        assertThat(scheduler.releaseSnapshotCache(registry), is(false));
+        assertThat(scheduler.getSnapshotCache(registry), is(sameInstance(cache)));
+        scheduler.cancel(reporter);
+        assertThat(scheduler.releaseSnapshotCache(registry), is(false));
+        assertThat(scheduler.getSnapshotCache(registry), is(not(sameInstance(cache))));
+        assertThat(scheduler.releaseSnapshotCache(registry), is(true));
+    }
+
+    @Test
+    public void testRunWithFilter() throws Exception {
+        registry.counter("a.counter");
+        registry.counter("b.counter");
+        RecordingReporter reporter = new RecordingReporter(registry);
+        scheduler.schedule(reporter, registry, new MetricFilter() {
+            @Override
+            public boolean matches(String name, Metric metric) {
+                return name.startsWith("a.");
+            }
+        }, 10L, TimeUnit.SECONDS);
+        scheduler.getTasks().get(0).run();
+        assertThat(reporter.counters.size(), is(1));
+        assertThat(reporter.counters.containsKey("a.counter"), is(true));
+    }
+
+    @Test
+    public void testRunContinuesAfterFailure() throws Exception {
+        RecordingReporter reporter1 = new RecordingReporter(registry);
+        reporter1.fail = true;
+        RecordingReporter reporter2 = new RecordingReporter(registry);
+        scheduler.schedule(reporter1, registry, 10L, TimeUnit.SECONDS);
+        scheduler.schedule(reporter2, registry, 10L, TimeUnit.SECONDS);
+        ReportingTask task = scheduler.getTasks().get(0);
+        task.run();
+        assertThat(reporter2.reports, is(1));
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        RecordingReporter reporter1 = new RecordingReporter(registry);
+        RecordingReporter reporter2 = new RecordingReporter(registry);
+        scheduler.schedule(reporter1, registry, 10L, TimeUnit.SECONDS);
+        scheduler.schedule(reporter2, registry, 10L, TimeUnit.SECONDS);
+        assertThat(scheduler.cancel(reporter1), is(true));
+        assertThat(scheduler.getTasks().size(), is(1));
+        assertThat(scheduler.cancel(reporter1), is(false));
+        assertThat(scheduler.cancel(reporter2), is(true));
+        assertThat(scheduler.getTasks().size(), is(0));
+        verify(future, times(1)).cancel(false);
+    }
+
+    @Test
+    public void testGetDefault() throws Exception {
+        assertThat(ReportingScheduler.getDefault(), is(sameInstance(ReportingScheduler.getDefault())));
+    }
+
+    private static class RecordingReporter extends ScheduledReporter {
+
+        private SortedMap<String, Counter> counters;
+        private SortedMap<String, Histogram> histograms;
+        private SortedMap<String, Timer> timers;
+        private int reports;
+        private boolean fail;
+
+        RecordingReporter(MetricRegistry registry) {
+            super(registry, "recording-reporter", MetricFilter.ALL, TimeUnit.SECONDS, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        @SuppressWarnings("rawtypes")
+        public void report(SortedMap<String, Gauge> gauges, SortedMap<String, Counter> counters, SortedMap<String, Histogram> histograms,
+                SortedMap<String, Meter> meters, SortedMap<String, Timer> timers) {
+            if (fail) {
+                throw new IllegalStateException("failed");
+            }
+            this.counters = counters;
+            this.histograms = histograms;
+            this.timers = timers;
+            reports++;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package org.apache.camel.metrics.reporter;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SnapshotCacheTest {
+
+    @Mock
+    private Histogram histogram;
+
+    @Mock
+    private Snapshot snapshot1;
+
+    @Mock
+    private Snapshot snapshot2;
+
+    private MetricRegistry registry;
+
+    private ManualClock clock;
+
+    private SnapshotCache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        registry = new MetricRegistry();
+        clock = new ManualClock();
+        cache = new SnapshotCache(registry, 1L, TimeUnit.SECONDS, clock);
+        when(histogram.getSnapshot()).thenReturn(snapshot1, snapshot2);
+    }
+
+    @Test
+    public void testGetSnapshotOncePerTick() throws Exception {
+        assertThat(cache.getSnapshot("a", histogram), is(sameInstance(snapshot1)));
+        clock.tick += TimeUnit.MILLISECONDS.toNanos(999L);
+        assertThat(cache.getSnapshot("a", histogram), is(sameInstance(snapshot1)));
+        verify(histogram, times(1)).getSnapshot();
+        clock.tick += TimeUnit.MILLISECONDS.toNanos(1L);
+        assertThat(cache.getSnapshot("a", histogram), is(sameInstance(snapshot2)));
+        verify(histogram, times(2)).getSnapshot();
+        assertThat(cache.getComputedCount(), is(2L));
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        long version = cache.getVersion();
+        cache.getSnapshot("a", histogram);
+        cache.invalidate();
+        assertThat(cache.getVersion(), is(version + 1L));
+        assertThat(cache.getSnapshot("a", histogram), is(sameInstance(snapshot2)));
+    }
+
+    @Test
+    public void testGetSnapshotReplacedMetric() throws Exception {
+        Histogram other = new Histogram(new FixedReservoir(snapshot2));
+        cache.getSnapshot("a", histogram);
+        assertThat(cache.getSnapshot("a", other), is(sameInstance(snapshot2)));
+    }
+
+    @Test
+    public void testGetSnapshotByName() throws Exception {
+        registry.register("a", histogram);
+        registry.counter("b");
+        assertThat(cache.getSnapshot("a"), is(sameInstance(snapshot1)));
+        assertThat(cache.getSnapshot("b"), is(nullValue()));
+        assertThat(cache.getSnapshot("c"), is(nullValue()));
+    }
+
+    @Test
+    public void testRemoveMetric() throws Exception {
+        registry.register("a", histogram);
+        cache.getSnapshot("a");
+        assertThat(cache.size(), is(1));
+        registry.remove("a");
+        assertThat(cache.size(), is(0));
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        registry.register("a", histogram);
+        cache.getSnapshot("a");
+        cache.close();
+        assertThat(cache.size(), is(0));
+        cache.getSnapshot("a");
+        registry.remove("a");
+        // no longer follows registry
+        assertThat(cache.size(), is(1));
+    }
+
+    @Test
+    public void testGetHistogramsAndTimers() throws Exception {
+        registry.histogram("h").update(5L);
+        registry.timer("t").update(3L, TimeUnit.SECONDS);
+        SortedMap<String, Histogram> histograms = cache.getHistograms(MetricFilter.ALL);
+        assertThat(histograms.get("h").getCount(), is(1L));
+        assertThat(histograms.get("h").getSnapshot().getMax(), is(5L));
+        assertThat(cache.getHistograms(MetricFilter.ALL).get("h").getSnapshot(), is(sameInstance(histograms.get("h").getSnapshot())));
+        SortedMap<String, Timer> timers = cache.getTimers(MetricFilter.ALL);
+        assertThat(timers.get("t").getCount(), is(1L));
+        assertThat(timers.get("t").getSnapshot(), is(sameInstance(cache.getSnapshot("t"))));
+        assertThat(cache.getComputedCount(), is(2L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidTick() throws Exception {
+        new SnapshotCache(registry, 0L, TimeUnit.SECONDS);
+    }
+
+    private static class ManualClock extends Clock {
+
+        private long tick;
+
+        @Override
+        public long getTick() {
+            return tick;
+        }
+    }
+}
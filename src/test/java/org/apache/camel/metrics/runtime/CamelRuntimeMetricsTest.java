@@ -0,0 +1,144 @@
+package org.apache.camel.metrics.runtime;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.camel.CamelContext;
+import org.apache.camel.Endpoint;
+import org.apache.camel.Route;
+import org.apache.camel.component.seda.SedaEndpoint;
+import org.apache.camel.spi.InflightRepository;
+import org.apache.camel.spi.LifecycleStrategy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.codahale.metrics.MetricRegistry;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CamelRuntimeMetricsTest {
+
+    @Mock
+    private CamelContext camelContext;
+
+    @Mock
+    private InflightRepository inflightRepository;
+
+    @Mock
+    private SedaEndpoint sedaEndpoint;
+
+    @Mock
+    private Endpoint otherEndpoint;
+
+    @Mock
+    private Route route;
+
+    private List<LifecycleStrategy> strategies;
+
+    private ThreadPoolExecutor threadPool;
+
+    private MetricRegistry registry;
+
+    private CamelRuntimeMetrics metrics;
+
+    @Before
+    public void setUp() throws Exception {
+        registry = new MetricRegistry();
+        strategies = new ArrayList<LifecycleStrategy>();
+        threadPool = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+        metrics = new CamelRuntimeMetrics(registry, "camel", 1L, TimeUnit.HOURS);
+        when(camelContext.getInflightRepository()).thenReturn(inflightRepository);
+        when(camelContext.getLifecycleStrategies()).thenReturn(strategies);
+        when(camelContext.getEndpoints()).thenReturn(Collections.<Endpoint> emptyList());
+        when(camelContext.getRoutes()).thenReturn(Collections.<Route> emptyList());
+        when(sedaEndpoint.getEndpointKey()).thenReturn("seda://orders?size=100");
+        when(route.getId()).thenReturn("route1");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        threadPool.shutdownNow();
+    }
+
+    @Test
+    public void testInstall() throws Exception {
+        when(camelContext.getEndpoints()).thenReturn(Arrays.asList(sedaEndpoint, otherEndpoint));
+        when(camelContext.getRoutes()).thenReturn(Collections.singletonList(route));
+        metrics.install(camelContext);
+        verify(camelContext, times(1)).addLifecycleStrategy(metrics);
+        assertThat(registry.getGauges().keySet().toArray(), is(new Object[] { "camel.inflight", "camel.routes.route1.inflight",
+                "camel.seda.orders.queueSize" }));
+    }
+
+    @Test
+    public void testInflightCached() throws Exception {
+        when(inflightRepository.size()).thenReturn(3, 4);
+        when(inflightRepository.size("route1")).thenReturn(2);
+        metrics.install(camelContext);
+        metrics.onRoutesAdd(Collections.singletonList(route));
+        assertThat((Integer) registry.getGauges().get("camel.inflight").getValue(), is(3));
+        assertThat((Integer) registry.getGauges().get("camel.inflight").getValue(), is(3));
+        assertThat((Integer) registry.getGauges().get("camel.routes.route1.inflight").getValue(), is(2));
+        verify(inflightRepository, times(1)).size();
+        metrics.onRoutesRemove(Collections.singletonList(route));
+        assertThat(registry.getGauges().containsKey("camel.routes.route1.inflight"), is(false));
+    }
+
+    @Test
+    public void testSedaQueueSize() throws Exception {
+        when(sedaEndpoint.getCurrentQueueSize()).thenReturn(42);
+        metrics.install(camelContext);
+        metrics.onEndpointAdd(otherEndpoint);
+        metrics.onEndpointAdd(sedaEndpoint);
+        assertThat((Integer) registry.getGauges().get("camel.seda.orders.queueSize").getValue(), is(42));
+        assertThat(registry.getGauges().size(), is(2));
+        metrics.onEndpointRemove(sedaEndpoint);
+        assertThat(registry.getGauges().size(), is(1));
+    }
+
+    @Test
+    public void testThreadPool() throws Exception {
+        metrics.install(camelContext);
+        threadPool.submit(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }).get();
+        metrics.onThreadPoolAdd(camelContext, threadPool, "pool1", "threads", "route1", null);
+        assertThat((Long) registry.getGauges().get("camel.threadPools.pool1.completedTaskCount").getValue(), is(1L));
+        assertThat((Long) registry.getGauges().get("camel.threadPools.pool1.poolSize").getValue(), is(1L));
+        assertThat((Long) registry.getGauges().get("camel.threadPools.pool1.activeCount").getValue(), is(0L));
+        assertThat((Long) registry.getGauges().get("camel.threadPools.pool1.queueSize").getValue(), is(0L));
+        metrics.onThreadPoolRemove(camelContext, threadPool);
+        assertThat(registry.getGauges().size(), is(1));
+    }
+
+    @Test
+    public void testUninstall() throws Exception {
+        metrics.install(camelContext);
+        strategies.add(metrics);
+        metrics.onThreadPoolAdd(camelContext, threadPool, "pool1", "threads", "route1", null);
+        metrics.uninstall();
+        assertThat(registry.getGauges().isEmpty(), is(true));
+        assertThat(strategies.isEmpty(), is(true));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testInflightNotInstalled() throws Exception {
+        metrics.getInflightRepository();
+    }
+}
@@ -0,0 +1,213 @@
+package org.apache.camel.metrics.runtime;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.Message;
+import org.apache.camel.Route;
+import org.apache.camel.management.event.ExchangeCompletedEvent;
+import org.apache.camel.management.event.ExchangeFailedEvent;
+import org.apache.camel.management.event.ExchangeFailureHandledEvent;
+import org.apache.camel.management.event.ExchangeRedeliveryEvent;
+import org.apache.camel.spi.EventNotifier;
+import org.apache.camel.spi.ManagementStrategy;
+import org.apache.camel.spi.Synchronization;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RedeliveryMetricsTest {
+
+    private static final String ROUTE_ID = "route1";
+    private static final String EXCHANGE_ID = "exchange1";
+
+    @Mock
+    private CamelContext camelContext;
+
+    @Mock
+    private ManagementStrategy managementStrategy;
+
+    @Mock
+    private Route route;
+
+    @Mock
+    private Exchange exchange;
+
+    @Mock
+    private Message in;
+
+    private ManualClock clock;
+
+    private MetricRegistry registry;
+
+    private RedeliveryMetrics metrics;
+
+    @Before
+    public void setUp() throws Exception {
+        clock = new ManualClock();
+        clock.time = 10000L;
+        registry = new MetricRegistry();
+        metrics = new RedeliveryMetrics(registry, "camel", clock);
+        when(camelContext.getManagementStrategy()).thenReturn(managementStrategy);
+        when(camelContext.getRoutes()).thenReturn(Collections.singletonList(route));
+        when(route.getId()).thenReturn(ROUTE_ID);
+        when(exchange.getFromRouteId()).thenReturn(ROUTE_ID);
+        when(exchange.getExchangeId()).thenReturn(EXCHANGE_ID);
+        when(exchange.getIn()).thenReturn(in);
+    }
+
+    @Test
+    public void testInstall() throws Exception {
+        List<EventNotifier> notifiers = new ArrayList<EventNotifier>();
+        when(managementStrategy.getEventNotifiers()).thenReturn(notifiers);
+        metrics.install(camelContext);
+        verify(managementStrategy, times(1)).addEventNotifier(metrics);
+        assertThat(metrics.isStarted(), is(true));
+        assertThat(registry.getCounters().keySet().toArray(), is(new Object[] { "camel.routes.route1.exhausted",
+                "camel.routes.route1.redeliveries" }));
+        assertThat(registry.getTimers().containsKey("camel.routes.route1.redeliveryTime"), is(true));
+        notifiers.add(metrics);
+        metrics.uninstall();
+        assertThat(notifiers.isEmpty(), is(true));
+        assertThat(metrics.isStopped(), is(true));
+    }
+
+    @Test
+    public void testIsEnabled() throws Exception {
+        assertThat(metrics.isEnabled(new ExchangeRedeliveryEvent(exchange, 1)), is(true));
+        assertThat(metrics.isEnabled(new ExchangeFailedEvent(exchange)), is(true));
+        assertThat(metrics.isEnabled(new ExchangeCompletedEvent(exchange)), is(false));
+        assertThat(metrics.isIgnoreExchangeCompletedEvent(), is(true));
+        assertThat(metrics.isIgnoreExchangeSentEvents(), is(true));
+        assertThat(metrics.isIgnoreExchangeRedeliveryEvents(), is(false));
+    }
+
+    @Test
+    public void testFirstRedelivery() throws Exception {
+        when(exchange.getProperty(Exchange.CREATED_TIMESTAMP, Date.class)).thenReturn(new Date(clock.time - 100L));
+        metrics.notify(new ExchangeRedeliveryEvent(exchange, 1));
+        Timer timer = registry.timer("camel.routes.route1.redeliveryTime");
+        assertThat(registry.counter("camel.routes.route1.redeliveries").getCount(), is(1L));
+        assertThat(timer.getCount(), is(1L));
+        assertThat(timer.getSnapshot().getMax(), is(TimeUnit.MILLISECONDS.toNanos(100L)));
+        ArgumentCaptor<RedeliveryMetrics.LastAttempt> lastAttempt = ArgumentCaptor.forClass(RedeliveryMetrics.LastAttempt.class);
+        verify(exchange, times(1)).setProperty(eq(RedeliveryMetrics.PROPERTY_LAST_ATTEMPT), lastAttempt.capture());
+        assertThat(lastAttempt.getValue().getExchangeId(), is(EXCHANGE_ID));
+        assertThat(lastAttempt.getValue().getTick(), is(clock.getTick()));
+        verify(exchange, times(1)).addOnCompletion(any(RedeliveryMetrics.LastAttemptRemoval.class));
+    }
+
+    @Test
+    public void testNextRedelivery() throws Exception {
+        long tick = clock.getTick() - TimeUnit.MILLISECONDS.toNanos(30L);
+        when(exchange.getProperty(RedeliveryMetrics.PROPERTY_LAST_ATTEMPT, RedeliveryMetrics.LastAttempt.class)).thenReturn(
+                new RedeliveryMetrics.LastAttempt(EXCHANGE_ID, tick));
+        metrics.notify(new ExchangeRedeliveryEvent(exchange, 2));
+        assertThat(registry.timer("camel.routes.route1.redeliveryTime").getSnapshot().getMax(), is(TimeUnit.MILLISECONDS.toNanos(30L)));
+        verify(exchange, never()).addOnCompletion(any(Synchronization.class));
+    }
+
+    @Test
+    public void testRedeliveryOfCopy() throws Exception {
+        when(exchange.getProperty(RedeliveryMetrics.PROPERTY_LAST_ATTEMPT, RedeliveryMetrics.LastAttempt.class)).thenReturn(
+                new RedeliveryMetrics.LastAttempt("parent", 1L));
+        when(exchange.getProperty(Exchange.CREATED_TIMESTAMP, Date.class)).thenReturn(new Date(clock.time - 100L));
+        metrics.notify(new ExchangeRedeliveryEvent(exchange, 1));
+        assertThat(registry.timer("camel.routes.route1.redeliveryTime").getSnapshot().getMax(), is(TimeUnit.MILLISECONDS.toNanos(100L)));
+        verify(exchange, times(1)).addOnCompletion(any(RedeliveryMetrics.LastAttemptRemoval.class));
+    }
+
+    @Test
+    public void testExhausted() throws Exception {
+        givenRedelivered(EXCHANGE_ID);
+        when(exchange.getProperty(Exchange.FAILURE_ROUTE_ID, String.class)).thenReturn("route2");
+        when(in.getHeader(Exchange.REDELIVERY_COUNTER, Integer.class)).thenReturn(3);
+        when(in.getHeader(Exchange.REDELIVERY_MAX_COUNTER, Integer.class)).thenReturn(3);
+        when(exchange.getProperty(Exchange.ERRORHANDLER_HANDLED, false, Boolean.class)).thenReturn(true);
+        metrics.notify(new ExchangeFailureHandledEvent(exchange, null, true));
+        assertThat(registry.counter("camel.routes.route2.exhausted").getCount(), is(1L));
+        verify(exchange, times(1)).removeProperty(RedeliveryMetrics.PROPERTY_LAST_ATTEMPT);
+    }
+
+    @Test
+    public void testFailedAfterSuccessfulRedelivery() throws Exception {
+        givenRedelivered(EXCHANGE_ID);
+        when(in.getHeader(Exchange.REDELIVERY_COUNTER, Integer.class)).thenReturn(1);
+        when(in.getHeader(Exchange.REDELIVERY_MAX_COUNTER, Integer.class)).thenReturn(3);
+        metrics.notify(new ExchangeFailedEvent(exchange));
+        assertThat(registry.getCounters().isEmpty(), is(true));
+        verify(exchange, times(1)).removeProperty(RedeliveryMetrics.PROPERTY_LAST_ATTEMPT);
+    }
+
+    @Test
+    public void testFailedCopyOfRedelivered() throws Exception {
+        givenRedelivered("parent");
+        when(in.getHeader(Exchange.REDELIVERY_COUNTER, Integer.class)).thenReturn(3);
+        when(in.getHeader(Exchange.REDELIVERY_MAX_COUNTER, Integer.class)).thenReturn(3);
+        metrics.notify(new ExchangeFailedEvent(exchange));
+        assertThat(registry.getCounters().isEmpty(), is(true));
+    }
+
+    @Test
+    public void testLastAttemptRemovedOnCompletion() throws Exception {
+        RedeliveryMetrics.LastAttemptRemoval removal = new RedeliveryMetrics.LastAttemptRemoval(EXCHANGE_ID);
+        removal.onFailure(exchange);
+        verify(exchange, never()).removeProperty(RedeliveryMetrics.PROPERTY_LAST_ATTEMPT);
+        removal.onComplete(exchange);
+        verify(exchange, times(1)).removeProperty(RedeliveryMetrics.PROPERTY_LAST_ATTEMPT);
+    }
+
+    @Test
+    public void testLastAttemptKeptOnOtherExchange() throws Exception {
+        new RedeliveryMetrics.LastAttemptRemoval("parent").onComplete(exchange);
+        verify(exchange, never()).removeProperty(RedeliveryMetrics.PROPERTY_LAST_ATTEMPT);
+    }
+
+    @Test
+    public void testFailedWithoutRedelivery() throws Exception {
+        metrics.notify(new ExchangeFailedEvent(exchange));
+        assertThat(registry.getCounters().isEmpty(), is(true));
+    }
+
+    private void givenRedelivered(String exchangeId) {
+        when(exchange.getProperty(RedeliveryMetrics.PROPERTY_LAST_ATTEMPT, RedeliveryMetrics.LastAttempt.class)).thenReturn(
+                new RedeliveryMetrics.LastAttempt(exchangeId, 1L));
+    }
+
+    private static class ManualClock extends Clock {
+
+        private long time;
+
+        @Override
+        public long getTick() {
+            return time * 1000000L;
+        }
+
+        @Override
+        public long getTime() {
+            return time;
+        }
+    }
+}
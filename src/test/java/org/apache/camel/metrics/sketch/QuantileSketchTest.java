@@ -0,0 +1,119 @@
+package org.apache.camel.metrics.sketch;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class QuantileSketchTest {
+
+    private static final double ACCURACY = 0.01;
+
+    private QuantileSketch sketch;
+
+    @Before
+    public void setUp() throws Exception {
+        sketch = new QuantileSketch(ACCURACY);
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        assertThat(sketch.getCount(), is(0L));
+        assertThat(sketch.getValue(0.5), is(0.0));
+        assertThat(sketch.getMin(), is(0L));
+        assertThat(sketch.getMax(), is(0L));
+        assertThat(sketch.getBinValues().length, is(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidAccuracy() throws Exception {
+        new QuantileSketch(1.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidQuantile() throws Exception {
+        sketch.getValue(1.5);
+    }
+
+    @Test
+    public void testQuantilesWithinRelativeAccuracy() throws Exception {
+        for (long i = 1; i <= 10000; i++) {
+            sketch.update(i);
+        }
+        assertThat(sketch.getCount(), is(10000L));
+        assertThat(sketch.getMin(), is(1L));
+        assertThat(sketch.getMax(), is(10000L));
+        assertThat(sketch.getMean(), is(5000.5));
+        assertThat(sketch.getValue(0.5), is(closeTo(5000.0, 5000.0 * ACCURACY)));
+        assertThat(sketch.getValue(0.99), is(closeTo(9900.0, 9900.0 * ACCURACY)));
+        assertThat(sketch.getValue(0.0), is(1.0));
+        assertThat(sketch.getValue(1.0), is(10000.0));
+    }
+
+    @Test
+    public void testNegativeAndZeroValues() throws Exception {
+        sketch.update(-100L);
+        sketch.update(0L);
+        sketch.update(100L);
+        assertThat(sketch.getValue(0.0), is(-100.0));
+        assertThat(sketch.getValue(0.5), is(0.0));
+        assertThat(sketch.getValue(1.0), is(100.0));
+        assertThat(sketch.getBinValues().length, is(3));
+    }
+
+    @Test
+    public void testMerge() throws Exception {
+        QuantileSketch other = new QuantileSketch(ACCURACY);
+        for (long i = 1; i <= 500; i++) {
+            sketch.update(i);
+            other.update(i + 500);
+        }
+        sketch.merge(other);
+        assertThat(sketch.getCount(), is(1000L));
+        assertThat(sketch.getMin(), is(1L));
+        assertThat(sketch.getMax(), is(1000L));
+        assertThat(sketch.getValue(0.5), is(closeTo(500.0, 500.0 * ACCURACY)));
+        assertThat(other.getCount(), is(500L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMergeDifferentAccuracy() throws Exception {
+        sketch.merge(new QuantileSketch(0.05));
+    }
+
+    @Test
+    public void testCopy() throws Exception {
+        sketch.update(10L);
+        QuantileSketch copy = sketch.copy();
+        sketch.update(20L);
+        assertThat(copy.getCount(), is(1L));
+        assertThat(copy.getMax(), is(10L));
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        for (long i = -50; i <= 5000; i += 7) {
+            sketch.update(i);
+        }
+        byte[] bytes = sketch.toBytes();
+        QuantileSketch result = QuantileSketch.fromBytes(bytes);
+        assertThat(result.getRelativeAccuracy(), is(ACCURACY));
+        assertThat(result.getCount(), is(sketch.getCount()));
+        assertThat(result.getMin(), is(sketch.getMin()));
+        assertThat(result.getMax(), is(sketch.getMax()));
+        assertThat(result.getMean(), is(sketch.getMean()));
+        assertThat(result.toBytes(), is(bytes));
+        for (double q = 0.0; q <= 1.0; q += 0.1) {
+            assertThat(result.getValue(q), is(sketch.getValue(q)));
+        }
+    }
+
+    @Test
+    public void testZigZag() throws Exception {
+        for (long value : new long[] { 0L, 1L, -1L, Long.MAX_VALUE, Long.MIN_VALUE }) {
+            assertThat(QuantileSketch.unZigZag(QuantileSketch.zigZag(value)), is(value));
+        }
+    }
+}
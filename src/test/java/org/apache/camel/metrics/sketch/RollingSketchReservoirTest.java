@@ -0,0 +1,141 @@
+package org.apache.camel.metrics.sketch;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.instanceOf;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Snapshot;
+
+public class RollingSketchReservoirTest {
+
+    private static final double ACCURACY = 0.01;
+
+    private ManualClock clock;
+
+    private RollingSketchReservoir reservoir;
+
+    @Before
+    public void setUp() throws Exception {
+        clock = new ManualClock();
+        reservoir = new RollingSketchReservoir(ACCURACY, 6, 10L, TimeUnit.SECONDS, clock);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoBuckets() throws Exception {
+        new RollingSketchReservoir(ACCURACY, 0, 10L, TimeUnit.SECONDS, clock);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoBucketWidth() throws Exception {
+        new RollingSketchReservoir(ACCURACY, 6, 0L, TimeUnit.SECONDS, clock);
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        assertThat(reservoir.size(), is(0));
+        assertThat(reservoir.getSnapshot().getMax(), is(0L));
+        assertThat(reservoir.getBuckets(), is(6));
+    }
+
+    @Test
+    public void testSnapshot() throws Exception {
+        for (long i = 1; i <= 1000; i++) {
+            reservoir.update(i);
+        }
+        Snapshot snapshot = reservoir.getSnapshot();
+        assertThat(snapshot, is(instanceOf(SketchSnapshot.class)));
+        assertThat(snapshot.size(), is(1000));
+        assertThat(snapshot.getMin(), is(1L));
+        assertThat(snapshot.getMax(), is(1000L));
+        assertThat(snapshot.getMedian(), is(closeTo(500.0, 500.0 * ACCURACY)));
+        assertThat(snapshot.get99thPercentile(), is(closeTo(990.0, 990.0 * ACCURACY)));
+    }
+
+    @Test
+    public void testZeroAndNegativeValues() throws Exception {
+        reservoir.update(0L);
+        reservoir.update(-5L);
+        reservoir.update(10L);
+        Snapshot snapshot = reservoir.getSnapshot();
+        assertThat(snapshot.size(), is(3));
+        assertThat(snapshot.getMin(), is(-5L));
+        assertThat(snapshot.getMax(), is(10L));
+        assertThat(snapshot.getValue(0.1), is(closeTo(-5.0, 5.0 * ACCURACY)));
+        assertThat(snapshot.getMedian(), is(0.0));
+    }
+
+    @Test
+    public void testPagesAllocatedOnDemand() throws Exception {
+        assertThat(reservoir.getAllocatedPages(), is(0));
+        for (long i = 1500000L; i <= 3000000L; i += 1000L) {
+            reservoir.update(i);
+        }
+        // 1.5 to 3 ms spans 35 bins of one page
+        assertThat(reservoir.getAllocatedPages(), is(1));
+        reservoir.update(Long.MAX_VALUE);
+        reservoir.update(Long.MIN_VALUE);
+        assertThat(reservoir.getAllocatedPages(), is(3));
+        assertThat(reservoir.getSnapshot().getMax(), is(Long.MAX_VALUE));
+        assertThat(reservoir.getSnapshot().getMin(), is(Long.MIN_VALUE));
+    }
+
+    @Test
+    public void testSpikeVisibleUntilExpired() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            reservoir.update(10L);
+        }
+        clock.advance(10L);
+        for (int i = 0; i < 100; i++) {
+            reservoir.update(5000L);
+        }
+        clock.advance(10L);
+        assertThat(reservoir.getSnapshot().get75thPercentile(), is(closeTo(5000.0, 5000.0 * ACCURACY)));
+        assertThat(reservoir.size(), is(200));
+        clock.advance(40L);
+        assertThat(reservoir.size(), is(100));
+        assertThat(reservoir.getSnapshot().getMin(), is(5000L));
+        clock.advance(10L);
+        assertThat(reservoir.size(), is(0));
+    }
+
+    @Test
+    public void testBucketReused() throws Exception {
+        reservoir.update(1L);
+        clock.advance(60L);
+        reservoir.update(2L);
+        Snapshot snapshot = reservoir.getSnapshot();
+        assertThat(snapshot.size(), is(1));
+        assertThat(snapshot.getMin(), is(2L));
+    }
+
+    @Test
+    public void testRollingTimer() throws Exception {
+        RollingTimer timer = new RollingTimer(new RollingSketchReservoir(ACCURACY, 2, 1L, TimeUnit.SECONDS, clock));
+        timer.update(3L, TimeUnit.MILLISECONDS);
+        assertThat(timer.getSketch().getCount(), is(1L));
+        clock.advance(2L);
+        assertThat(timer.getSnapshot().size(), is(0));
+        assertThat(timer.getCount(), is(1L));
+    }
+
+    private static class ManualClock extends Clock {
+
+        private long tick;
+
+        @Override
+        public long getTick() {
+            return tick;
+        }
+
+        void advance(long seconds) {
+            tick += TimeUnit.SECONDS.toNanos(seconds);
+        }
+    }
+}
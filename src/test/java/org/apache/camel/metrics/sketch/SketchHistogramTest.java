@@ -0,0 +1,110 @@
+package org.apache.camel.metrics.sketch;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.instanceOf;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.codahale.metrics.Snapshot;
+
+public class SketchHistogramTest {
+
+    @Test
+    public void testHistogramSnapshot() throws Exception {
+        SketchHistogram histogram = new SketchHistogram(0.01);
+        for (long i = 1; i <= 100; i++) {
+            histogram.update(i);
+        }
+        Snapshot snapshot = histogram.getSnapshot();
+        assertThat(snapshot, is(instanceOf(SketchSnapshot.class)));
+        assertThat(histogram.getCount(), is(100L));
+        assertThat(snapshot.size(), is(100));
+        assertThat(snapshot.getMin(), is(1L));
+        assertThat(snapshot.getMax(), is(100L));
+        assertThat(snapshot.getMean(), is(50.5));
+        assertThat(snapshot.getMedian(), is(closeTo(50.0, 0.5)));
+        assertThat(snapshot.get99thPercentile(), is(closeTo(99.0, 0.99)));
+        assertThat(histogram.getSketch().getCount(), is(100L));
+    }
+
+    @Test
+    public void testSnapshotIsDetached() throws Exception {
+        SketchHistogram histogram = new SketchHistogram(0.01);
+        histogram.update(5L);
+        Snapshot snapshot = histogram.getSnapshot();
+        histogram.update(500L);
+        assertThat(snapshot.getMax(), is(5L));
+    }
+
+    @Test
+    public void testConstantValues() throws Exception {
+        SketchHistogram histogram = new SketchHistogram(0.01);
+        for (int i = 0; i < 1000; i++) {
+            histogram.update(1000L);
+        }
+        Snapshot snapshot = histogram.getSnapshot();
+        assertThat(snapshot.getMean(), is(1000.0));
+        assertThat(snapshot.getStdDev(), is(closeTo(0.0, 0.001)));
+        assertThat(snapshot.getMedian(), is(closeTo(1000.0, 10.0)));
+    }
+
+    @Test
+    public void testSumDoesNotOverflow() throws Exception {
+        SketchReservoir reservoir = new SketchReservoir(0.01);
+        reservoir.update(Long.MAX_VALUE);
+        reservoir.update(Long.MAX_VALUE);
+        assertThat(reservoir.getSnapshot().getMean(), is(closeTo(Long.MAX_VALUE, Long.MAX_VALUE * 1e-9)));
+    }
+
+    @Test
+    public void testNegativeValues() throws Exception {
+        SketchReservoir reservoir = new SketchReservoir(0.01);
+        reservoir.update(-100L);
+        reservoir.update(0L);
+        reservoir.update(100L);
+        Snapshot snapshot = reservoir.getSnapshot();
+        assertThat(reservoir.size(), is(3));
+        assertThat(snapshot.getMin(), is(-100L));
+        assertThat(snapshot.getMax(), is(100L));
+        assertThat(snapshot.getMean(), is(0.0));
+        assertThat(snapshot.getMedian(), is(0.0));
+    }
+
+    @Test
+    public void testConcurrentUpdates() throws Exception {
+        final SketchReservoir reservoir = new SketchReservoir(0.01);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (long i = 1; i <= 10000; i++) {
+                        reservoir.update(i);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        QuantileSketch sketch = reservoir.getSketch();
+        assertThat(sketch.getCount(), is(40000L));
+        assertThat(sketch.getMin(), is(1L));
+        assertThat(sketch.getMax(), is(10000L));
+        assertThat(sketch.getMean(), is(5000.5));
+    }
+
+    @Test
+    public void testTimer() throws Exception {
+        SketchTimer timer = new SketchTimer(0.01);
+        timer.update(2L, TimeUnit.MILLISECONDS);
+        assertThat(timer.getCount(), is(1L));
+        assertThat(timer.getSnapshot().getMax(), is(TimeUnit.MILLISECONDS.toNanos(2L)));
+        assertThat(timer.getSketch().getCount(), is(1L));
+    }
+}
@@ -0,0 +1,166 @@
+package org.apache.camel.metrics.timer;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+
+public class CorrelationStoreTest {
+
+    private static final String METRICS_NAME = "metrics.name";
+
+    private ManualClock clock;
+
+    private Counter expired;
+
+    private CorrelationStore store;
+
+    @Before
+    public void setUp() throws Exception {
+        clock = new ManualClock();
+        expired = new Counter();
+        store = new CorrelationStore(4, 100L, TimeUnit.MILLISECONDS, expired, clock);
+    }
+
+    @Test
+    public void testStartStop() throws Exception {
+        assertThat(store.start("a"), is(true));
+        clock.time = 30L;
+        assertThat(store.size(), is(1));
+        assertThat(store.stop("a"), is(TimeUnit.MILLISECONDS.toNanos(30L)));
+        assertThat(store.stop("a"), is(-1L));
+        assertThat(store.getValue(), is(0));
+    }
+
+    @Test
+    public void testStartAlreadyRunning() throws Exception {
+        assertThat(store.start("a"), is(true));
+        assertThat(store.start("a"), is(false));
+        assertThat(store.getRejectedCount(), is(1L));
+        assertThat(store.size(), is(1));
+    }
+
+    @Test
+    public void testStartFull() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            assertThat(store.start(i), is(true));
+        }
+        assertThat(store.start(4), is(false));
+        assertThat(store.getRejectedCount(), is(1L));
+        assertThat(store.stop(2), is(0L));
+        assertThat(store.start(4), is(true));
+    }
+
+    @Test
+    public void testStartFullExpiresOld() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            store.start(i);
+        }
+        clock.time = 200L;
+        assertThat(store.start(4), is(true));
+        assertThat(store.size(), is(1));
+        assertThat(expired.getCount(), is(4L));
+    }
+
+    @Test
+    public void testStopExpired() throws Exception {
+        store.start("a");
+        clock.time = 101L;
+        assertThat(store.stop("a"), is(-1L));
+        assertThat(store.getExpiredCount(), is(1L));
+        assertThat(store.size(), is(0));
+    }
+
+    @Test
+    public void testExpire() throws Exception {
+        store.start("a");
+        clock.time = 60L;
+        store.start("b");
+        clock.time = 120L;
+        store.expire();
+        assertThat(store.size(), is(1));
+        assertThat(expired.getCount(), is(1L));
+        assertThat(store.stop("b"), is(TimeUnit.MILLISECONDS.toNanos(60L)));
+    }
+
+    @Test
+    public void testCollidingKeys() throws Exception {
+        CorrelationStore colliding = new CorrelationStore(100, 1L, TimeUnit.HOURS, expired, clock);
+        for (int i = 0; i < 100; i++) {
+            assertThat(colliding.start(new Key(i)), is(true));
+        }
+        for (int i = 0; i < 100; i += 2) {
+            assertThat(colliding.stop(new Key(i)), is(0L));
+        }
+        for (int i = 1; i < 100; i += 2) {
+            assertThat(colliding.stop(new Key(i)), is(0L));
+        }
+        assertThat(colliding.size(), is(0));
+    }
+
+    @Test
+    public void testMaxSize() throws Exception {
+        assertThat(store.getMaxSize(), is(4));
+        assertThat(new CorrelationStore(1000, 1L, TimeUnit.HOURS, expired).getMaxSize(), is(1000));
+        assertThat(new CorrelationStore(1001, 1L, TimeUnit.HOURS, expired).getMaxSize(), is(1001));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMaxSize() throws Exception {
+        new CorrelationStore(0, 1L, TimeUnit.HOURS, expired);
+    }
+
+    @Test
+    public void testGetOrRegister() throws Exception {
+        MetricRegistry registry = new MetricRegistry();
+        CorrelationStore registered = CorrelationStore.getOrRegister(registry, METRICS_NAME, 10, 1000L);
+        assertThat(CorrelationStore.getOrRegister(registry, METRICS_NAME, 20, 2000L), is(sameInstance(registered)));
+        assertThat(registry.getGauges().get(CorrelationStore.getName(METRICS_NAME)) == registered, is(true));
+        assertThat(registered.getTimeoutNanos(), is(TimeUnit.SECONDS.toNanos(1L)));
+        assertThat(registered.isConfiguredAs(10, 1000L), is(true));
+        assertThat(registered.isConfiguredAs(20, 2000L), is(false));
+        assertThat(registry.getCounters().containsKey(METRICS_NAME + ".expired"), is(true));
+    }
+
+    private static final class Key {
+
+        private final int id;
+
+        Key(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public int hashCode() {
+            return id % 3;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key && ((Key) obj).id == id;
+        }
+    }
+
+    private static class ManualClock extends Clock {
+
+        private long time;
+
+        @Override
+        public long getTick() {
+            return time * 1000000L;
+        }
+
+        @Override
+        public long getTime() {
+            return time;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package org.apache.camel.metrics.timer;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.camel.RuntimeCamelException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SlowExchangesTest {
+
+    private static final String METRICS_NAME = "metrics.name";
+
+    @Mock
+    private MetricRegistry mockRegistry;
+
+    private SlowExchanges slowExchanges;
+
+    @Before
+    public void setUp() throws Exception {
+        slowExchanges = new SlowExchanges(3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCapacity() throws Exception {
+        new SlowExchanges(0);
+    }
+
+    @Test
+    public void testKeepsSlowest() throws Exception {
+        for (long duration : new long[] { 5L, 1L, 9L, 3L, 7L, 2L }) {
+            if (slowExchanges.isCandidate(duration)) {
+                slowExchanges.add(slowExchange(duration));
+            }
+        }
+        List<SlowExchange> result = slowExchanges.getValue();
+        assertThat(result.size(), is(3));
+        assertThat(result.get(0).getDuration(), is(9L));
+        assertThat(result.get(1).getDuration(), is(7L));
+        assertThat(result.get(2).getDuration(), is(5L));
+        assertThat(slowExchanges.isCandidate(5L), is(false));
+        assertThat(slowExchanges.isCandidate(6L), is(true));
+    }
+
+    @Test
+    public void testDrain() throws Exception {
+        slowExchanges.add(slowExchange(10L));
+        slowExchanges.add(slowExchange(20L));
+        slowExchanges.add(slowExchange(30L));
+        assertThat(slowExchanges.isCandidate(1L), is(false));
+        List<SlowExchange> result = slowExchanges.drain();
+        assertThat(result.size(), is(3));
+        assertThat(result.get(0).getDuration(), is(30L));
+        assertThat(slowExchanges.getValue().isEmpty(), is(true));
+        assertThat(slowExchanges.isCandidate(1L), is(true));
+    }
+
+    @Test
+    public void testWindowResetsThreshold() throws Exception {
+        ManualClock clock = new ManualClock();
+        SlowExchanges windowed = new SlowExchanges(2, 10L, TimeUnit.SECONDS, clock);
+        windowed.add(slowExchange(100L));
+        windowed.add(slowExchange(90L));
+        assertThat(windowed.isCandidate(50L), is(false));
+        clock.tick += TimeUnit.SECONDS.toNanos(10L);
+        // candidate check does not read clock, window is rotated by read or capture
+        assertThat(windowed.isCandidate(50L), is(false));
+        assertThat(windowed.getValue().size(), is(2));
+        assertThat(windowed.isCandidate(50L), is(true));
+        windowed.add(slowExchange(50L));
+        assertThat(windowed.isCandidate(1L), is(true));
+        List<SlowExchange> result = windowed.getValue();
+        assertThat(result.size(), is(2));
+        assertThat(result.get(0).getDuration(), is(100L));
+        assertThat(result.get(1).getDuration(), is(90L));
+        clock.tick += TimeUnit.SECONDS.toNanos(10L);
+        windowed.add(slowExchange(5L));
+        result = windowed.getValue();
+        assertThat(result.size(), is(2));
+        assertThat(result.get(0).getDuration(), is(50L));
+        assertThat(result.get(1).getDuration(), is(5L));
+    }
+
+    @Test
+    public void testWindowExpiredWithoutUpdates() throws Exception {
+        ManualClock clock = new ManualClock();
+        SlowExchanges windowed = new SlowExchanges(2, 10L, TimeUnit.SECONDS, clock);
+        windowed.add(slowExchange(100L));
+        clock.tick += TimeUnit.SECONDS.toNanos(25L);
+        assertThat(windowed.getValue().isEmpty(), is(true));
+    }
+
+    @Test
+    public void testDrainIncludesPreviousWindow() throws Exception {
+        ManualClock clock = new ManualClock();
+        SlowExchanges windowed = new SlowExchanges(3, 10L, TimeUnit.SECONDS, clock);
+        windowed.add(slowExchange(100L));
+        clock.tick += TimeUnit.SECONDS.toNanos(10L);
+        windowed.add(slowExchange(50L));
+        List<SlowExchange> result = windowed.drain();
+        assertThat(result.size(), is(2));
+        assertThat(result.get(0).getDuration(), is(100L));
+        assertThat(windowed.getValue().isEmpty(), is(true));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidWindow() throws Exception {
+        new SlowExchanges(1, 0L, TimeUnit.SECONDS, new ManualClock());
+    }
+
+    @Test
+    public void testGetOrRegister() throws Exception {
+        MetricRegistry registry = new MetricRegistry();
+        SlowExchanges result = SlowExchanges.getOrRegister(registry, METRICS_NAME, 5, 1000L);
+        assertThat(result.getCapacity(), is(5));
+        assertThat(result.getWindowNanos(), is(TimeUnit.SECONDS.toNanos(1L)));
+        assertThat(SlowExchanges.getOrRegister(registry, METRICS_NAME, 10, 2000L) == result, is(true));
+        assertThat(registry.getGauges().get(METRICS_NAME + "." + SlowExchanges.SUFFIX) == result, is(true));
+    }
+
+    @Test(expected = RuntimeCamelException.class)
+    public void testGetOrRegisterWrongType() throws Exception {
+        when(mockRegistry.getMetrics()).thenReturn(Collections.<String, Metric> singletonMap(SlowExchanges.getName(METRICS_NAME), new Counter()));
+        SlowExchanges.getOrRegister(mockRegistry, METRICS_NAME, 5, 1000L);
+    }
+
+    private static class ManualClock extends Clock {
+
+        private long tick;
+
+        @Override
+        public long getTick() {
+            return tick;
+        }
+    }
+
+    private SlowExchange slowExchange(long duration) {
+        return new SlowExchange("id-" + duration, null, duration, 0L, Collections.<String, Object> emptyMap());
+    }
+}
@@ -5,8 +5,21 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.when;
 
+import java.util.concurrent.TimeUnit;
+
+import org.apache.camel.Consumer;
+import org.apache.camel.Processor;
 import org.apache.camel.Producer;
+import org.apache.camel.RuntimeCamelException;
+import org.apache.camel.metrics.AbstractDistributionEndpoint;
+import org.apache.camel.metrics.ReservoirType;
+import org.apache.camel.metrics.sketch.QuantileSketch;
+import org.apache.camel.metrics.sketch.RollingTimer;
+import org.apache.camel.metrics.sketch.SketchTimer;
 import org.apache.camel.metrics.timer.TimerEndpoint.TimerAction;
 import org.junit.After;
 import org.junit.Before;
@@ -18,15 +31,23 @@ import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 
 @RunWith(MockitoJUnitRunner.class)
 public class TimerEndpointTest {
 
     private static final String METRICS_NAME = "metrics.name";
+    private static final String OTHER_NAME = "other.name";
 
     @Mock
     private MetricRegistry registry;
 
+    @Mock
+    private Timer timer;
+
+    @Mock
+    private Processor processor;
+
     private TimerEndpoint endpoint;
 
     private InOrder inOrder;
@@ -68,6 +89,193 @@ public class TimerEndpointTest {
         assertThat(endpoint.getAction(), is(TimerAction.start));
     }
 
+    @Test
+    public void testIsAutoStop() throws Exception {
+        assertThat(endpoint.isAutoStop(), is(false));
+    }
+
+    @Test
+    public void testSetAutoStop() throws Exception {
+        endpoint.setAutoStop(true);
+        assertThat(endpoint.isAutoStop(), is(true));
+    }
+
+    @Test
+    public void testGetDuration() throws Exception {
+        assertThat(endpoint.getDuration(), is(nullValue()));
+    }
+
+    @Test
+    public void testSetDuration() throws Exception {
+        assertThat(endpoint.getDuration(), is(nullValue()));
+        endpoint.setDuration(77L);
+        assertThat(endpoint.getDuration(), is(77L));
+    }
+
+    @Test
+    public void testGetDurationUnit() throws Exception {
+        assertThat(endpoint.getDurationUnit(), is(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testSetDurationUnit() throws Exception {
+        endpoint.setDurationUnit(TimeUnit.SECONDS);
+        assertThat(endpoint.getDurationUnit(), is(TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testGetSlowExchanges() throws Exception {
+        assertThat(endpoint.getSlowExchanges(), is(0));
+        assertThat(endpoint.getSlowExchangeHeaders(), is(nullValue()));
+        assertThat(endpoint.getSlowExchangeWindow(), is(TimerEndpoint.DEFAULT_SLOW_EXCHANGE_WINDOW));
+    }
+
+    @Test
+    public void testSetSlowExchanges() throws Exception {
+        endpoint.setSlowExchanges(10);
+        endpoint.setSlowExchangeHeaders("a,b");
+        endpoint.setSlowExchangeWindow(1000L);
+        assertThat(endpoint.getSlowExchanges(), is(10));
+        assertThat(endpoint.getSlowExchangeHeaders(), is(new String[] { "a", "b" }));
+        assertThat(endpoint.getSlowExchangeWindow(), is(1000L));
+    }
+
+    @Test(expected = RuntimeCamelException.class)
+    public void testCreateConsumerWithoutSlowExchanges() throws Exception {
+        endpoint.createConsumer(processor);
+    }
+
+    @Test
+    public void testCreateConsumer() throws Exception {
+        endpoint.setSlowExchanges(10);
+        Consumer consumer = endpoint.createConsumer(processor);
+        assertThat(consumer, is(instanceOf(SlowExchangeConsumer.class)));
+    }
+
+    @Test
+    public void testGetReservoir() throws Exception {
+        assertThat(endpoint.getReservoir(), is(nullValue()));
+        assertThat(endpoint.getRelativeAccuracy(), is(QuantileSketch.DEFAULT_RELATIVE_ACCURACY));
+        assertThat(endpoint.getRollingBuckets(), is(AbstractDistributionEndpoint.DEFAULT_ROLLING_BUCKETS));
+        assertThat(endpoint.getRollingBucketWidth(), is(AbstractDistributionEndpoint.DEFAULT_ROLLING_BUCKET_WIDTH));
+    }
+
+    @Test
+    public void testSetReservoir() throws Exception {
+        endpoint.setReservoir(ReservoirType.sketch);
+        endpoint.setRelativeAccuracy(0.001);
+        assertThat(endpoint.getReservoir(), is(ReservoirType.sketch));
+        assertThat(endpoint.getRelativeAccuracy(), is(0.001));
+    }
+
+    @Test
+    public void testSetRolling() throws Exception {
+        endpoint.setReservoir(ReservoirType.rolling);
+        endpoint.setRollingBuckets(12);
+        endpoint.setRollingBucketWidth(5000L);
+        assertThat(endpoint.getReservoir(), is(ReservoirType.rolling));
+        assertThat(endpoint.getRollingBuckets(), is(12));
+        assertThat(endpoint.getRollingBucketWidth(), is(5000L));
+    }
+
+    @Test
+    public void testGetTimer() throws Exception {
+        when(registry.timer(METRICS_NAME)).thenReturn(timer);
+        assertThat(endpoint.getTimer(METRICS_NAME), is(timer));
+        inOrder.verify(registry, times(1)).timer(METRICS_NAME);
+    }
+
+    @Test
+    public void testGetTimerStarted() throws Exception {
+        when(registry.timer(METRICS_NAME)).thenReturn(timer);
+        endpoint.start();
+        assertThat(endpoint.getTimer(METRICS_NAME), is(timer));
+        assertThat(endpoint.getTimer(METRICS_NAME), is(timer));
+        endpoint.getTimer(OTHER_NAME);
+        endpoint.stop();
+        endpoint.getTimer(METRICS_NAME);
+        inOrder.verify(registry, times(1)).timer(METRICS_NAME);
+        inOrder.verify(registry, times(1)).timer(OTHER_NAME);
+        inOrder.verify(registry, times(1)).timer(METRICS_NAME);
+    }
+
+    @Test
+    public void testGetTimerWithSketch() throws Exception {
+        TimerEndpoint sketchEndpoint = new TimerEndpoint(new MetricRegistry(), METRICS_NAME);
+        sketchEndpoint.setReservoir(ReservoirType.sketch);
+        sketchEndpoint.setRelativeAccuracy(0.05);
+        Timer result = sketchEndpoint.getTimer(METRICS_NAME);
+        assertThat(result, is(instanceOf(SketchTimer.class)));
+        assertThat(((SketchTimer) result).getSketch().getRelativeAccuracy(), is(0.05));
+        assertThat(sketchEndpoint.getTimer(METRICS_NAME), is(sameInstance(result)));
+    }
+
+    @Test
+    public void testGetTimerWithRolling() throws Exception {
+        TimerEndpoint rollingEndpoint = new TimerEndpoint(new MetricRegistry(), METRICS_NAME);
+        rollingEndpoint.setReservoir(ReservoirType.rolling);
+        Timer result = rollingEndpoint.getTimer(METRICS_NAME);
+        assertThat(result, is(instanceOf(RollingTimer.class)));
+        assertThat(((RollingTimer) result).getSketch().getCount(), is(0L));
+    }
+
+    @Test
+    public void testGetOutcomeTimerStarted() throws Exception {
+        String success = METRICS_NAME + "." + TimerSynchronization.SUCCESS;
+        String failure = METRICS_NAME + "." + TimerSynchronization.FAILURE;
+        when(registry.timer(success)).thenReturn(timer);
+        endpoint.setAutoStop(true);
+        endpoint.start();
+        assertThat(endpoint.getOutcomeTimer(METRICS_NAME, TimerSynchronization.SUCCESS), is(timer));
+        endpoint.getOutcomeTimer(METRICS_NAME, TimerSynchronization.FAILURE);
+        endpoint.getOutcomeTimer(OTHER_NAME, TimerSynchronization.SUCCESS);
+        endpoint.stop();
+        inOrder.verify(registry, times(1)).timer(METRICS_NAME);
+        inOrder.verify(registry, times(1)).timer(success);
+        inOrder.verify(registry, times(1)).timer(failure);
+        inOrder.verify(registry, times(1)).timer(OTHER_NAME + "." + TimerSynchronization.SUCCESS);
+    }
+
+    @Test
+    public void testGetOutcomeTimerWithSketch() throws Exception {
+        TimerEndpoint sketchEndpoint = new TimerEndpoint(new MetricRegistry(), METRICS_NAME);
+        sketchEndpoint.setReservoir(ReservoirType.sketch);
+        Timer result = sketchEndpoint.getOutcomeTimer(METRICS_NAME, TimerSynchronization.FAILURE);
+        assertThat(result, is(instanceOf(SketchTimer.class)));
+        assertThat(sketchEndpoint.getRegistry().getTimers().get(METRICS_NAME + "." + TimerSynchronization.FAILURE), is(sameInstance(result)));
+    }
+
+    @Test
+    public void testCorrelationDefaults() throws Exception {
+        assertThat(endpoint.getCorrelationExpression(), is(nullValue()));
+        assertThat(endpoint.getCorrelationLanguage(), is(TimerEndpoint.DEFAULT_CORRELATION_LANGUAGE));
+        assertThat(endpoint.getCorrelationTimeout(), is(CorrelationStore.DEFAULT_TIMEOUT));
+        assertThat(endpoint.getCorrelationMaxSize(), is(CorrelationStore.DEFAULT_MAX_SIZE));
+        assertThat(endpoint.evaluateCorrelation(null), is(nullValue()));
+    }
+
+    @Test
+    public void testGetCorrelationStore() throws Exception {
+        TimerEndpoint correlatedEndpoint = new TimerEndpoint(new MetricRegistry(), METRICS_NAME);
+        correlatedEndpoint.setCorrelationMaxSize(100);
+        correlatedEndpoint.setCorrelationTimeout(5000L);
+        CorrelationStore store = correlatedEndpoint.getCorrelationStore(METRICS_NAME);
+        assertThat(store.getMaxSize(), is(100));
+        assertThat(store.getTimeoutNanos(), is(TimeUnit.SECONDS.toNanos(5L)));
+        assertThat(correlatedEndpoint.getCorrelationStore(METRICS_NAME), is(sameInstance(store)));
+    }
+
+    @Test(expected = RuntimeCamelException.class)
+    public void testGetCorrelationStoreConfiguredDifferently() throws Exception {
+        MetricRegistry realRegistry = new MetricRegistry();
+        TimerEndpoint first = new TimerEndpoint(realRegistry, METRICS_NAME);
+        first.setCorrelationMaxSize(100);
+        first.getCorrelationStore(METRICS_NAME);
+        TimerEndpoint second = new TimerEndpoint(realRegistry, METRICS_NAME);
+        second.setCorrelationMaxSize(200);
+        second.getCorrelationStore(METRICS_NAME);
+    }
+
     @Test
     public void testCreateEndpointUri() throws Exception {
         assertThat(endpoint.createEndpointUri(), is(TimerEndpoint.ENDPOINT_URI));
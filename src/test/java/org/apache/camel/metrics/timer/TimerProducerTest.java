@@ -1,15 +1,24 @@
 package org.apache.camel.metrics.timer;
 
 import static org.apache.camel.metrics.MetricsComponent.HEADER_TIMER_ACTION;
+import static org.apache.camel.metrics.MetricsComponent.HEADER_TIMER_DURATION;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.when;
 
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
 import org.apache.camel.Exchange;
 import org.apache.camel.Message;
+import org.apache.camel.metrics.Sampler;
 import org.apache.camel.metrics.timer.TimerEndpoint.TimerAction;
 import org.junit.Before;
 import org.junit.Test;
@@ -18,7 +27,10 @@ import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.slf4j.Logger;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
 
@@ -27,6 +39,8 @@ public class TimerProducerTest {
 
     private static final String METRICS_NAME = "metrics.name";
     private static final String PROPERTY_NAME = TimerEndpoint.ENDPOINT_URI + ":" + METRICS_NAME;
+    private static final Long DURATION = 1234L;
+    private static final String EXCHANGE_ID = "exchange-1";
 
     @Mock
     private TimerEndpoint endpoint;
@@ -46,6 +60,11 @@ public class TimerProducerTest {
     @Mock
     private Message in;
 
+    @Mock
+    private Histogram histogram;
+
+    private RunningTimer running;
+
     private TimerProducer producer;
 
     @Mock
@@ -53,12 +72,15 @@ public class TimerProducerTest {
 
     @Before
     public void setUp() throws Exception {
+        when(endpoint.isHeaderOverrides()).thenReturn(true);
         producer = new TimerProducer(endpoint);
         inOrder = Mockito.inOrder(endpoint, exchange, registry, timer, context, in);
         when(endpoint.getRegistry()).thenReturn(registry);
-        when(registry.timer(METRICS_NAME)).thenReturn(timer);
+        when(endpoint.getTimer(METRICS_NAME)).thenReturn(timer);
         when(timer.time()).thenReturn(context);
         when(exchange.getIn()).thenReturn(in);
+        when(exchange.getExchangeId()).thenReturn(EXCHANGE_ID);
+        running = new RunningTimer(context, EXCHANGE_ID, null);
     }
 
     @Test
@@ -71,15 +93,17 @@ public class TimerProducerTest {
     public void testProcessStart() throws Exception {
         when(endpoint.getAction()).thenReturn(TimerAction.start);
         when(in.getHeader(HEADER_TIMER_ACTION, TimerAction.start, TimerAction.class)).thenReturn(TimerAction.start);
-        when(exchange.getProperty(PROPERTY_NAME, Timer.Context.class)).thenReturn(null);
+        when(exchange.getProperty(PROPERTY_NAME, RunningTimer.class)).thenReturn(null);
         producer.doProcess(exchange, endpoint, registry, METRICS_NAME);
         inOrder.verify(exchange, times(1)).getIn();
         inOrder.verify(endpoint, times(1)).getAction();
         inOrder.verify(in, times(1)).getHeader(HEADER_TIMER_ACTION, TimerAction.start, TimerAction.class);
-        inOrder.verify(exchange, times(1)).getProperty(PROPERTY_NAME, Timer.Context.class);
-        inOrder.verify(registry, times(1)).timer(METRICS_NAME);
+        inOrder.verify(exchange, times(1)).getProperty(PROPERTY_NAME, RunningTimer.class);
+        inOrder.verify(endpoint, times(1)).getTimer(METRICS_NAME);
         inOrder.verify(timer, times(1)).time();
-        inOrder.verify(exchange, times(1)).setProperty(PROPERTY_NAME, context);
+        inOrder.verify(exchange, times(1)).getExchangeId();
+        inOrder.verify(exchange, times(1)).setProperty(eq(PROPERTY_NAME), any(RunningTimer.class));
+        inOrder.verify(endpoint, times(1)).isAutoStop();
         inOrder.verifyNoMoreInteractions();
     }
 
@@ -87,14 +111,16 @@ public class TimerProducerTest {
     public void testProcessStartWithOverride() throws Exception {
         when(endpoint.getAction()).thenReturn(TimerAction.start);
         when(in.getHeader(HEADER_TIMER_ACTION, TimerAction.start, TimerAction.class)).thenReturn(TimerAction.stop);
-        when(exchange.getProperty(PROPERTY_NAME, Timer.Context.class)).thenReturn(context);
+        when(exchange.getProperty(PROPERTY_NAME, RunningTimer.class)).thenReturn(running);
         producer.doProcess(exchange, endpoint, registry, METRICS_NAME);
         inOrder.verify(exchange, times(1)).getIn();
         inOrder.verify(endpoint, times(1)).getAction();
         inOrder.verify(in, times(1)).getHeader(HEADER_TIMER_ACTION, TimerAction.start, TimerAction.class);
-        inOrder.verify(exchange, times(1)).getProperty(PROPERTY_NAME, Timer.Context.class);
+        inOrder.verify(exchange, times(1)).getProperty(PROPERTY_NAME, RunningTimer.class);
+        inOrder.verify(exchange, times(1)).getExchangeId();
         inOrder.verify(context, times(1)).stop();
         inOrder.verify(exchange, times(1)).removeProperty(PROPERTY_NAME);
+        inOrder.verify(endpoint, times(1)).getSlowExchanges();
         inOrder.verifyNoMoreInteractions();
     }
 
@@ -102,14 +128,16 @@ public class TimerProducerTest {
     public void testProcessStop() throws Exception {
         when(endpoint.getAction()).thenReturn(TimerAction.stop);
         when(in.getHeader(HEADER_TIMER_ACTION, TimerAction.stop, TimerAction.class)).thenReturn(TimerAction.stop);
-        when(exchange.getProperty(PROPERTY_NAME, Timer.Context.class)).thenReturn(context);
+        when(exchange.getProperty(PROPERTY_NAME, RunningTimer.class)).thenReturn(running);
         producer.doProcess(exchange, endpoint, registry, METRICS_NAME);
         inOrder.verify(exchange, times(1)).getIn();
         inOrder.verify(endpoint, times(1)).getAction();
         inOrder.verify(in, times(1)).getHeader(HEADER_TIMER_ACTION, TimerAction.stop, TimerAction.class);
-        inOrder.verify(exchange, times(1)).getProperty(PROPERTY_NAME, Timer.Context.class);
+        inOrder.verify(exchange, times(1)).getProperty(PROPERTY_NAME, RunningTimer.class);
+        inOrder.verify(exchange, times(1)).getExchangeId();
         inOrder.verify(context, times(1)).stop();
         inOrder.verify(exchange, times(1)).removeProperty(PROPERTY_NAME);
+        inOrder.verify(endpoint, times(1)).getSlowExchanges();
         inOrder.verifyNoMoreInteractions();
     }
 
@@ -117,15 +145,17 @@ public class TimerProducerTest {
     public void testProcessStopWithOverride() throws Exception {
         when(endpoint.getAction()).thenReturn(TimerAction.stop);
         when(in.getHeader(HEADER_TIMER_ACTION, TimerAction.stop, TimerAction.class)).thenReturn(TimerAction.start);
-        when(exchange.getProperty(PROPERTY_NAME, Timer.Context.class)).thenReturn(null);
+        when(exchange.getProperty(PROPERTY_NAME, RunningTimer.class)).thenReturn(null);
         producer.doProcess(exchange, endpoint, registry, METRICS_NAME);
         inOrder.verify(exchange, times(1)).getIn();
         inOrder.verify(endpoint, times(1)).getAction();
         inOrder.verify(in, times(1)).getHeader(HEADER_TIMER_ACTION, TimerAction.stop, TimerAction.class);
-        inOrder.verify(exchange, times(1)).getProperty(PROPERTY_NAME, Timer.Context.class);
-        inOrder.verify(registry, times(1)).timer(METRICS_NAME);
+        inOrder.verify(exchange, times(1)).getProperty(PROPERTY_NAME, RunningTimer.class);
+        inOrder.verify(endpoint, times(1)).getTimer(METRICS_NAME);
         inOrder.verify(timer, times(1)).time();
-        inOrder.verify(exchange, times(1)).setProperty(PROPERTY_NAME, context);
+        inOrder.verify(exchange, times(1)).getExchangeId();
+        inOrder.verify(exchange, times(1)).setProperty(eq(PROPERTY_NAME), any(RunningTimer.class));
+        inOrder.verify(endpoint, times(1)).isAutoStop();
         inOrder.verifyNoMoreInteractions();
     }
 
@@ -137,6 +167,7 @@ public class TimerProducerTest {
         inOrder.verify(exchange, times(1)).getIn();
         inOrder.verify(endpoint, times(1)).getAction();
         inOrder.verify(in, times(1)).getHeader(HEADER_TIMER_ACTION, null, TimerAction.class);
+        inOrder.verify(endpoint, times(1)).onError(any(Logger.class), eq("noAction"), anyString(), eq(METRICS_NAME));
         inOrder.verifyNoMoreInteractions();
     }
 
@@ -148,47 +179,329 @@ public class TimerProducerTest {
         inOrder.verify(exchange, times(1)).getIn();
         inOrder.verify(endpoint, times(1)).getAction();
         inOrder.verify(in, times(1)).getHeader(HEADER_TIMER_ACTION, null, TimerAction.class);
-        inOrder.verify(exchange, times(1)).getProperty(PROPERTY_NAME, Timer.Context.class);
-        inOrder.verify(registry, times(1)).timer(METRICS_NAME);
+        inOrder.verify(exchange, times(1)).getProperty(PROPERTY_NAME, RunningTimer.class);
+        inOrder.verify(endpoint, times(1)).getTimer(METRICS_NAME);
         inOrder.verify(timer, times(1)).time();
-        inOrder.verify(exchange, times(1)).setProperty(PROPERTY_NAME, context);
+        inOrder.verify(exchange, times(1)).getExchangeId();
+        inOrder.verify(exchange, times(1)).setProperty(eq(PROPERTY_NAME), any(RunningTimer.class));
+        inOrder.verify(endpoint, times(1)).isAutoStop();
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void testProcessUpdate() throws Exception {
+        when(endpoint.getAction()).thenReturn(TimerAction.update);
+        when(endpoint.getDurationUnit()).thenReturn(TimeUnit.MILLISECONDS);
+        when(in.getHeader(HEADER_TIMER_ACTION, TimerAction.update, TimerAction.class)).thenReturn(TimerAction.update);
+        when(in.getHeader(HEADER_TIMER_DURATION)).thenReturn(DURATION);
+        producer.doProcess(exchange, endpoint, registry, METRICS_NAME);
+        inOrder.verify(exchange, times(1)).getIn();
+        inOrder.verify(endpoint, times(1)).getAction();
+        inOrder.verify(in, times(1)).getHeader(HEADER_TIMER_ACTION, TimerAction.update, TimerAction.class);
+        inOrder.verify(endpoint, times(1)).getCorrelationExpression();
+        inOrder.verify(in, times(1)).getHeader(HEADER_TIMER_DURATION);
+        inOrder.verify(endpoint, times(1)).getTimer(METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).getDurationUnit();
+        inOrder.verify(timer, times(1)).update(DURATION, TimeUnit.MILLISECONDS);
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void testHandleUpdateFromEndpoint() throws Exception {
+        when(endpoint.getDuration()).thenReturn(DURATION);
+        when(endpoint.getDurationUnit()).thenReturn(TimeUnit.SECONDS);
+        when(in.getHeader(HEADER_TIMER_DURATION)).thenReturn(null);
+        producer.handleUpdate(exchange, in, endpoint, registry, METRICS_NAME);
+        inOrder.verify(in, times(1)).getHeader(HEADER_TIMER_DURATION);
+        inOrder.verify(endpoint, times(1)).evaluateValue(exchange);
+        inOrder.verify(endpoint, times(1)).getDuration();
+        inOrder.verify(endpoint, times(1)).getTimer(METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).getDurationUnit();
+        inOrder.verify(timer, times(1)).update(DURATION, TimeUnit.SECONDS);
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void testHandleUpdateFromBodyCollection() throws Exception {
+        when(endpoint.getDuration()).thenReturn(null);
+        when(endpoint.getDurationUnit()).thenReturn(TimeUnit.MILLISECONDS);
+        when(in.getHeader(HEADER_TIMER_DURATION)).thenReturn(null);
+        when(in.getBody()).thenReturn(Arrays.asList(10L, 20, 30L));
+        producer.handleUpdate(exchange, in, endpoint, registry, METRICS_NAME);
+        inOrder.verify(in, times(1)).getHeader(HEADER_TIMER_DURATION);
+        inOrder.verify(endpoint, times(1)).evaluateValue(exchange);
+        inOrder.verify(endpoint, times(1)).getDuration();
+        inOrder.verify(in, times(1)).getBody();
+        inOrder.verify(endpoint, times(1)).getTimer(METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).getDurationUnit();
+        inOrder.verify(timer, times(1)).update(10L, TimeUnit.MILLISECONDS);
+        inOrder.verify(timer, times(1)).update(20L, TimeUnit.MILLISECONDS);
+        inOrder.verify(timer, times(1)).update(30L, TimeUnit.MILLISECONDS);
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void testHandleUpdateFromLongArray() throws Exception {
+        when(endpoint.getDurationUnit()).thenReturn(TimeUnit.MICROSECONDS);
+        when(in.getHeader(HEADER_TIMER_DURATION)).thenReturn(new long[] { 1L, 2L });
+        producer.handleUpdate(exchange, in, endpoint, registry, METRICS_NAME);
+        inOrder.verify(in, times(1)).getHeader(HEADER_TIMER_DURATION);
+        inOrder.verify(endpoint, times(1)).getTimer(METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).getDurationUnit();
+        inOrder.verify(timer, times(1)).update(1L, TimeUnit.MICROSECONDS);
+        inOrder.verify(timer, times(1)).update(2L, TimeUnit.MICROSECONDS);
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void testHandleUpdateNoDuration() throws Exception {
+        when(endpoint.getDuration()).thenReturn(null);
+        when(in.getHeader(HEADER_TIMER_DURATION)).thenReturn(null);
+        when(in.getBody()).thenReturn(null);
+        producer.handleUpdate(exchange, in, endpoint, registry, METRICS_NAME);
+        inOrder.verify(in, times(1)).getHeader(HEADER_TIMER_DURATION);
+        inOrder.verify(endpoint, times(1)).evaluateValue(exchange);
+        inOrder.verify(endpoint, times(1)).getDuration();
+        inOrder.verify(in, times(1)).getBody();
+        inOrder.verify(endpoint, times(1)).onError(any(Logger.class), eq("nullDuration"), anyString(), eq(METRICS_NAME));
         inOrder.verifyNoMoreInteractions();
     }
 
     @Test
     public void testHandleStart() throws Exception {
-        when(exchange.getProperty(PROPERTY_NAME, Timer.Context.class)).thenReturn(null);
-        producer.handleStart(exchange, registry, METRICS_NAME);
-        inOrder.verify(exchange, times(1)).getProperty(PROPERTY_NAME, Timer.Context.class);
-        inOrder.verify(registry, times(1)).timer(METRICS_NAME);
+        when(exchange.getProperty(PROPERTY_NAME, RunningTimer.class)).thenReturn(null);
+        producer.handleStart(exchange, endpoint, registry, METRICS_NAME);
+        inOrder.verify(exchange, times(1)).getProperty(PROPERTY_NAME, RunningTimer.class);
+        inOrder.verify(endpoint, times(1)).getTimer(METRICS_NAME);
         inOrder.verify(timer, times(1)).time();
-        inOrder.verify(exchange, times(1)).setProperty(PROPERTY_NAME, context);
+        inOrder.verify(exchange, times(1)).getExchangeId();
+        inOrder.verify(exchange, times(1)).setProperty(eq(PROPERTY_NAME), any(RunningTimer.class));
+        inOrder.verify(endpoint, times(1)).isAutoStop();
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void testHandleStartWithAutoStop() throws Exception {
+        when(endpoint.isAutoStop()).thenReturn(true);
+        when(exchange.getProperty(PROPERTY_NAME, RunningTimer.class)).thenReturn(null);
+        producer.handleStart(exchange, endpoint, registry, METRICS_NAME);
+        inOrder.verify(exchange, times(1)).getProperty(PROPERTY_NAME, RunningTimer.class);
+        inOrder.verify(endpoint, times(1)).getTimer(METRICS_NAME);
+        inOrder.verify(timer, times(1)).time();
+        inOrder.verify(exchange, times(1)).getExchangeId();
+        inOrder.verify(exchange, times(1)).setProperty(eq(PROPERTY_NAME), any(RunningTimer.class));
+        inOrder.verify(endpoint, times(1)).isAutoStop();
+        inOrder.verify(endpoint, times(1)).getOutcomeTimer(METRICS_NAME, TimerSynchronization.SUCCESS);
+        inOrder.verify(endpoint, times(1)).getOutcomeTimer(METRICS_NAME, TimerSynchronization.FAILURE);
+        inOrder.verify(endpoint, times(1)).getSlowExchanges();
+        inOrder.verify(endpoint, times(1)).getSlowExchangeHeaders();
+        inOrder.verify(exchange, times(1)).addOnCompletion(any(TimerSynchronization.class));
         inOrder.verifyNoMoreInteractions();
     }
 
     @Test
     public void testHandleStartAlreadyRunning() throws Exception {
-        when(exchange.getProperty(PROPERTY_NAME, Timer.Context.class)).thenReturn(context);
-        producer.handleStart(exchange, registry, METRICS_NAME);
-        inOrder.verify(exchange, times(1)).getProperty(PROPERTY_NAME, Timer.Context.class);
+        when(exchange.getProperty(PROPERTY_NAME, RunningTimer.class)).thenReturn(running);
+        producer.handleStart(exchange, endpoint, registry, METRICS_NAME);
+        inOrder.verify(exchange, times(1)).getProperty(PROPERTY_NAME, RunningTimer.class);
+        inOrder.verify(exchange, times(1)).getExchangeId();
+        inOrder.verify(endpoint, times(1)).onError(any(Logger.class), eq("alreadyRunning"), anyString(), eq(METRICS_NAME));
         inOrder.verifyNoMoreInteractions();
     }
 
     @Test
     public void testHandleStop() throws Exception {
-        when(exchange.getProperty(PROPERTY_NAME, Timer.Context.class)).thenReturn(context);
-        producer.handleStop(exchange, registry, METRICS_NAME);
-        inOrder.verify(exchange, times(1)).getProperty(PROPERTY_NAME, Timer.Context.class);
+        when(exchange.getProperty(PROPERTY_NAME, RunningTimer.class)).thenReturn(running);
+        producer.handleStop(exchange, endpoint, registry, METRICS_NAME);
+        inOrder.verify(exchange, times(1)).getProperty(PROPERTY_NAME, RunningTimer.class);
+        inOrder.verify(exchange, times(1)).getExchangeId();
         inOrder.verify(context, times(1)).stop();
         inOrder.verify(exchange, times(1)).removeProperty(PROPERTY_NAME);
+        inOrder.verify(endpoint, times(1)).getSlowExchanges();
         inOrder.verifyNoMoreInteractions();
     }
 
+    @Test
+    public void testHandleStopWithSlowExchanges() throws Exception {
+        SlowExchanges slowExchanges = new SlowExchanges(1);
+        when(endpoint.getSlowExchanges()).thenReturn(1);
+        when(endpoint.getSlowExchangeHeaders()).thenReturn(null);
+        when(endpoint.getSlowest(METRICS_NAME)).thenReturn(slowExchanges);
+        when(exchange.getProperty(PROPERTY_NAME, RunningTimer.class)).thenReturn(running);
+        when(context.stop()).thenReturn(DURATION);
+        producer.handleStop(exchange, endpoint, registry, METRICS_NAME);
+        inOrder.verify(exchange, times(1)).getProperty(PROPERTY_NAME, RunningTimer.class);
+        inOrder.verify(exchange, times(1)).getExchangeId();
+        inOrder.verify(context, times(1)).stop();
+        inOrder.verify(exchange, times(1)).removeProperty(PROPERTY_NAME);
+        inOrder.verify(endpoint, times(1)).getSlowExchanges();
+        inOrder.verify(endpoint, times(1)).getSlowest(METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).getSlowExchangeHeaders();
+        assertThat(slowExchanges.getValue().size(), is(1));
+        assertThat(slowExchanges.getValue().get(0).getExchangeId(), is(EXCHANGE_ID));
+        assertThat(slowExchanges.getValue().get(0).getDuration(), is(DURATION));
+    }
+
     @Test
     public void testHandleStopContextNotFound() throws Exception {
-        when(exchange.getProperty(PROPERTY_NAME, Timer.Context.class)).thenReturn(null);
-        producer.handleStop(exchange, registry, METRICS_NAME);
-        inOrder.verify(exchange, times(1)).getProperty(PROPERTY_NAME, Timer.Context.class);
+        when(exchange.getProperty(PROPERTY_NAME, RunningTimer.class)).thenReturn(null);
+        producer.handleStop(exchange, endpoint, registry, METRICS_NAME);
+        inOrder.verify(exchange, times(1)).getProperty(PROPERTY_NAME, RunningTimer.class);
+        inOrder.verify(endpoint, times(1)).onError(any(Logger.class), eq("notFound"), anyString(), eq(METRICS_NAME));
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void testHandleStartCopiedTimer() throws Exception {
+        when(exchange.getProperty(PROPERTY_NAME, RunningTimer.class)).thenReturn(running);
+        when(exchange.getExchangeId()).thenReturn("exchange-2");
+        when(endpoint.getTimer(METRICS_NAME + "." + RunningTimer.BRANCH)).thenReturn(timer);
+        producer.handleStart(exchange, endpoint, registry, METRICS_NAME);
+        inOrder.verify(exchange, times(1)).getProperty(PROPERTY_NAME, RunningTimer.class);
+        inOrder.verify(exchange, times(1)).getExchangeId();
+        inOrder.verify(endpoint, times(1)).getTimer(METRICS_NAME + "." + RunningTimer.BRANCH);
+        inOrder.verify(timer, times(1)).time();
+        inOrder.verify(exchange, times(1)).getExchangeId();
+        inOrder.verify(exchange, times(1)).setProperty(eq(PROPERTY_NAME), any(RunningTimer.class));
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void testHandleStopCopiedTimer() throws Exception {
+        when(exchange.getProperty(PROPERTY_NAME, RunningTimer.class)).thenReturn(running);
+        when(exchange.getExchangeId()).thenReturn("exchange-2");
+        when(endpoint.getTimer(METRICS_NAME + "." + RunningTimer.BRANCH)).thenReturn(timer);
+        producer.handleStop(exchange, endpoint, registry, METRICS_NAME);
+        inOrder.verify(exchange, times(1)).getProperty(PROPERTY_NAME, RunningTimer.class);
+        inOrder.verify(exchange, times(1)).getExchangeId();
+        inOrder.verify(endpoint, times(1)).getTimer(METRICS_NAME + "." + RunningTimer.BRANCH);
+        inOrder.verify(timer, times(1)).update(anyLong(), eq(TimeUnit.NANOSECONDS));
+        inOrder.verify(exchange, times(1)).removeProperty(PROPERTY_NAME);
+        inOrder.verifyNoMoreInteractions();
+        assertThat(running.getBranchCount(), is(1));
+    }
+
+    @Test
+    public void testHandleStopBranchTimer() throws Exception {
+        RunningTimer branch = new RunningTimer(context, "exchange-2", running);
+        when(exchange.getProperty(PROPERTY_NAME, RunningTimer.class)).thenReturn(branch);
+        when(exchange.getExchangeId()).thenReturn("exchange-2");
+        producer.handleStop(exchange, endpoint, registry, METRICS_NAME);
+        inOrder.verify(exchange, times(1)).getProperty(PROPERTY_NAME, RunningTimer.class);
+        inOrder.verify(exchange, times(1)).getExchangeId();
+        inOrder.verify(context, times(1)).stop();
+        inOrder.verify(exchange, times(1)).removeProperty(PROPERTY_NAME);
+        inOrder.verifyNoMoreInteractions();
+        assertThat(running.getBranchCount(), is(1));
+    }
+
+    @Test
+    public void testHandleStopWithBranches() throws Exception {
+        running.branchStopped();
+        running.branchStopped();
+        when(exchange.getProperty(PROPERTY_NAME, RunningTimer.class)).thenReturn(running);
+        when(registry.histogram(METRICS_NAME + "." + RunningTimer.BRANCHES)).thenReturn(histogram);
+        producer.handleStop(exchange, endpoint, registry, METRICS_NAME);
+        inOrder.verify(exchange, times(1)).getProperty(PROPERTY_NAME, RunningTimer.class);
+        inOrder.verify(exchange, times(1)).getExchangeId();
+        inOrder.verify(context, times(1)).stop();
+        inOrder.verify(exchange, times(1)).removeProperty(PROPERTY_NAME);
+        inOrder.verify(registry, times(1)).histogram(METRICS_NAME + "." + RunningTimer.BRANCHES);
+        inOrder.verify(endpoint, times(1)).getSlowExchanges();
+        inOrder.verifyNoMoreInteractions();
+        Mockito.verify(histogram, times(1)).update(2);
+    }
+
+    @Test
+    public void testHandleCorrelatedStartStop() throws Exception {
+        CorrelationStore store = new CorrelationStore(10, 1L, TimeUnit.MINUTES, new Counter());
+        when(endpoint.getCorrelationExpression()).thenReturn("${header.id}");
+        when(endpoint.evaluateCorrelation(exchange)).thenReturn("id-1");
+        when(endpoint.getCorrelationStore(METRICS_NAME)).thenReturn(store);
+        producer.handleStart(exchange, endpoint, registry, METRICS_NAME);
+        assertThat(store.size(), is(1));
+        producer.handleStop(exchange, endpoint, registry, METRICS_NAME);
+        assertThat(store.size(), is(0));
+        inOrder.verify(endpoint, times(1)).getCorrelationExpression();
+        inOrder.verify(endpoint, times(1)).evaluateCorrelation(exchange);
+        inOrder.verify(endpoint, times(1)).getSampler();
+        inOrder.verify(endpoint, times(1)).getCorrelationStore(METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).getCorrelationExpression();
+        inOrder.verify(endpoint, times(1)).evaluateCorrelation(exchange);
+        inOrder.verify(endpoint, times(1)).getSampler();
+        inOrder.verify(endpoint, times(1)).getCorrelationStore(METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).getTimer(METRICS_NAME);
+        inOrder.verify(timer, times(1)).update(any(Long.class), eq(TimeUnit.NANOSECONDS));
+        inOrder.verify(endpoint, times(1)).getSlowExchanges();
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void testHandleCorrelatedSampledByKey() throws Exception {
+        CorrelationStore store = new CorrelationStore(100, 1L, TimeUnit.MINUTES, new Counter());
+        Sampler sampler = new Sampler(0.25);
+        when(endpoint.getCorrelationExpression()).thenReturn("${header.id}");
+        when(endpoint.getSampler()).thenReturn(sampler);
+        when(endpoint.getCorrelationStore(METRICS_NAME)).thenReturn(store);
+        int sampled = 0;
+        for (int i = 0; i < 40; i++) {
+            when(endpoint.evaluateCorrelation(exchange)).thenReturn("id-" + i);
+            producer.handleStart(exchange, endpoint, registry, METRICS_NAME);
+            if (sampler.isKeySampled("id-" + i)) {
+                sampled++;
+            }
+        }
+        assertThat(sampled > 0 && sampled < 40, is(true));
+        assertThat(store.size(), is(sampled));
+        for (int i = 0; i < 40; i++) {
+            when(endpoint.evaluateCorrelation(exchange)).thenReturn("id-" + i);
+            producer.handleStop(exchange, endpoint, registry, METRICS_NAME);
+        }
+        assertThat(store.size(), is(0));
+        Mockito.verify(timer, times(sampled)).update(anyLong(), eq(TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    public void testProcessCorrelatedNotSampledByExchange() throws Exception {
+        Sampler sampler = Mockito.mock(Sampler.class);
+        when(endpoint.getCorrelationExpression()).thenReturn("${header.id}");
+        when(endpoint.getSampler()).thenReturn(sampler);
+        assertThat(producer.isSampled(exchange, endpoint), is(true));
+        Mockito.verifyZeroInteractions(sampler);
+    }
+
+    @Test
+    public void testHandleCorrelatedStartAlreadyRunning() throws Exception {
+        CorrelationStore store = new CorrelationStore(10, 1L, TimeUnit.MINUTES, new Counter());
+        store.start("id-1");
+        when(endpoint.getCorrelationExpression()).thenReturn("${header.id}");
+        when(endpoint.evaluateCorrelation(exchange)).thenReturn("id-1");
+        when(endpoint.getCorrelationStore(METRICS_NAME)).thenReturn(store);
+        producer.handleStart(exchange, endpoint, registry, METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).getCorrelationStore(METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).onError(any(Logger.class), eq("rejected"), anyString(), eq(METRICS_NAME), eq("id-1"));
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void testHandleCorrelatedStopNotFound() throws Exception {
+        CorrelationStore store = new CorrelationStore(10, 1L, TimeUnit.MINUTES, new Counter());
+        when(endpoint.getCorrelationExpression()).thenReturn("${header.id}");
+        when(endpoint.evaluateCorrelation(exchange)).thenReturn("id-1");
+        when(endpoint.getCorrelationStore(METRICS_NAME)).thenReturn(store);
+        producer.handleStop(exchange, endpoint, registry, METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).getCorrelationStore(METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).onError(any(Logger.class), eq("notFound"), anyString(), eq(METRICS_NAME), eq("id-1"));
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void testHandleCorrelatedStopNullCorrelation() throws Exception {
+        when(endpoint.getCorrelationExpression()).thenReturn("${header.id}");
+        when(endpoint.evaluateCorrelation(exchange)).thenReturn(null);
+        producer.handleStop(exchange, endpoint, registry, METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).evaluateCorrelation(exchange);
+        inOrder.verify(endpoint, times(1)).onError(any(Logger.class), eq("nullCorrelation"), anyString(), eq(METRICS_NAME));
         inOrder.verifyNoMoreInteractions();
     }
 
@@ -199,17 +512,31 @@ public class TimerProducerTest {
 
     @Test
     public void testGetTimerContextFromExchange() throws Exception {
-        when(exchange.getProperty(PROPERTY_NAME, Timer.Context.class)).thenReturn(context);
-        assertThat(producer.getTimerContextFromExchange(exchange, PROPERTY_NAME), is(context));
-        inOrder.verify(exchange, times(1)).getProperty(PROPERTY_NAME, Timer.Context.class);
+        when(exchange.getProperty(PROPERTY_NAME, RunningTimer.class)).thenReturn(running);
+        assertThat(producer.getTimerContextFromExchange(exchange, PROPERTY_NAME), is(running));
+        inOrder.verify(exchange, times(1)).getProperty(PROPERTY_NAME, RunningTimer.class);
         inOrder.verifyNoMoreInteractions();
     }
 
     @Test
     public void testGetTimerContextFromExchangeNotFound() throws Exception {
-        when(exchange.getProperty(PROPERTY_NAME, Timer.Context.class)).thenReturn(null);
+        when(exchange.getProperty(PROPERTY_NAME, RunningTimer.class)).thenReturn(null);
         assertThat(producer.getTimerContextFromExchange(exchange, PROPERTY_NAME), is(nullValue()));
-        inOrder.verify(exchange, times(1)).getProperty(PROPERTY_NAME, Timer.Context.class);
+        inOrder.verify(exchange, times(1)).getProperty(PROPERTY_NAME, RunningTimer.class);
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void testHandleUpdateFromValueExpression() throws Exception {
+        when(endpoint.getDuration()).thenReturn(DURATION);
+        when(endpoint.getDurationUnit()).thenReturn(TimeUnit.SECONDS);
+        when(endpoint.evaluateValue(exchange)).thenReturn(14L);
+        producer.handleUpdate(exchange, in, endpoint, registry, METRICS_NAME);
+        inOrder.verify(in, times(1)).getHeader(HEADER_TIMER_DURATION);
+        inOrder.verify(endpoint, times(1)).evaluateValue(exchange);
+        inOrder.verify(endpoint, times(1)).getTimer(METRICS_NAME);
+        inOrder.verify(endpoint, times(1)).getDurationUnit();
+        inOrder.verify(timer, times(1)).update(14L, TimeUnit.SECONDS);
         inOrder.verifyNoMoreInteractions();
     }
 }
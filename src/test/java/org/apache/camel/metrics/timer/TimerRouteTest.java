@@ -2,11 +2,15 @@ package org.apache.camel.metrics.timer;
 
 import static org.apache.camel.metrics.MetricsComponent.HEADER_METRIC_NAME;
 import static org.apache.camel.metrics.MetricsComponent.HEADER_TIMER_ACTION;
+import static org.apache.camel.metrics.MetricsComponent.HEADER_TIMER_DURATION;
 import static org.apache.camel.metrics.MetricsComponent.METRIC_REGISTRY_NAME;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.concurrent.TimeUnit;
+
 import org.apache.camel.EndpointInject;
 import org.apache.camel.Produce;
 import org.apache.camel.ProducerTemplate;
@@ -27,6 +31,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.test.context.ContextConfiguration;
 
+import com.codahale.metrics.Counter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
 
@@ -46,6 +51,9 @@ public class TimerRouteTest {
     @Produce(uri = "direct:in-2")
     private ProducerTemplate producer2;
 
+    @Produce(uri = "direct:in-3")
+    private ProducerTemplate producer3;
+
     private MetricRegistry mockRegistry;
 
     private Timer mockTimer;
@@ -69,6 +77,10 @@ public class TimerRouteTest {
                     from("direct:in-2")
                             .to("metrics:timer:A")
                             .to("mock:out");
+
+                    from("direct:in-3")
+                            .to("metrics:timer:A?action=update&durationUnit=SECONDS")
+                            .to("mock:out");
                 }
             };
         }
@@ -83,6 +95,8 @@ public class TimerRouteTest {
     public void setup() {
         // TODO - 12.05.2014, Lauri - is there any better way to set this up?
         mockRegistry = endpoint.getCamelContext().getRegistry().lookupByNameAndType(METRIC_REGISTRY_NAME, MetricRegistry.class);
+        // forget metrics registered when routes were started
+        reset(mockRegistry);
         mockTimer = Mockito.mock(Timer.class);
         inOrder = Mockito.inOrder(mockRegistry, mockTimer);
     }
@@ -108,12 +122,17 @@ public class TimerRouteTest {
 
     @Test
     public void testOverrideExistingAction() throws Exception {
+        Counter errors = Mockito.mock(Counter.class);
         when(mockRegistry.timer("A")).thenReturn(mockTimer);
+        when(mockRegistry.counter("A.errors")).thenReturn(errors);
         Object body = new Object();
         endpoint.expectedBodiesReceived(body);
         producer1.sendBodyAndHeader(body, HEADER_TIMER_ACTION, TimerAction.stop);
         endpoint.assertIsSatisfied();
+        // timer not started
+        inOrder.verify(mockRegistry, times(1)).counter("A.errors");
         inOrder.verifyNoMoreInteractions();
+        verify(errors, times(1)).inc();
     }
 
     @Test
@@ -127,4 +146,27 @@ public class TimerRouteTest {
         inOrder.verify(mockTimer, times(1)).time();
         inOrder.verifyNoMoreInteractions();
     }
+
+    @Test
+    public void testUpdateFromHeader() throws Exception {
+        when(mockRegistry.timer("A")).thenReturn(mockTimer);
+        Object body = new Object();
+        endpoint.expectedBodiesReceived(body);
+        producer3.sendBodyAndHeader(body, HEADER_TIMER_DURATION, 31L);
+        endpoint.assertIsSatisfied();
+        inOrder.verify(mockRegistry, times(1)).timer("A");
+        inOrder.verify(mockTimer, times(1)).update(31L, TimeUnit.SECONDS);
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void testUpdateFromBody() throws Exception {
+        when(mockRegistry.timer("A")).thenReturn(mockTimer);
+        endpoint.expectedMessageCount(1);
+        producer3.sendBody("12");
+        endpoint.assertIsSatisfied();
+        inOrder.verify(mockRegistry, times(1)).timer("A");
+        inOrder.verify(mockTimer, times(1)).update(12L, TimeUnit.SECONDS);
+        inOrder.verifyNoMoreInteractions();
+    }
 }
@@ -0,0 +1,135 @@
+package org.apache.camel.metrics.timer;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.Message;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.codahale.metrics.Timer;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TimerSynchronizationTest {
+
+    private static final String METRICS_NAME = "metrics.name";
+    private static final String PROPERTY_NAME = TimerEndpoint.ENDPOINT_URI + ":" + METRICS_NAME;
+    private static final long ELAPSED = 1000L;
+    private static final String EXCHANGE_ID = "exchange-1";
+
+    @Mock
+    private Exchange exchange;
+
+    @Mock
+    private Message in;
+
+    @Mock
+    private Timer.Context context;
+
+    @Mock
+    private Timer successTimer;
+
+    @Mock
+    private Timer failureTimer;
+
+    private RunningTimer running;
+
+    private TimerSynchronization synchronization;
+
+    private InOrder inOrder;
+
+    @Before
+    public void setUp() throws Exception {
+        running = new RunningTimer(context, EXCHANGE_ID, null);
+        synchronization = new TimerSynchronization(successTimer, failureTimer, METRICS_NAME, PROPERTY_NAME, running, null, null);
+        inOrder = Mockito.inOrder(exchange, context, successTimer, failureTimer);
+        when(context.stop()).thenReturn(ELAPSED);
+        when(exchange.getExchangeId()).thenReturn(EXCHANGE_ID);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void testTimerSynchronization() throws Exception {
+        assertThat(synchronization.getMetricsName(), is(METRICS_NAME));
+        assertThat(synchronization.getPropertyName(), is(PROPERTY_NAME));
+    }
+
+    @Test
+    public void testOnComplete() throws Exception {
+        synchronization.onComplete(exchange);
+        inOrder.verify(exchange, times(1)).getExchangeId();
+        inOrder.verify(context, times(1)).stop();
+        inOrder.verify(exchange, times(1)).removeProperty(PROPERTY_NAME);
+        inOrder.verify(successTimer, times(1)).update(ELAPSED, TimeUnit.NANOSECONDS);
+    }
+
+    @Test
+    public void testOnFailure() throws Exception {
+        synchronization.onFailure(exchange);
+        inOrder.verify(exchange, times(1)).getExchangeId();
+        inOrder.verify(context, times(1)).stop();
+        inOrder.verify(exchange, times(1)).removeProperty(PROPERTY_NAME);
+        inOrder.verify(failureTimer, times(1)).update(ELAPSED, TimeUnit.NANOSECONDS);
+    }
+
+    @Test
+    public void testOnCompleteTimerAlreadyStopped() throws Exception {
+        assertThat(running.stop(), is(ELAPSED));
+        synchronization.onComplete(exchange);
+        assertThat(running.isStopped(), is(true));
+        inOrder.verify(context, times(1)).stop();
+        inOrder.verify(exchange, times(1)).getExchangeId();
+        inOrder.verify(successTimer, times(1)).update(ELAPSED, TimeUnit.NANOSECONDS);
+    }
+
+    @Test
+    public void testOnFailureCapturesSlowExchange() throws Exception {
+        SlowExchanges slowExchanges = new SlowExchanges(1);
+        synchronization = new TimerSynchronization(successTimer, failureTimer, METRICS_NAME, PROPERTY_NAME, running, slowExchanges, null);
+        when(exchange.getIn()).thenReturn(in);
+        synchronization.onFailure(exchange);
+        assertThat(slowExchanges.getValue().size(), is(1));
+        assertThat(slowExchanges.getValue().get(0).getExchangeId(), is(EXCHANGE_ID));
+        assertThat(slowExchanges.getValue().get(0).getDuration(), is(ELAPSED));
+        inOrder.verify(exchange, times(1)).getExchangeId();
+        inOrder.verify(context, times(1)).stop();
+        inOrder.verify(exchange, times(1)).removeProperty(PROPERTY_NAME);
+        inOrder.verify(failureTimer, times(1)).update(ELAPSED, TimeUnit.NANOSECONDS);
+        inOrder.verify(exchange, times(1)).getIn();
+        inOrder.verify(exchange, times(1)).getExchangeId();
+    }
+
+    @Test
+    public void testOnCompleteStoppedTimerNotCapturedAgain() throws Exception {
+        SlowExchanges slowExchanges = new SlowExchanges(1);
+        synchronization = new TimerSynchronization(successTimer, failureTimer, METRICS_NAME, PROPERTY_NAME, running, slowExchanges, null);
+        assertThat(running.stop(), is(ELAPSED));
+        synchronization.onComplete(exchange);
+        assertThat(slowExchanges.getValue().isEmpty(), is(true));
+        inOrder.verify(context, times(1)).stop();
+        inOrder.verify(exchange, times(1)).getExchangeId();
+        inOrder.verify(successTimer, times(1)).update(ELAPSED, TimeUnit.NANOSECONDS);
+    }
+
+    @Test
+    public void testOnCompleteCopiedTimer() throws Exception {
+        when(exchange.getExchangeId()).thenReturn("exchange-2");
+        synchronization.onComplete(exchange);
+        inOrder.verify(exchange, times(1)).getExchangeId();
+    }
+}